@@ -0,0 +1,75 @@
+#!/usr/bin/env python3
+"""Regenerates src/main/resources/ai/bpe-merges.txt, the merge table BpeTokenizer uses to estimate tokens.
+
+The table comes from byte-level BPE training, GPT-2 style, on the English text of the Python
+documentation topics that ship with CPython (pydoc_data/topics.py). That text is covered by the
+Python Software Foundation License Version 2. The output holds only merge rules learned from its
+character statistics, not the text itself.
+
+The bundled file came from CPython 3.11. Training is deterministic, so the same Python version
+gives the same file:
+
+    python3 scripts/train_bpe_merges.py > src/main/resources/ai/bpe-merges.txt
+"""
+import collections
+import re
+import sys
+
+import pydoc_data.topics
+
+MERGES = 3000
+MIN_PAIR_COUNT = 3
+# Same pre-tokenizer as BpeTokenizer.PRE_TOKEN.
+PRE_TOKEN = re.compile(r"""'s|'t|'re|'ve|'m|'ll|'d| ?[^\W\d_]+| ?\d+| ?[^\s\w]+|\s+(?!\S)|\s+""")
+
+
+def bytes_to_unicode():
+    printable = (list(range(ord("!"), ord("~") + 1)) + list(range(ord("¡"), ord("¬") + 1))
+                 + list(range(ord("®"), ord("ÿ") + 1)))
+    chars = printable[:]
+    shifted = 0
+    for b in range(256):
+        if b not in printable:
+            printable.append(b)
+            chars.append(256 + shifted)
+            shifted += 1
+    return dict(zip(printable, map(chr, chars)))
+
+
+def merge(word, pair):
+    out = []
+    i = 0
+    while i < len(word):
+        if i < len(word) - 1 and (word[i], word[i + 1]) == pair:
+            out.append(word[i] + word[i + 1])
+            i += 2
+        else:
+            out.append(word[i])
+            i += 1
+    return tuple(out)
+
+
+def main():
+    byte_to_char = bytes_to_unicode()
+    text = "\n".join(pydoc_data.topics.topics.values())
+    words = collections.Counter(PRE_TOKEN.findall(text))
+    vocab = {tuple(byte_to_char[b] for b in w.encode()): c for w, c in words.items()}
+
+    out = sys.stdout
+    out.write("#version: 0.2\n")
+    for _ in range(MERGES):
+        pairs = collections.Counter()
+        for word, count in vocab.items():
+            for pair in zip(word, word[1:]):
+                pairs[pair] += count
+        if not pairs:
+            break
+        best, count = pairs.most_common(1)[0]
+        if count < MIN_PAIR_COUNT:
+            break
+        out.write(best[0] + " " + best[1] + "\n")
+        vocab = {merge(word, best): c for word, c in vocab.items()}
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,99 @@
+package com.practice.aiplatform.config;
+
+import com.practice.aiplatform.practice.PracticeHistoryDto;
+import com.practice.aiplatform.studyplan.StudyPlanDetailDto;
+import com.practice.aiplatform.studyplan.StudyPlanDetailStudentDto;
+import com.practice.aiplatform.studyplan.StudyPlanItemDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache value encodings on the two largest cached values: a 30-item study plan and a 50-answer
+ * practice history. Run with
+ * {@code mvn -Pjmh test-compile exec:exec -Djmh.args="CacheValueSerializerBenchmark -prof gc"};
+ * the encoded size of each combination is printed once per trial, before its timings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheValueSerializerBenchmark {
+
+    @Param({"JSON", "SMILE", "SMILE_LZ4"})
+    public String encoding;
+
+    @Param({"studyPlanDetail", "practiceHistory"})
+    public String value;
+
+    private CacheValueSerializer serializer;
+    private Object original;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        serializer = switch (encoding) {
+            case "JSON" -> new CacheValueSerializer(CacheValueSerializer.Format.JSON, 0);
+            case "SMILE" -> new CacheValueSerializer(CacheValueSerializer.Format.SMILE, 0);
+            // Same threshold as cache.serializer.compress-threshold-bytes.
+            default -> new CacheValueSerializer(CacheValueSerializer.Format.SMILE, 2048);
+        };
+        original = "studyPlanDetail".equals(value) ? studyPlanDetail() : practiceHistory();
+        encoded = serializer.serialize(original);
+        System.out.printf("%n%s %s: %d bytes%n", value, encoding, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(original);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serializer.deserialize(encoded);
+    }
+
+    private static StudyPlanDetailDto studyPlanDetail() {
+        List<StudyPlanItemDto> items = new ArrayList<>();
+        for (int i = 1; i <= 30; i++) {
+            items.add(new StudyPlanItemDto((long) i, i % 3 == 0 ? "PRACTICE" : "VIDEO", "Heaps part " + i,
+                    "Intro to heaps", "vid" + i, "https://www.youtube.com/watch?v=vid" + i,
+                    "https://i.ytimg.com/vi/vid" + i + "/hq.jpg", "Channel", "PT10M", "Data Structures", "Heaps",
+                    "Intermediate", (i + 1) / 2, i, 10, List.of(), false));
+        }
+        return new StudyPlanDetailDto(1L, "Data Structures", "Heaps", "Intermediate", 15,
+                "Generated from uploaded syllabus", 0,
+                new StudyPlanDetailStudentDto(10L, "Subh", "Ghosh", null, null, null, null, null, null, null,
+                        "FREE", 120, 3, "2026-01-01"),
+                items, LocalDateTime.of(2026, 1, 1, 9, 0), false, false);
+    }
+
+    private static PracticeHistoryDto practiceHistory() {
+        List<PracticeHistoryDto.QuestionAnswerDto> answers = new ArrayList<>();
+        LocalDateTime start = LocalDateTime.of(2026, 1, 1, 9, 0);
+        for (int i = 1; i <= 50; i++) {
+            answers.add(new PracticeHistoryDto.QuestionAnswerDto((long) i,
+                    "Which design pattern lets an object change its behaviour when its state changes? (" + i + ")",
+                    "Java", "OOP", "Intermediate", start.plusMinutes(i * 3L),
+                    "The State pattern, which delegates behaviour to a state object", i % 4 != 0,
+                    i % 4 != 0 ? "CORRECT" : "INCORRECT", null,
+                    "Right idea; mention that each state is its own class.", start.plusMinutes(i * 3L + 1)));
+        }
+        return new PracticeHistoryDto(10L, "Subh", answers);
+    }
+}
@@ -1,13 +1,19 @@
 package com.practice.aiplatform.ai;
 
+import com.practice.aiplatform.moderation.BlockedInputException;
 import com.practice.aiplatform.moderation.PromptModerationService;
 import com.practice.aiplatform.practice.Question;
 import com.practice.aiplatform.practice.QuestionRepository;
 import com.practice.aiplatform.user.Student;
 import com.practice.aiplatform.user.StudentRepository;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.security.Principal;
 import java.util.List;
@@ -24,16 +30,25 @@ public class AiController {
     private final QuestionRepository questionRepository;
     private final StudentRepository studentRepository;
     private final PromptModerationService promptModerationService;
+    private final NearDuplicateDetector nearDuplicateDetector;
+    private final QuestionPrefetcher questionPrefetcher;
+    private final QuestionPool questionPool;
 
     public AiController(
             AiService aiService,
             QuestionRepository questionRepository,
             StudentRepository studentRepository,
-            PromptModerationService promptModerationService) {
+            PromptModerationService promptModerationService,
+            NearDuplicateDetector nearDuplicateDetector,
+            QuestionPrefetcher questionPrefetcher,
+            QuestionPool questionPool) {
         this.aiService = aiService;
         this.questionRepository = questionRepository;
         this.studentRepository = studentRepository;
         this.promptModerationService = promptModerationService;
+        this.nearDuplicateDetector = nearDuplicateDetector;
+        this.questionPrefetcher = questionPrefetcher;
+        this.questionPool = questionPool;
     }
 
     public record GenerateQuestionRequest(
@@ -51,13 +66,15 @@ public class AiController {
     }
 
     @PostMapping("/generate-question")
-    public ResponseEntity<?> generateQuestion(@RequestBody GenerateQuestionRequest request, Principal principal) {
+    public Mono<ResponseEntity<?>> generateQuestion(@RequestBody GenerateQuestionRequest request, Principal principal) {
         try {
-            if (promptModerationService.isBlocked(
+            // In optimistic mode moderation runs alongside generation instead of before it.
+            boolean optimistic = promptModerationService.isOptimistic();
+            if (!optimistic && promptModerationService.isBlocked(
                     request.subject(),
                     request.topic(),
                     request.difficulty())) {
-                return ResponseEntity.badRequest().body(Map.of("message", promptModerationService.warningMessage()));
+                return Mono.just(ResponseEntity.badRequest().body(Map.of("message", promptModerationService.warningMessage())));
             }
 
             String email = principal.getName();
@@ -65,57 +82,147 @@ public class AiController {
             Student student = studentRepository.findByEmail(email)
                     .orElseThrow(() -> new RuntimeException("Student not found"));
 
-            String previousQuestionText = null;
-            if (request.previousQuestionId() != null) {
-                previousQuestionText = questionRepository.findById(request.previousQuestionId())
-                        .map(Question::getQuestionText)
-                        .orElse(null);
-            }
+            String previousQuestionText = request.previousQuestionId() == null
+                    ? null
+                    : questionRepository.findById(request.previousQuestionId())
+                            .map(Question::getQuestionText)
+                            .orElse(null);
 
             boolean answeredPrevious = request.previousStatus() != null
                     && ANSWERED_STATUSES.contains(request.previousStatus().trim().toUpperCase());
-            String questionText;
+            List<Question> recentQuestions = questionRepository
+                    .findTop12ByStudent_IdAndTopicIgnoreCaseOrderByGeneratedAtDesc(student.getId(), request.topic());
+            List<String> recentTexts = recentQuestions.stream().map(Question::getQuestionText).toList();
+
+            Mono<String> questionText;
 
             if (!answeredPrevious) {
                 // If the previous question is still unanswered, return the cached one for this context.
+                // The pool is left alone here, so repeated refreshes keep the same question and don't drain it.
                 questionText = aiService.generateQuestionFromCache(
                         request.subject(),
                         request.difficulty(),
                         request.topic());
             } else {
-                List<String> recentQuestionTexts = questionRepository
-                        .findTop12ByStudent_IdAndTopicIgnoreCaseOrderByGeneratedAtDesc(student.getId(), request.topic())
-                        .stream()
-                        .map(Question::getQuestionText)
-                        .toList();
-
                 // After an answer is submitted, force a fresh question and refresh cache.
-                questionText = aiService.generateFreshQuestionAndRefreshCache(
+                Mono<String> fresh = Mono.defer(() -> aiService.generateFreshQuestionAndRefreshCache(
                         request.subject(),
                         request.difficulty(),
                         request.topic(),
                         previousQuestionText,
                         request.previousStatus(),
-                        recentQuestionTexts);
+                        recentTexts,
+                        recentQuestions.stream().map(Question::getFingerprint).toList()));
+
+                // Prefer the question speculated for this outcome while the student was answering,
+                // then an unseen pooled question for the topic.
+                questionText = questionPrefetcher.take(
+                                email,
+                                request.previousQuestionId(),
+                                request.previousStatus().trim().toUpperCase(),
+                                request.subject(),
+                                request.topic(),
+                                request.difficulty())
+                        .map(prefetched -> prefetched.onErrorResume(e -> fresh))
+                        .orElseGet(() -> questionPool
+                                .take(request.subject(), request.difficulty(), request.topic(), recentTexts)
+                                .switchIfEmpty(fresh));
+            }
+
+            if (optimistic) {
+                questionText = promptModerationService.withholdUntilAllowed(
+                        questionText,
+                        request.subject(),
+                        request.topic(),
+                        request.difficulty());
+            }
+            // Blocked input never counts towards a tuple's popularity, so it cannot warm a pool.
+            questionText = questionText.doOnNext(
+                    text -> questionPool.recordRequest(request.subject(), request.difficulty(), request.topic()));
+
+            // The completion resolves on a Netty event-loop thread; hop off it before touching JPA.
+            return questionText
+                    .publishOn(Schedulers.boundedElastic())
+                    .<ResponseEntity<?>>map(text -> {
+                        Question question = new Question();
+                        question.setStudent(student);
+                        question.setSubject(request.subject());
+                        question.setTopic(request.topic());
+                        question.setDifficulty(request.difficulty());
+                        question.setQuestionText(text);
+                        question.setFingerprint(nearDuplicateDetector.fingerprint(text));
+
+                        Question saved = questionRepository.save(question);
+                        questionPrefetcher.prefetch(student, saved);
+                        return ResponseEntity.ok(saved);
+                    })
+                    .onErrorResume(BlockedInputException.class,
+                            e -> Mono.just(ResponseEntity.badRequest().body(Map.of("message", e.getMessage()))))
+                    .onErrorResume(Exception.class, e -> Mono.just(aiFailureResponse(e)));
+
+        } catch (Exception e) {
+            return Mono.just(aiFailureResponse(e));
+        }
+    }
+
+    @PostMapping(value = "/generate-question/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamQuestion(@RequestBody GenerateQuestionRequest request,
+            Principal principal) {
+        try {
+            if (promptModerationService.isBlocked(
+                    request.subject(),
+                    request.topic(),
+                    request.difficulty())) {
+                return Flux.just(AiStreamEvents.error(HttpStatus.BAD_REQUEST, promptModerationService.warningMessage()));
+            }
+
+            Student student = studentRepository.findByEmail(principal.getName())
+                    .orElseThrow(() -> new RuntimeException("Student not found"));
+
+            String previousQuestionText = null;
+            if (request.previousQuestionId() != null) {
+                previousQuestionText = questionRepository.findById(request.previousQuestionId())
+                        .map(Question::getQuestionText)
+                        .orElse(null);
             }
 
-            Question question = new Question();
-            question.setStudent(student);
-            question.setSubject(request.subject());
-            question.setTopic(request.topic());
-            question.setDifficulty(request.difficulty());
-            question.setQuestionText(questionText);
+            List<String> recentQuestionTexts = questionRepository
+                    .findTop12ByStudent_IdAndTopicIgnoreCaseOrderByGeneratedAtDesc(student.getId(), request.topic())
+                    .stream()
+                    .map(Question::getQuestionText)
+                    .toList();
 
-            Question saved = questionRepository.save(question);
-            return ResponseEntity.ok(saved);
+            StringBuilder questionText = new StringBuilder();
+            Mono<ServerSentEvent<Object>> persisted = Mono.fromCallable(() -> {
+                Question question = new Question();
+                question.setStudent(student);
+                question.setSubject(request.subject());
+                question.setTopic(request.topic());
+                question.setDifficulty(request.difficulty());
+                question.setQuestionText(questionText.toString().trim());
+                question.setFingerprint(nearDuplicateDetector.fingerprint(question.getQuestionText()));
+                return AiStreamEvents.complete(questionRepository.save(question));
+            }).subscribeOn(Schedulers.boundedElastic());
+
+            return aiService.streamQuestion(
+                    request.subject(),
+                    request.difficulty(),
+                    request.topic(),
+                    previousQuestionText,
+                    request.previousStatus(),
+                    recentQuestionTexts)
+                    .doOnNext(questionText::append)
+                    .map(AiStreamEvents::token)
+                    .concatWith(persisted)
+                    .onErrorResume(e -> Flux.just(AiStreamEvents.error(e)));
 
         } catch (Exception e) {
-            return aiFailureResponse(e);
+            return Flux.just(AiStreamEvents.error(e));
         }
     }
 
     @PostMapping("/get-hint")
-    public ResponseEntity<?> getHint(@RequestBody HintRequest request, Principal principal) {
+    public Mono<ResponseEntity<?>> getHint(@RequestBody HintRequest request, Principal principal) {
         try {
             String email = principal.getName();
 
@@ -125,21 +232,21 @@ public class AiController {
             Question question = questionRepository.findById(request.questionId())
                     .orElseThrow(() -> new RuntimeException("Question not found"));
 
-            String hint = aiService.getHint(
+            return aiService.getHint(
                     question.getQuestionText(),
                     question.getSubject(),
                     question.getTopic(),
-                    question.getDifficulty());
-
-            return ResponseEntity.ok(hint);
+                    question.getDifficulty())
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .onErrorResume(Exception.class, e -> Mono.just(aiFailureResponse(e)));
 
         } catch (Exception e) {
-            return aiFailureResponse(e);
+            return Mono.just(aiFailureResponse(e));
         }
     }
 
     @PostMapping("/get-answer")
-    public ResponseEntity<?> getAnswer(@RequestBody AnswerRequest request, Principal principal) {
+    public Mono<ResponseEntity<?>> getAnswer(@RequestBody AnswerRequest request, Principal principal) {
         try {
             String email = principal.getName();
 
@@ -149,16 +256,41 @@ public class AiController {
             Question question = questionRepository.findById(request.questionId())
                     .orElseThrow(() -> new RuntimeException("Question not found"));
 
-            String answer = aiService.getCorrectAnswer(
+            return aiService.getCorrectAnswer(
                     question.getQuestionText(),
                     question.getSubject(),
                     question.getTopic(),
-                    question.getDifficulty());
+                    question.getDifficulty())
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .onErrorResume(Exception.class, e -> Mono.just(aiFailureResponse(e)));
 
-            return ResponseEntity.ok(answer);
+        } catch (Exception e) {
+            return Mono.just(aiFailureResponse(e));
+        }
+    }
+
+    @PostMapping(value = "/get-hint/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamHint(@RequestBody HintRequest request, Principal principal) {
+        try {
+            studentRepository.findByEmail(principal.getName())
+                    .orElseThrow(() -> new RuntimeException("Student not found"));
+
+            Question question = questionRepository.findById(request.questionId())
+                    .orElseThrow(() -> new RuntimeException("Question not found"));
+
+            StringBuilder hint = new StringBuilder();
+            return aiService.streamHint(
+                    question.getQuestionText(),
+                    question.getSubject(),
+                    question.getTopic(),
+                    question.getDifficulty())
+                    .doOnNext(hint::append)
+                    .map(AiStreamEvents::token)
+                    .concatWith(Mono.fromSupplier(() -> AiStreamEvents.complete(hint.toString())))
+                    .onErrorResume(e -> Flux.just(AiStreamEvents.error(e)));
 
         } catch (Exception e) {
-            return aiFailureResponse(e);
+            return Flux.just(AiStreamEvents.error(e));
         }
     }
 
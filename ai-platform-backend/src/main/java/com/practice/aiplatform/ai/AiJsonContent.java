@@ -0,0 +1,49 @@
+package com.practice.aiplatform.ai;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * Reads the JSON payload out of generated text. Models often wrap it in markdown fences or a
+ * short preamble, so the parser starts at the first object/array and stops after that value.
+ * This avoids building cleaned-up copies of large completions just to strip the fences.
+ */
+public final class AiJsonContent {
+
+    private AiJsonContent() {
+    }
+
+    public static JsonNode readTree(ObjectMapper objectMapper, String content) throws IOException {
+        int start = jsonStart(content);
+        if (start < 0) {
+            throw new IOException("No JSON object or array found in generated content");
+        }
+
+        StringReader reader = new StringReader(content);
+        reader.skip(start);
+        try (JsonParser parser = objectMapper.getFactory().createParser(reader)) {
+            JsonNode root = objectMapper.readTree(parser);
+            if (root == null) {
+                throw new IOException("Generated content contained no JSON value");
+            }
+            return root;
+        }
+    }
+
+    private static int jsonStart(String content) {
+        if (content == null) {
+            return -1;
+        }
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (c == '{' || c == '[') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
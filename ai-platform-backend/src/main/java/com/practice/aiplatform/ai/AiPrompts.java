@@ -0,0 +1,51 @@
+package com.practice.aiplatform.ai;
+
+/**
+ * Practice-tier prompts, compiled once when the class loads. Cache keys and semantic scopes for
+ * the answers include {@link PromptTemplate#key()}, so rewording a prompt and bumping its version
+ * naturally retires the answers produced by the old wording.
+ */
+public final class AiPrompts {
+
+    public static final PromptTemplate CONTEXT_CORRECT = PromptTemplate.compile("context-correct", 1,
+            "The student just answered correctly on this topic: \"{{previousQuestion}}\". "
+                    + "Generate a slightly more challenging question. ",
+            "previousQuestion");
+
+    public static final PromptTemplate CONTEXT_INCORRECT = PromptTemplate.compile("context-incorrect", 1,
+            "The student just failed on this topic: \"{{previousQuestion}}\". "
+                    + "Generate a simpler question to reinforce basics. ",
+            "previousQuestion");
+
+    public static final PromptTemplate QUESTION = PromptTemplate.compile("question", 1,
+            "{{{context}}}Generate one fresh practice question for {{difficulty}} level in {{subject}} "
+                    + "on topic {{topic}}. {{{retryNote}}}{{{blockedQuestions}}}Return only question text.",
+            "context", "difficulty", "subject", "topic", "retryNote", "blockedQuestions");
+
+    // Question and answer text is often code, so it goes in verbatim between tags; escaping its quotes
+    // and backslashes would change what is being graded.
+    public static final PromptTemplate EVALUATE = PromptTemplate.compile("evaluate", 2,
+            "Subject: {{subject}}, Topic: {{topic}}, Level: {{difficulty}}.\n"
+                    + "Question:\n<question>\n{{{questionText}}}\n</question>\n"
+                    + "Student Answer:\n<student_answer>\n{{{answerText}}}\n</student_answer>\n\n"
+                    + "Reply in this format:\n"
+                    + "Line 1: CORRECT or INCORRECT or CLOSE\n"
+                    + "Line 2+: Feedback\n"
+                    + "If INCORRECT/CLOSE add [HINT] at end with a helpful hint.",
+            "subject", "topic", "difficulty", "questionText", "answerText");
+
+    public static final PromptTemplate HINT = PromptTemplate.compile("hint", 2,
+            "Give one concise hint only.\n"
+                    + "Subject: {{subject}}, Topic: {{topic}}, Difficulty: {{difficulty}}\n"
+                    + "Question:\n<question>\n{{{questionText}}}\n</question>",
+            "subject", "topic", "difficulty", "questionText");
+
+    public static final PromptTemplate ANSWER = PromptTemplate.compile("answer", 2,
+            "Provide the correct answer and short explanation.\n"
+                    + "Subject: {{subject}}, Topic: {{topic}}, Difficulty: {{difficulty}}\n"
+                    + "Question:\n<question>\n{{{questionText}}}\n</question>",
+            "subject", "topic", "difficulty", "questionText");
+
+    private AiPrompts() {
+    }
+}
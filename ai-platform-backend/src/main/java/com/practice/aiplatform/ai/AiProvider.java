@@ -0,0 +1,28 @@
+package com.practice.aiplatform.ai;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * A chat-completion backend the {@link AiRouter} can send traffic to. Each provider maps a
+ * {@link Tier} to its own model, so the router can move a request between providers freely.
+ */
+public interface AiProvider {
+
+    enum Tier {
+        PRACTICE,
+        STUDY_PLAN
+    }
+
+    String name();
+
+    String modelFor(Tier tier);
+
+    Mono<AiResponse> complete(Tier tier, String prompt);
+
+    /**
+     * Streams the raw {@code data:} payloads of a streaming completion, stopping before the
+     * {@code [DONE]} marker.
+     */
+    Flux<String> stream(Tier tier, String prompt);
+}
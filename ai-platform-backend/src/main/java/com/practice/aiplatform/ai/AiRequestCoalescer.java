@@ -0,0 +1,336 @@
+package com.practice.aiplatform.ai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Collapses identical practice prompts into one upstream completion. Callers in the same JVM
+ * share a single in-flight Mono; callers on other instances wait on a Redis lock and pick up
+ * the leader's result. Short prompts can optionally be packed into one multi-part completion.
+ */
+@Component
+public class AiRequestCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(AiRequestCoalescer.class);
+    private static final String LOCK_PREFIX = "ai:coalesce:lock:";
+    private static final String RESULT_PREFIX = "ai:coalesce:result:";
+    private static final String BATCH_PURPOSE = "batch";
+    private static final RedisScript<Long> RELEASE_SCRIPT = RedisScript.of(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper;
+    private final boolean clusterEnabled;
+    private final Duration lockTtl;
+    private final Duration resultTtl;
+    private final Duration waitTimeout;
+    private final Duration pollInterval;
+    private final boolean batchEnabled;
+    private final Duration batchWindow;
+    private final int batchMaxSize;
+    private final int batchMaxPromptChars;
+    private final ConcurrentMap<String, Mono<String>> inFlight = new ConcurrentHashMap<>();
+    private final Object batchLock = new Object();
+    private List<PendingPrompt> pendingBatch = new ArrayList<>();
+
+    @Autowired
+    public AiRequestCoalescer(
+            ObjectProvider<ReactiveStringRedisTemplate> redisTemplateProvider,
+            MeterRegistry meterRegistry,
+            ObjectMapper objectMapper,
+            @Value("${ai.coalescing.cluster.enabled:true}") boolean clusterEnabled,
+            @Value("${ai.coalescing.lock-ttl-ms:20000}") long lockTtlMs,
+            @Value("${ai.coalescing.result-ttl-ms:30000}") long resultTtlMs,
+            @Value("${ai.coalescing.wait-timeout-ms:15000}") long waitTimeoutMs,
+            @Value("${ai.coalescing.poll-interval-ms:150}") long pollIntervalMs,
+            @Value("${ai.coalescing.batch.enabled:false}") boolean batchEnabled,
+            @Value("${ai.coalescing.batch.window-ms:40}") long batchWindowMs,
+            @Value("${ai.coalescing.batch.max-size:4}") int batchMaxSize,
+            @Value("${ai.coalescing.batch.max-prompt-chars:1200}") int batchMaxPromptChars) {
+        this(redisTemplateProvider.getIfAvailable(), meterRegistry, objectMapper, clusterEnabled, lockTtlMs,
+                resultTtlMs, waitTimeoutMs, pollIntervalMs, batchEnabled, batchWindowMs, batchMaxSize,
+                batchMaxPromptChars);
+    }
+
+    AiRequestCoalescer(
+            ReactiveStringRedisTemplate redisTemplate,
+            MeterRegistry meterRegistry,
+            ObjectMapper objectMapper,
+            boolean clusterEnabled,
+            long lockTtlMs,
+            long resultTtlMs,
+            long waitTimeoutMs,
+            long pollIntervalMs,
+            boolean batchEnabled,
+            long batchWindowMs,
+            int batchMaxSize,
+            int batchMaxPromptChars) {
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.objectMapper = objectMapper;
+        this.clusterEnabled = clusterEnabled && redisTemplate != null;
+        this.lockTtl = Duration.ofMillis(lockTtlMs);
+        this.resultTtl = Duration.ofMillis(resultTtlMs);
+        this.waitTimeout = Duration.ofMillis(waitTimeoutMs);
+        this.pollInterval = Duration.ofMillis(pollIntervalMs);
+        this.batchEnabled = batchEnabled;
+        this.batchWindow = Duration.ofMillis(batchWindowMs);
+        this.batchMaxSize = Math.max(1, batchMaxSize);
+        this.batchMaxPromptChars = batchMaxPromptChars;
+    }
+
+    /**
+     * Resolves {@code prompt} through the coalescing layers. {@code completion} receives the prompt
+     * to send and the purpose to tag metrics with, which is {@code batch} for packed requests.
+     */
+    public Mono<String> complete(String purpose, String prompt, BiFunction<String, String, Mono<String>> completion) {
+        String key = hash(purpose + "\n" + prompt);
+        AtomicBoolean created = new AtomicBoolean(false);
+        Mono<String> shared = inFlight.computeIfAbsent(key, k -> {
+            created.set(true);
+            return clusterSingleFlight(k, purpose, () -> batchOrDirect(purpose, prompt, completion))
+                    .doFinally(signal -> inFlight.remove(k))
+                    .cache();
+        });
+        if (!created.get()) {
+            recordOutcome(purpose, "local_join");
+        }
+        return shared;
+    }
+
+    private Mono<String> clusterSingleFlight(String key, String purpose, Supplier<Mono<String>> loader) {
+        if (!clusterEnabled) {
+            return Mono.defer(() -> {
+                recordOutcome(purpose, "leader");
+                return loader.get();
+            });
+        }
+
+        String lockKey = LOCK_PREFIX + key;
+        String resultKey = RESULT_PREFIX + key;
+        String token = UUID.randomUUID().toString();
+        return redisTemplate.opsForValue().setIfAbsent(lockKey, token, lockTtl)
+                .onErrorResume(ex -> {
+                    // Redis being down must not block generation; run as an uncoordinated leader.
+                    log.warn("Coalescing lock unavailable. key={}. Calling upstream directly.", lockKey, ex);
+                    return Mono.just(Boolean.TRUE);
+                })
+                .flatMap(acquired -> {
+                    if (Boolean.TRUE.equals(acquired)) {
+                        recordOutcome(purpose, "leader");
+                        return lead(lockKey, resultKey, token, loader);
+                    }
+                    return follow(lockKey, resultKey, purpose, loader);
+                });
+    }
+
+    private Mono<String> lead(String lockKey, String resultKey, String token, Supplier<Mono<String>> loader) {
+        // The lock is released on every terminal signal, an empty completion included, so followers
+        // fall back at once instead of polling until the wait timeout.
+        return Mono.usingWhen(
+                Mono.just(token),
+                held -> loader.get()
+                        .flatMap(result -> redisTemplate.opsForValue().set(resultKey, result, resultTtl)
+                                .onErrorResume(ex -> Mono.just(Boolean.FALSE))
+                                .thenReturn(result)),
+                held -> release(lockKey, held),
+                (held, ex) -> release(lockKey, held),
+                held -> release(lockKey, held));
+    }
+
+    private Mono<String> follow(String lockKey, String resultKey, String purpose, Supplier<Mono<String>> loader) {
+        Mono<String> poll = Mono.defer(() -> redisTemplate.opsForValue().get(resultKey)
+                .switchIfEmpty(redisTemplate.hasKey(lockKey)
+                        .flatMap(held -> Boolean.TRUE.equals(held)
+                                ? Mono.<String>empty()
+                                : Mono.error(new IllegalStateException("Coalescing leader released without a result")))));
+
+        return poll
+                .repeatWhenEmpty(repeats -> repeats.delayElements(pollInterval))
+                .timeout(waitTimeout)
+                .doOnSuccess(result -> recordOutcome(purpose, "remote_join"))
+                .onErrorResume(ex -> {
+                    // Leader failed, timed out or Redis went away: fall back to our own call.
+                    recordOutcome(purpose, "fallback");
+                    return loader.get();
+                });
+    }
+
+    private Mono<Void> release(String lockKey, String token) {
+        return redisTemplate.execute(RELEASE_SCRIPT, List.of(lockKey), List.of(token))
+                .onErrorResume(ex -> Mono.empty())
+                .then();
+    }
+
+    private Mono<String> batchOrDirect(String purpose, String prompt,
+            BiFunction<String, String, Mono<String>> completion) {
+        if (!batchEnabled || batchMaxSize < 2 || prompt.length() > batchMaxPromptChars) {
+            return completion.apply(prompt, purpose);
+        }
+        return Mono.defer(() -> {
+            PendingPrompt pending = new PendingPrompt(purpose, prompt, completion, Sinks.one());
+            List<PendingPrompt> ready = null;
+            List<PendingPrompt> scheduled = null;
+            synchronized (batchLock) {
+                pendingBatch.add(pending);
+                if (pendingBatch.size() >= batchMaxSize) {
+                    ready = pendingBatch;
+                    pendingBatch = new ArrayList<>();
+                } else if (pendingBatch.size() == 1) {
+                    scheduled = pendingBatch;
+                }
+            }
+            if (ready != null) {
+                dispatch(ready);
+            } else if (scheduled != null) {
+                List<PendingPrompt> window = scheduled;
+                Mono.delay(batchWindow).subscribe(tick -> flushIfCurrent(window));
+            }
+            return pending.sink().asMono();
+        });
+    }
+
+    private void flushIfCurrent(List<PendingPrompt> window) {
+        synchronized (batchLock) {
+            // The window may already have been dispatched because it filled up.
+            if (pendingBatch != window) {
+                return;
+            }
+            pendingBatch = new ArrayList<>();
+        }
+        dispatch(window);
+    }
+
+    private void dispatch(List<PendingPrompt> batch) {
+        DistributionSummary.builder("ai.batch.size")
+                .register(meterRegistry)
+                .record(batch.size());
+
+        if (batch.size() == 1) {
+            dispatchIndividually(batch);
+            return;
+        }
+
+        PendingPrompt first = batch.get(0);
+        first.completion().apply(buildBatchPrompt(batch), BATCH_PURPOSE)
+                .subscribe(
+                        raw -> {
+                            List<String> results = parseBatchResults(raw, batch.size());
+                            if (results == null) {
+                                meterRegistry.counter("ai.batch.fallback", "reason", "parse").increment();
+                                dispatchIndividually(batch);
+                                return;
+                            }
+                            for (int i = 0; i < batch.size(); i++) {
+                                batch.get(i).sink().tryEmitValue(results.get(i));
+                            }
+                        },
+                        ex -> {
+                            meterRegistry.counter("ai.batch.fallback", "reason", "error").increment();
+                            dispatchIndividually(batch);
+                        });
+    }
+
+    private void dispatchIndividually(List<PendingPrompt> batch) {
+        for (PendingPrompt pending : batch) {
+            pending.completion().apply(pending.prompt(), pending.purpose())
+                    .subscribe(
+                            result -> pending.sink().tryEmitValue(result),
+                            ex -> pending.sink().tryEmitError(ex));
+        }
+    }
+
+    private String buildBatchPrompt(List<PendingPrompt> batch) {
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("Complete each of the following ").append(batch.size())
+                .append(" independent tasks separately, following each task's own instructions.\n")
+                .append("Return only JSON of the form {\"results\": [\"...\", \"...\"]} with exactly ")
+                .append(batch.size())
+                .append(" strings, one per task, in task order.\n");
+        for (int i = 0; i < batch.size(); i++) {
+            prompt.append("\n### Task ").append(i + 1).append("\n")
+                    .append(batch.get(i).prompt()).append("\n");
+        }
+        return prompt.toString();
+    }
+
+    private List<String> parseBatchResults(String raw, int expected) {
+        if (raw == null) {
+            return null;
+        }
+        int start = raw.indexOf('{');
+        int end = raw.lastIndexOf('}');
+        if (start < 0 || end <= start) {
+            return null;
+        }
+        try {
+            JsonNode results = objectMapper.readTree(raw.substring(start, end + 1)).path("results");
+            if (!results.isArray() || results.size() != expected) {
+                return null;
+            }
+            List<String> parsed = new ArrayList<>(expected);
+            for (JsonNode result : results) {
+                String text = result.asText("");
+                if (text.isBlank()) {
+                    return null;
+                }
+                parsed.add(text);
+            }
+            return parsed;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private void recordOutcome(String purpose, String outcome) {
+        meterRegistry.counter(
+                "ai.coalesce.count",
+                "purpose", purpose,
+                "outcome", outcome)
+                .increment();
+    }
+
+    private static String hash(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record PendingPrompt(
+            String purpose,
+            String prompt,
+            BiFunction<String, String, Mono<String>> completion,
+            Sinks.One<String> sink) {
+    }
+}
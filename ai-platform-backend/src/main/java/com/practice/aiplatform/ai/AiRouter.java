@@ -0,0 +1,263 @@
+package com.practice.aiplatform.ai;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routes completions across the configured {@link AiProvider}s. Every provider keeps a rolling
+ * window of latencies and failures; requests go to the fastest healthy provider, and a provider
+ * whose error rate crosses the threshold is ejected for a cooldown. Practice calls can be hedged:
+ * if the first attempt has not answered by the provider's p95, a second attempt is fired at the
+ * runner-up provider and the first response wins. With a single provider nothing is hedged, since
+ * a duplicate call to a slow upstream only adds to its load.
+ */
+@Component
+public class AiRouter {
+
+    private final List<AiProvider> providers;
+    private final Map<String, EndpointStats> stats = new LinkedHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final boolean hedgeEnabled;
+    private final Duration hedgeInitialDelay;
+    private final Duration hedgeMinDelay;
+    private final double explorationRate;
+
+    public AiRouter(
+            List<AiProvider> providers,
+            MeterRegistry meterRegistry,
+            @Value("${ai.router.hedge.enabled:true}") boolean hedgeEnabled,
+            @Value("${ai.router.hedge.initial-delay-ms:1500}") long hedgeInitialDelayMs,
+            @Value("${ai.router.hedge.min-delay-ms:150}") long hedgeMinDelayMs,
+            @Value("${ai.router.exploration-rate:0.05}") double explorationRate,
+            @Value("${ai.router.ejection.error-rate:0.5}") double ejectionErrorRate,
+            @Value("${ai.router.ejection.min-samples:5}") int ejectionMinSamples,
+            @Value("${ai.router.ejection.cooldown-seconds:15}") long ejectionCooldownSeconds) {
+        if (providers.isEmpty()) {
+            throw new IllegalStateException("At least one AI provider must be configured");
+        }
+        this.providers = List.copyOf(providers);
+        this.meterRegistry = meterRegistry;
+        this.hedgeEnabled = hedgeEnabled;
+        this.hedgeInitialDelay = Duration.ofMillis(hedgeInitialDelayMs);
+        this.hedgeMinDelay = Duration.ofMillis(hedgeMinDelayMs);
+        this.explorationRate = explorationRate;
+
+        for (AiProvider provider : this.providers) {
+            EndpointStats endpointStats = new EndpointStats(ejectionErrorRate, ejectionMinSamples,
+                    TimeUnit.SECONDS.toNanos(ejectionCooldownSeconds));
+            stats.put(provider.name(), endpointStats);
+            Gauge.builder("ai.router.latency.p95", endpointStats, s -> s.percentileMillis(0.95))
+                    .tag("provider", provider.name())
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+            Gauge.builder("ai.router.healthy", endpointStats, s -> s.isHealthy(System.nanoTime()) ? 1 : 0)
+                    .tag("provider", provider.name())
+                    .register(meterRegistry);
+        }
+    }
+
+    public AiProvider primary() {
+        return rank().get(0);
+    }
+
+    public Mono<AiResponse> complete(AiProvider.Tier tier, String prompt, Duration timeout, boolean hedge) {
+        return Mono.defer(() -> {
+            List<AiProvider> ranked = rank();
+            AiProvider first = ranked.get(0);
+            AiProvider second = ranked.size() > 1 ? ranked.get(1) : null;
+            Mono<AiResponse> primaryAttempt = attempt(first, tier, prompt, timeout);
+
+            if (!hedge || !hedgeEnabled || second == null) {
+                if (second == null) {
+                    return primaryAttempt;
+                }
+                return primaryAttempt.onErrorResume(ex -> {
+                    meterRegistry.counter("ai.router.failover", "from", first.name(), "to", second.name()).increment();
+                    return attempt(second, tier, prompt, timeout);
+                });
+            }
+
+            Mono<AiResponse> hedgedAttempt = Mono.delay(hedgeDelay(first))
+                    .then(Mono.defer(() -> {
+                        meterRegistry.counter("ai.router.hedge", "provider", second.name(), "result", "fired")
+                                .increment();
+                        return attempt(second, tier, prompt, timeout)
+                                .doOnSuccess(response -> meterRegistry.counter(
+                                        "ai.router.hedge", "provider", second.name(), "result", "won").increment());
+                    }));
+
+            return Mono.firstWithValue(primaryAttempt, hedgedAttempt)
+                    .onErrorMap(NoSuchElementException.class,
+                            ex -> ex.getSuppressed().length > 0 ? ex.getSuppressed()[0] : ex);
+        });
+    }
+
+    public Flux<String> stream(AiProvider.Tier tier, String prompt) {
+        return Flux.defer(() -> {
+            AiProvider provider = primary();
+            EndpointStats endpointStats = stats.get(provider.name());
+            long startedAt = System.nanoTime();
+            // Stream duration depends on output length, so only the outcome feeds the health window.
+            return provider.stream(tier, prompt)
+                    .doOnComplete(() -> endpointStats.record(System.nanoTime() - startedAt, false, false))
+                    .doOnError(ex -> endpointStats.record(System.nanoTime() - startedAt, true, false));
+        });
+    }
+
+    List<AiProvider> rank() {
+        long now = System.nanoTime();
+        List<AiProvider> healthy = new ArrayList<>();
+        List<AiProvider> ejected = new ArrayList<>();
+        for (AiProvider provider : providers) {
+            if (stats.get(provider.name()).isHealthy(now)) {
+                healthy.add(provider);
+            } else {
+                ejected.add(provider);
+            }
+        }
+
+        healthy.sort(Comparator.comparingDouble(provider -> stats.get(provider.name()).percentileMillis(0.5)));
+        if (healthy.size() > 1 && ThreadLocalRandom.current().nextDouble() < explorationRate) {
+            // Occasionally lead with the runner-up so its latency window does not go stale.
+            healthy.add(0, healthy.remove(1));
+        }
+        ejected.sort(Comparator.comparingLong(provider -> stats.get(provider.name()).ejectedUntil()));
+
+        List<AiProvider> ranked = new ArrayList<>(healthy);
+        ranked.addAll(ejected);
+        return ranked;
+    }
+
+    private Mono<AiResponse> attempt(AiProvider provider, AiProvider.Tier tier, String prompt, Duration timeout) {
+        EndpointStats endpointStats = stats.get(provider.name());
+        return Mono.defer(() -> {
+            long startedAt = System.nanoTime();
+            return provider.complete(tier, prompt)
+                    .timeout(timeout)
+                    .doOnSuccess(response -> recordAttempt(provider, endpointStats, startedAt, false))
+                    .doOnError(ex -> recordAttempt(provider, endpointStats, startedAt, true));
+        });
+    }
+
+    private void recordAttempt(AiProvider provider, EndpointStats endpointStats, long startedAt, boolean failed) {
+        long elapsed = System.nanoTime() - startedAt;
+        if (endpointStats.record(elapsed, failed, true)) {
+            meterRegistry.counter("ai.router.ejection", "provider", provider.name()).increment();
+        }
+        meterRegistry.timer(
+                "ai.router.attempt.duration",
+                "provider", provider.name(),
+                "status", failed ? "error" : "success")
+                .record(elapsed, TimeUnit.NANOSECONDS);
+    }
+
+    private Duration hedgeDelay(AiProvider provider) {
+        EndpointStats endpointStats = stats.get(provider.name());
+        if (!endpointStats.hasLatencyBaseline()) {
+            return hedgeInitialDelay;
+        }
+        long p95 = Math.round(endpointStats.percentileMillis(0.95));
+        return Duration.ofMillis(Math.max(p95, hedgeMinDelay.toMillis()));
+    }
+
+    private static final class EndpointStats {
+        private static final int WINDOW = 128;
+        private static final int BASELINE_SAMPLES = 20;
+
+        private final double ejectionErrorRate;
+        private final int ejectionMinSamples;
+        private final long cooldownNanos;
+        private final long[] latencies = new long[WINDOW];
+        private final boolean[] failures = new boolean[WINDOW];
+        private final boolean[] timed = new boolean[WINDOW];
+        private int size;
+        private int next;
+        private boolean ejected;
+        private long ejectedUntil;
+
+        private EndpointStats(double ejectionErrorRate, int ejectionMinSamples, long cooldownNanos) {
+            this.ejectionErrorRate = ejectionErrorRate;
+            this.ejectionMinSamples = ejectionMinSamples;
+            this.cooldownNanos = cooldownNanos;
+        }
+
+        /** Returns {@code true} when this sample caused the endpoint to be ejected. */
+        private synchronized boolean record(long latencyNanos, boolean failed, boolean countLatency) {
+            latencies[next] = latencyNanos;
+            failures[next] = failed;
+            timed[next] = countLatency && !failed;
+            next = (next + 1) % WINDOW;
+            size = Math.min(size + 1, WINDOW);
+
+            if (!failed || size < ejectionMinSamples) {
+                return false;
+            }
+            int failureCount = 0;
+            for (int i = 0; i < size; i++) {
+                if (failures[i]) {
+                    failureCount++;
+                }
+            }
+            if ((double) failureCount / size < ejectionErrorRate) {
+                return false;
+            }
+            // Start from a clean window after the cooldown so the provider is re-probed fairly.
+            ejected = true;
+            ejectedUntil = System.nanoTime() + cooldownNanos;
+            size = 0;
+            next = 0;
+            return true;
+        }
+
+        private synchronized boolean isHealthy(long now) {
+            return !ejected || now - ejectedUntil >= 0;
+        }
+
+        private synchronized long ejectedUntil() {
+            return ejectedUntil;
+        }
+
+        private synchronized boolean hasLatencyBaseline() {
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (timed[i]) {
+                    count++;
+                }
+            }
+            return count >= BASELINE_SAMPLES;
+        }
+
+        /** Unknown latency reads as {@code 0} so a fresh provider gets probed first. */
+        private synchronized double percentileMillis(double percentile) {
+            long[] samples = new long[size];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (timed[i]) {
+                    samples[count++] = latencies[i];
+                }
+            }
+            if (count == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile * count) - 1;
+            return sorted[Math.max(0, Math.min(index, count - 1))] / 1_000_000.0;
+        }
+    }
+}
@@ -1,8 +1,6 @@
 package com.practice.aiplatform.ai;
 
-import org.apache.pdfbox.Loader;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.text.PDFTextStripper;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import io.github.resilience4j.bulkhead.annotation.Bulkhead;
@@ -10,32 +8,34 @@ import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.CachePut;
-import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.time.Duration;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 public class AiService {
         public static final String PRACTICE_UNAVAILABLE_CODE = "AI_PRACTICE_UNAVAILABLE";
         public static final String STUDY_PLAN_UNAVAILABLE_CODE = "STUDY_PLAN_AI_UNAVAILABLE";
         private static final int MAX_QUESTION_ATTEMPTS = 3;
+        private static final String PARSE_ERROR_TEXT = "Error: Could not parse generated response.";
 
-        private final WebClient webClient;
-        private final String apiKey;
+        private final AiRouter aiRouter;
         private final String practiceModel;
         private final String studyPlanModel;
         private final MeterRegistry meterRegistry;
+        private final ObjectMapper objectMapper;
+        private final AiRequestCoalescer requestCoalescer;
+        private final SemanticResponseCache semanticCache;
+        private final NearDuplicateDetector nearDuplicateDetector;
+        private final PromptBudgetPlanner promptBudget;
         private final Duration practiceRequestTimeout;
         private final Duration studyPlanRequestTimeout;
         @Lazy
@@ -43,18 +43,26 @@ public class AiService {
         private AiService self;
 
         public AiService(
-                        @Qualifier("aiWebClient") WebClient webClient,
-                        @Value("${groq.api.key}") String apiKey,
+                        AiRouter aiRouter,
                         @Value("${ai.model.practice:llama-3.1-8b-instant}") String practiceModel,
                         @Value("${ai.model.study-plan:llama-3.3-70b-versatile}") String studyPlanModel,
                         @Value("${ai.request.timeout.practice-seconds:8}") long practiceTimeoutSeconds,
                         @Value("${ai.request.timeout.study-plan-seconds:30}") long studyPlanTimeoutSeconds,
-                        MeterRegistry meterRegistry) {
-                this.webClient = webClient;
-                this.apiKey = apiKey;
+                        MeterRegistry meterRegistry,
+                        ObjectMapper objectMapper,
+                        AiRequestCoalescer requestCoalescer,
+                        SemanticResponseCache semanticCache,
+                        NearDuplicateDetector nearDuplicateDetector,
+                        PromptBudgetPlanner promptBudget) {
+                this.aiRouter = aiRouter;
                 this.practiceModel = practiceModel;
                 this.studyPlanModel = studyPlanModel;
                 this.meterRegistry = meterRegistry;
+                this.objectMapper = objectMapper;
+                this.requestCoalescer = requestCoalescer;
+                this.semanticCache = semanticCache;
+                this.nearDuplicateDetector = nearDuplicateDetector;
+                this.promptBudget = promptBudget;
                 this.practiceRequestTimeout = Duration.ofSeconds(practiceTimeoutSeconds);
                 this.studyPlanRequestTimeout = Duration.ofSeconds(studyPlanTimeoutSeconds);
         }
@@ -63,37 +71,68 @@ public class AiService {
                 return generatePracticeContent(prompt);
         }
 
+        /**
+         * Blocking facade for callers that already run off the request thread pool
+         * (Kafka listeners, moderation, course generation). Request handlers should
+         * use {@link #generatePracticeContentAsync(String)} instead.
+         */
         public String generatePracticeContent(String prompt) {
-                AiResponse response = self.executePracticeCompletion(prompt, practiceModel, "practice");
-                return extractTextFromResponse(response);
+                return generatePracticeContentAsync(prompt).block();
+        }
+
+        public Mono<String> generatePracticeContentAsync(String prompt) {
+                return self.executePracticeCompletion(prompt, practiceModel, "practice")
+                                .map(this::extractTextFromResponse);
+        }
+
+        /**
+         * Practice-model completion for study plan quizzes. It runs under its own aiQuiz bulkhead, so
+         * plans generating in the background cannot use up the aiPractice permits of live requests.
+         */
+        public Mono<String> generateQuizContentAsync(String prompt) {
+                return self.executeQuizCompletion(prompt, practiceModel, "quiz")
+                                .map(this::extractTextFromResponse);
         }
 
         public String generateStudyPlanContent(String prompt) {
-                AiResponse response = self.executeStudyPlanCompletion(prompt, studyPlanModel, "study_plan");
-                return extractTextFromResponse(response);
+                return generateStudyPlanContentAsync(prompt).block();
         }
 
-        public String generateQuestion(String subject, String difficulty, String topic) {
-                return generateQuestion(subject, difficulty, topic, null, null, List.of());
+        public Mono<String> generateStudyPlanContentAsync(String prompt) {
+                return self.executeStudyPlanCompletion(prompt, studyPlanModel, "study_plan")
+                                .map(this::extractTextFromResponse);
         }
 
-        @Cacheable(value = "AiQuestionCache", key = "#subject + '|' + #difficulty + '|' + #topic", sync = true)
-        public String generateQuestionFromCache(String subject, String difficulty, String topic) {
+        public Mono<String> generateQuestion(String subject, String difficulty, String topic) {
                 return generateQuestion(subject, difficulty, topic, null, null, List.of());
         }
 
-        @CachePut(value = "AiQuestionCache", key = "#subject + '|' + #difficulty + '|' + #topic")
-        public String generateFreshQuestionAndRefreshCache(
+        @Cacheable(value = "AiQuestionCache", key = "T(com.practice.aiplatform.ai.AiPrompts).QUESTION.key() + '|' + #subject + '|' + #difficulty + '|' + #topic", sync = true)
+        public Mono<String> generateQuestionFromCache(String subject, String difficulty, String topic) {
+                String scope = questionScope(subject, difficulty);
+                return semanticCache.lookup("AiQuestionCache", scope, topic)
+                                .map(Mono::just)
+                                .orElseGet(() -> generateQuestion(subject, difficulty, topic, null, null, List.of())
+                                                .doOnNext(question -> storeSemantic("AiQuestionCache", scope, topic,
+                                                                question)));
+        }
+
+        @CachePut(value = "AiQuestionCache", key = "T(com.practice.aiplatform.ai.AiPrompts).QUESTION.key() + '|' + #subject + '|' + #difficulty + '|' + #topic")
+        public Mono<String> generateFreshQuestionAndRefreshCache(
                         String subject,
                         String difficulty,
                         String topic,
                         String previousQuestion,
                         String previousStatus,
-                        List<String> recentQuestionTexts) {
-                return generateQuestion(subject, difficulty, topic, previousQuestion, previousStatus, recentQuestionTexts);
+                        List<String> recentQuestionTexts,
+                        List<Long> recentQuestionFingerprints) {
+                return generateQuestion(subject, difficulty, topic, previousQuestion, previousStatus, recentQuestionTexts,
+                                recentQuestionFingerprints)
+                                .doOnNext(question -> storeSemantic("AiQuestionCache", questionScope(subject, difficulty), topic,
+                                                question));
         }
 
-        public String generateQuestion(
+        public Mono<String> generateQuestion(
                         String subject,
                         String difficulty,
                         String topic,
@@ -102,30 +141,96 @@ public class AiService {
                 return generateQuestion(subject, difficulty, topic, previousQuestion, previousStatus, List.of());
         }
 
-        public String generateQuestion(
+        public Mono<String> generateQuestion(
                         String subject,
                         String difficulty,
                         String topic,
                         String previousQuestion,
                         String previousStatus,
                         List<String> recentQuestionTexts) {
+                return generateQuestion(subject, difficulty, topic, previousQuestion, previousStatus, recentQuestionTexts,
+                                List.of());
+        }
 
+        /**
+         * {@code recentQuestionFingerprints} lines up with {@code recentQuestionTexts}; stored
+         * fingerprints are reused and missing ones (null or absent) are computed from the text.
+         */
+        public Mono<String> generateQuestion(
+                        String subject,
+                        String difficulty,
+                        String topic,
+                        String previousQuestion,
+                        String previousStatus,
+                        List<String> recentQuestionTexts,
+                        List<Long> recentQuestionFingerprints) {
+                String contextPrompt = buildContextPrompt(previousQuestion, previousStatus);
+                List<String> blockedQuestions = collectBlockedQuestions(previousQuestion, recentQuestionTexts);
+                NearDuplicateDetector.Index blockedIndex = nearDuplicateDetector.newIndex();
+                if (recentQuestionTexts != null) {
+                        for (int i = 0; i < recentQuestionTexts.size(); i++) {
+                                Long stored = recentQuestionFingerprints != null && i < recentQuestionFingerprints.size()
+                                                ? recentQuestionFingerprints.get(i)
+                                                : null;
+                                blockedIndex.add(stored != null
+                                                ? stored
+                                                : nearDuplicateDetector.fingerprint(recentQuestionTexts.get(i)));
+                        }
+                }
+                if (previousQuestion != null) {
+                        blockedIndex.add(nearDuplicateDetector.fingerprint(previousQuestion));
+                }
+                return generateDistinctQuestion(subject, difficulty, topic, contextPrompt, blockedQuestions, blockedIndex,
+                                1);
+        }
+
+        /**
+         * Streams a fresh question token by token. The near-duplicate retry loop cannot run once
+         * tokens have reached the client, so prior questions are only excluded through the prompt.
+         */
+        public Flux<String> streamQuestion(
+                        String subject,
+                        String difficulty,
+                        String topic,
+                        String previousQuestion,
+                        String previousStatus,
+                        List<String> recentQuestionTexts) {
+                String contextPrompt = buildContextPrompt(previousQuestion, previousStatus);
+                List<String> blockedQuestions = collectBlockedQuestions(previousQuestion, recentQuestionTexts);
+                String prompt = buildQuestionPrompt(subject, difficulty, topic, contextPrompt, blockedQuestions, 1);
+                return self.streamPracticeCompletion(prompt, practiceModel, "question_stream");
+        }
+
+        public Flux<String> streamEvaluation(String questionText, String answerText, String subject, String topic,
+                        String difficulty) {
+                String prompt = buildEvaluationPrompt(questionText, answerText, subject, topic, difficulty);
+                return self.streamPracticeCompletion(prompt, practiceModel, "evaluate_stream");
+        }
+
+        public Flux<String> streamHint(String questionText, String subject, String topic, String difficulty) {
+                String prompt = buildHintPrompt(questionText, subject, topic, difficulty);
+                return self.streamPracticeCompletion(prompt, practiceModel, "hint_stream");
+        }
+
+        private String buildContextPrompt(String previousQuestion, String previousStatus) {
                 String contextPrompt = "";
                 if (previousQuestion != null && previousStatus != null) {
                         if ("CORRECT".equalsIgnoreCase(previousStatus)) {
-                                contextPrompt = String.format(
-                                                "The student just answered correctly on this topic: \"%s\". "
-                                                                + "Generate a slightly more challenging question. ",
-                                                previousQuestion);
+                                contextPrompt = AiPrompts.CONTEXT_CORRECT.render(previousQuestion);
                         } else {
-                                contextPrompt = String.format(
-                                                "The student just failed on this topic: \"%s\". "
-                                                                + "Generate a simpler question to reinforce basics. ",
-                                                previousQuestion);
+                                contextPrompt = AiPrompts.CONTEXT_INCORRECT.render(previousQuestion);
                         }
                 }
+                return contextPrompt;
+        }
 
+        private List<String> collectBlockedQuestions(String previousQuestion, List<String> recentQuestionTexts) {
+                // Most relevant first: the prompt budget keeps entries from the front of the list.
                 List<String> blockedQuestions = new ArrayList<>();
+                if (previousQuestion != null && !previousQuestion.isBlank()) {
+                        blockedQuestions.add(previousQuestion.trim());
+                }
+
                 if (recentQuestionTexts != null) {
                         for (String q : recentQuestionTexts) {
                                 if (q != null && !q.isBlank()) {
@@ -133,157 +238,213 @@ public class AiService {
                                 }
                         }
                 }
+                return blockedQuestions;
+        }
 
-                if (previousQuestion != null && !previousQuestion.isBlank()) {
-                        blockedQuestions.add(previousQuestion.trim());
-                }
-
-                String lastGenerated = "";
-                for (int attempt = 1; attempt <= MAX_QUESTION_ATTEMPTS; attempt++) {
-                        String prompt = buildQuestionPrompt(subject, difficulty, topic, contextPrompt, blockedQuestions, attempt);
-                        AiResponse response = self.executePracticeCompletion(prompt, practiceModel, "question");
-                        String candidate = extractTextFromResponse(response).trim();
-                        lastGenerated = candidate;
-
-                        if (!isNearDuplicate(candidate, blockedQuestions)) {
-                                return candidate;
-                        }
-
-                        blockedQuestions.add(candidate);
-                }
-
-                return lastGenerated;
+        private Mono<String> generateDistinctQuestion(
+                        String subject,
+                        String difficulty,
+                        String topic,
+                        String contextPrompt,
+                        List<String> blockedQuestions,
+                        NearDuplicateDetector.Index blockedIndex,
+                        int attempt) {
+                String prompt = buildQuestionPrompt(subject, difficulty, topic, contextPrompt, blockedQuestions, attempt);
+                return self.executePracticeCompletion(prompt, practiceModel, "question")
+                                .map(response -> extractTextFromResponse(response).trim())
+                                .flatMap(candidate -> {
+                                        long fingerprint = nearDuplicateDetector.fingerprint(candidate);
+                                        boolean duplicate = blockedIndex.containsNear(fingerprint);
+                                        meterRegistry.counter(
+                                                        "ai.question.near_duplicate",
+                                                        "result", duplicate ? "duplicate" : "distinct")
+                                                        .increment();
+                                        if (attempt >= MAX_QUESTION_ATTEMPTS || !duplicate) {
+                                                return Mono.just(candidate);
+                                        }
+                                        blockedQuestions.add(0, candidate);
+                                        blockedIndex.add(fingerprint);
+                                        return generateDistinctQuestion(subject, difficulty, topic, contextPrompt,
+                                                        blockedQuestions, blockedIndex, attempt + 1);
+                                });
         }
 
-        @Cacheable(value = "AiEvaluateCache", key = "#subject + '|' + #topic + '|' + #difficulty + '|' + #questionText + '|' + #answerText", sync = true)
-        public String evaluateAnswer(String questionText, String answerText, String subject, String topic,
+        @Cacheable(value = "AiEvaluateCache", key = "T(com.practice.aiplatform.ai.AiPrompts).EVALUATE.key() + '|' + #subject + '|' + #topic + '|' + #difficulty + '|' + #questionText + '|' + #answerText", sync = true)
+        public Mono<String> evaluateAnswer(String questionText, String answerText, String subject, String topic,
                         String difficulty) {
-                String prompt = String.format(
-                                "Subject: %s, Topic: %s, Level: %s.\n"
-                                                + "Question: \"%s\"\n"
-                                                + "Student Answer: \"%s\"\n\n"
-                                                + "Reply in this format:\n"
-                                                + "Line 1: CORRECT or INCORRECT or CLOSE\n"
-                                                + "Line 2+: Feedback\n"
-                                                + "If INCORRECT/CLOSE add [HINT] at end with a helpful hint.",
-                                subject, topic, difficulty, questionText, answerText);
+                String prompt = buildEvaluationPrompt(questionText, answerText, subject, topic, difficulty);
+                return coalescedPracticeCompletion(prompt, "evaluate");
+        }
 
-                AiResponse response = self.executePracticeCompletion(prompt, practiceModel, "evaluate");
-                return extractTextFromResponse(response);
+        @Cacheable(value = "AiHintCache", key = "T(com.practice.aiplatform.ai.AiPrompts).HINT.key() + '|' + #subject + '|' + #topic + '|' + #difficulty + '|' + #questionText", sync = true)
+        public Mono<String> getHint(String questionText, String subject, String topic, String difficulty) {
+                String scope = AiPrompts.HINT.key() + "|" + subject + "|" + topic + "|" + difficulty;
+                return semanticCache.lookup("AiHintCache", scope, questionText)
+                                .map(Mono::just)
+                                .orElseGet(() -> coalescedPracticeCompletion(
+                                                buildHintPrompt(questionText, subject, topic, difficulty), "hint")
+                                                .doOnNext(hint -> storeSemantic("AiHintCache", scope, questionText,
+                                                                hint)));
         }
 
-        @Cacheable(value = "AiHintCache", key = "#subject + '|' + #topic + '|' + #difficulty + '|' + #questionText", sync = true)
-        public String getHint(String questionText, String subject, String topic, String difficulty) {
-                String prompt = String.format(
-                                "Give one concise hint only.\n"
-                                                + "Subject: %s, Topic: %s, Difficulty: %s\n"
-                                                + "Question: \"%s\"",
-                                subject, topic, difficulty, questionText);
+        @Cacheable(value = "AiAnswerCache", key = "T(com.practice.aiplatform.ai.AiPrompts).ANSWER.key() + '|' + #subject + '|' + #topic + '|' + #difficulty + '|' + #questionText", sync = true)
+        public Mono<String> getCorrectAnswer(String questionText, String subject, String topic, String difficulty) {
+                // Exact key only: an answer to a near-identical question is a wrong answer.
+                String prompt = AiPrompts.ANSWER.render(subject, topic, difficulty, questionText);
+                return coalescedPracticeCompletion(prompt, "answer");
+        }
 
-                AiResponse response = self.executePracticeCompletion(prompt, practiceModel, "hint");
-                return extractTextFromResponse(response);
+        private String questionScope(String subject, String difficulty) {
+                return AiPrompts.QUESTION.key() + "|" + subject + "|" + difficulty;
         }
 
-        @Cacheable(value = "AiAnswerCache", key = "#subject + '|' + #topic + '|' + #difficulty + '|' + #questionText", sync = true)
-        public String getCorrectAnswer(String questionText, String subject, String topic, String difficulty) {
-                String prompt = String.format(
-                                "Provide the correct answer and short explanation.\n"
-                                                + "Subject: %s, Topic: %s, Difficulty: %s\n"
-                                                + "Question: \"%s\"",
-                                subject, topic, difficulty, questionText);
+        private void storeSemantic(String cacheName, String scope, String text, String value) {
+                // Parse failures come back as a placeholder string and must not be served to paraphrases.
+                if (value != null && !value.startsWith(PARSE_ERROR_TEXT)) {
+                        semanticCache.store(cacheName, scope, text, value);
+                }
+        }
 
-                AiResponse response = self.executePracticeCompletion(prompt, practiceModel, "answer");
-                return extractTextFromResponse(response);
+        private Mono<String> coalescedPracticeCompletion(String prompt, String purpose) {
+                return requestCoalescer.complete(purpose, prompt,
+                                (finalPrompt, callPurpose) -> self
+                                                .executePracticeCompletion(finalPrompt, practiceModel, callPurpose)
+                                                .map(this::extractTextFromResponse));
         }
 
-        public String generateRawContent(String prompt, String mimeType, byte[] data) {
-                return generateStudyPlanContent(prompt, mimeType, data);
+        public String generateRawContent(String prompt, ExtractedDocument document) {
+                return generateStudyPlanContent(prompt, document);
         }
 
-        public String generateStudyPlanContent(String prompt, String mimeType, byte[] data) {
+        public String generateStudyPlanContent(String prompt, ExtractedDocument document) {
                 String finalPrompt = prompt;
 
-                if (mimeType != null && mimeType.startsWith("text/") && data != null) {
-                        String textPayload = new String(data, StandardCharsets.UTF_8);
-                        finalPrompt = prompt + "\n\nAttached text:\n" + textPayload;
-                } else if ("application/pdf".equalsIgnoreCase(mimeType) && data != null && data.length > 0) {
-                        String pdfText = extractPdfText(data);
-                        if (pdfText.isBlank()) {
+                if (document != null && document.isPdf()) {
+                        if (document.text().isBlank()) {
                                 throw new RuntimeException("Could not extract readable text from the PDF.");
                         }
-                        finalPrompt = prompt + "\n\nExtracted PDF text:\n" + pdfText;
-                } else if (mimeType != null && data != null && data.length > 0) {
-                        throw new RuntimeException("Only text and PDF files are supported.");
+                        finalPrompt = prompt + "\n\nExtracted PDF text:\n"
+                                        + promptBudget.fitAttachment("study_plan_file", prompt, document.text());
+                } else if (document != null) {
+                        finalPrompt = prompt + "\n\nAttached text:\n"
+                                        + promptBudget.fitAttachment("study_plan_file", prompt, document.text());
                 }
 
-                AiResponse response = self.executeStudyPlanCompletion(finalPrompt, studyPlanModel, "study_plan_file");
-                return extractTextFromResponse(response);
+                return self.executeStudyPlanCompletion(finalPrompt, studyPlanModel, "study_plan_file")
+                                .map(this::extractTextFromResponse)
+                                .block();
         }
 
-        private String extractPdfText(byte[] data) {
-                try (PDDocument document = Loader.loadPDF(data)) {
-                        PDFTextStripper stripper = new PDFTextStripper();
-                        return stripper.getText(document).trim();
-                } catch (Exception e) {
-                        throw new RuntimeException("Failed to read PDF content: " + e.getMessage(), e);
-                }
+        @Retry(name = "aiPractice", fallbackMethod = "practiceCompletionFallback")
+        @CircuitBreaker(name = "aiPractice", fallbackMethod = "practiceCompletionFallback")
+        @Bulkhead(name = "aiPractice", type = Bulkhead.Type.SEMAPHORE, fallbackMethod = "practiceCompletionFallback")
+        public Mono<AiResponse> executePracticeCompletion(String prompt, String model, String purpose) {
+                return callAiApi(prompt, model, purpose, AiProvider.Tier.PRACTICE, practiceRequestTimeout, true);
         }
 
         @Retry(name = "aiPractice", fallbackMethod = "practiceCompletionFallback")
         @CircuitBreaker(name = "aiPractice", fallbackMethod = "practiceCompletionFallback")
-        @Bulkhead(name = "aiPractice", type = Bulkhead.Type.SEMAPHORE, fallbackMethod = "practiceCompletionFallback")
-        public AiResponse executePracticeCompletion(String prompt, String model, String purpose) {
-                return callAiApi(prompt, model, purpose, practiceRequestTimeout);
+        @Bulkhead(name = "aiQuiz", type = Bulkhead.Type.SEMAPHORE, fallbackMethod = "practiceCompletionFallback")
+        public Mono<AiResponse> executeQuizCompletion(String prompt, String model, String purpose) {
+                return callAiApi(prompt, model, purpose, AiProvider.Tier.PRACTICE, practiceRequestTimeout, false);
         }
 
         @Retry(name = "aiStudyPlan", fallbackMethod = "studyPlanCompletionFallback")
         @CircuitBreaker(name = "aiStudyPlan", fallbackMethod = "studyPlanCompletionFallback")
         @Bulkhead(name = "aiStudyPlan", type = Bulkhead.Type.SEMAPHORE, fallbackMethod = "studyPlanCompletionFallback")
-        public AiResponse executeStudyPlanCompletion(String prompt, String model, String purpose) {
-                return callAiApi(prompt, model, purpose, studyPlanRequestTimeout);
+        public Mono<AiResponse> executeStudyPlanCompletion(String prompt, String model, String purpose) {
+                return callAiApi(prompt, model, purpose, AiProvider.Tier.STUDY_PLAN, studyPlanRequestTimeout, false);
         }
 
-        private AiResponse callAiApi(String prompt, String model, String purpose, Duration timeout) {
-                Map<String, Object> requestBody = Map.of(
-                                "model", model,
-                                "messages", List.of(Map.of("role", "user", "content", prompt)),
-                                "temperature", 0.2);
+        @CircuitBreaker(name = "aiPractice", fallbackMethod = "practiceStreamFallback")
+        @Bulkhead(name = "aiPractice", type = Bulkhead.Type.SEMAPHORE, fallbackMethod = "practiceStreamFallback")
+        public Flux<String> streamPracticeCompletion(String prompt, String model, String purpose) {
+                // No @Retry here: replaying a stream would duplicate tokens the client already received.
+                return callAiApiStream(prompt, model, purpose, AiProvider.Tier.PRACTICE, practiceRequestTimeout);
+        }
+
+        private Mono<AiResponse> callAiApi(String prompt, String model, String purpose, AiProvider.Tier tier,
+                        Duration timeout, boolean hedge) {
+                // Deferred so the timer starts per subscription, which keeps retries measured individually.
+                // The router applies the timeout per attempt, so a hedged call is bounded by delay + timeout.
+                promptBudget.recordPromptTokens(purpose, prompt);
+                return Mono.defer(() -> {
+                        Timer.Sample sample = Timer.start(meterRegistry);
+                        return aiRouter.complete(tier, prompt, timeout, hedge)
+                                        .doOnSuccess(response -> recordCall(sample, model, purpose, "success"))
+                                        .doOnError(ex -> recordCall(sample, model, purpose, "error"))
+                                        .doOnCancel(() -> recordCall(sample, model, purpose, "cancelled"));
+                });
+        }
 
-                Timer.Sample sample = Timer.start(meterRegistry);
-                String status = "success";
+        private Flux<String> callAiApiStream(String prompt, String model, String purpose, AiProvider.Tier tier,
+                        Duration timeout) {
+                promptBudget.recordPromptTokens(purpose, prompt);
+                return Flux.defer(() -> {
+                        Timer.Sample sample = Timer.start(meterRegistry);
+                        long startedAt = System.nanoTime();
+                        AtomicBoolean firstToken = new AtomicBoolean(true);
+                        return aiRouter.stream(tier, prompt)
+                                        .map(this::extractDeltaFromChunk)
+                                        .filter(token -> !token.isEmpty())
+                                        // Applies between tokens, so a stalled stream fails instead of hanging.
+                                        .timeout(timeout)
+                                        .doOnNext(token -> {
+                                                if (firstToken.compareAndSet(true, false)) {
+                                                        meterRegistry.timer(
+                                                                        "ai.call.first_token",
+                                                                        "model", model,
+                                                                        "purpose", purpose)
+                                                                        .record(Duration.ofNanos(System.nanoTime() - startedAt));
+                                                }
+                                        })
+                                        .doOnComplete(() -> recordCall(sample, model, purpose, "success"))
+                                        .doOnError(ex -> recordCall(sample, model, purpose, "error"))
+                                        .doOnCancel(() -> recordCall(sample, model, purpose, "cancelled"));
+                });
+        }
+
+        private String extractDeltaFromChunk(String data) {
                 try {
-                        return webClient.post()
-                                        .uri("/v1/chat/completions")
-                                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
-                                        .bodyValue(requestBody)
-                                        .retrieve()
-                                        .onStatus(
-                                                        s -> s.is4xxClientError() || s.is5xxServerError(),
-                                                        clientResponse -> clientResponse.bodyToMono(String.class)
-                                                                        .flatMap(errorBody -> reactor.core.publisher.Mono
-                                                                                        .error(new RuntimeException(
-                                                                                                        "Generation API Error: " + errorBody))))
-                                        .bodyToMono(AiResponse.class)
-                                        .block(timeout);
-                } catch (RuntimeException ex) {
-                        status = "error";
-                        throw ex;
-                } finally {
-                        meterRegistry.counter(
-                                        "ai.call.count",
-                                        "model", model,
-                                        "purpose", purpose,
-                                        "status", status)
-                                        .increment();
-                        sample.stop(meterRegistry.timer(
-                                        "ai.call.duration",
-                                        "model", model,
-                                        "purpose", purpose,
-                                        "status", status));
+                        AiStreamChunk chunk = objectMapper.readValue(data, AiStreamChunk.class);
+                        if (chunk.choices() == null || chunk.choices().isEmpty()
+                                        || chunk.choices().get(0).delta() == null) {
+                                return "";
+                        }
+                        String content = chunk.choices().get(0).delta().content();
+                        return content == null ? "" : content;
+                } catch (Exception e) {
+                        return "";
                 }
         }
 
-        private AiResponse practiceCompletionFallback(String prompt, String model, String purpose,
+        private void recordCall(Timer.Sample sample, String model, String purpose, String status) {
+                meterRegistry.counter(
+                                "ai.call.count",
+                                "model", model,
+                                "purpose", purpose,
+                                "status", status)
+                                .increment();
+                sample.stop(meterRegistry.timer(
+                                "ai.call.duration",
+                                "model", model,
+                                "purpose", purpose,
+                                "status", status));
+        }
+
+        private Mono<AiResponse> practiceCompletionFallback(String prompt, String model, String purpose,
+                        Throwable throwable) {
+                meterRegistry.counter(
+                                "ai.call.count",
+                                "model", model,
+                                "purpose", purpose,
+                                "status", "fallback")
+                                .increment();
+                return Mono.error(new RuntimeException(PRACTICE_UNAVAILABLE_CODE
+                                + ": Generation service temporarily unavailable. Please retry in a moment."));
+        }
+
+        private Flux<String> practiceStreamFallback(String prompt, String model, String purpose,
                         Throwable throwable) {
                 meterRegistry.counter(
                                 "ai.call.count",
@@ -291,11 +452,11 @@ public class AiService {
                                 "purpose", purpose,
                                 "status", "fallback")
                                 .increment();
-                throw new RuntimeException(PRACTICE_UNAVAILABLE_CODE
-                                + ": Generation service temporarily unavailable. Please retry in a moment.");
+                return Flux.error(new RuntimeException(PRACTICE_UNAVAILABLE_CODE
+                                + ": Generation service temporarily unavailable. Please retry in a moment."));
         }
 
-        private AiResponse studyPlanCompletionFallback(String prompt, String model, String purpose,
+        private Mono<AiResponse> studyPlanCompletionFallback(String prompt, String model, String purpose,
                         Throwable throwable) {
                 meterRegistry.counter(
                                 "ai.call.count",
@@ -303,18 +464,27 @@ public class AiService {
                                 "purpose", purpose,
                                 "status", "fallback")
                                 .increment();
-                throw new RuntimeException(STUDY_PLAN_UNAVAILABLE_CODE
-                                + ": Generation service temporarily unavailable. Please retry in a moment.");
+                return Mono.error(new RuntimeException(STUDY_PLAN_UNAVAILABLE_CODE
+                                + ": Generation service temporarily unavailable. Please retry in a moment."));
         }
 
         private String extractTextFromResponse(AiResponse response) {
                 try {
                         return response.choices().get(0).message().content();
                 } catch (Exception e) {
-                        return "Error: Could not parse generated response.";
+                        return PARSE_ERROR_TEXT;
                 }
         }
 
+        private String buildEvaluationPrompt(String questionText, String answerText, String subject, String topic,
+                        String difficulty) {
+                return AiPrompts.EVALUATE.render(subject, topic, difficulty, questionText, answerText);
+        }
+
+        private String buildHintPrompt(String questionText, String subject, String topic, String difficulty) {
+                return AiPrompts.HINT.render(subject, topic, difficulty, questionText);
+        }
+
         private String buildQuestionPrompt(
                         String subject,
                         String difficulty,
@@ -322,58 +492,25 @@ public class AiService {
                         String contextPrompt,
                         List<String> blockedQuestions,
                         int attempt) {
-                StringBuilder prompt = new StringBuilder();
-                if (contextPrompt != null && !contextPrompt.isBlank()) {
-                        prompt.append(contextPrompt);
-                }
-
-                prompt.append(String.format(
-                                "Generate one fresh practice question for %s level in %s on topic %s. ",
-                                difficulty, subject, topic));
-
-                if (attempt > 1) {
-                        prompt.append("The last attempt was too similar. Make this one clearly different in wording and angle. ");
-                }
-
-                if (!blockedQuestions.isEmpty()) {
-                        prompt.append("Do not repeat or closely paraphrase any of these prior questions:\n");
-                        int limit = Math.min(blockedQuestions.size(), 12);
-                        for (int i = 0; i < limit; i++) {
-                                prompt.append("- ").append(blockedQuestions.get(i)).append("\n");
-                        }
-                }
-
-                prompt.append("Return only question text.");
-                return prompt.toString();
-        }
-
-        private boolean isNearDuplicate(String candidate, List<String> blockedQuestions) {
-                String normalizedCandidate = normalizeQuestion(candidate);
-                if (normalizedCandidate.isBlank()) {
-                        return true;
-                }
-
-                for (String existing : blockedQuestions) {
-                        String normalizedExisting = normalizeQuestion(existing);
-                        if (normalizedExisting.isBlank()) {
-                                continue;
-                        }
-                        if (normalizedCandidate.equals(normalizedExisting)) {
-                                return true;
+                String blocked = "";
+                List<String> fitted = promptBudget.fitItems("question", blockedQuestions, 12);
+                if (!fitted.isEmpty()) {
+                        StringBuilder list = new StringBuilder(
+                                        "Do not repeat or closely paraphrase any of these prior questions:\n");
+                        for (String blockedQuestion : fitted) {
+                                list.append("- ").append(blockedQuestion).append("\n");
                         }
+                        blocked = list.toString();
                 }
 
-                return false;
-        }
-
-        private String normalizeQuestion(String text) {
-                if (text == null) {
-                        return "";
-                }
-                return text
-                                .toLowerCase(Locale.ROOT)
-                                .replaceAll("[^a-z0-9 ]", " ")
-                                .replaceAll("\\s+", " ")
-                                .trim();
+                return AiPrompts.QUESTION.render(
+                                contextPrompt == null || contextPrompt.isBlank() ? "" : contextPrompt,
+                                difficulty,
+                                subject,
+                                topic,
+                                attempt > 1
+                                                ? "The last attempt was too similar. Make this one clearly different in wording and angle. "
+                                                : "",
+                                blocked);
         }
 }
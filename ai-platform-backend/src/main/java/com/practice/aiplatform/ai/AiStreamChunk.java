@@ -0,0 +1,20 @@
+package com.practice.aiplatform.ai;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/**
+ * One {@code data:} frame of a streamed chat completion ({@code "stream": true}).
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record AiStreamChunk(List<Choice> choices) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Choice(Delta delta) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Delta(String content) {
+    }
+}
@@ -0,0 +1,40 @@
+package com.practice.aiplatform.ai;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.ServerSentEvent;
+
+import java.util.Map;
+
+/**
+ * Event shapes shared by the streaming endpoints: {@code token} frames while the model is
+ * generating, then a single {@code complete} frame carrying the persisted entity, or an
+ * {@code error} frame carrying the HTTP status the blocking endpoint would have returned.
+ */
+public final class AiStreamEvents {
+
+    private AiStreamEvents() {
+    }
+
+    public static ServerSentEvent<Object> token(String token) {
+        return ServerSentEvent.<Object>builder(token).event("token").build();
+    }
+
+    public static ServerSentEvent<Object> complete(Object payload) {
+        return ServerSentEvent.builder(payload).event("complete").build();
+    }
+
+    public static ServerSentEvent<Object> error(HttpStatus status, String message) {
+        return ServerSentEvent.<Object>builder(Map.of("status", status.value(), "message", message))
+                .event("error")
+                .build();
+    }
+
+    public static ServerSentEvent<Object> error(Throwable e) {
+        String message = e.getMessage() == null ? "Unknown error" : e.getMessage();
+        HttpStatus status = message.contains(AiService.PRACTICE_UNAVAILABLE_CODE)
+                || message.contains("temporarily unavailable")
+                        ? HttpStatus.SERVICE_UNAVAILABLE
+                        : HttpStatus.INTERNAL_SERVER_ERROR;
+        return error(status, "Error: " + message);
+    }
+}
@@ -0,0 +1,145 @@
+package com.practice.aiplatform.ai;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Byte-level BPE token counter. It reads a GPT-2 style {@code merges.txt} (one {@code "a b"} merge
+ * per line, highest priority first) and applies the merges to pre-tokenized words. The bundled
+ * table is a compact English vocabulary, so counts are an estimate of what the upstream model
+ * bills; point {@code ai.tokenizer.merges-resource} at the model's own merges file for exact counts.
+ *
+ * <p>The bundled {@code ai/bpe-merges.txt} is trained by {@code scripts/train_bpe_merges.py} on the
+ * Python documentation topics shipped with CPython (PSF License v2); see the script to regenerate it.
+ */
+@Component
+public class BpeTokenizer {
+
+    private static final Pattern PRE_TOKEN = Pattern.compile(
+            "'s|'t|'re|'ve|'m|'ll|'d| ?\\p{L}+| ?\\p{N}+| ?[^\\s\\p{L}\\p{N}]+|\\s+(?!\\S)|\\s+");
+    private static final char[] BYTE_TO_CHAR = byteToChar();
+
+    private final Map<String, Integer> mergeRanks;
+    private final Cache<String, Integer> wordCounts = Caffeine.newBuilder()
+            .maximumSize(50_000)
+            .build();
+
+    public BpeTokenizer(@Value("${ai.tokenizer.merges-resource:classpath:ai/bpe-merges.txt}") Resource merges) {
+        this.mergeRanks = loadMerges(merges);
+    }
+
+    public int count(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int total = 0;
+        Matcher matcher = PRE_TOKEN.matcher(text);
+        while (matcher.find()) {
+            total += countWord(matcher.group());
+        }
+        return total;
+    }
+
+    /** Longest prefix of {@code text} that fits in {@code maxTokens}, cut on a word boundary. */
+    public String truncate(String text, int maxTokens) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        int total = 0;
+        Matcher matcher = PRE_TOKEN.matcher(text);
+        while (matcher.find()) {
+            total += countWord(matcher.group());
+            if (total > maxTokens) {
+                return text.substring(0, matcher.start());
+            }
+        }
+        return text;
+    }
+
+    private int countWord(String word) {
+        if (word.length() == 1) {
+            return 1;
+        }
+        return wordCounts.get(word, this::mergeWord);
+    }
+
+    private int mergeWord(String word) {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        List<String> symbols = new ArrayList<>(bytes.length);
+        for (byte b : bytes) {
+            symbols.add(String.valueOf(BYTE_TO_CHAR[b & 0xff]));
+        }
+
+        while (symbols.size() > 1) {
+            int bestRank = Integer.MAX_VALUE;
+            int bestIndex = -1;
+            for (int i = 0; i < symbols.size() - 1; i++) {
+                Integer rank = mergeRanks.get(symbols.get(i) + ' ' + symbols.get(i + 1));
+                if (rank != null && rank < bestRank) {
+                    bestRank = rank;
+                    bestIndex = i;
+                }
+            }
+            if (bestIndex < 0) {
+                break;
+            }
+            String first = symbols.get(bestIndex);
+            String second = symbols.get(bestIndex + 1);
+            String merged = first + second;
+            // Merge every occurrence of the winning pair in one pass, as reference BPE does.
+            List<String> next = new ArrayList<>(symbols.size());
+            for (int i = 0; i < symbols.size(); i++) {
+                if (i < symbols.size() - 1 && symbols.get(i).equals(first) && symbols.get(i + 1).equals(second)) {
+                    next.add(merged);
+                    i++;
+                } else {
+                    next.add(symbols.get(i));
+                }
+            }
+            symbols = next;
+        }
+        return symbols.size();
+    }
+
+    private static Map<String, Integer> loadMerges(Resource merges) {
+        Map<String, Integer> ranks = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(merges.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#version")) {
+                    continue;
+                }
+                ranks.putIfAbsent(line, ranks.size());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not load BPE merges from " + merges.getDescription(), e);
+        }
+        return ranks;
+    }
+
+    /** GPT-2's reversible byte-to-printable-character table, so merges files can be read as text. */
+    private static char[] byteToChar() {
+        char[] table = new char[256];
+        int extra = 0;
+        for (int b = 0; b < 256; b++) {
+            boolean printable = (b >= '!' && b <= '~') || (b >= 0xA1 && b <= 0xAC) || (b >= 0xAE && b <= 0xFF);
+            table[b] = printable ? (char) b : (char) (256 + extra++);
+        }
+        return table;
+    }
+}
@@ -0,0 +1,118 @@
+package com.practice.aiplatform.ai;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Decodes a chat-completion body straight from the network buffers with Jackson's non-blocking
+ * parser. Only {@code choices[0].message.content} is kept, and each buffer is released as soon
+ * as it has been parsed, so the body is never aggregated or bound to a full object graph.
+ */
+public class ChatCompletionDecoder {
+
+    private final JsonFactory jsonFactory;
+
+    public ChatCompletionDecoder(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    public Mono<AiResponse> decode(Flux<DataBuffer> body) {
+        return Mono.defer(() -> {
+            ContentExtractor extractor = new ContentExtractor(jsonFactory);
+            return body
+                    .doOnNext(buffer -> {
+                        try {
+                            extractor.feed(buffer);
+                        } finally {
+                            DataBufferUtils.release(buffer);
+                        }
+                    })
+                    .then(Mono.fromCallable(extractor::finish))
+                    .doFinally(signal -> extractor.close());
+        });
+    }
+
+    private static final class ContentExtractor {
+        private final JsonParser parser;
+        private final ByteBufferFeeder feeder;
+        private String content;
+
+        private ContentExtractor(JsonFactory jsonFactory) {
+            try {
+                this.parser = jsonFactory.createNonBlockingByteBufferParser();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+        }
+
+        private void feed(DataBuffer buffer) {
+            try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+                while (iterator.hasNext()) {
+                    ByteBuffer chunk = iterator.next();
+                    feeder.feedInput(chunk);
+                    // The parser reads from the chunk in place, so drain it before the buffer is released.
+                    drain();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Malformed completion response", e);
+            }
+        }
+
+        private AiResponse finish() throws IOException {
+            feeder.endOfInput();
+            drain();
+            if (content == null) {
+                return new AiResponse(List.of());
+            }
+            return new AiResponse(List.of(new AiResponse.Choice(new AiResponse.Message(content))));
+        }
+
+        private void drain() throws IOException {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                if (token == JsonToken.VALUE_STRING && content == null && isFirstChoiceContent()) {
+                    content = parser.getText();
+                }
+            }
+        }
+
+        private boolean isFirstChoiceContent() {
+            JsonStreamContext message = parser.getParsingContext();
+            if (!message.inObject() || !"content".equals(message.getCurrentName())) {
+                return false;
+            }
+            JsonStreamContext choice = message.getParent();
+            if (choice == null || !choice.inObject() || !"message".equals(choice.getCurrentName())) {
+                return false;
+            }
+            JsonStreamContext choices = choice.getParent();
+            if (choices == null || !choices.inArray() || choices.getCurrentIndex() != 0) {
+                return false;
+            }
+            JsonStreamContext root = choices.getParent();
+            return root != null && root.inObject() && "choices".equals(root.getCurrentName())
+                    && root.getParent() != null && root.getParent().inRoot();
+        }
+
+        private void close() {
+            try {
+                parser.close();
+            } catch (IOException ignored) {
+                // Nothing left to release; the parser holds no external resources.
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.practice.aiplatform.ai;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Extracts the text of an uploaded syllabus once, for moderation and for every prompt built from
+ * it. The upload is streamed to a temp file while it is hashed, so the bytes are never held in heap;
+ * PDFs are parsed with a bounded in-memory scratch buffer that spills to disk, and large ones are
+ * split into page ranges stripped in parallel. Results are cached by content hash, so re-uploading
+ * the same file skips extraction entirely.
+ */
+@Component
+public class DocumentTextExtractor {
+
+    static final String PDF = "application/pdf";
+    private static final int MIN_PAGES_PER_CHUNK = 8;
+
+    private final MeterRegistry meterRegistry;
+    private final long maxBytes;
+    private final int maxPages;
+    private final int parallelism;
+    private final long scratchMemoryBytes;
+    private final Cache<String, ExtractedDocument> extracted;
+
+    public DocumentTextExtractor(
+            MeterRegistry meterRegistry,
+            @Value("${ai.document.max-bytes:20971520}") long maxBytes,
+            @Value("${ai.document.max-pages:300}") int maxPages,
+            @Value("${ai.document.parallelism:4}") int parallelism,
+            @Value("${ai.document.scratch-memory-bytes:8388608}") long scratchMemoryBytes,
+            @Value("${ai.document.cache.max-chars:20000000}") long cacheMaxChars,
+            @Value("${ai.document.cache.ttl-minutes:30}") long cacheTtlMinutes) {
+        this.meterRegistry = meterRegistry;
+        this.maxBytes = maxBytes;
+        this.maxPages = maxPages;
+        this.parallelism = Math.max(1, parallelism);
+        this.scratchMemoryBytes = scratchMemoryBytes;
+        this.extracted = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxChars)
+                .<String, ExtractedDocument>weigher((key, document) -> Math.max(1, document.text().length()))
+                .expireAfterAccess(Duration.ofMinutes(cacheTtlMinutes))
+                .build();
+    }
+
+    public ExtractedDocument extract(MultipartFile file) {
+        String mimeType = file.getContentType();
+        boolean pdf = PDF.equalsIgnoreCase(mimeType);
+        if (!pdf && (mimeType == null || !mimeType.startsWith("text/"))) {
+            throw new RuntimeException("Only text and PDF files are supported.");
+        }
+        if (file.getSize() > maxBytes) {
+            throw new RuntimeException("File is too large. The limit is " + (maxBytes / (1024 * 1024)) + " MB.");
+        }
+
+        Path temp = null;
+        try {
+            temp = Files.createTempFile("syllabus-", pdf ? ".pdf" : ".txt");
+            String hash = copyAndHash(file, temp);
+            String key = hash + (pdf ? "|pdf" : "|text");
+
+            ExtractedDocument cached = extracted.getIfPresent(key);
+            meterRegistry.counter("ai.document.extract.cache", "result", cached != null ? "hit" : "miss").increment();
+            if (cached != null) {
+                return cached;
+            }
+
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String text = pdf ? extractPdf(temp) : new String(Files.readAllBytes(temp), StandardCharsets.UTF_8);
+            sample.stop(meterRegistry.timer("ai.document.extract.duration", "type", pdf ? "pdf" : "text"));
+
+            ExtractedDocument document = new ExtractedDocument(hash, pdf ? PDF : mimeType, text.trim());
+            extracted.put(key, document);
+            return document;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read uploaded file: " + e.getMessage(), e);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // The OS temp cleaner gets it.
+                }
+            }
+        }
+    }
+
+    private static String copyAndHash(MultipartFile file, Path target) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private String extractPdf(Path path) throws IOException {
+        int pageCount;
+        int chunks;
+        try (PDDocument document = load(path)) {
+            pageCount = document.getNumberOfPages();
+            if (pageCount > maxPages) {
+                throw new RuntimeException("PDF has " + pageCount + " pages. The limit is " + maxPages + ".");
+            }
+            chunks = Math.min(parallelism, Math.max(1, pageCount / MIN_PAGES_PER_CHUNK));
+            if (chunks == 1) {
+                return stripPages(document, 1, pageCount);
+            }
+        }
+
+        // PDDocument is not thread-safe, so each page range opens its own view of the temp file.
+        int chunkSize = (pageCount + chunks - 1) / chunks;
+        try {
+            List<String> parts = Flux.range(0, chunks)
+                    .flatMapSequential(chunk -> Mono.fromCallable(() -> {
+                        try (PDDocument document = load(path)) {
+                            int startPage = chunk * chunkSize + 1;
+                            return stripPages(document, startPage, Math.min(pageCount, startPage + chunkSize - 1));
+                        }
+                    }).subscribeOn(Schedulers.boundedElastic()), chunks)
+                    .collectList()
+                    .block();
+            return parts == null ? "" : String.join("", parts);
+        } catch (RuntimeException e) {
+            Throwable cause = Exceptions.unwrap(e);
+            throw new RuntimeException("Failed to read PDF content: " + cause.getMessage(), cause);
+        }
+    }
+
+    private PDDocument load(Path path) throws IOException {
+        return Loader.loadPDF(path.toFile(), MemoryUsageSetting.setupMixed(scratchMemoryBytes).streamCache);
+    }
+
+    private static String stripPages(PDDocument document, int startPage, int endPage) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        stripper.setStartPage(startPage);
+        stripper.setEndPage(endPage);
+        return stripper.getText(document);
+    }
+}
@@ -0,0 +1,11 @@
+package com.practice.aiplatform.ai;
+
+/**
+ * Text extracted from an uploaded document, keyed by the SHA-256 of the uploaded bytes.
+ */
+public record ExtractedDocument(String contentHash, String mimeType, String text) {
+
+    public boolean isPdf() {
+        return DocumentTextExtractor.PDF.equalsIgnoreCase(mimeType);
+    }
+}
@@ -0,0 +1,70 @@
+package com.practice.aiplatform.ai;
+
+/**
+ * Count-min sketch of request frequencies in a fixed amount of memory. Every counter is halved
+ * once {@code 10 * width} increments have been recorded, so old popularity fades out. Each row hashes
+ * the key's characters with its own seed, so keys that collide in one row rarely collide in another.
+ */
+final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L };
+
+    private final int[][] counters;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int width) {
+        int size = Integer.highestOneBit(Math.max(16, width - 1) << 1);
+        this.counters = new int[DEPTH][size];
+        this.mask = size - 1;
+        this.sampleSize = 10 * size;
+    }
+
+    synchronized void increment(String key) {
+        int estimate = Integer.MAX_VALUE;
+        int[] slots = new int[DEPTH];
+        for (int row = 0; row < DEPTH; row++) {
+            slots[row] = index(key, row);
+            estimate = Math.min(estimate, counters[row][slots[row]]);
+        }
+        // Conservative update: only the counters at the current minimum grow.
+        for (int row = 0; row < DEPTH; row++) {
+            if (counters[row][slots[row]] == estimate) {
+                counters[row][slots[row]]++;
+            }
+        }
+        if (++additions >= sampleSize) {
+            for (int[] row : counters) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] >>>= 1;
+                }
+            }
+            additions /= 2;
+        }
+    }
+
+    synchronized int estimate(String key) {
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters[row][index(key, row)]);
+        }
+        return estimate;
+    }
+
+    private int index(String key, int row) {
+        // Seeded FNV-1a over the characters, then the murmur3 finalizer to spread the low bits.
+        long hash = SEEDS[row];
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return (int) hash & mask;
+    }
+}
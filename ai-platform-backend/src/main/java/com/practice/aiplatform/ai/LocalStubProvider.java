@@ -0,0 +1,61 @@
+package com.practice.aiplatform.ai;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Offline provider that answers every prompt with a fixed response after a fixed delay. Meant for
+ * local development and tests; enable it only where real completions are not needed.
+ */
+public class LocalStubProvider implements AiProvider {
+
+    public static final String NAME = "local-stub";
+
+    private final ObjectMapper objectMapper;
+    private final String response;
+    private final Duration latency;
+
+    public LocalStubProvider(ObjectMapper objectMapper, String response, Duration latency) {
+        this.objectMapper = objectMapper;
+        this.response = response;
+        this.latency = latency;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public String modelFor(Tier tier) {
+        return NAME;
+    }
+
+    @Override
+    public Mono<AiResponse> complete(Tier tier, String prompt) {
+        AiResponse completion = new AiResponse(List.of(new AiResponse.Choice(new AiResponse.Message(response))));
+        return Mono.just(completion).delayElement(latency);
+    }
+
+    @Override
+    public Flux<String> stream(Tier tier, String prompt) {
+        return Flux.fromArray(response.split("(?<= )"))
+                .map(this::toChunk)
+                .delaySubscription(latency);
+    }
+
+    private String toChunk(String token) {
+        try {
+            return objectMapper.writeValueAsString(
+                    Map.of("choices", List.of(Map.of("delta", Map.of("content", token)))));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode stub chunk", e);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.practice.aiplatform.ai;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 64-bit SimHash fingerprints for generated questions. Fingerprints are stored on each
+ * {@code Question}, so a repeat check is a handful of XOR/popcount operations against a banded
+ * index rather than re-normalizing every prior question with regexes on every attempt.
+ */
+@Component
+public class NearDuplicateDetector {
+
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
+    private static final int BANDS = 8;
+    private static final int BITS_PER_BAND = 64 / BANDS;
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "the", "is", "are", "was", "were", "be", "of", "in", "on", "for", "to", "and", "or",
+            "what", "which", "how", "why", "when", "does", "do", "can", "you", "your", "this", "that", "with",
+            "explain", "describe", "give", "write", "briefly");
+
+    private final int maxHammingDistance;
+
+    public NearDuplicateDetector(@Value("${ai.question.near-duplicate.max-hamming-distance:6}") int maxHammingDistance) {
+        // Banding only guarantees recall up to BANDS - 1 differing bits (pigeonhole).
+        this.maxHammingDistance = Math.max(0, Math.min(maxHammingDistance, BANDS - 1));
+    }
+
+    /** Returns {@code 0} for text with no meaningful tokens; callers treat that as unusable. */
+    public long fingerprint(String text) {
+        if (text == null || text.isBlank()) {
+            return 0L;
+        }
+
+        List<String> tokens = new ArrayList<>();
+        for (String word : NON_ALPHANUMERIC.split(text.toLowerCase(Locale.ROOT))) {
+            if (!word.isEmpty() && !STOP_WORDS.contains(word)) {
+                tokens.add(word);
+            }
+        }
+        if (tokens.isEmpty()) {
+            return 0L;
+        }
+
+        int[] weights = new int[64];
+        for (int i = 0; i < tokens.size(); i++) {
+            accumulate(weights, hash64(tokens.get(i)), 2);
+            if (i > 0) {
+                // Unordered pair, so reordered clauses ("in Java, what is X" / "what is X in Java") match.
+                String previous = tokens.get(i - 1);
+                String current = tokens.get(i);
+                String pair = previous.compareTo(current) <= 0 ? previous + ' ' + current : current + ' ' + previous;
+                accumulate(weights, hash64(pair), 1);
+            }
+        }
+
+        long fingerprint = 0L;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint == 0L ? 1L : fingerprint;
+    }
+
+    public Index newIndex() {
+        return new Index();
+    }
+
+    private static void accumulate(int[] weights, long hash, int weight) {
+        for (int bit = 0; bit < 64; bit++) {
+            weights[bit] += ((hash >>> bit) & 1L) == 1L ? weight : -weight;
+        }
+    }
+
+    private static long hash64(String value) {
+        // FNV-1a followed by the SplitMix64 finalizer for better bit dispersion on short tokens.
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+
+    /**
+     * LSH index over fingerprints, split into {@value #BANDS} bands. Two fingerprints within
+     * {@code BANDS - 1} bits of each other always share at least one band, so only that bucket
+     * needs an exact Hamming check.
+     */
+    public final class Index {
+        private final List<Map<Integer, List<Long>>> bands = new ArrayList<>(BANDS);
+
+        private Index() {
+            for (int i = 0; i < BANDS; i++) {
+                bands.add(new HashMap<>());
+            }
+        }
+
+        public void add(long fingerprint) {
+            if (fingerprint == 0L) {
+                return;
+            }
+            for (int band = 0; band < BANDS; band++) {
+                bands.get(band).computeIfAbsent(bandKey(fingerprint, band), k -> new ArrayList<>()).add(fingerprint);
+            }
+        }
+
+        public boolean containsNear(long fingerprint) {
+            if (fingerprint == 0L) {
+                return true;
+            }
+            for (int band = 0; band < BANDS; band++) {
+                List<Long> bucket = bands.get(band).get(bandKey(fingerprint, band));
+                if (bucket == null) {
+                    continue;
+                }
+                for (long candidate : bucket) {
+                    if (Long.bitCount(candidate ^ fingerprint) <= maxHammingDistance) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private int bandKey(long fingerprint, int band) {
+            return (int) ((fingerprint >>> (band * BITS_PER_BAND)) & ((1L << BITS_PER_BAND) - 1));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.practice.aiplatform.ai;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Provider for any endpoint speaking the OpenAI chat-completions protocol (Groq, OpenRouter,
+ * self-hosted vLLM, ...). The WebClient is expected to carry the provider's base URL.
+ */
+public class OpenAiCompatibleProvider implements AiProvider {
+
+    private static final String STREAM_DONE_MARKER = "[DONE]";
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final String name;
+    private final WebClient webClient;
+    private final String apiKey;
+    private final String practiceModel;
+    private final String studyPlanModel;
+    private final ChatCompletionDecoder completionDecoder;
+
+    public OpenAiCompatibleProvider(String name, WebClient webClient, String apiKey, String practiceModel,
+            String studyPlanModel, JsonFactory jsonFactory) {
+        this.name = name;
+        this.webClient = webClient;
+        this.apiKey = apiKey;
+        this.practiceModel = practiceModel;
+        this.studyPlanModel = studyPlanModel;
+        this.completionDecoder = new ChatCompletionDecoder(jsonFactory);
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public String modelFor(Tier tier) {
+        return tier == Tier.STUDY_PLAN ? studyPlanModel : practiceModel;
+    }
+
+    @Override
+    public Mono<AiResponse> complete(Tier tier, String prompt) {
+        Map<String, Object> requestBody = Map.of(
+                "model", modelFor(tier),
+                "messages", List.of(Map.of("role", "user", "content", prompt)),
+                "temperature", 0.2);
+
+        return webClient.post()
+                .uri("/v1/chat/completions")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+                .bodyValue(requestBody)
+                .retrieve()
+                .onStatus(
+                        s -> s.is4xxClientError() || s.is5xxServerError(),
+                        clientResponse -> clientResponse.bodyToMono(String.class)
+                                .flatMap(errorBody -> Mono.error(new RuntimeException(
+                                        "Generation API Error: " + errorBody))))
+                .bodyToFlux(DataBuffer.class)
+                .as(completionDecoder::decode);
+    }
+
+    @Override
+    public Flux<String> stream(Tier tier, String prompt) {
+        Map<String, Object> requestBody = Map.of(
+                "model", modelFor(tier),
+                "messages", List.of(Map.of("role", "user", "content", prompt)),
+                "temperature", 0.2,
+                "stream", true);
+
+        return webClient.post()
+                .uri("/v1/chat/completions")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(requestBody)
+                .retrieve()
+                .onStatus(
+                        s -> s.is4xxClientError() || s.is5xxServerError(),
+                        clientResponse -> clientResponse.bodyToMono(String.class)
+                                .flatMap(errorBody -> Mono.error(new RuntimeException(
+                                        "Generation API Error: " + errorBody))))
+                .bodyToFlux(SSE_TYPE)
+                .mapNotNull(ServerSentEvent::data)
+                .takeWhile(data -> !STREAM_DONE_MARKER.equals(data.trim()));
+    }
+}
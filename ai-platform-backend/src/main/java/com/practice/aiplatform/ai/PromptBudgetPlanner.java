@@ -0,0 +1,247 @@
+package com.practice.aiplatform.ai;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps variable prompt sections inside a per-purpose token budget. Lists are deduplicated and
+ * cut to the budget in priority order; attached documents are compacted by dropping running
+ * headers, footers and page numbers, and if still too large reduced to their opening, an outline
+ * of the headings in between, and their closing lines.
+ */
+@Component
+public class PromptBudgetPlanner {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern DIGITS = Pattern.compile("\\d+");
+    private static final Pattern PAGE_NUMBER = Pattern.compile("(?i)(page\\s*)?\\d+(\\s*(of|/)\\s*\\d+)?");
+    private static final Pattern HEADING = Pattern.compile(
+            "(?i)^(\\d+(\\.\\d+)*[.)]?\\s|(unit|module|chapter|week|day|part|section|lecture|topic)\\b|[ivx]+[.)]\\s).*");
+    private static final int REPEATED_LINE_MAX_LENGTH = 80;
+    private static final int REPEATED_LINE_MIN_OCCURRENCES = 3;
+    private static final int HEADING_MAX_LENGTH = 120;
+    private static final int MIN_ATTACHMENT_TOKENS = 256;
+    private static final int OMISSION_MARKER_TOKENS = 24;
+
+    private final BpeTokenizer tokenizer;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Map<String, Integer> budgets = new HashMap<>();
+
+    public PromptBudgetPlanner(
+            BpeTokenizer tokenizer,
+            MeterRegistry meterRegistry,
+            @Value("${ai.prompt.budget.enabled:true}") boolean enabled,
+            @Value("${ai.prompt.budget.blocked-questions-tokens:400}") int blockedQuestionsTokens,
+            @Value("${ai.prompt.budget.study-plan-file-tokens:6000}") int studyPlanFileTokens,
+            @Value("${ai.prompt.budget.moderation-file-tokens:1500}") int moderationFileTokens) {
+        this.tokenizer = tokenizer;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        budgets.put("question", blockedQuestionsTokens);
+        budgets.put("study_plan_file", studyPlanFileTokens);
+        budgets.put("moderation_file", moderationFileTokens);
+    }
+
+    public int countTokens(String text) {
+        return tokenizer.count(text);
+    }
+
+    public void recordPromptTokens(String purpose, String prompt) {
+        DistributionSummary.builder("ai.prompt.tokens")
+                .tag("purpose", purpose)
+                .baseUnit("tokens")
+                .register(meterRegistry)
+                .record(tokenizer.count(prompt));
+    }
+
+    /**
+     * Drops blank and repeated entries (case and whitespace insensitive) and keeps entries from the
+     * front of the list until the purpose's budget or {@code maxItems} is reached.
+     */
+    public List<String> fitItems(String purpose, List<String> items, int maxItems) {
+        int budget = enabled ? budgets.getOrDefault(purpose, Integer.MAX_VALUE) : Integer.MAX_VALUE;
+        List<String> kept = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        int used = 0;
+        int dropped = 0;
+        for (String item : items) {
+            if (item == null || item.isBlank() || !seen.add(normalize(item))) {
+                continue;
+            }
+            int tokens = tokenizer.count(item);
+            if (kept.size() >= maxItems || used + tokens > budget) {
+                dropped += tokens;
+                continue;
+            }
+            kept.add(item);
+            used += tokens;
+        }
+        recordSaved(purpose, dropped);
+        return kept;
+    }
+
+    /** Truncates {@code text} to the purpose's budget. */
+    public String truncate(String purpose, String text) {
+        if (!enabled || !budgets.containsKey(purpose)) {
+            return text;
+        }
+        String truncated = tokenizer.truncate(text, budgets.get(purpose));
+        if (truncated.length() < text.length()) {
+            recordSaved(purpose, tokenizer.count(text) - tokenizer.count(truncated));
+        }
+        return truncated;
+    }
+
+    /**
+     * Compacts an attached document so that {@code prompt} plus the document fits the purpose's
+     * budget. The document always keeps a small minimum allowance, even for long prompts.
+     */
+    public String fitAttachment(String purpose, String prompt, String document) {
+        if (!enabled || !budgets.containsKey(purpose) || document == null || document.isEmpty()) {
+            return document;
+        }
+        int budget = Math.max(MIN_ATTACHMENT_TOKENS, budgets.get(purpose) - tokenizer.count(prompt));
+        int originalTokens = tokenizer.count(document);
+        if (originalTokens <= budget) {
+            return document;
+        }
+
+        List<String> lines = dropBoilerplate(document);
+        int[] lineTokens = new int[lines.size()];
+        int total = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            lineTokens[i] = tokenizer.count(lines.get(i)) + 1;
+            total += lineTokens[i];
+        }
+
+        String compacted = total <= budget ? String.join("\n", lines) : outline(lines, lineTokens, budget);
+        recordSaved(purpose, originalTokens - tokenizer.count(compacted));
+        return compacted;
+    }
+
+    private List<String> dropBoilerplate(String document) {
+        String[] rawLines = document.split("\\R");
+        Map<String, Integer> occurrences = new HashMap<>();
+        List<String> lines = new ArrayList<>(rawLines.length);
+        for (String rawLine : rawLines) {
+            String line = WHITESPACE.matcher(rawLine.strip()).replaceAll(" ");
+            lines.add(line);
+            if (!line.isEmpty() && line.length() <= REPEATED_LINE_MAX_LENGTH) {
+                occurrences.merge(boilerplateKey(line), 1, Integer::sum);
+            }
+        }
+
+        List<String> kept = new ArrayList<>(lines.size());
+        Set<String> emitted = new HashSet<>();
+        boolean previousBlank = true;
+        for (String line : lines) {
+            if (line.isEmpty()) {
+                if (!previousBlank) {
+                    kept.add(line);
+                }
+                previousBlank = true;
+                continue;
+            }
+            if (PAGE_NUMBER.matcher(line).matches()) {
+                continue;
+            }
+            if (line.length() <= REPEATED_LINE_MAX_LENGTH) {
+                String key = boilerplateKey(line);
+                // Running headers and footers: keep the first copy only.
+                if (occurrences.getOrDefault(key, 0) >= REPEATED_LINE_MIN_OCCURRENCES && !emitted.add(key)) {
+                    continue;
+                }
+            } else if (!emitted.add(line)) {
+                continue;
+            }
+            kept.add(line);
+            previousBlank = false;
+        }
+        return kept;
+    }
+
+    /**
+     * Spends 60% of the budget on the opening lines and 15% on the closing lines, then fills the
+     * rest with heading-like lines from the middle, in document order.
+     */
+    private String outline(List<String> lines, int[] lineTokens, int documentBudget) {
+        int budget = documentBudget - OMISSION_MARKER_TOKENS;
+        int headBudget = budget * 60 / 100;
+        int tailBudget = budget * 15 / 100;
+
+        int headEnd = 0;
+        int used = 0;
+        while (headEnd < lines.size() && used + lineTokens[headEnd] <= headBudget) {
+            used += lineTokens[headEnd++];
+        }
+        // A single oversized line (PDFs without line breaks) would otherwise leave the head empty.
+        String partial = headEnd == 0 && !lines.isEmpty() ? tokenizer.truncate(lines.get(headEnd), headBudget - used) : "";
+        used += tokenizer.count(partial);
+        int middleStart = partial.isBlank() ? headEnd : headEnd + 1;
+        int tailStart = lines.size();
+        int tailUsed = 0;
+        while (tailStart > middleStart && tailUsed + lineTokens[tailStart - 1] <= tailBudget) {
+            tailUsed += lineTokens[--tailStart];
+        }
+        used += tailUsed;
+
+        List<String> middle = new ArrayList<>();
+        int omitted = middleStart - headEnd;
+        for (int i = middleStart; i < tailStart; i++) {
+            String line = lines.get(i);
+            if (line.length() <= HEADING_MAX_LENGTH && HEADING.matcher(line).matches()
+                    && used + lineTokens[i] <= budget) {
+                middle.add(line);
+                used += lineTokens[i];
+            } else if (!line.isEmpty()) {
+                omitted++;
+            }
+        }
+
+        StringBuilder compacted = new StringBuilder();
+        for (int i = 0; i < headEnd; i++) {
+            compacted.append(lines.get(i)).append('\n');
+        }
+        if (!partial.isBlank()) {
+            compacted.append(partial).append('\n');
+        }
+        if (omitted > 0) {
+            compacted.append("[... ").append(omitted).append(" lines omitted; outline of the omitted part follows ...]\n");
+        }
+        for (String heading : middle) {
+            compacted.append(heading).append('\n');
+        }
+        for (int i = tailStart; i < lines.size(); i++) {
+            compacted.append(lines.get(i)).append('\n');
+        }
+        return compacted.toString().stripTrailing();
+    }
+
+    private void recordSaved(String purpose, int tokens) {
+        if (tokens > 0) {
+            meterRegistry.counter("ai.prompt.tokens.trimmed", "purpose", purpose).increment(tokens);
+        }
+    }
+
+    /** Numbers are ignored ("Page 3", "Draft 2024") except in headings, where they tell units apart. */
+    private static String boilerplateKey(String line) {
+        String lower = line.toLowerCase(Locale.ROOT);
+        return HEADING.matcher(line).matches() ? lower : DIGITS.matcher(lower).replaceAll("#");
+    }
+
+    private static String normalize(String text) {
+        return WHITESPACE.matcher(text.strip().toLowerCase(Locale.ROOT)).replaceAll(" ");
+    }
+}
@@ -0,0 +1,147 @@
+package com.practice.aiplatform.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A prompt compiled once into alternating literal and slot segments. {@code {{name}}} inserts an
+ * escaped value (quotes and backslashes are escaped, stray control characters dropped) and
+ * {@code {{{name}}}} inserts a value verbatim, for fragments that were rendered by another
+ * template. Values are passed positionally in the order the slot names were declared.
+ *
+ * <p>Rendering reuses a per-thread {@link StringBuilder}, so the only allocation per call is the
+ * resulting string. Bump the version whenever the wording changes; {@link #key()} is meant to be
+ * part of any cache key derived from the prompt's output.
+ */
+public final class PromptTemplate {
+
+    private static final int POOLED_CAPACITY = 2048;
+    private static final int MAX_POOLED_CAPACITY = 64 * 1024;
+    private static final ThreadLocal<StringBuilder> BUFFER =
+            ThreadLocal.withInitial(() -> new StringBuilder(POOLED_CAPACITY));
+
+    private final String name;
+    private final int version;
+    private final String[] literals;
+    private final int[] slots;
+    private final boolean[] escaped;
+    private final int slotCount;
+    private final int literalLength;
+
+    private PromptTemplate(String name, int version, String[] literals, int[] slots, boolean[] escaped,
+            int slotCount) {
+        this.name = name;
+        this.version = version;
+        this.literals = literals;
+        this.slots = slots;
+        this.escaped = escaped;
+        this.slotCount = slotCount;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    public static PromptTemplate compile(String name, int version, String source, String... slotNames) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        List<Boolean> escaped = new ArrayList<>();
+        List<String> declared = Arrays.asList(slotNames);
+
+        int position = 0;
+        while (true) {
+            int open = source.indexOf("{{", position);
+            if (open < 0) {
+                break;
+            }
+            boolean raw = source.startsWith("{{{", open);
+            String closeToken = raw ? "}}}" : "}}";
+            int nameStart = open + (raw ? 3 : 2);
+            int close = source.indexOf(closeToken, nameStart);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed slot in prompt template " + name + " at " + open);
+            }
+            String slotName = source.substring(nameStart, close).trim();
+            int index = declared.indexOf(slotName);
+            if (index < 0) {
+                throw new IllegalArgumentException(
+                        "Undeclared slot '" + slotName + "' in prompt template " + name);
+            }
+            literals.add(source.substring(position, open));
+            slots.add(index);
+            escaped.add(!raw);
+            position = close + closeToken.length();
+        }
+        literals.add(source.substring(position));
+
+        int[] slotArray = new int[slots.size()];
+        boolean[] escapedArray = new boolean[escaped.size()];
+        for (int i = 0; i < slotArray.length; i++) {
+            slotArray[i] = slots.get(i);
+            escapedArray[i] = escaped.get(i);
+        }
+        return new PromptTemplate(name, version, literals.toArray(String[]::new), slotArray, escapedArray,
+                slotNames.length);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int version() {
+        return version;
+    }
+
+    /** Stable identifier of this wording, e.g. {@code hint@v2}. */
+    public String key() {
+        return name + "@v" + version;
+    }
+
+    public String render(Object... values) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        try {
+            return appendTo(buffer, values).toString();
+        } finally {
+            if (buffer.capacity() > MAX_POOLED_CAPACITY) {
+                // Don't pin a huge buffer to the thread after an oversized prompt (e.g. PDF text).
+                BUFFER.remove();
+            } else {
+                buffer.setLength(0);
+            }
+        }
+    }
+
+    public StringBuilder appendTo(StringBuilder target, Object... values) {
+        if (values.length != slotCount) {
+            throw new IllegalArgumentException("Prompt template " + key() + " expects " + slotCount
+                    + " values but got " + values.length);
+        }
+        target.ensureCapacity(target.length() + literalLength + 64 * slots.length);
+        for (int i = 0; i < slots.length; i++) {
+            target.append(literals[i]);
+            Object value = values[slots[i]];
+            String text = value == null ? "null" : value.toString();
+            if (escaped[i]) {
+                appendEscaped(target, text);
+            } else {
+                target.append(text);
+            }
+        }
+        return target.append(literals[slots.length]);
+    }
+
+    private static void appendEscaped(StringBuilder target, String text) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                target.append('\\').append(c);
+            } else if (c >= 0x20 || c == '\n' || c == '\t') {
+                target.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.practice.aiplatform.ai;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ready-to-serve practice questions in Redis for the most requested (subject, difficulty, topic)
+ * tuples. Demand is counted in a {@link FrequencySketch}; a scheduled pass keeps the hottest tuples
+ * with at least {@code minDemand} recent requests topped up to {@code size} questions, and a take
+ * that leaves a pool below the low-water mark refills it right away. A refill holds a per-tuple Redis
+ * lock, so instances never top up the same pool at once. Entries are removed when served, so each
+ * one reaches a single student.
+ */
+@Slf4j
+@Component
+public class QuestionPool {
+
+    private static final String KEY_PREFIX = "ai:question-pool:";
+    private static final String LOCK_PREFIX = "ai:question-pool-lock:";
+    private static final RedisScript<Long> RELEASE_SCRIPT = RedisScript.of(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private record Tuple(String subject, String difficulty, String topic) {
+
+        String key() {
+            return KEY_PREFIX + id();
+        }
+
+        String lockKey() {
+            return LOCK_PREFIX + id();
+        }
+
+        private String id() {
+            return (subject + "|" + difficulty + "|" + topic).trim().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final AiService aiService;
+    private final NearDuplicateDetector nearDuplicateDetector;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int size;
+    private final int lowWater;
+    private final int hotTuples;
+    private final int minDemand;
+    private final int minFreePermits;
+    private final Duration entryTtl;
+    private final Duration lockTtl;
+    private final FrequencySketch demand = new FrequencySketch(4096);
+    private final Cache<String, Tuple> candidates = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterAccess(Duration.ofDays(1))
+            .build();
+    private final Set<String> refilling = ConcurrentHashMap.newKeySet();
+
+    public QuestionPool(
+            ObjectProvider<ReactiveStringRedisTemplate> redisTemplateProvider,
+            AiService aiService,
+            NearDuplicateDetector nearDuplicateDetector,
+            BulkheadRegistry bulkheadRegistry,
+            MeterRegistry meterRegistry,
+            @Value("${ai.question.pool.enabled:true}") boolean enabled,
+            @Value("${ai.question.pool.size:6}") int size,
+            @Value("${ai.question.pool.low-water:2}") int lowWater,
+            @Value("${ai.question.pool.hot-tuples:50}") int hotTuples,
+            @Value("${ai.question.pool.min-demand:3}") int minDemand,
+            @Value("${ai.question.pool.min-free-permits:4}") int minFreePermits,
+            @Value("${ai.question.pool.entry-ttl-minutes:360}") long entryTtlMinutes,
+            @Value("${ai.question.pool.lock-ttl-ms:180000}") long lockTtlMs) {
+        this.redisTemplate = redisTemplateProvider.getIfAvailable();
+        this.aiService = aiService;
+        this.nearDuplicateDetector = nearDuplicateDetector;
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled && redisTemplate != null;
+        this.size = size;
+        this.lowWater = lowWater;
+        this.hotTuples = hotTuples;
+        this.minDemand = minDemand;
+        this.minFreePermits = minFreePermits;
+        this.entryTtl = Duration.ofMinutes(entryTtlMinutes);
+        this.lockTtl = Duration.ofMillis(lockTtlMs);
+    }
+
+    /** Counts one generate-question request towards the tuple's popularity. */
+    public void recordRequest(String subject, String difficulty, String topic) {
+        if (!enabled) {
+            return;
+        }
+        Tuple tuple = new Tuple(subject, difficulty, topic);
+        candidates.put(tuple.key(), tuple);
+        demand.increment(tuple.key());
+    }
+
+    /**
+     * Removes and returns a pooled question that is not a near-duplicate of any of
+     * {@code seenQuestionTexts}, or completes empty when the pool has none (or Redis is unavailable).
+     */
+    public Mono<String> take(String subject, String difficulty, String topic, List<String> seenQuestionTexts) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        Tuple tuple = new Tuple(subject, difficulty, topic);
+        NearDuplicateDetector.Index seen = nearDuplicateDetector.newIndex();
+        seenQuestionTexts.forEach(text -> seen.add(nearDuplicateDetector.fingerprint(text)));
+
+        return redisTemplate.opsForList().range(tuple.key(), 0, -1)
+                .filter(text -> !seen.containsNear(nearDuplicateDetector.fingerprint(text)))
+                // LREM decides the race between instances: only the caller that removed the entry serves it.
+                .concatMap(text -> redisTemplate.opsForList().remove(tuple.key(), 1, text)
+                        .filter(removed -> removed > 0)
+                        .map(removed -> text))
+                .next()
+                .doOnSuccess(text -> {
+                    meterRegistry.counter("ai.question.pool.take", "result", text != null ? "hit" : "miss").increment();
+                    if (text != null) {
+                        refillIfLow(tuple);
+                    }
+                })
+                .onErrorResume(e -> {
+                    log.debug("Question pool unavailable: {}", e.getMessage());
+                    meterRegistry.counter("ai.question.pool.take", "result", "error").increment();
+                    return Mono.empty();
+                });
+    }
+
+    @Scheduled(fixedDelayString = "${ai.question.pool.refill-interval-ms:30000}",
+            initialDelayString = "${ai.question.pool.refill-interval-ms:30000}")
+    public void refillHotTuples() {
+        if (!enabled) {
+            return;
+        }
+        candidates.asMap().values().stream()
+                .filter(tuple -> demand.estimate(tuple.key()) >= minDemand)
+                .sorted(Comparator.comparingInt((Tuple tuple) -> demand.estimate(tuple.key())).reversed())
+                .limit(hotTuples)
+                .forEach(this::refillIfLow);
+    }
+
+    private void refillIfLow(Tuple tuple) {
+        if (!refilling.add(tuple.key())) {
+            return;
+        }
+        String token = UUID.randomUUID().toString();
+        redisTemplate.opsForValue().setIfAbsent(tuple.lockKey(), token, lockTtl)
+                .flatMap(acquired -> {
+                    if (!Boolean.TRUE.equals(acquired)) {
+                        meterRegistry.counter("ai.question.pool.refill.skipped", "reason", "locked").increment();
+                        return Mono.empty();
+                    }
+                    return redisTemplate.opsForList().range(tuple.key(), 0, -1)
+                            .collectList()
+                            .flatMap(pooled -> pooled.size() >= lowWater ? Mono.empty() : refill(tuple, pooled))
+                            .doFinally(signal -> release(tuple, token));
+                })
+                .doFinally(signal -> refilling.remove(tuple.key()))
+                .subscribe(
+                        added -> meterRegistry.counter("ai.question.pool.refilled").increment(added),
+                        e -> log.debug("Question pool refill for {} failed: {}", tuple.key(), e.getMessage()));
+    }
+
+    private Mono<Long> refill(Tuple tuple, List<String> pooled) {
+        List<String> known = new ArrayList<>(pooled);
+        // One question at a time, each told about the rest, so the pool does not fill with variants.
+        return Flux.range(0, size - pooled.size())
+                .takeWhile(i -> hasSpareCapacity())
+                .concatMap(i -> aiService.generateQuestion(
+                                tuple.subject(), tuple.difficulty(), tuple.topic(), null, null, List.copyOf(known))
+                        .doOnNext(known::add)
+                        .flatMap(text -> redisTemplate.opsForList().rightPush(tuple.key(), text)))
+                .count()
+                .flatMap(added -> redisTemplate.expire(tuple.key(), entryTtl).thenReturn(added));
+    }
+
+    private void release(Tuple tuple, String token) {
+        redisTemplate.execute(RELEASE_SCRIPT, List.of(tuple.lockKey()), List.of(token))
+                .subscribe(
+                        released -> {
+                        },
+                        e -> log.debug("Question pool lock release for {} failed: {}", tuple.key(), e.getMessage()));
+    }
+
+    private boolean hasSpareCapacity() {
+        boolean spare = bulkheadRegistry.bulkhead("aiPractice").getMetrics().getAvailableConcurrentCalls() >= minFreePermits;
+        if (!spare) {
+            meterRegistry.counter("ai.question.pool.refill.skipped", "reason", "capacity").increment();
+        }
+        return spare;
+    }
+}
@@ -0,0 +1,222 @@
+package com.practice.aiplatform.ai;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.practice.aiplatform.practice.Question;
+import com.practice.aiplatform.practice.QuestionRepository;
+import com.practice.aiplatform.user.Student;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Speculatively generates the next practice question while the student is still answering the
+ * current one: one harder question for the CORRECT branch and one easier for every other outcome.
+ * Each student has a single slot holding both in-flight generations, so a student who answers
+ * before generation finishes joins it instead of starting a new one.
+ *
+ * <p>Speculation is skipped when the student's daily budget is spent or when the aiPractice
+ * bulkhead is busy, so it never takes capacity from real requests. The budget is a Redis counter per
+ * student and UTC day, shared by every instance; without Redis each instance counts on its own.
+ * Slots are local to the instance.
+ */
+@Slf4j
+@Component
+public class QuestionPrefetcher {
+
+    private static final String CORRECT = "CORRECT";
+    private static final String INCORRECT = "INCORRECT";
+    private static final String BUDGET_KEY_PREFIX = "ai:question-prefetch:spent:";
+    private static final int COST = 2;
+    // Outlives the day it counts, so a counter never expires while it is still in use.
+    private static final Duration BUDGET_TTL = Duration.ofDays(2);
+
+    private record Slot(Long questionId, String context, Mono<String> correct, Mono<String> incorrect) {
+    }
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final AiService aiService;
+    private final QuestionRepository questionRepository;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int freeDailyBudget;
+    private final int premiumDailyBudget;
+    private final int minFreePermits;
+    private final Cache<String, Slot> slots;
+    private final Cache<String, AtomicInteger> spentToday = Caffeine.newBuilder()
+            .expireAfterWrite(BUDGET_TTL)
+            .maximumSize(100_000)
+            .build();
+
+    public QuestionPrefetcher(
+            ObjectProvider<ReactiveStringRedisTemplate> redisTemplateProvider,
+            AiService aiService,
+            QuestionRepository questionRepository,
+            BulkheadRegistry bulkheadRegistry,
+            MeterRegistry meterRegistry,
+            @Value("${ai.question.prefetch.enabled:true}") boolean enabled,
+            @Value("${ai.question.prefetch.ttl-seconds:600}") long ttlSeconds,
+            @Value("${ai.question.prefetch.daily-budget.free:10}") int freeDailyBudget,
+            @Value("${ai.question.prefetch.daily-budget.premium:200}") int premiumDailyBudget,
+            @Value("${ai.question.prefetch.min-free-permits:4}") int minFreePermits) {
+        this(redisTemplateProvider.getIfAvailable(), aiService, questionRepository, bulkheadRegistry, meterRegistry,
+                enabled, ttlSeconds, freeDailyBudget, premiumDailyBudget, minFreePermits);
+    }
+
+    QuestionPrefetcher(
+            ReactiveStringRedisTemplate redisTemplate,
+            AiService aiService,
+            QuestionRepository questionRepository,
+            BulkheadRegistry bulkheadRegistry,
+            MeterRegistry meterRegistry,
+            boolean enabled,
+            long ttlSeconds,
+            int freeDailyBudget,
+            int premiumDailyBudget,
+            int minFreePermits) {
+        this.redisTemplate = redisTemplate;
+        this.aiService = aiService;
+        this.questionRepository = questionRepository;
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.freeDailyBudget = freeDailyBudget;
+        this.premiumDailyBudget = premiumDailyBudget;
+        this.minFreePermits = minFreePermits;
+        this.slots = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(50_000)
+                .<String, Slot>removalListener((email, slot, cause) -> {
+                    // Explicit removals are accounted for by take().
+                    if (slot != null && cause != RemovalCause.EXPLICIT) {
+                        recordOutcome("wasted", 2);
+                    }
+                })
+                .build();
+    }
+
+    /** Starts generating both possible successors of {@code question}, if budget and capacity allow. */
+    public void prefetch(Student student, Question question) {
+        if (!enabled) {
+            return;
+        }
+        boolean premium = "PREMIUM".equalsIgnoreCase(student.getSubscriptionStatus());
+        int budget = premium ? premiumDailyBudget : freeDailyBudget;
+        if (bulkheadRegistry.bulkhead("aiPractice").getMetrics().getAvailableConcurrentCalls() < minFreePermits) {
+            meterRegistry.counter("ai.question.prefetch", "result", "skipped_capacity").increment();
+            return;
+        }
+        String budgetKey = BUDGET_KEY_PREFIX + LocalDate.now(ZoneOffset.UTC) + ":" + student.getEmail();
+        spend(budgetKey).subscribe(spent -> {
+            if (spent > budget) {
+                meterRegistry.counter("ai.question.prefetch", "result", "skipped_budget").increment();
+                return;
+            }
+            start(student, question);
+        });
+    }
+
+    private void start(Student student, Question question) {
+        Mono<List<Question>> recent = Mono.fromCallable(() -> questionRepository
+                .findTop12ByStudent_IdAndTopicIgnoreCaseOrderByGeneratedAtDesc(student.getId(), question.getTopic()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .cache();
+        Slot slot = new Slot(
+                question.getId(),
+                context(question.getSubject(), question.getTopic(), question.getDifficulty()),
+                speculate(question, CORRECT, recent),
+                speculate(question, INCORRECT, recent));
+        // Replacing a slot the student never used counts it as wasted through the removal listener.
+        slots.put(student.getEmail(), slot);
+        meterRegistry.counter("ai.question.prefetch", "result", "started").increment();
+    }
+
+    /**
+     * Adds one prefetch to today's counter and returns the new total. A refused prefetch is counted
+     * too; it only pushes the total further past the budget.
+     */
+    private Mono<Long> spend(String budgetKey) {
+        if (redisTemplate == null) {
+            return Mono.just(spendLocally(budgetKey));
+        }
+        return redisTemplate.opsForValue().increment(budgetKey, COST)
+                .flatMap(spent -> spent == COST
+                        ? redisTemplate.expire(budgetKey, BUDGET_TTL).thenReturn(spent)
+                        : Mono.just(spent))
+                .onErrorResume(e -> {
+                    log.debug("Prefetch budget unavailable in Redis, counting locally: {}", e.getMessage());
+                    return Mono.just(spendLocally(budgetKey));
+                });
+    }
+
+    private long spendLocally(String budgetKey) {
+        return spentToday.get(budgetKey, key -> new AtomicInteger()).addAndGet(COST);
+    }
+
+    /**
+     * The speculative successor of {@code previousQuestionId} for the submitted status, if one was
+     * prefetched for the same subject, topic and difficulty. The slot is consumed either way; the
+     * other branch is counted as wasted.
+     */
+    public Optional<Mono<String>> take(String email, Long previousQuestionId, String previousStatus,
+            String subject, String topic, String difficulty) {
+        if (!enabled || previousQuestionId == null) {
+            return Optional.empty();
+        }
+        Slot slot = slots.asMap().remove(email);
+        if (slot == null
+                || !previousQuestionId.equals(slot.questionId())
+                || !slot.context().equals(context(subject, topic, difficulty))) {
+            recordOutcome("missed", 1);
+            if (slot != null) {
+                recordOutcome("wasted", 2);
+            }
+            return Optional.empty();
+        }
+        recordOutcome("used", 1);
+        recordOutcome("wasted", 1);
+        return Optional.of(CORRECT.equalsIgnoreCase(previousStatus) ? slot.correct() : slot.incorrect());
+    }
+
+    private Mono<String> speculate(Question question, String branch, Mono<List<Question>> recent) {
+        Mono<String> generation = recent
+                .flatMap(questions -> aiService.generateQuestion(
+                        question.getSubject(),
+                        question.getDifficulty(),
+                        question.getTopic(),
+                        question.getQuestionText(),
+                        branch,
+                        questions.stream().map(Question::getQuestionText).toList(),
+                        questions.stream().map(Question::getFingerprint).toList()))
+                .cache();
+        generation.subscribe(
+                text -> {
+                },
+                e -> log.debug("Speculative {} question failed: {}", branch, e.getMessage()));
+        return generation;
+    }
+
+    private static String context(String subject, String topic, String difficulty) {
+        return (subject + "|" + topic + "|" + difficulty).trim().toLowerCase(Locale.ROOT);
+    }
+
+    private void recordOutcome(String result, int count) {
+        meterRegistry.counter("ai.question.prefetch.outcome", "result", result).increment(count);
+    }
+}
@@ -0,0 +1,290 @@
+package com.practice.aiplatform.ai;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory semantic tier in front of the exact-key AI caches. Text is embedded locally with
+ * feature hashing (words, word bigrams and character trigrams) and indexed per cache and scope
+ * with random-hyperplane LSH, so a paraphrased question can reuse a stored question or hint.
+ *
+ * <p>Feature hashing barely moves when one number or a negation changes, so an entry is only
+ * served when the numbers and negations of both texts match exactly; cosine similarity decides
+ * the rest.
+ */
+@Component
+public class SemanticResponseCache {
+
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern SCOPE_SEPARATOR = Pattern.compile("\\|");
+    private static final Pattern DISCRIMINATING_TOKEN = Pattern.compile(
+            "\\d+(?:[.,]\\d+)*|\\b(?:not|no|never|none|nothing|cannot|without|except|neither|nor|\\w+n['\u2019]t)\\b");
+    private static final int DIMENSIONS = 256;
+    private static final int TABLES = 6;
+    private static final int BITS_PER_TABLE = 10;
+    // Below this size a scope is scanned exhaustively; LSH only pays off on larger scopes.
+    private static final int EXACT_SCAN_LIMIT = 64;
+    private static final float[][] HYPERPLANES = buildHyperplanes();
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final double similarityThreshold;
+    private final Cache<Long, Entry> entries;
+    private final ConcurrentMap<String, ScopeIndex> scopes = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+
+    public SemanticResponseCache(
+            MeterRegistry meterRegistry,
+            @Value("${ai.semantic-cache.enabled:true}") boolean enabled,
+            @Value("${ai.semantic-cache.similarity-threshold:0.9}") double similarityThreshold,
+            @Value("${ai.semantic-cache.max-entries:20000}") long maxEntries,
+            @Value("${ai.semantic-cache.ttl-minutes:10}") long ttlMinutes) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.similarityThreshold = similarityThreshold;
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .executor(Runnable::run)
+                .<Long, Entry>removalListener((id, entry, cause) -> {
+                    if (id != null && entry != null) {
+                        ScopeIndex index = scopes.get(entry.scopeKey());
+                        if (index != null) {
+                            index.remove(id, entry.signatures());
+                        }
+                    }
+                })
+                .build();
+    }
+
+    public Optional<String> lookup(String cacheName, String scope, String text) {
+        if (!enabled || text == null || text.isBlank()) {
+            return Optional.empty();
+        }
+
+        ScopeIndex index = scopes.get(scopeKey(cacheName, scope));
+        if (index == null) {
+            recordLookup(cacheName, "miss");
+            return Optional.empty();
+        }
+
+        float[] vector = embed(text);
+        String discriminator = discriminator(text);
+        double bestSimilarity = -1;
+        Entry best = null;
+        for (Long id : index.candidates(signatures(vector))) {
+            Entry entry = entries.getIfPresent(id);
+            if (entry == null || !entry.discriminator().equals(discriminator)) {
+                continue;
+            }
+            double similarity = cosine(vector, entry.vector());
+            if (similarity > bestSimilarity) {
+                bestSimilarity = similarity;
+                best = entry;
+            }
+        }
+
+        if (best != null) {
+            DistributionSummary.builder("ai.semantic_cache.similarity")
+                    .tag("cache", cacheName)
+                    .register(meterRegistry)
+                    .record(bestSimilarity);
+        }
+        if (best == null || bestSimilarity < similarityThreshold) {
+            recordLookup(cacheName, "miss");
+            return Optional.empty();
+        }
+        recordLookup(cacheName, "hit");
+        return Optional.of(best.value());
+    }
+
+    public void store(String cacheName, String scope, String text, String value) {
+        if (!enabled || text == null || text.isBlank() || value == null || value.isBlank()) {
+            return;
+        }
+
+        String key = scopeKey(cacheName, scope);
+        float[] vector = embed(text);
+        int[] signatures = signatures(vector);
+        long id = nextId.incrementAndGet();
+        scopes.computeIfAbsent(key, k -> new ScopeIndex()).add(id, signatures);
+        entries.put(id, new Entry(key, vector, signatures, discriminator(text), value));
+    }
+
+    /** Numbers and negations of {@code text} in order, e.g. {@code "12 not"}. */
+    static String discriminator(String text) {
+        StringBuilder tokens = new StringBuilder();
+        Matcher matcher = DISCRIMINATING_TOKEN.matcher(text.toLowerCase(Locale.ROOT));
+        while (matcher.find()) {
+            if (!tokens.isEmpty()) {
+                tokens.append(' ');
+            }
+            tokens.append(matcher.group().replace(",", "").replace('\u2019', '\''));
+        }
+        return tokens.toString();
+    }
+
+    static float[] embed(String text) {
+        float[] vector = new float[DIMENSIONS];
+        String[] words = NON_ALPHANUMERIC.split(text.toLowerCase(Locale.ROOT).trim());
+        String previous = null;
+        for (String word : words) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            addFeature(vector, word, 1.0f);
+            if (previous != null) {
+                addFeature(vector, previous + " " + word, 0.5f);
+            }
+            String padded = "#" + word + "#";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                addFeature(vector, padded.substring(i, i + 3), 0.25f);
+            }
+            previous = word;
+        }
+
+        double norm = 0;
+        for (float component : vector) {
+            norm += component * component;
+        }
+        if (norm > 0) {
+            float scale = (float) (1.0 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    static double cosine(float[] left, float[] right) {
+        double dot = 0;
+        for (int i = 0; i < left.length; i++) {
+            dot += left[i] * right[i];
+        }
+        return dot;
+    }
+
+    private static void addFeature(float[] vector, String feature, float weight) {
+        int hash = feature.hashCode() * 0x9E3779B1;
+        int slot = (hash >>> 1) % DIMENSIONS;
+        vector[slot] += (hash & 1) == 0 ? weight : -weight;
+    }
+
+    private static int[] signatures(float[] vector) {
+        int[] signatures = new int[TABLES];
+        for (int table = 0; table < TABLES; table++) {
+            int signature = 0;
+            for (int bit = 0; bit < BITS_PER_TABLE; bit++) {
+                float[] plane = HYPERPLANES[table * BITS_PER_TABLE + bit];
+                double projection = 0;
+                for (int i = 0; i < DIMENSIONS; i++) {
+                    projection += plane[i] * vector[i];
+                }
+                if (projection >= 0) {
+                    signature |= 1 << bit;
+                }
+            }
+            signatures[table] = signature;
+        }
+        return signatures;
+    }
+
+    private static float[][] buildHyperplanes() {
+        // Fixed seed so every instance buckets the same text identically.
+        Random random = new Random(0x5EED);
+        float[][] planes = new float[TABLES * BITS_PER_TABLE][DIMENSIONS];
+        for (float[] plane : planes) {
+            for (int i = 0; i < DIMENSIONS; i++) {
+                plane[i] = (float) random.nextGaussian();
+            }
+        }
+        return planes;
+    }
+
+    private static String scopeKey(String cacheName, String scope) {
+        StringBuilder key = new StringBuilder(cacheName).append("::");
+        if (scope != null) {
+            for (String part : SCOPE_SEPARATOR.split(scope, -1)) {
+                key.append(WHITESPACE.matcher(part.toLowerCase(Locale.ROOT).trim()).replaceAll(" ")).append('|');
+            }
+        }
+        return key.toString();
+    }
+
+    private void recordLookup(String cacheName, String result) {
+        meterRegistry.counter(
+                "cache_layer_access_total",
+                "cache", cacheName,
+                "layer", "semantic",
+                "result", result).increment();
+    }
+
+    private record Entry(String scopeKey, float[] vector, int[] signatures, String discriminator, String value) {
+    }
+
+    private static final class ScopeIndex {
+        private final Set<Long> ids = new HashSet<>();
+        private final List<Map<Integer, Set<Long>>> tables = new ArrayList<>(TABLES);
+
+        private ScopeIndex() {
+            for (int i = 0; i < TABLES; i++) {
+                tables.add(new HashMap<>());
+            }
+        }
+
+        private synchronized void add(long id, int[] signatures) {
+            ids.add(id);
+            for (int table = 0; table < TABLES; table++) {
+                tables.get(table).computeIfAbsent(signatures[table], k -> new HashSet<>()).add(id);
+            }
+        }
+
+        private synchronized void remove(long id, int[] signatures) {
+            ids.remove(id);
+            for (int table = 0; table < TABLES; table++) {
+                Set<Long> bucket = tables.get(table).get(signatures[table]);
+                if (bucket != null) {
+                    bucket.remove(id);
+                    if (bucket.isEmpty()) {
+                        tables.get(table).remove(signatures[table]);
+                    }
+                }
+            }
+        }
+
+        private synchronized List<Long> candidates(int[] signatures) {
+            if (ids.size() <= EXACT_SCAN_LIMIT) {
+                return new ArrayList<>(ids);
+            }
+            Set<Long> candidates = new HashSet<>();
+            for (int table = 0; table < TABLES; table++) {
+                Set<Long> bucket = tables.get(table).get(signatures[table]);
+                if (bucket != null) {
+                    candidates.addAll(bucket);
+                }
+            }
+            return new ArrayList<>(candidates);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.practice.aiplatform.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.practice.aiplatform.ai.AiProvider;
+import com.practice.aiplatform.ai.LocalStubProvider;
+import com.practice.aiplatform.ai.OpenAiCompatibleProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+
+/**
+ * Providers the AI router can choose from. Groq is always registered; a second
+ * OpenAI-compatible endpoint and the offline stub are opt-in.
+ */
+@Configuration
+public class AiProviderConfig {
+
+    @Bean
+    @Order(0)
+    public AiProvider groqAiProvider(
+            @Qualifier("aiWebClient") WebClient aiWebClient,
+            ObjectMapper objectMapper,
+            @Value("${groq.api.key}") String apiKey,
+            @Value("${ai.model.practice:llama-3.1-8b-instant}") String practiceModel,
+            @Value("${ai.model.study-plan:llama-3.3-70b-versatile}") String studyPlanModel) {
+        return new OpenAiCompatibleProvider("groq", aiWebClient, apiKey, practiceModel, studyPlanModel,
+                objectMapper.getFactory());
+    }
+
+    @Bean
+    @Order(1)
+    @ConditionalOnProperty(name = "ai.router.secondary.enabled", havingValue = "true")
+    public AiProvider secondaryAiProvider(
+            @Qualifier("secondaryAiWebClient") WebClient secondaryAiWebClient,
+            ObjectMapper objectMapper,
+            @Value("${ai.router.secondary.name:secondary}") String name,
+            @Value("${ai.router.secondary.api-key:}") String apiKey,
+            @Value("${ai.router.secondary.practice-model}") String practiceModel,
+            @Value("${ai.router.secondary.study-plan-model}") String studyPlanModel) {
+        return new OpenAiCompatibleProvider(name, secondaryAiWebClient, apiKey, practiceModel, studyPlanModel,
+                objectMapper.getFactory());
+    }
+
+    @Bean
+    @Order(2)
+    @ConditionalOnProperty(name = "ai.router.local-stub.enabled", havingValue = "true")
+    public AiProvider localStubAiProvider(
+            ObjectMapper objectMapper,
+            @Value("${ai.router.local-stub.response:CORRECT\nThis is a locally generated placeholder response.}") String response,
+            @Value("${ai.router.local-stub.latency-ms:50}") long latencyMs) {
+        return new LocalStubProvider(objectMapper, response, Duration.ofMillis(latencyMs));
+    }
+}
@@ -1,80 +1,124 @@
 package com.practice.aiplatform.config;
 
-import com.fasterxml.jackson.annotation.JsonTypeInfo;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
-import com.fasterxml.jackson.datatype.hibernate6.Hibernate6Module;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.boot.autoconfigure.cache.RedisCacheManagerBuilderCustomizer;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.data.redis.cache.CacheKeyPrefix;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
-import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Configuration
 public class CacheConfig {
 
-    private static final String CACHE_SCHEMA_PREFIX = "v3::";
+    private static final String CACHE_SCHEMA_PREFIX = "v4::";
 
+    static final Duration DEFAULT_TTL = Duration.ofMinutes(3);
+
+    /** Redis TTL of every named cache; the local tier of {@link TwoLevelCacheManager} never outlives these. */
+    static final Map<String, Duration> CACHE_TTLS = cacheTtls();
+
+    /**
+     * Values use {@code cache.serializer.default-format} unless {@code cache.serializer.formats.<cache>}
+     * picks another one for that cache.
+     */
     @Bean
-    public RedisCacheManagerBuilderCustomizer redisCacheManagerBuilderCustomizer() {
-        RedisCacheConfiguration defaultConfig = buildConfig(Duration.ofMinutes(3));
+    public RedisCacheManagerBuilderCustomizer redisCacheManagerBuilderCustomizer(
+            Environment environment,
+            @Value("${cache.serializer.default-format:smile}") String defaultFormat,
+            @Value("${cache.serializer.compress-threshold-bytes:2048}") int compressThreshold) {
+        Map<CacheValueSerializer.Format, CacheValueSerializer> serializers = new EnumMap<>(CacheValueSerializer.Format.class);
+        for (CacheValueSerializer.Format format : CacheValueSerializer.Format.values()) {
+            serializers.put(format, new CacheValueSerializer(format, compressThreshold));
+        }
 
-        return (builder) -> builder
-                .cacheDefaults(defaultConfig)
-                .withCacheConfiguration("YtSearchVideosCache", buildConfig(Duration.ofHours(12)))
-                .withCacheConfiguration("YtSearchPlaylistsCache", buildConfig(Duration.ofHours(12)))
-                .withCacheConfiguration("YtPlaylistItemsCache", buildConfig(Duration.ofHours(12)))
-                .withCacheConfiguration("UserStudyPlansCache", buildConfig(Duration.ofMinutes(5)))
-                .withCacheConfiguration("UserStudyPlanSummariesCache", buildConfig(Duration.ofMinutes(5)))
-                .withCacheConfiguration("StudyPlanByIdCache", buildConfig(Duration.ofMinutes(5)))
-                .withCacheConfiguration("UserStudyPlanStatsCache", buildConfig(Duration.ofMinutes(3)))
-                .withCacheConfiguration("StudyPlanQuizQuestionsCache", buildConfig(Duration.ofMinutes(5)))
-                .withCacheConfiguration("UserSuggestedPracticeCache", buildConfig(Duration.ofMinutes(2)))
-                .withCacheConfiguration("UserActiveContextCache", buildConfig(Duration.ofMinutes(2)))
-                .withCacheConfiguration("UserRecommendationsCache", buildConfig(Duration.ofMinutes(2)))
-                .withCacheConfiguration("PredictSuccessCache", buildConfig(Duration.ofMinutes(5)))
-                .withCacheConfiguration("UserAiCoachPromptCache", buildConfig(Duration.ofMinutes(2)))
-                .withCacheConfiguration("UserAiCoachInsightCache", buildConfig(Duration.ofMinutes(2)))
-                .withCacheConfiguration("UserStatisticsSummaryCache", buildConfig(Duration.ofMinutes(5)))
-                .withCacheConfiguration("UserStatisticsTimeseriesCache", buildConfig(Duration.ofMinutes(5)))
-                .withCacheConfiguration("UserStatisticsRecommendationsCache", buildConfig(Duration.ofMinutes(5)))
-                .withCacheConfiguration("UserPracticeHistoryCache", buildConfig(Duration.ofMinutes(2)))
-                .withCacheConfiguration("UserNotificationsAllCache", buildConfig(Duration.ofMinutes(5)))
-                .withCacheConfiguration("UserNotificationsUnreadCache", buildConfig(Duration.ofMinutes(2)))
-                .withCacheConfiguration("UserBadgesCache", buildConfig(Duration.ofMinutes(30)))
-                .withCacheConfiguration("UserDailyChallengesCache", buildConfig(Duration.ofMinutes(5)))
-                .withCacheConfiguration("UserXpHistoryCache", buildConfig(Duration.ofMinutes(5)))
-                .withCacheConfiguration("AiQuestionCache", buildConfig(Duration.ofMinutes(10)))
-                .withCacheConfiguration("AiHintCache", buildConfig(Duration.ofMinutes(10)))
-                .withCacheConfiguration("AiAnswerCache", buildConfig(Duration.ofMinutes(10)))
-                .withCacheConfiguration("AiEvaluateCache", buildConfig(Duration.ofMinutes(5)))
-                .withCacheConfiguration("UserCoursesCache", buildConfig(Duration.ofMinutes(15)))
-                .withCacheConfiguration("UserProfileCache", buildConfig(Duration.ofMinutes(10)))
-                .withCacheConfiguration("LeaderboardCache", buildConfig(Duration.ofMinutes(2)))
-                .withCacheConfiguration("UserUsageRemainingCache", buildConfig(Duration.ofSeconds(30)))
-                .withCacheConfiguration("UserStudentIdCache", buildConfig(Duration.ofMinutes(10)));
+        return (builder) -> {
+            builder.cacheDefaults(buildConfig(DEFAULT_TTL, serializers.get(CacheValueSerializer.Format.of(defaultFormat))));
+            CACHE_TTLS.forEach((name, ttl) -> {
+                String format = environment.getProperty("cache.serializer.formats." + name, defaultFormat);
+                builder.withCacheConfiguration(name, buildConfig(ttl, serializers.get(CacheValueSerializer.Format.of(format))));
+            });
+        };
     }
 
-    private RedisCacheConfiguration buildConfig(Duration ttl) {
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.registerModule(new JavaTimeModule());
-        objectMapper.registerModule(new Hibernate6Module());
-        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        objectMapper.activateDefaultTyping(
-                LaissezFaireSubTypeValidator.instance,
-                ObjectMapper.DefaultTyping.EVERYTHING,
-                JsonTypeInfo.As.PROPERTY
-        );
+    /**
+     * Layers a Caffeine tier over every Redis cache and indexes entries by {@link CacheTags}. Registered
+     * after the metrics post-processor, so the Redis tier keeps its l2 metrics and the local tier adds
+     * l1 ones. {@code cache.l1.enabled=false} only turns off the local tier.
+     */
+    @Bean
+    public static BeanPostProcessor twoLevelCacheManagerBeanPostProcessor(
+            ObjectProvider<MeterRegistry> meterRegistry,
+            ObjectProvider<ReactiveStringRedisTemplate> redisTemplate,
+            @Value("${cache.l1.enabled:true}") boolean enabled,
+            @Value("${cache.l1.max-entries:5000}") long maxEntries,
+            @Value("${cache.l1.max-ttl-minutes:30}") long maxTtlMinutes) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                if (!(bean instanceof CacheManager cacheManager)) {
+                    return bean;
+                }
+                return new TwoLevelCacheManager(cacheManager, CACHE_TTLS, DEFAULT_TTL, maxEntries,
+                        Duration.ofMinutes(maxTtlMinutes), enabled, CacheKeyPrefix.prefixed(CACHE_SCHEMA_PREFIX),
+                        meterRegistry.getObject(), redisTemplate.getIfAvailable());
+            }
+        };
+    }
 
-        GenericJackson2JsonRedisSerializer valueSerializer = new GenericJackson2JsonRedisSerializer(objectMapper);
+    private static Map<String, Duration> cacheTtls() {
+        Map<String, Duration> ttls = new LinkedHashMap<>();
+        ttls.put("YtSearchVideosCache", Duration.ofHours(12));
+        ttls.put("YtSearchPlaylistsCache", Duration.ofHours(12));
+        ttls.put("YtPlaylistItemsCache", Duration.ofHours(12));
+        ttls.put("SyllabusPlanSkeletonCache", Duration.ofDays(7));
+        ttls.put("UserStudyPlansCache", Duration.ofMinutes(5));
+        ttls.put("UserStudyPlanSummariesCache", Duration.ofMinutes(5));
+        ttls.put("StudyPlanByIdCache", Duration.ofMinutes(5));
+        ttls.put("UserStudyPlanStatsCache", Duration.ofMinutes(3));
+        ttls.put("StudyPlanQuizQuestionsCache", Duration.ofMinutes(5));
+        ttls.put("UserSuggestedPracticeCache", Duration.ofMinutes(2));
+        ttls.put("UserActiveContextCache", Duration.ofMinutes(2));
+        ttls.put("UserRecommendationsCache", Duration.ofMinutes(2));
+        ttls.put("PredictSuccessCache", Duration.ofMinutes(5));
+        ttls.put("UserAiCoachPromptCache", Duration.ofMinutes(2));
+        ttls.put("UserAiCoachInsightCache", Duration.ofMinutes(2));
+        ttls.put("UserStatisticsSummaryCache", Duration.ofMinutes(5));
+        ttls.put("UserStatisticsTimeseriesCache", Duration.ofMinutes(5));
+        ttls.put("UserStatisticsRecommendationsCache", Duration.ofMinutes(5));
+        ttls.put("UserPracticeHistoryCache", Duration.ofMinutes(2));
+        ttls.put("UserNotificationsAllCache", Duration.ofMinutes(5));
+        ttls.put("UserNotificationsUnreadCache", Duration.ofMinutes(2));
+        ttls.put("UserBadgesCache", Duration.ofMinutes(30));
+        ttls.put("UserDailyChallengesCache", Duration.ofMinutes(5));
+        ttls.put("UserXpHistoryCache", Duration.ofMinutes(5));
+        ttls.put("AiQuestionCache", Duration.ofMinutes(10));
+        ttls.put("AiHintCache", Duration.ofMinutes(10));
+        ttls.put("AiAnswerCache", Duration.ofMinutes(10));
+        ttls.put("AiEvaluateCache", Duration.ofMinutes(5));
+        ttls.put("UserCoursesCache", Duration.ofMinutes(15));
+        ttls.put("UserProfileCache", Duration.ofMinutes(10));
+        ttls.put("LeaderboardCache", Duration.ofMinutes(2));
+        ttls.put("UserUsageRemainingCache", Duration.ofSeconds(30));
+        ttls.put("UserStudentIdCache", Duration.ofMinutes(10));
+        return Collections.unmodifiableMap(ttls);
+    }
 
+    private static RedisCacheConfiguration buildConfig(Duration ttl, CacheValueSerializer valueSerializer) {
         return RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(ttl)
                 .disableCachingNullValues()
@@ -7,27 +7,44 @@ import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
 import org.springframework.lang.Nullable;
 
 import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 @Configuration
 public class CacheMetricsConfig {
 
     @Bean
     public BeanPostProcessor meteredCacheManagerBeanPostProcessor(MeterRegistry meterRegistry) {
-        return new BeanPostProcessor() {
-            @Override
-            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
-                if (!(bean instanceof CacheManager cacheManager)) {
-                    return bean;
-                }
-                return new MeteredCacheManager(cacheManager, meterRegistry);
+        return new MeteredCacheManagerPostProcessor(meterRegistry);
+    }
+
+    /** Ordered, so it wraps the Redis manager before the (unordered) two-level post-processor in CacheConfig. */
+    private static final class MeteredCacheManagerPostProcessor implements BeanPostProcessor, Ordered {
+        private final MeterRegistry meterRegistry;
+
+        private MeteredCacheManagerPostProcessor(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+            if (!(bean instanceof CacheManager cacheManager)) {
+                return bean;
             }
-        };
+            return new MeteredCacheManager(cacheManager, meterRegistry);
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
     }
 
     private static final class MeteredCacheManager implements CacheManager {
@@ -121,6 +138,27 @@ public class CacheMetricsConfig {
             }
         }
 
+        @Override
+        @Nullable
+        public CompletableFuture<?> retrieve(Object key) {
+            CompletableFuture<?> future = delegate.retrieve(key);
+            if (future == null) {
+                record("miss");
+                return null;
+            }
+            return future.whenComplete((value, ex) -> record(ex != null ? "error" : value != null ? "hit" : "miss"));
+        }
+
+        @Override
+        public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+            // Reactive @Cacheable(sync = true) lands here; a loader invocation means the lookup missed.
+            boolean[] loaded = new boolean[1];
+            return delegate.retrieve(key, () -> {
+                loaded[0] = true;
+                return valueLoader.get();
+            }).whenComplete((value, ex) -> record(ex != null ? "error" : loaded[0] ? "miss" : "hit"));
+        }
+
         @Override
         public void put(Object key, @Nullable Object value) {
             delegate.put(key, value);
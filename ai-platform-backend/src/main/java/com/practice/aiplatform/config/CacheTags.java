@@ -0,0 +1,151 @@
+package com.practice.aiplatform.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Invalidates cached data by what it depends on instead of by cache name. Entries are registered
+ * under their tags when written (see {@link #tagsFor}); a write then invalidates a tag such as
+ * {@code practice:{email}} or {@code plan:{id}}, and every entry under it is dropped in one call.
+ *
+ * <p>Keys of user caches are the user's email, or {@code email|...} for composite keys.
+ */
+@Component
+public class CacheTags {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheTags.class);
+
+    public static final String LEADERBOARD = "leaderboard";
+
+    private static final Set<String> ACCOUNT_CACHES = Set.of("UserProfileCache", "UserUsageRemainingCache");
+
+    private static final Set<String> PRACTICE_CACHES = Set.of(
+            "UserPracticeHistoryCache",
+            "UserRecommendationsCache",
+            "PredictSuccessCache",
+            "UserAiCoachPromptCache",
+            "UserAiCoachInsightCache",
+            "UserStatisticsSummaryCache",
+            "UserStatisticsTimeseriesCache",
+            "UserStatisticsRecommendationsCache");
+
+    private static final Set<String> PLANS_CACHES = Set.of(
+            "UserStudyPlansCache",
+            "UserStudyPlanSummariesCache",
+            "UserStudyPlanStatsCache",
+            "UserSuggestedPracticeCache",
+            "UserActiveContextCache",
+            "UserRecommendationsCache",
+            "UserStatisticsRecommendationsCache");
+
+    /** Keyed {@code email|planId|...}. */
+    private static final Set<String> PLAN_CACHES = Set.of("StudyPlanByIdCache", "StudyPlanQuizQuestionsCache");
+
+    /** Everything else keyed by email; only invalidated with the whole user. */
+    private static final Set<String> OTHER_USER_CACHES = Set.of("UserStudentIdCache", "UserCoursesCache");
+
+    private final TwoLevelCacheManager cacheManager;
+
+    public CacheTags(CacheManager cacheManager) {
+        if (!(cacheManager instanceof TwoLevelCacheManager twoLevelCacheManager)) {
+            throw new IllegalStateException("Cache tags need the two-level cache manager, got "
+                    + cacheManager.getClass().getName());
+        }
+        this.cacheManager = twoLevelCacheManager;
+    }
+
+    /** Every cached entry of the user. */
+    public static String user(String email) {
+        return "user:" + email;
+    }
+
+    /** Profile and usage quota. */
+    public static String account(String email) {
+        return "account:" + email;
+    }
+
+    /** History, statistics, recommendations and predictions derived from answers. */
+    public static String practice(String email) {
+        return "practice:" + email;
+    }
+
+    /** Study plan lists, stats and what they feed (suggestions, active context, recommendations). */
+    public static String plans(String email) {
+        return "plans:" + email;
+    }
+
+    /** Detail and quiz questions of one study plan. */
+    public static String plan(Long planId) {
+        return "plan:" + planId;
+    }
+
+    /**
+     * Invalidates {@code tags}. Inside a transaction this happens after commit, so a concurrent read
+     * cannot cache the pre-commit state again.
+     */
+    public void invalidate(String... tags) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidateAsync(tags).block();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidateAsync(tags).block();
+            }
+        });
+    }
+
+    /** Like {@link #invalidate} for reactive callers; failures are logged, never propagated. */
+    public Mono<Void> invalidateAsync(String... tags) {
+        return cacheManager.invalidateTags(List.of(tags))
+                .onErrorResume(e -> {
+                    log.warn("Cache tag invalidation failed. tags={}. Continuing request.", List.of(tags), e);
+                    return Mono.empty();
+                });
+    }
+
+    static boolean isTagged(String cacheName) {
+        return "LeaderboardCache".equals(cacheName)
+                || ACCOUNT_CACHES.contains(cacheName)
+                || PRACTICE_CACHES.contains(cacheName)
+                || PLANS_CACHES.contains(cacheName)
+                || PLAN_CACHES.contains(cacheName)
+                || OTHER_USER_CACHES.contains(cacheName);
+    }
+
+    static List<String> tagsFor(String cacheName, String key) {
+        if ("LeaderboardCache".equals(cacheName)) {
+            return List.of(LEADERBOARD);
+        }
+        if (!isTagged(cacheName)) {
+            return List.of();
+        }
+        String[] parts = key.split("\\|");
+        String email = parts[0];
+        List<String> tags = new ArrayList<>(3);
+        tags.add(user(email));
+        if (ACCOUNT_CACHES.contains(cacheName)) {
+            tags.add(account(email));
+        }
+        if (PRACTICE_CACHES.contains(cacheName)) {
+            tags.add(practice(email));
+        }
+        if (PLANS_CACHES.contains(cacheName)) {
+            tags.add(plans(email));
+        }
+        if (PLAN_CACHES.contains(cacheName) && parts.length > 1) {
+            tags.add("plan:" + parts[1]);
+        }
+        return tags;
+    }
+}
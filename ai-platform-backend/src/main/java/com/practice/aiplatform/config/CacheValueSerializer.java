@@ -0,0 +1,128 @@
+package com.practice.aiplatform.config;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.datatype.hibernate6.Hibernate6Module;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * Redis value serializer for the caches. Values are written as JSON or Smile (binary JSON that writes
+ * each repeated property name and {@code @class} value once), LZ4-compressed when the encoded value is
+ * at least {@code compressThreshold} bytes. A one-byte header records both choices, so an entry is
+ * always read back the way it was written, even after a cache's format is changed.
+ */
+final class CacheValueSerializer implements RedisSerializer<Object> {
+
+    enum Format {
+        JSON(0x01),
+        SMILE(0x02);
+
+        private final int tag;
+
+        Format(int tag) {
+            this.tag = tag;
+        }
+
+        static Format of(String name) {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private static final int LZ4 = 0x10;
+    private static final int KNOWN_BITS = Format.JSON.tag | Format.SMILE.tag | LZ4;
+    private static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+    private static final LZ4FastDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().fastDecompressor();
+    // Mappers are thread-safe and expensive to build, so every cache shares these two.
+    private static final ObjectMapper JSON_MAPPER = objectMapper(new JsonFactory());
+    private static final ObjectMapper SMILE_MAPPER = objectMapper(SmileFactory.builder()
+            .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+            .build());
+
+    private final Format format;
+    private final int compressThreshold;
+
+    /** {@code compressThreshold <= 0} turns compression off. */
+    CacheValueSerializer(Format format, int compressThreshold) {
+        this.format = format;
+        this.compressThreshold = compressThreshold;
+    }
+
+    @Override
+    public byte[] serialize(@Nullable Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        byte[] encoded;
+        try {
+            encoded = mapper(format).writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new SerializationException("Could not write cache value of " + value.getClass().getName(), e);
+        }
+
+        if (compressThreshold <= 0 || encoded.length < compressThreshold) {
+            return ByteBuffer.allocate(1 + encoded.length).put((byte) format.tag).put(encoded).array();
+        }
+        byte[] compressed = new byte[COMPRESSOR.maxCompressedLength(encoded.length)];
+        int length = COMPRESSOR.compress(encoded, 0, encoded.length, compressed, 0);
+        return ByteBuffer.allocate(5 + length)
+                .put((byte) (format.tag | LZ4))
+                .putInt(encoded.length)
+                .put(compressed, 0, length)
+                .array();
+    }
+
+    @Override
+    @Nullable
+    public Object deserialize(@Nullable byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        int header = bytes[0];
+        if ((header & ~KNOWN_BITS) != 0) {
+            throw new SerializationException("Unknown cache value header " + header);
+        }
+        Format written = (header & Format.SMILE.tag) != 0 ? Format.SMILE : Format.JSON;
+        try {
+            if ((header & LZ4) == 0) {
+                return mapper(written).readValue(bytes, 1, bytes.length - 1, Object.class);
+            }
+            int length = ByteBuffer.wrap(bytes, 1, 4).getInt();
+            byte[] encoded = DECOMPRESSOR.decompress(bytes, 5, length);
+            return mapper(written).readValue(encoded, Object.class);
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Could not read cache value", e);
+        }
+    }
+
+    private static ObjectMapper mapper(Format format) {
+        return format == Format.SMILE ? SMILE_MAPPER : JSON_MAPPER;
+    }
+
+    private static ObjectMapper objectMapper(JsonFactory factory) {
+        ObjectMapper objectMapper = new ObjectMapper(factory);
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.registerModule(new Hibernate6Module());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        objectMapper.activateDefaultTyping(
+                LaissezFaireSubTypeValidator.instance,
+                ObjectMapper.DefaultTyping.EVERYTHING,
+                JsonTypeInfo.As.PROPERTY
+        );
+        return objectMapper;
+    }
+}
@@ -0,0 +1,476 @@
+package com.practice.aiplatform.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.cache.CacheKeyPrefix;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.lang.Nullable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Puts a per-instance Caffeine tier (l1) in front of every cache of the delegate (Redis, l2). Writes
+ * and evictions go to both tiers and are broadcast on a Redis channel, so every other instance drops
+ * its l1 copy; l1 entries can therefore live as long as the Redis entry instead of a few seconds.
+ * Without Redis pub/sub the l1 TTL is the only bound on staleness between instances.
+ *
+ * <p>Entries of tagged caches (see {@link CacheTags}) are also added to a Redis set per tag when they
+ * are written to Redis, before the write returns, so {@link #invalidateTags} can drop everything under a
+ * tag with one SMEMBERS per tag, one DEL and one PUBLISH. Without Redis the tag index is kept in memory.
+ */
+final class TwoLevelCacheManager implements CacheManager {
+
+    private static final Logger log = LoggerFactory.getLogger(TwoLevelCacheManager.class);
+    static final String CHANNEL = "cache:invalidate";
+    private static final String EVICT = "E";
+    private static final String CLEAR = "C";
+    private static final String TAGS = "T";
+    private static final Duration TAG_TIMEOUT = Duration.ofSeconds(2);
+
+    private final CacheManager delegate;
+    private final Map<String, Duration> ttls;
+    private final Duration defaultTtl;
+    private final long maxEntries;
+    private final Duration maxTtl;
+    private final boolean localTier;
+    private final CacheKeyPrefix keyPrefix;
+    private final Duration tagTtl;
+    private final MeterRegistry meterRegistry;
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Map<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+    private final Map<String, Set<TaggedEntry>> localTags = new ConcurrentHashMap<>();
+
+    private record TaggedEntry(String cacheName, Object key) {
+    }
+
+    TwoLevelCacheManager(
+            CacheManager delegate,
+            Map<String, Duration> ttls,
+            Duration defaultTtl,
+            long maxEntries,
+            Duration maxTtl,
+            boolean localTier,
+            CacheKeyPrefix keyPrefix,
+            MeterRegistry meterRegistry,
+            @Nullable ReactiveStringRedisTemplate redisTemplate) {
+        this.delegate = delegate;
+        this.ttls = ttls;
+        this.defaultTtl = defaultTtl;
+        this.maxEntries = maxEntries;
+        this.maxTtl = maxTtl;
+        this.localTier = localTier;
+        this.keyPrefix = keyPrefix;
+        // A tag set must outlive the longest-lived entry it may point at.
+        this.tagTtl = ttls.entrySet().stream()
+                .filter(entry -> CacheTags.isTagged(entry.getKey()))
+                .map(Map.Entry::getValue)
+                .max(Comparator.naturalOrder())
+                .orElse(defaultTtl);
+        this.meterRegistry = meterRegistry;
+        this.redisTemplate = redisTemplate;
+        if (redisTemplate != null) {
+            redisTemplate.listenToChannel(CHANNEL)
+                    .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                    .subscribe(message -> onInvalidation(message.getMessage()));
+        }
+    }
+
+    @Override
+    @Nullable
+    public Cache getCache(String name) {
+        TwoLevelCache existing = caches.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        Cache l2 = delegate.getCache(name);
+        if (l2 == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, key -> new TwoLevelCache(key, l2));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+
+    private void onInvalidation(String message) {
+        // origin|op|cache|key — the key is last because it may itself contain '|'. Tag messages carry
+        // newline-separated cache|key members in place of the key.
+        String[] parts = message.split("\\|", 4);
+        if (parts.length < 3 || instanceId.equals(parts[0])) {
+            return;
+        }
+        if (TAGS.equals(parts[1])) {
+            if (parts.length == 4) {
+                invalidateLocalMembers(List.of(parts[3].split("\n")));
+            }
+            return;
+        }
+        TwoLevelCache cache = caches.get(parts[2]);
+        if (cache == null) {
+            return;
+        }
+        if (CLEAR.equals(parts[1])) {
+            cache.invalidateLocal(null);
+        } else if (parts.length == 4) {
+            cache.invalidateLocal(parts[3]);
+        }
+    }
+
+    /**
+     * Deletes every entry registered under any of {@code tags}, in Redis and in the local tier of every
+     * instance. Only the members that were read are removed from the tag sets, so an entry tagged while
+     * this runs stays indexed for the next invalidation.
+     */
+    Mono<Void> invalidateTags(Collection<String> tags) {
+        if (tags.isEmpty()) {
+            return Mono.empty();
+        }
+        if (redisTemplate == null) {
+            return Mono.fromRunnable(() -> invalidateLocalTags(tags));
+        }
+        List<String> tagKeys = tags.stream().map(this::tagKey).toList();
+        return Flux.fromIterable(tagKeys)
+                .flatMap(tagKey -> redisTemplate.opsForSet().members(tagKey)
+                        .collectList()
+                        .map(members -> Map.entry(tagKey, members)))
+                .collectList()
+                .flatMap(read -> {
+                    Set<String> members = new LinkedHashSet<>();
+                    read.forEach(tagged -> members.addAll(tagged.getValue()));
+                    if (members.isEmpty()) {
+                        return Mono.<Void>empty();
+                    }
+                    List<String> keys = new ArrayList<>();
+                    for (String member : members) {
+                        String[] entry = member.split("\\|", 2);
+                        keys.add(keyPrefix.compute(entry[0]) + entry[1]);
+                    }
+                    Mono<Void> untagged = Flux.fromIterable(read)
+                            .filter(tagged -> !tagged.getValue().isEmpty())
+                            .flatMap(tagged -> redisTemplate.opsForSet()
+                                    .remove(tagged.getKey(), tagged.getValue().toArray()))
+                            .then();
+                    Mono<Void> published = redisTemplate
+                            .convertAndSend(CHANNEL, instanceId + "|" + TAGS + "||" + String.join("\n", members))
+                            .then();
+                    return redisTemplate.delete(keys.toArray(String[]::new))
+                            .then(untagged)
+                            .then(Mono.fromRunnable(() -> invalidateLocalMembers(members)))
+                            .then(published);
+                });
+    }
+
+    /**
+     * Adds a freshly written entry to its tag sets. Callers wait for it, so an invalidation issued after
+     * the write returns always finds the entry; a tagging failure is logged and leaves the entry to its TTL.
+     */
+    private Mono<Void> register(String cacheName, Object key, String localKey) {
+        List<String> tags = CacheTags.tagsFor(cacheName, localKey);
+        if (tags.isEmpty()) {
+            return Mono.empty();
+        }
+        if (redisTemplate == null) {
+            for (String tag : tags) {
+                localTags.computeIfAbsent(tag, ignored -> ConcurrentHashMap.newKeySet()).add(new TaggedEntry(cacheName, key));
+            }
+            return Mono.empty();
+        }
+        String member = cacheName + "|" + localKey;
+        return Flux.fromIterable(tags)
+                .map(this::tagKey)
+                .flatMap(tagKey -> redisTemplate.opsForSet().add(tagKey, member)
+                        .then(redisTemplate.expire(tagKey, tagTtl)))
+                .then()
+                .timeout(TAG_TIMEOUT)
+                .onErrorResume(ex -> {
+                    log.warn("Could not tag {} entry: {}", cacheName, ex.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /** {@code members} are {@code cache|key} strings from the tag index. */
+    private void invalidateLocalMembers(Collection<String> members) {
+        for (String member : members) {
+            String[] entry = member.split("\\|", 2);
+            TwoLevelCache cache = caches.get(entry[0]);
+            if (cache != null && entry.length == 2) {
+                cache.invalidateLocal(entry[1]);
+            }
+        }
+    }
+
+    private void invalidateLocalTags(Collection<String> tags) {
+        Set<TaggedEntry> entries = new HashSet<>();
+        for (String tag : tags) {
+            Set<TaggedEntry> tagged = localTags.remove(tag);
+            if (tagged != null) {
+                entries.addAll(tagged);
+            }
+        }
+        for (TaggedEntry entry : entries) {
+            TwoLevelCache cache = caches.get(entry.cacheName());
+            if (cache != null) {
+                cache.l2.evict(entry.key());
+                cache.invalidateLocal(localKey(entry.key()));
+            }
+        }
+    }
+
+    private String tagKey(String tag) {
+        return keyPrefix.compute("tag") + tag;
+    }
+
+    private void broadcast(String op, String cacheName, @Nullable String key) {
+        if (redisTemplate == null) {
+            return;
+        }
+        String message = instanceId + "|" + op + "|" + cacheName + (key == null ? "" : "|" + key);
+        redisTemplate.convertAndSend(CHANNEL, message)
+                .subscribe(receivers -> {
+                }, ex -> log.warn("Could not broadcast invalidation of {}: {}", cacheName, ex.getMessage()));
+    }
+
+    private final class TwoLevelCache implements Cache {
+        private final String name;
+        private final Cache l2;
+        @Nullable
+        private final com.github.benmanes.caffeine.cache.Cache<String, Object> l1;
+        // Bumped on every invalidation, so a value read from l2 before it is not put back into l1.
+        private final AtomicLong generation = new AtomicLong();
+
+        private TwoLevelCache(String name, Cache l2) {
+            this.name = name;
+            this.l2 = l2;
+            Duration ttl = ttls.getOrDefault(name, defaultTtl);
+            this.l1 = localTier ? Caffeine.newBuilder()
+                    .maximumSize(maxEntries)
+                    .expireAfterWrite(ttl.compareTo(maxTtl) < 0 ? ttl : maxTtl)
+                    .build() : null;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return l2.getNativeCache();
+        }
+
+        @Override
+        @Nullable
+        public ValueWrapper get(Object key) {
+            String localKey = localKey(key);
+            Object local = lookupLocal(localKey);
+            if (local != null) {
+                return new SimpleValueWrapper(local);
+            }
+            long seen = generation.get();
+            ValueWrapper value = l2.get(key);
+            if (value != null) {
+                fill(localKey, value.get(), seen);
+            }
+            return value;
+        }
+
+        @Override
+        @Nullable
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object key, @Nullable Class<T> type) {
+            String localKey = localKey(key);
+            Object local = lookupLocal(localKey);
+            if (local != null && (type == null || type.isInstance(local))) {
+                return (T) local;
+            }
+            long seen = generation.get();
+            T value = l2.get(key, type);
+            fill(localKey, value, seen);
+            return value;
+        }
+
+        @Override
+        @Nullable
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            String localKey = localKey(key);
+            Object local = lookupLocal(localKey);
+            if (local != null) {
+                return (T) local;
+            }
+            long seen = generation.get();
+            AtomicBoolean loaded = new AtomicBoolean();
+            T value = l2.get(key, () -> {
+                loaded.set(true);
+                return valueLoader.call();
+            });
+            if (loaded.get()) {
+                register(name, key, localKey).block();
+            }
+            fill(localKey, value, seen);
+            return value;
+        }
+
+        @Override
+        @Nullable
+        public CompletableFuture<?> retrieve(Object key) {
+            String localKey = localKey(key);
+            Object local = lookupLocal(localKey);
+            if (local != null) {
+                return CompletableFuture.completedFuture(local);
+            }
+            long seen = generation.get();
+            CompletableFuture<?> future = l2.retrieve(key);
+            return future == null ? null : future.thenApply(value -> {
+                fill(localKey, value instanceof ValueWrapper wrapper ? wrapper.get() : value, seen);
+                return value;
+            });
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+            String localKey = localKey(key);
+            Object local = lookupLocal(localKey);
+            if (local != null) {
+                return CompletableFuture.completedFuture((T) local);
+            }
+            long seen = generation.get();
+            AtomicBoolean loaded = new AtomicBoolean();
+            return l2.retrieve(key, () -> {
+                loaded.set(true);
+                return valueLoader.get();
+            }).thenCompose(value -> {
+                Mono<Void> tagged = loaded.get() ? register(name, key, localKey) : Mono.empty();
+                return tagged.toFuture().thenApply(ignored -> {
+                    fill(localKey, value, seen);
+                    return value;
+                });
+            });
+        }
+
+        @Override
+        public void put(Object key, @Nullable Object value) {
+            l2.put(key, value);
+            String localKey = localKey(key);
+            register(name, key, localKey).block();
+            invalidateLocal(localKey);
+            fill(localKey, value, generation.get());
+            broadcast(EVICT, name, localKey);
+        }
+
+        @Override
+        @Nullable
+        public ValueWrapper putIfAbsent(Object key, @Nullable Object value) {
+            ValueWrapper existing = l2.putIfAbsent(key, value);
+            String localKey = localKey(key);
+            if (existing == null) {
+                register(name, key, localKey).block();
+            }
+            invalidateLocal(localKey);
+            broadcast(EVICT, name, localKey);
+            return existing;
+        }
+
+        @Override
+        public void evict(Object key) {
+            l2.evict(key);
+            String localKey = localKey(key);
+            invalidateLocal(localKey);
+            broadcast(EVICT, name, localKey);
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            boolean evicted = l2.evictIfPresent(key);
+            String localKey = localKey(key);
+            invalidateLocal(localKey);
+            broadcast(EVICT, name, localKey);
+            return evicted;
+        }
+
+        @Override
+        public void clear() {
+            l2.clear();
+            invalidateLocal(null);
+            broadcast(CLEAR, name, null);
+        }
+
+        @Override
+        public boolean invalidate() {
+            boolean invalidated = l2.invalidate();
+            invalidateLocal(null);
+            broadcast(CLEAR, name, null);
+            return invalidated;
+        }
+
+        /** Drops one local entry, or all of them when {@code localKey} is null. */
+        void invalidateLocal(@Nullable String localKey) {
+            generation.incrementAndGet();
+            if (l1 == null) {
+                return;
+            }
+            if (localKey == null) {
+                l1.invalidateAll();
+            } else {
+                l1.invalidate(localKey);
+            }
+        }
+
+        @Nullable
+        private Object lookupLocal(String localKey) {
+            if (l1 == null) {
+                return null;
+            }
+            Object value = l1.getIfPresent(localKey);
+            record(value != null ? "hit" : "miss");
+            return value;
+        }
+
+        private void fill(String localKey, @Nullable Object value, long seen) {
+            if (l1 != null && value != null && generation.get() == seen) {
+                l1.put(localKey, value);
+            }
+        }
+
+        private void record(String result) {
+            meterRegistry.counter(
+                    "cache_layer_access_total",
+                    "cache", name,
+                    "layer", "l1",
+                    "result", result
+            ).increment();
+        }
+    }
+
+    /** Redis keys are the key's string form too, so remote instances can address the same entry. */
+    private static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+}
@@ -1,18 +1,76 @@
 package com.practice.aiplatform.config;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 @Configuration
 public class WebClientConfig {
 
+    @Value("${http.client.connect-timeout-ms:3000}")
+    private int connectTimeoutMs;
+
+    @Value("${http.client.http2.enabled:true}")
+    private boolean http2Enabled;
+
+    /**
+     * One pool for all outbound HTTP. Reactor Netty keeps a separate sub-pool per remote host,
+     * so the limits below apply to each upstream (Groq, YouTube, ...) individually. With
+     * metrics enabled, active/idle/pending gauges are published as
+     * {@code reactor.netty.connection.provider.*}.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider outboundConnectionProvider(
+            @Value("${http.client.pool.max-connections:100}") int maxConnections,
+            @Value("${http.client.pool.pending-acquire-max-count:500}") int pendingAcquireMaxCount,
+            @Value("${http.client.pool.pending-acquire-timeout-ms:5000}") long pendingAcquireTimeoutMs,
+            @Value("${http.client.pool.max-idle-time-seconds:30}") long maxIdleTimeSeconds,
+            @Value("${http.client.pool.max-life-time-seconds:300}") long maxLifeTimeSeconds,
+            @Value("${http.client.pool.evict-in-background-seconds:30}") long evictInBackgroundSeconds) {
+        return ConnectionProvider.builder("outbound")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofSeconds(maxIdleTimeSeconds))
+                .maxLifeTime(Duration.ofSeconds(maxLifeTimeSeconds))
+                .evictInBackground(Duration.ofSeconds(evictInBackgroundSeconds))
+                .metrics(true)
+                .build();
+    }
+
     @Bean("aiWebClient")
-    public WebClient aiWebClient() {
+    public WebClient aiWebClient(
+            @Qualifier("outboundConnectionProvider") ConnectionProvider connectionProvider,
+            @Value("${http.client.ai.response-timeout-seconds:30}") long responseTimeoutSeconds) {
         return WebClient.builder()
                 .baseUrl("https://api.groq.com/openai")
+                .clientConnector(connector(connectionProvider, Duration.ofSeconds(responseTimeoutSeconds), true))
+                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .build();
+    }
+
+    @Bean("secondaryAiWebClient")
+    @ConditionalOnProperty(name = "ai.router.secondary.enabled", havingValue = "true")
+    public WebClient secondaryAiWebClient(
+            @Qualifier("outboundConnectionProvider") ConnectionProvider connectionProvider,
+            @Value("${ai.router.secondary.base-url}") String baseUrl,
+            @Value("${http.client.ai.response-timeout-seconds:30}") long responseTimeoutSeconds) {
+        return WebClient.builder()
+                .baseUrl(baseUrl)
+                .clientConnector(connector(connectionProvider, Duration.ofSeconds(responseTimeoutSeconds),
+                        baseUrl.startsWith("https://")))
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
                 .build();
     }
@@ -21,10 +79,31 @@ public class WebClientConfig {
      * Creates a pre-configured WebClient bean for the YouTube Data API v3.
      */
     @Bean("youtubeWebClient")
-    public WebClient youtubeWebClient() {
+    public WebClient youtubeWebClient(
+            @Qualifier("outboundConnectionProvider") ConnectionProvider connectionProvider,
+            @Value("${http.client.youtube.response-timeout-seconds:10}") long responseTimeoutSeconds) {
         return WebClient.builder()
                 .baseUrl("https://www.googleapis.com/youtube/v3")
+                .clientConnector(connector(connectionProvider, Duration.ofSeconds(responseTimeoutSeconds), true))
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
                 .build();
     }
+
+    private ReactorClientHttpConnector connector(ConnectionProvider connectionProvider, Duration responseTimeout,
+            boolean https) {
+        // responseTimeout is the max gap between reads, so it also guards streamed completions.
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true)
+                .compress(true)
+                .responseTimeout(responseTimeout);
+        if (http2Enabled && https) {
+            // ALPN picks h2 when the upstream offers it and falls back to HTTP/1.1 otherwise.
+            httpClient = httpClient
+                    .protocol(HttpProtocol.H2, HttpProtocol.HTTP11)
+                    .secure();
+        }
+        return new ReactorClientHttpConnector(httpClient);
+    }
 }
@@ -2,7 +2,9 @@ package com.practice.aiplatform.course;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.practice.aiplatform.ai.AiJsonContent;
 import com.practice.aiplatform.ai.AiService;
+import com.practice.aiplatform.ai.PromptTemplate;
 import com.practice.aiplatform.user.Student;
 import com.practice.aiplatform.user.StudentRepository;
 import org.springframework.stereotype.Service;
@@ -12,6 +14,22 @@ import java.time.LocalDateTime;
 @Service
 public class CourseGeneratorService {
 
+    private static final PromptTemplate COURSE_PROMPT = PromptTemplate.compile("course", 1, """
+            Create a course for topic "{{topic}}" at level "{{level}}".
+
+            Return only JSON:
+            {
+              "title": "Course Title",
+              "description": "Short summary",
+              "modules": [
+                {
+                  "title": "Module Title",
+                  "content": "Module lesson content"
+                }
+              ]
+            }
+            """, "topic", "level");
+
     private final AiService aiService;
     private final CourseRepository courseRepository;
     private final StudentRepository studentRepository;
@@ -39,27 +57,12 @@ public class CourseGeneratorService {
     }
 
     private String buildPrompt(String topic, String level) {
-        return String.format("""
-                Create a course for topic "%s" at level "%s".
-
-                Return only JSON:
-                {
-                  "title": "Course Title",
-                  "description": "Short summary",
-                  "modules": [
-                    {
-                      "title": "Module Title",
-                      "content": "Module lesson content"
-                    }
-                  ]
-                }
-                """, topic, level);
+        return COURSE_PROMPT.render(topic, level);
     }
 
     private Course parseAndSaveCourse(String aiText, Student student, String topic, String level) {
         try {
-            String cleanJson = aiText.replace("```json", "").replace("```", "").trim();
-            JsonNode root = objectMapper.readTree(cleanJson);
+            JsonNode root = AiJsonContent.readTree(objectMapper, aiText);
 
             Course course = new Course();
             course.setTitle(root.path("title").asText("Generated Course"));
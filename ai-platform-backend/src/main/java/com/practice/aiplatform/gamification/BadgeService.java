@@ -1,8 +1,5 @@
 package com.practice.aiplatform.gamification;
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
-import io.micrometer.core.instrument.MeterRegistry;
 import com.practice.aiplatform.user.Student;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
@@ -11,7 +8,6 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.Duration;
 import java.time.LocalTime;
 import java.util.List;
 
@@ -19,33 +15,16 @@ import java.util.List;
 public class BadgeService {
 
     private final UserBadgeRepository userBadgeRepository;
-    private final MeterRegistry meterRegistry;
-    private final Cache<Long, List<UserBadge>> localBadgeCache;
     @Lazy
     @Autowired
     private BadgeService self;
 
-    public BadgeService(UserBadgeRepository userBadgeRepository, MeterRegistry meterRegistry) {
+    public BadgeService(UserBadgeRepository userBadgeRepository) {
         this.userBadgeRepository = userBadgeRepository;
-        this.meterRegistry = meterRegistry;
-        this.localBadgeCache = Caffeine.newBuilder()
-                .recordStats()
-                .expireAfterWrite(Duration.ofSeconds(30))
-                .maximumSize(2000)
-                .build();
     }
 
     public List<UserBadge> getUserBadges(Long studentId) {
-        List<UserBadge> cached = localBadgeCache.getIfPresent(studentId);
-        if (cached != null) {
-            recordL1("UserBadgesLocalCache", "hit");
-            return cached;
-        }
-        recordL1("UserBadgesLocalCache", "miss");
-
-        List<UserBadge> value = self.getUserBadgesCached(studentId);
-        localBadgeCache.put(studentId, value);
-        return value;
+        return self.getUserBadgesCached(studentId);
     }
 
     @Cacheable(value = "UserBadgesCache", key = "#studentId", sync = true)
@@ -63,7 +42,6 @@ public class BadgeService {
 
         UserBadge userBadge = new UserBadge(student, badge);
         userBadgeRepository.save(userBadge);
-        localBadgeCache.invalidate(student.getId());
     }
 
     @Transactional
@@ -71,27 +49,18 @@ public class BadgeService {
         LocalTime now = LocalTime.now();
 
         if (now.isBefore(LocalTime.of(8, 0))) {
-            unlockBadge(student, Badge.EARLY_BIRD);
+            self.unlockBadge(student, Badge.EARLY_BIRD);
         }
 
         if (now.isAfter(LocalTime.of(22, 0))) {
-            unlockBadge(student, Badge.NIGHT_OWL);
+            self.unlockBadge(student, Badge.NIGHT_OWL);
         }
     }
 
     @Transactional
     public void checkStreakBadges(Student student) {
         if (student.getStreakDays() >= 7) {
-            unlockBadge(student, Badge.STREAK_WARRIOR);
+            self.unlockBadge(student, Badge.STREAK_WARRIOR);
         }
     }
-
-    private void recordL1(String cacheName, String result) {
-        meterRegistry.counter(
-                "cache_layer_access_total",
-                "cache", cacheName,
-                "layer", "l1",
-                "result", result
-        ).increment();
-    }
 }
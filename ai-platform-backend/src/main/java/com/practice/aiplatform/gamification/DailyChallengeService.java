@@ -1,8 +1,5 @@
 package com.practice.aiplatform.gamification;
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
-import io.micrometer.core.instrument.MeterRegistry;
 import com.practice.aiplatform.studyplan.StudyPlan;
 import com.practice.aiplatform.studyplan.StudyPlanRepository;
 import com.practice.aiplatform.user.Student;
@@ -15,7 +12,6 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -27,8 +23,6 @@ public class DailyChallengeService {
     private final StudyPlanRepository studyPlanRepository;
     private final XpService xpService;
     private final CacheManager cacheManager;
-    private final MeterRegistry meterRegistry;
-    private final Cache<Long, List<DailyChallenge>> localChallengesCache;
     @Lazy
     @Autowired
     private DailyChallengeService self;
@@ -38,32 +32,16 @@ public class DailyChallengeService {
             StudentRepository studentRepository,
             StudyPlanRepository studyPlanRepository,
             XpService xpService,
-            CacheManager cacheManager,
-            MeterRegistry meterRegistry) {
+            CacheManager cacheManager) {
         this.dailyChallengeRepository = dailyChallengeRepository;
         this.studentRepository = studentRepository;
         this.studyPlanRepository = studyPlanRepository;
         this.xpService = xpService;
         this.cacheManager = cacheManager;
-        this.meterRegistry = meterRegistry;
-        this.localChallengesCache = Caffeine.newBuilder()
-                .recordStats()
-                .expireAfterWrite(Duration.ofSeconds(30))
-                .maximumSize(2000)
-                .build();
     }
 
     public List<DailyChallenge> getTodayChallenges(Long studentId) {
-        List<DailyChallenge> cached = localChallengesCache.getIfPresent(studentId);
-        if (cached != null) {
-            recordL1("UserDailyChallengesLocalCache", "hit");
-            return cached;
-        }
-        recordL1("UserDailyChallengesLocalCache", "miss");
-
-        List<DailyChallenge> value = self.getTodayChallengesCached(studentId);
-        localChallengesCache.put(studentId, value);
-        return value;
+        return self.getTodayChallengesCached(studentId);
     }
 
     @Cacheable(value = "UserDailyChallengesCache", key = "#studentId", sync = true)
@@ -149,18 +127,9 @@ public class DailyChallengeService {
     }
 
     private void evictDailyChallengeCache(Long studentId) {
-        localChallengesCache.invalidate(studentId);
         org.springframework.cache.Cache cache = cacheManager.getCache("UserDailyChallengesCache");
         if (cache != null) {
             cache.evict(studentId);
         }
     }
-
-    private void recordL1(String cacheName, String result) {
-        meterRegistry.counter(
-                "cache_layer_access_total",
-                "cache", cacheName,
-                "layer", "l1",
-                "result", result).increment();
-    }
 }
@@ -1,10 +1,10 @@
 package com.practice.aiplatform.gamification;
 
+import com.practice.aiplatform.config.CacheTags;
 import com.practice.aiplatform.user.Student;
 import com.practice.aiplatform.user.StudentRepository;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,18 +18,19 @@ public class XpService {
 
     private final StudentRepository studentRepository;
     private final DailyXpHistoryRepository dailyXpHistoryRepository;
+    private final CacheTags cacheTags;
 
-    public XpService(StudentRepository studentRepository, DailyXpHistoryRepository dailyXpHistoryRepository) {
+    public XpService(
+            StudentRepository studentRepository,
+            DailyXpHistoryRepository dailyXpHistoryRepository,
+            CacheTags cacheTags) {
         this.studentRepository = studentRepository;
         this.dailyXpHistoryRepository = dailyXpHistoryRepository;
+        this.cacheTags = cacheTags;
     }
 
     @Transactional
-    @Caching(evict = {
-            @CacheEvict(value = "LeaderboardCache", allEntries = true),
-            @CacheEvict(value = "UserProfileCache", key = "#student.email"),
-            @CacheEvict(value = "UserXpHistoryCache", key = "#student.id")
-    })
+    @CacheEvict(value = "UserXpHistoryCache", key = "#student.id")
     public void awardXp(Student student, int amount) {
         if (amount <= 0)
             return;
@@ -45,6 +46,7 @@ public class XpService {
 
         history.setXpEarned(history.getXpEarned() + amount);
         dailyXpHistoryRepository.save(history);
+        cacheTags.invalidate(CacheTags.account(student.getEmail()), CacheTags.LEADERBOARD);
     }
 
     @Cacheable(value = "UserXpHistoryCache", key = "#studentId", sync = true)
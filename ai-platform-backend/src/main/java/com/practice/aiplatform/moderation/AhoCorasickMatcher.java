@@ -0,0 +1,105 @@
+package com.practice.aiplatform.moderation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds every occurrence of a fixed set of phrases in one pass over the text. Phrases match whole
+ * words only, so "ass" does not fire on "assessment"; a phrase ending in {@code *} matches any word
+ * that starts with it. Input is expected to be normalized by {@link ModerationLexicon#normalize}.
+ */
+final class AhoCorasickMatcher {
+
+    /** A match of {@code [start, end)} in the searched text. */
+    record Span(int start, int end) {
+    }
+
+    private record Output(int length, boolean prefix) {
+    }
+
+    private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+    private final List<List<Output>> outputs = new ArrayList<>();
+    private final int[] fail;
+
+    AhoCorasickMatcher(Collection<String> phrases) {
+        newNode();
+        for (String phrase : phrases) {
+            boolean prefix = phrase.endsWith("*");
+            String body = prefix ? phrase.substring(0, phrase.length() - 1) : phrase;
+            if (body.isEmpty()) {
+                continue;
+            }
+            int node = 0;
+            for (int i = 0; i < body.length(); i++) {
+                char c = body.charAt(i);
+                Integer child = transitions.get(node).get(c);
+                if (child == null) {
+                    child = newNode();
+                    transitions.get(node).put(c, child);
+                }
+                node = child;
+            }
+            outputs.get(node).add(new Output(body.length(), prefix));
+        }
+
+        fail = new int[transitions.size()];
+        Deque<Integer> queue = new ArrayDeque<>(transitions.get(0).values());
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (Map.Entry<Character, Integer> edge : transitions.get(node).entrySet()) {
+                int child = edge.getValue();
+                int fallback = fail[node];
+                while (fallback > 0 && !transitions.get(fallback).containsKey(edge.getKey())) {
+                    fallback = fail[fallback];
+                }
+                Integer target = transitions.get(fallback).get(edge.getKey());
+                fail[child] = target != null && target != child ? target : 0;
+                outputs.get(child).addAll(outputs.get(fail[child]));
+                queue.add(child);
+            }
+        }
+    }
+
+    boolean matches(String text) {
+        return !find(text).isEmpty();
+    }
+
+    List<Span> find(String text) {
+        List<Span> spans = new ArrayList<>();
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            while (node > 0 && !transitions.get(node).containsKey(c)) {
+                node = fail[node];
+            }
+            node = transitions.get(node).getOrDefault(c, 0);
+            for (Output output : outputs.get(node)) {
+                int start = i - output.length() + 1;
+                if (start > 0 && text.charAt(start - 1) != ' ') {
+                    continue;
+                }
+                int end = i + 1;
+                if (output.prefix()) {
+                    while (end < text.length() && text.charAt(end) != ' ') {
+                        end++;
+                    }
+                } else if (end < text.length() && text.charAt(end) != ' ') {
+                    continue;
+                }
+                spans.add(new Span(start, end));
+            }
+        }
+        return spans;
+    }
+
+    private int newNode() {
+        transitions.add(new HashMap<>());
+        outputs.add(new ArrayList<>());
+        return transitions.size() - 1;
+    }
+}
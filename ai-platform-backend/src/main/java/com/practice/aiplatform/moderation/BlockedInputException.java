@@ -0,0 +1,11 @@
+package com.practice.aiplatform.moderation;
+
+/** Raised when moderation blocks input whose generation was already started optimistically. */
+public class BlockedInputException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public BlockedInputException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,104 @@
+package com.practice.aiplatform.moderation;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Local first tier of moderation. Input is normalized (case, accents, common character swaps,
+ * punctuation) and phrases on the allow-list are masked out. A block-lexicon match in what remains
+ * is a certain BLOCK; input the allow-list covers entirely is ALLOW; everything else goes to the
+ * model, whose verdict the caller caches.
+ */
+@Component
+public class ModerationLexicon {
+
+    public enum Verdict { ALLOW, BLOCK, ESCALATE }
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private final AhoCorasickMatcher allowed;
+    private final AhoCorasickMatcher blocked;
+
+    public ModerationLexicon(
+            @Value("${ai.moderation.allow-resource:classpath:moderation/allow.txt}") Resource allowResource,
+            @Value("${ai.moderation.block-resource:classpath:moderation/block.txt}") Resource blockResource) {
+        this.allowed = new AhoCorasickMatcher(load(allowResource));
+        this.blocked = new AhoCorasickMatcher(load(blockResource));
+    }
+
+    /** {@code normalized} must come from {@link #normalize(String)}. */
+    public Verdict classify(String normalized) {
+        char[] masked = normalized.toCharArray();
+        for (AhoCorasickMatcher.Span span : allowed.find(normalized)) {
+            for (int i = span.start(); i < span.end(); i++) {
+                masked[i] = ' ';
+            }
+        }
+        String remaining = new String(masked);
+        if (blocked.matches(remaining)) {
+            return Verdict.BLOCK;
+        }
+        return remaining.isBlank() ? Verdict.ALLOW : Verdict.ESCALATE;
+    }
+
+    /** Lower-cased, accent-free text with look-alike digits/symbols mapped to letters and single spaces between words. */
+    public static String normalize(String text) {
+        String decomposed = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFKD)).replaceAll("");
+        String lower = decomposed.toLowerCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(lower.length());
+        boolean space = true;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = switch (lower.charAt(i)) {
+                case '0' -> 'o';
+                case '1' -> 'i';
+                case '3' -> 'e';
+                case '4', '@' -> 'a';
+                case '5', '$' -> 's';
+                case '7' -> 't';
+                default -> lower.charAt(i);
+            };
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(c);
+                space = false;
+            } else if (!space) {
+                sb.append(' ');
+                space = true;
+            }
+        }
+        int length = sb.length();
+        return length > 0 && sb.charAt(length - 1) == ' ' ? sb.substring(0, length - 1) : sb.toString();
+    }
+
+    private static List<String> load(Resource resource) {
+        List<String> phrases = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                boolean prefix = trimmed.endsWith("*");
+                String phrase = normalize(prefix ? trimmed.substring(0, trimmed.length() - 1) : trimmed);
+                if (!phrase.isEmpty()) {
+                    phrases.add(prefix ? phrase + "*" : phrase);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not load moderation lexicon from " + resource.getDescription(), e);
+        }
+        return phrases;
+    }
+}
@@ -1,82 +1,160 @@
 package com.practice.aiplatform.moderation;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.practice.aiplatform.ai.AiService;
-import org.apache.pdfbox.Loader;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.text.PDFTextStripper;
+import com.practice.aiplatform.ai.ExtractedDocument;
+import com.practice.aiplatform.ai.PromptBudgetPlanner;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 
+import java.time.Duration;
+
+/**
+ * Checks user input in tiers: a cache of earlier verdicts keyed on normalized input, then the local
+ * {@link ModerationLexicon}, and only for ambiguous input a round-trip to the model.
+ */
 @Service
 public class PromptModerationService {
 
     private final AiService aiService;
-
-    public PromptModerationService(AiService aiService) {
+    private final PromptBudgetPlanner promptBudget;
+    private final ModerationLexicon lexicon;
+    private final MeterRegistry meterRegistry;
+    private final Cache<String, Boolean> verdicts;
+    private final boolean optimistic;
+
+    public PromptModerationService(
+            AiService aiService,
+            PromptBudgetPlanner promptBudget,
+            ModerationLexicon lexicon,
+            MeterRegistry meterRegistry,
+            @Value("${ai.moderation.cache.max-entries:50000}") long cacheMaxEntries,
+            @Value("${ai.moderation.cache.ttl-minutes:1440}") long cacheTtlMinutes,
+            @Value("${ai.moderation.optimistic.enabled:true}") boolean optimistic) {
         this.aiService = aiService;
+        this.promptBudget = promptBudget;
+        this.lexicon = lexicon;
+        this.meterRegistry = meterRegistry;
+        this.verdicts = Caffeine.newBuilder()
+                .maximumSize(cacheMaxEntries)
+                .expireAfterWrite(Duration.ofMinutes(cacheTtlMinutes))
+                .build();
+        this.optimistic = optimistic;
     }
 
     public boolean isBlocked(String... parts) {
+        return Boolean.TRUE.equals(isBlockedAsync(parts).block());
+    }
+
+    /** Completes immediately when the cache or the lexicon decides; otherwise when the model answers. */
+    public Mono<Boolean> isBlockedAsync(String... parts) {
         String text = join(parts);
         if (text.isBlank()) {
-            return false;
+            return Mono.just(false);
         }
+        String normalized = ModerationLexicon.normalize(text);
+        return verdict(normalized, normalized, text, false);
+    }
 
-        String moderationPrompt = """
-                You are a strict content safety checker.
-                Check whether this user input contains vulgar, abusive, hateful, sexual, self-harm, or violent harassment language.
-                Respond with exactly one token: ALLOW or BLOCK.
-
-                User input:
-                """ + text;
-
-        try {
-            String result = aiService.generatePracticeContent(moderationPrompt);
-            String normalized = result == null ? "" : result.trim().toUpperCase();
-            return normalized.startsWith("BLOCK");
-        } catch (Exception ex) {
-            // Fail-open to avoid blocking valid users on moderation service outages.
-            return false;
+    /**
+     * Optimistic mode: {@code work} runs while the model checks {@code parts}, and its result is held
+     * back until the verdict. On BLOCK the work is cancelled and the Mono fails with
+     * {@link BlockedInputException}. Input the cache or lexicon can decide never starts blocked work.
+     */
+    public <T> Mono<T> withholdUntilAllowed(Mono<T> work, String... parts) {
+        String text = join(parts);
+        if (text.isBlank()) {
+            return work;
+        }
+        String normalized = ModerationLexicon.normalize(text);
+        Boolean local = localVerdict(normalized, normalized, false);
+        if (local != null) {
+            return local ? Mono.error(new BlockedInputException(warningMessage())) : work;
         }
+        Mono<Boolean> allowed = verdict(normalized, normalized, text, false).flatMap(blocked -> {
+            meterRegistry.counter("ai.moderation.optimistic", "result", blocked ? "cancelled" : "allowed").increment();
+            return blocked ? Mono.error(new BlockedInputException(warningMessage())) : Mono.just(true);
+        });
+        // zip cancels the other source as soon as one fails.
+        return Mono.zip(work, allowed).map(Tuple2::getT1);
+    }
+
+    public boolean isOptimistic() {
+        return optimistic;
     }
 
     public String warningMessage() {
         return "Input contains unsafe language. Please revise and try again.";
     }
 
-    public boolean isBlockedFile(MultipartFile file) {
-        if (file == null || file.isEmpty()) {
+    public boolean isBlockedFile(ExtractedDocument document) {
+        if (document == null || document.text().isBlank()) {
             return false;
         }
+        // Keep cost bounded.
+        String text = promptBudget.truncate("moderation_file", document.text());
+        return Boolean.TRUE.equals(
+                verdict("file:" + document.contentHash(), ModerationLexicon.normalize(text), text, true).block());
+    }
 
-        try {
-            String mimeType = file.getContentType();
-            byte[] data = file.getBytes();
-            String content = "";
-
-            if (mimeType != null && mimeType.startsWith("text/")) {
-                content = new String(data);
-            } else if ("application/pdf".equalsIgnoreCase(mimeType)) {
-                try (PDDocument document = Loader.loadPDF(data)) {
-                    PDFTextStripper stripper = new PDFTextStripper();
-                    content = stripper.getText(document);
-                }
-            }
-
-            if (content == null || content.isBlank()) {
-                return false;
-            }
+    private Mono<Boolean> verdict(String cacheKey, String normalized, String text, boolean document) {
+        Boolean local = localVerdict(cacheKey, normalized, document);
+        if (local != null) {
+            return Mono.just(local);
+        }
+        return askModel(text)
+                .doOnNext(blocked -> {
+                    verdicts.put(cacheKey, blocked);
+                    record("model", blocked);
+                })
+                .onErrorResume(e -> {
+                    // Fail-open to avoid blocking valid users on moderation service outages; ask again next time.
+                    record("model_error", false);
+                    return Mono.just(false);
+                });
+    }
 
-            // Keep cost bounded.
-            if (content.length() > 6000) {
-                content = content.substring(0, 6000);
-            }
+    /**
+     * The cached or lexicon verdict, or null when only the model can tell. A document may quote or
+     * discuss blocked words, so a lexicon hit in one is escalated rather than blocked.
+     */
+    private Boolean localVerdict(String cacheKey, String normalized, boolean document) {
+        Boolean cached = verdicts.getIfPresent(cacheKey);
+        if (cached != null) {
+            record("cache", cached);
+            return cached;
+        }
 
-            return isBlocked(content);
-        } catch (Exception ex) {
-            // Fail-open on parsing errors.
-            return false;
+        ModerationLexicon.Verdict local = lexicon.classify(normalized);
+        if (local == ModerationLexicon.Verdict.ESCALATE || (document && local == ModerationLexicon.Verdict.BLOCK)) {
+            return null;
         }
+        boolean blocked = local == ModerationLexicon.Verdict.BLOCK;
+        verdicts.put(cacheKey, blocked);
+        record("lexicon", blocked);
+        return blocked;
+    }
+
+    private Mono<Boolean> askModel(String text) {
+        String moderationPrompt = """
+                You are a strict content safety checker.
+                Check whether this user input contains vulgar, abusive, hateful, sexual, self-harm, or violent harassment language.
+                Respond with exactly one token: ALLOW or BLOCK.
+
+                User input:
+                """ + text;
+
+        return Mono.defer(() -> aiService.generatePracticeContentAsync(moderationPrompt))
+                .map(result -> result.trim().toUpperCase().startsWith("BLOCK"))
+                .defaultIfEmpty(false);
+    }
+
+    private void record(String tier, boolean blocked) {
+        meterRegistry.counter("ai.moderation.verdict", "tier", tier, "verdict", blocked ? "block" : "allow").increment();
     }
 
     private String join(String... parts) {
@@ -1,43 +1,25 @@
 package com.practice.aiplatform.notifications;
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
-import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.cache.CacheManager;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 @Service
 public class NotificationService {
 
     private final NotificationRepository notificationRepository;
     private final CacheManager cacheManager;
-    private final MeterRegistry meterRegistry;
-    private final Cache<Long, List<Notification>> localAllCache;
-    private final Cache<Long, List<Notification>> localUnreadCache;
 
     public NotificationService(
             NotificationRepository notificationRepository,
-            CacheManager cacheManager,
-            MeterRegistry meterRegistry) {
+            CacheManager cacheManager) {
         this.notificationRepository = notificationRepository;
         this.cacheManager = cacheManager;
-        this.meterRegistry = meterRegistry;
-        this.localAllCache = Caffeine.newBuilder()
-                .recordStats()
-                .expireAfterWrite(Duration.ofSeconds(30))
-                .maximumSize(1000)
-                .build();
-        this.localUnreadCache = Caffeine.newBuilder()
-                .recordStats()
-                .expireAfterWrite(Duration.ofSeconds(30))
-                .maximumSize(1000)
-                .build();
     }
 
     @Transactional
@@ -49,82 +31,13 @@ public class NotificationService {
     }
 
     public List<Notification> getAllNotifications(Long studentId) {
-        List<Notification> cached = localAllCache.getIfPresent(studentId);
-        if (cached != null) {
-            recordLayer("UserNotificationsAllCache", "l1", "hit");
-            return cached;
-        }
-        recordLayer("UserNotificationsAllCache", "l1", "miss");
-
-        org.springframework.cache.Cache redisCache = cacheManager.getCache("UserNotificationsAllCache");
-        if (redisCache != null) {
-            try {
-                org.springframework.cache.Cache.ValueWrapper wrapper = redisCache.get(studentId);
-                if (wrapper != null) {
-                    @SuppressWarnings("unchecked")
-                    List<Notification> value = (List<Notification>) wrapper.get();
-                    if (value != null) {
-                        recordLayer("UserNotificationsAllCache", "l2", "hit");
-                        localAllCache.put(studentId, value);
-                        return value;
-                    }
-                }
-                recordLayer("UserNotificationsAllCache", "l2", "miss");
-            } catch (RuntimeException ignored) {
-                recordLayer("UserNotificationsAllCache", "l2", "error");
-            }
-        }
-
-        List<Notification> value = notificationRepository.findByStudentIdOrderByCreatedAtDesc(studentId,
-                PageRequest.of(0, 50));
-        recordLayer("UserNotificationsAllCache", "db", "hit");
-        if (redisCache != null) {
-            try {
-                redisCache.put(studentId, value);
-            } catch (RuntimeException ignored) {
-            }
-        }
-        localAllCache.put(studentId, value);
-        return value;
+        return cached("UserNotificationsAllCache", studentId,
+                () -> notificationRepository.findByStudentIdOrderByCreatedAtDesc(studentId, PageRequest.of(0, 50)));
     }
 
     public List<Notification> getUnreadNotifications(Long studentId) {
-        List<Notification> cached = localUnreadCache.getIfPresent(studentId);
-        if (cached != null) {
-            recordLayer("UserNotificationsUnreadCache", "l1", "hit");
-            return cached;
-        }
-        recordLayer("UserNotificationsUnreadCache", "l1", "miss");
-
-        org.springframework.cache.Cache redisCache = cacheManager.getCache("UserNotificationsUnreadCache");
-        if (redisCache != null) {
-            try {
-                org.springframework.cache.Cache.ValueWrapper wrapper = redisCache.get(studentId);
-                if (wrapper != null) {
-                    @SuppressWarnings("unchecked")
-                    List<Notification> value = (List<Notification>) wrapper.get();
-                    if (value != null) {
-                        recordLayer("UserNotificationsUnreadCache", "l2", "hit");
-                        localUnreadCache.put(studentId, value);
-                        return value;
-                    }
-                }
-                recordLayer("UserNotificationsUnreadCache", "l2", "miss");
-            } catch (RuntimeException ignored) {
-                recordLayer("UserNotificationsUnreadCache", "l2", "error");
-            }
-        }
-
-        List<Notification> value = notificationRepository.findUnread(studentId, PageRequest.of(0, 20));
-        recordLayer("UserNotificationsUnreadCache", "db", "hit");
-        if (redisCache != null) {
-            try {
-                redisCache.put(studentId, value);
-            } catch (RuntimeException ignored) {
-            }
-        }
-        localUnreadCache.put(studentId, value);
-        return value;
+        return cached("UserNotificationsUnreadCache", studentId,
+                () -> notificationRepository.findUnread(studentId, PageRequest.of(0, 20)));
     }
 
     @Transactional
@@ -146,9 +59,6 @@ public class NotificationService {
     }
 
     private void evictNotificationCaches(Long studentId) {
-        localAllCache.invalidate(studentId);
-        localUnreadCache.invalidate(studentId);
-
         org.springframework.cache.Cache allCache = cacheManager.getCache("UserNotificationsAllCache");
         if (allCache != null) {
             allCache.evict(studentId);
@@ -161,19 +71,22 @@ public class NotificationService {
     }
 
     private void evictUnreadCache(Long studentId) {
-        localUnreadCache.invalidate(studentId);
-
         org.springframework.cache.Cache unreadCache = cacheManager.getCache("UserNotificationsUnreadCache");
         if (unreadCache != null) {
             unreadCache.evict(studentId);
         }
     }
 
-    private void recordLayer(String cacheName, String layer, String result) {
-        meterRegistry.counter(
-                "cache_layer_access_total",
-                "cache", cacheName,
-                "layer", layer,
-                "result", result).increment();
+    private List<Notification> cached(String cacheName, Long studentId, Supplier<List<Notification>> loader) {
+        org.springframework.cache.Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null) {
+            return loader.get();
+        }
+        try {
+            return cache.get(studentId, loader::get);
+        } catch (RuntimeException ignored) {
+            // Redis unavailable: serve straight from the database.
+            return loader.get();
+        }
     }
 }
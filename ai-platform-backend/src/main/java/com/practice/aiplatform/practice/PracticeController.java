@@ -1,6 +1,8 @@
 package com.practice.aiplatform.practice;
 
 import com.practice.aiplatform.ai.AiService;
+import com.practice.aiplatform.ai.AiStreamEvents;
+import com.practice.aiplatform.config.CacheTags;
 import com.practice.aiplatform.studyplan.StudyPlanService;
 import com.practice.aiplatform.event.RecoveryPlanEvent;
 import com.practice.aiplatform.event.RecoveryPlanEventPublisher;
@@ -9,14 +11,18 @@ import com.practice.aiplatform.user.Student;
 import com.practice.aiplatform.user.StudentRepository;
 import com.practice.aiplatform.user.UsageService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
 
 import java.security.Principal;
 import java.util.ArrayList;
@@ -47,26 +53,52 @@ public class PracticeController {
     private StudyPlanService studyPlanService;
     @Autowired
     private RecoveryPlanEventPublisher recoveryPlanEventPublisher;
+    @Autowired
+    private CacheTags cacheTags;
     @Lazy
     @Autowired
     private PracticeController self;
 
     @PostMapping("/submit")
-    @Caching(evict = {
-            @CacheEvict(value = "UserPracticeHistoryCache", key = "#principal.name"),
-            @CacheEvict(value = "UserRecommendationsCache", key = "#principal.name"),
-            @CacheEvict(value = "PredictSuccessCache", allEntries = true),
-            @CacheEvict(value = "UserAiCoachPromptCache", key = "#principal.name"),
-            @CacheEvict(value = "UserAiCoachInsightCache", key = "#principal.name"),
-            @CacheEvict(value = "UserStatisticsSummaryCache", key = "#principal.name"),
-            @CacheEvict(value = "UserStatisticsTimeseriesCache", key = "#principal.name"),
-            @CacheEvict(value = "UserStatisticsRecommendationsCache", key = "#principal.name")
-    })
-    public ResponseEntity<Answer> submitAnswer(@RequestBody SubmitAnswerRequest request, Principal principal) {
+    public Mono<ResponseEntity<Answer>> submitAnswer(@RequestBody SubmitAnswerRequest request, Principal principal) {
+        String email = principal.getName();
+
+        if (!usageService.canPerformAction(email)) {
+            return Mono.just(ResponseEntity.status(HttpStatus.PAYMENT_REQUIRED).build());
+        }
+
+        Student student = studentRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("Student not found"));
+
+        Question question = questionRepository.findById(request.questionId())
+                .orElseThrow(() -> new RuntimeException("Question not found"));
+
+        if (!question.getStudent().getId().equals(student.getId())) {
+            return Mono.just(ResponseEntity.status(HttpStatus.FORBIDDEN).build());
+        }
+
+        Answer savedAnswer = saveInitialAnswer(student, question, request.answerText());
+
+        // Evaluation resolves on a Netty event-loop thread; hop off it before the JPA/Kafka work below.
+        return aiService.evaluateAnswer(
+                question.getQuestionText(),
+                savedAnswer.getAnswerText(),
+                question.getSubject(),
+                question.getTopic(),
+                question.getDifficulty())
+                .publishOn(Schedulers.boundedElastic())
+                .map(aiFeedback -> ResponseEntity.status(HttpStatus.CREATED)
+                        .body(completeEvaluation(student, question, savedAnswer, aiFeedback)))
+                .flatMap(response -> cacheTags.invalidateAsync(CacheTags.practice(email)).thenReturn(response));
+    }
+
+    @PostMapping(value = "/submit/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> submitAnswerStream(@RequestBody SubmitAnswerRequest request,
+            Principal principal) {
         String email = principal.getName();
 
         if (!usageService.canPerformAction(email)) {
-            return ResponseEntity.status(HttpStatus.PAYMENT_REQUIRED).build();
+            return Flux.just(AiStreamEvents.error(HttpStatus.PAYMENT_REQUIRED, "Free action limit reached"));
         }
 
         Student student = studentRepository.findByEmail(email)
@@ -76,18 +108,36 @@ public class PracticeController {
                 .orElseThrow(() -> new RuntimeException("Question not found"));
 
         if (!question.getStudent().getId().equals(student.getId())) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            return Flux.just(AiStreamEvents.error(HttpStatus.FORBIDDEN, "Question does not belong to this student"));
         }
 
         Answer savedAnswer = saveInitialAnswer(student, question, request.answerText());
 
-        String aiFeedback = aiService.evaluateAnswer(
+        StringBuilder aiFeedback = new StringBuilder();
+        Mono<ServerSentEvent<Object>> evaluated = Mono
+                .fromCallable(() -> AiStreamEvents.complete(
+                        completeEvaluation(student, question, savedAnswer, aiFeedback.toString())))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(event -> cacheTags.invalidateAsync(CacheTags.practice(email)).thenReturn(event));
+
+        // The answer is already saved, so the evaluation runs to the end even if the client disconnects
+        // mid-stream; otherwise it would be left without a status, XP or plan progress.
+        Sinks.Many<ServerSentEvent<Object>> events = Sinks.many().unicast().onBackpressureBuffer();
+        aiService.streamEvaluation(
                 question.getQuestionText(),
                 savedAnswer.getAnswerText(),
                 question.getSubject(),
                 question.getTopic(),
-                question.getDifficulty());
+                question.getDifficulty())
+                .doOnNext(aiFeedback::append)
+                .map(AiStreamEvents::token)
+                .concatWith(evaluated)
+                .onErrorResume(e -> Flux.just(AiStreamEvents.error(e)))
+                .subscribe(events::tryEmitNext, events::tryEmitError, events::tryEmitComplete);
+        return events.asFlux();
+    }
 
+    private Answer completeEvaluation(Student student, Question question, Answer savedAnswer, String aiFeedback) {
         ParsedFeedback parsedFeedback = parseFeedback(aiFeedback);
 
         savedAnswer.setIsCorrect("CORRECT".equals(parsedFeedback.status));
@@ -117,21 +167,11 @@ public class PracticeController {
             finalAnswer.setFeedback(finalAnswer.getFeedback() + "\n\n[PLAN_UPDATE:" + planItemsCompleted + "]");
         }
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(finalAnswer);
+        return finalAnswer;
     }
 
     @PostMapping("/get-answer")
-    @Caching(evict = {
-            @CacheEvict(value = "UserPracticeHistoryCache", key = "#principal.name"),
-            @CacheEvict(value = "UserRecommendationsCache", key = "#principal.name"),
-            @CacheEvict(value = "PredictSuccessCache", allEntries = true),
-            @CacheEvict(value = "UserAiCoachPromptCache", key = "#principal.name"),
-            @CacheEvict(value = "UserAiCoachInsightCache", key = "#principal.name"),
-            @CacheEvict(value = "UserStatisticsSummaryCache", key = "#principal.name"),
-            @CacheEvict(value = "UserStatisticsTimeseriesCache", key = "#principal.name"),
-            @CacheEvict(value = "UserStatisticsRecommendationsCache", key = "#principal.name")
-    })
-    public ResponseEntity<Answer> getAnswer(@RequestBody GetAnswerRequest request, Principal principal) {
+    public Mono<ResponseEntity<Answer>> getAnswer(@RequestBody GetAnswerRequest request, Principal principal) {
         Student student = studentRepository.findByEmail(principal.getName())
                 .orElseThrow(() -> new RuntimeException("Student not found"));
 
@@ -139,26 +179,30 @@ public class PracticeController {
                 .orElseThrow(() -> new RuntimeException("Question not found"));
 
         if (!question.getStudent().getId().equals(student.getId())) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            return Mono.just(ResponseEntity.status(HttpStatus.FORBIDDEN).build());
         }
 
-        String answerText = aiService.getCorrectAnswer(
+        return aiService.getCorrectAnswer(
                 question.getQuestionText(),
                 question.getSubject(),
                 question.getTopic(),
-                question.getDifficulty());
-
-        Answer answer = new Answer();
-        answer.setAnswerText(answerText);
-        answer.setQuestion(question);
-        answer.setStudent(student);
-        answer.setIsCorrect(false);
-        answer.setEvaluationStatus("REVEALED");
-        answer.setFeedback("This is the generated correct answer.");
-        answer.setHint(null);
-
-        Answer savedAnswer = answerRepository.save(answer);
-        return ResponseEntity.status(HttpStatus.CREATED).body(savedAnswer);
+                question.getDifficulty())
+                .publishOn(Schedulers.boundedElastic())
+                .map(answerText -> {
+                    Answer answer = new Answer();
+                    answer.setAnswerText(answerText);
+                    answer.setQuestion(question);
+                    answer.setStudent(student);
+                    answer.setIsCorrect(false);
+                    answer.setEvaluationStatus("REVEALED");
+                    answer.setFeedback("This is the generated correct answer.");
+                    answer.setHint(null);
+
+                    Answer savedAnswer = answerRepository.save(answer);
+                    return ResponseEntity.status(HttpStatus.CREATED).body(savedAnswer);
+                })
+                .flatMap(response -> cacheTags.invalidateAsync(CacheTags.practice(principal.getName()))
+                        .thenReturn(response));
     }
 
     @GetMapping("/history")
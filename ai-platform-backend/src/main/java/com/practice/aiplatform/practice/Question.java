@@ -34,6 +34,11 @@ public class Question {
     @Column
     private String difficulty;
 
+    // SimHash of the question text, used for near-duplicate checks. Null on rows created before it existed.
+    @Column
+    @JsonIgnore
+    private Long fingerprint;
+
     @Column(nullable = false, updatable = false)
     private LocalDateTime generatedAt;
 
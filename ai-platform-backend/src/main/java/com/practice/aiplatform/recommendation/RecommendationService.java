@@ -241,7 +241,7 @@ public class RecommendationService {
         return summary.toString();
     }
 
-    @Cacheable(value = "PredictSuccessCache", key = "#userEmail + '-' + #topic + '-' + #difficulty", sync = true)
+    @Cacheable(value = "PredictSuccessCache", key = "#userEmail + '|' + #topic + '|' + #difficulty", sync = true)
     public Prediction predictSuccess(String userEmail, String topic, String difficulty) {
         Student student = studentRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new RuntimeException("Student not found"));
@@ -148,10 +148,11 @@ public class RateLimitMetricsFilter extends OncePerRequestFilter {
         if (uri == null) {
             return null;
         }
-        if ("/api/ai/generate-question".equals(uri)) {
+        // Streaming variants share the bucket of their blocking counterpart.
+        if ("/api/ai/generate-question".equals(uri) || "/api/ai/generate-question/stream".equals(uri)) {
             return "ai_generate_question";
         }
-        if ("/api/ai/get-hint".equals(uri)) {
+        if ("/api/ai/get-hint".equals(uri) || "/api/ai/get-hint/stream".equals(uri)) {
             return "ai_get_hint";
         }
         if ("/api/ai/get-answer".equals(uri)) {
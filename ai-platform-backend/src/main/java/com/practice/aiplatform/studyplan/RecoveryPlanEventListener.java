@@ -11,32 +11,14 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class RecoveryPlanEventListener {
 
-    private final StudyPlanService studyPlanService;
+    private final StudyPlanJobScheduler jobScheduler;
 
+    // Only enqueues; generation itself runs on the scheduler's workers, ordered by priority.
+    // A single consumer keeps enqueue and its duplicate check serial across instances.
     @KafkaListener(topics = "recoveryplan.events", groupId = "practiceflow-studyplan-group", concurrency = "1")
     public void consumeRecoveryPlanEvent(RecoveryPlanEvent event) {
-        log.info("🎧 Received Kafka Event: Starting heavy background plan generations for {} (Plan ID: {})",
+        log.info("🎧 Received Kafka Event: Queueing study plan generation for {} (Plan ID: {})",
                 event.getUserEmail(), event.getPlanId() != null ? event.getPlanId() : "NEW");
-        try {
-            if (event.getPlanId() != null) {
-                // Main Study Plan Generation (Async)
-                studyPlanService.completeAsyncStudyPlan(
-                        event.getPlanId(),
-                        event.getUserEmail(),
-                        event.getTopic(),
-                        event.getDifficulty(),
-                        event.getDays());
-            } else {
-                // Automatic Recovery Plan (Synchronous fallback within listener)
-                studyPlanService.generateStudyPlan(
-                        event.getUserEmail(),
-                        event.getTopic() + " Recovery",
-                        event.getDifficulty(),
-                        event.getDays());
-            }
-            log.info("✅ Asynchronously finished study plan generation for {} via Kafka.", event.getUserEmail());
-        } catch (Exception e) {
-            log.error("❌ Failed to process Kafka recovery plan event for {}: {}", event.getUserEmail(), e.getMessage());
-        }
+        jobScheduler.enqueue(event);
     }
 }
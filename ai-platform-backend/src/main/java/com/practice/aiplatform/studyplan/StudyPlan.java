@@ -1,5 +1,6 @@
 package com.practice.aiplatform.studyplan;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import com.practice.aiplatform.user.Student;
@@ -42,6 +43,16 @@ public class StudyPlan {
     @Column(name = "is_generating", nullable = false, columnDefinition = "boolean default false")
     private boolean isGenerating = false;
 
+    // Last completed async generation stage; null for plans generated synchronously.
+    @Enumerated(EnumType.STRING)
+    @Column(name = "generation_stage", length = 32)
+    private StudyPlanStage generationStage;
+
+    // Outputs of completed stages that a resumed generation still needs (JSON).
+    @JsonIgnore
+    @Column(name = "generation_checkpoint", columnDefinition = "TEXT")
+    private String generationCheckpoint;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "student_id", nullable = false)
     @JsonIgnoreProperties({ "password", "questions", "email", "paymentCustomerId", "subscriptionEndsAt",
@@ -1,25 +1,40 @@
 package com.practice.aiplatform.studyplan;
 
 import com.practice.aiplatform.ai.AiService;
+import com.practice.aiplatform.ai.AiStreamEvents;
+import com.practice.aiplatform.ai.DocumentTextExtractor;
+import com.practice.aiplatform.ai.ExtractedDocument;
 import com.practice.aiplatform.moderation.PromptModerationService;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 
 import java.security.Principal;
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+@Slf4j
 @RestController
 @RequestMapping("/api/study-plans")
 public class StudyPlanController {
 
     private final StudyPlanService studyPlanService;
     private final PromptModerationService promptModerationService;
+    private final DocumentTextExtractor documentTextExtractor;
 
-    public StudyPlanController(StudyPlanService studyPlanService, PromptModerationService promptModerationService) {
+    private static final Duration PROGRESS_HEARTBEAT = Duration.ofSeconds(15);
+
+    public StudyPlanController(StudyPlanService studyPlanService, PromptModerationService promptModerationService,
+            DocumentTextExtractor documentTextExtractor) {
         this.studyPlanService = studyPlanService;
         this.promptModerationService = promptModerationService;
+        this.documentTextExtractor = documentTextExtractor;
     }
 
     public record GenerateStudyPlanRequest(String topic, String difficulty, int durationDays) {
@@ -33,6 +48,7 @@ public class StudyPlanController {
         if (request.topic() == null || request.topic().trim().isEmpty()) {
             return ResponseEntity.badRequest().body(Map.of("error", "Topic is required"));
         }
+        // Queueing publishes the generation job, so the verdict comes first even in optimistic mode.
         if (promptModerationService.isBlocked(request.topic(), request.difficulty())) {
             return ResponseEntity.badRequest().body(Map.of("error", promptModerationService.warningMessage()));
         }
@@ -66,14 +82,22 @@ public class StudyPlanController {
         if (file.isEmpty()) {
             return ResponseEntity.badRequest().body(Map.of("error", "File is required"));
         }
-        if (promptModerationService.isBlockedFile(file)) {
+
+        // Extracted once; moderation and both analysis prompts share the result.
+        ExtractedDocument document;
+        try {
+            document = documentTextExtractor.extract(file);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+        if (promptModerationService.isBlockedFile(document)) {
             return ResponseEntity.badRequest().body(Map.of("error", promptModerationService.warningMessage()));
         }
 
         String email = principal.getName();
 
         try {
-            StudyPlan plan = studyPlanService.generateStudyPlanFromSyllabus(email, file, durationDays);
+            StudyPlan plan = studyPlanService.generateStudyPlanFromSyllabus(email, document, durationDays);
             return ResponseEntity.ok(plan);
         } catch (Exception e) {
             String message = e.getMessage() == null ? "Unknown error" : e.getMessage();
@@ -112,6 +136,48 @@ public class StudyPlanController {
         }
     }
 
+    /**
+     * Pushes an async plan as it is built: {@code title}, then one {@code day} event per day of items,
+     * then {@code quiz} events per item, and finally {@code finalized} or {@code failed}. Whatever has
+     * already been generated is sent first, so clients can (re)connect at any point instead of polling.
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamStudyPlanProgress(@PathVariable Long id, Principal principal) {
+        Flux<ServerSentEvent<Object>> progress = studyPlanService.streamProgress(id, principal.getName())
+                .map(event -> {
+                    Map<String, Object> data = new LinkedHashMap<>();
+                    data.put("planId", event.planId());
+                    data.put("stage", event.stage());
+                    data.put("data", event.payload());
+                    return ServerSentEvent.<Object>builder(data).event(event.type()).build();
+                })
+                .onErrorResume(StudyPlanNotFoundException.class,
+                        e -> Flux.just(AiStreamEvents.error(HttpStatus.NOT_FOUND, e.getMessage())))
+                .onErrorResume(e -> {
+                    log.error("Study plan progress stream {} failed", id, e);
+                    return Flux.just(AiStreamEvents.error(HttpStatus.INTERNAL_SERVER_ERROR,
+                            "Could not load study plan progress. Please reconnect."));
+                });
+
+        return progress.publish(events -> Flux.merge(events, Flux.interval(PROGRESS_HEARTBEAT)
+                .map(tick -> ServerSentEvent.<Object>builder().comment("keep-alive").build())
+                .takeUntilOther(events.then())));
+    }
+
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<?> resumeStudyPlan(@PathVariable Long id, Principal principal) {
+        try {
+            StudyPlan plan = studyPlanService.resumeStudyPlan(id, principal.getName());
+            return ResponseEntity.accepted().body(Map.of(
+                    "id", plan.getId(),
+                    "generationStage", plan.getGenerationStage(),
+                    "isGenerating", plan.isGenerating()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @PatchMapping("/{planId}/items/{itemId}/complete")
     public ResponseEntity<?> markItemComplete(@PathVariable Long planId, @PathVariable Long itemId,
             Principal principal) {
@@ -0,0 +1,78 @@
+package com.practice.aiplatform.studyplan;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "study_plan_jobs", indexes = {
+        @Index(name = "idx_study_plan_jobs_status_rank_enqueued", columnList = "status, priority_rank, enqueued_at"),
+        @Index(name = "idx_study_plan_jobs_dedup_status", columnList = "dedup_key, status")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class StudyPlanJob {
+
+    public enum Status {
+        QUEUED, RUNNING, DONE, FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_email", nullable = false)
+    private String userEmail;
+
+    private String topic;
+    private String difficulty;
+    private int days;
+
+    // Null for automatic recovery plans, which are generated from scratch.
+    @Column(name = "plan_id")
+    private Long planId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private StudyPlanJobPriority priority;
+
+    @Column(name = "priority_rank", nullable = false)
+    private int priorityRank;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.QUEUED;
+
+    @Column(name = "dedup_key", nullable = false, length = 512)
+    private String dedupKey;
+
+    @Column(nullable = false)
+    private int attempts = 0;
+
+    @Column(name = "enqueued_at", nullable = false)
+    private Instant enqueuedAt;
+
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    // Touched at claim and after every generation checkpoint; staleness is judged by it.
+    @Column(name = "heartbeat_at")
+    private Instant heartbeatAt;
+
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @PrePersist
+    public void prePersist() {
+        if (enqueuedAt == null) {
+            enqueuedAt = Instant.now();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.practice.aiplatform.studyplan;
+
+/**
+ * Scheduling class of a study-plan generation job. Lower rank runs first.
+ */
+public enum StudyPlanJobPriority {
+    PREMIUM(0),
+    FREE(1),
+    RECOVERY(2);
+
+    private final int rank;
+
+    StudyPlanJobPriority(int rank) {
+        this.rank = rank;
+    }
+
+    public int rank() {
+        return rank;
+    }
+}
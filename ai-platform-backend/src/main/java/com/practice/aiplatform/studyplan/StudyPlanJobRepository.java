@@ -0,0 +1,92 @@
+package com.practice.aiplatform.studyplan;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface StudyPlanJobRepository extends JpaRepository<StudyPlanJob, Long> {
+
+    boolean existsByDedupKeyAndStatusIn(String dedupKey, Collection<StudyPlanJob.Status> statuses);
+
+    /**
+     * Queued jobs in the order they should run: by priority class, oldest first, except that a job
+     * waiting longer than {@code agedBefore} jumps ahead so recovery plans cannot starve. Users who
+     * already have a job running are skipped.
+     */
+    @Query("""
+            select j from StudyPlanJob j
+            where j.status = :queued
+              and j.userEmail not in (
+                  select r.userEmail from StudyPlanJob r where r.status = :running)
+            order by case when j.enqueuedAt < :agedBefore then -1 else j.priorityRank end, j.enqueuedAt
+            """)
+    List<StudyPlanJob> findClaimable(@Param("queued") StudyPlanJob.Status queued,
+            @Param("running") StudyPlanJob.Status running,
+            @Param("agedBefore") Instant agedBefore,
+            Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("""
+            update StudyPlanJob j set j.status = :running, j.startedAt = :now, j.heartbeatAt = :now,
+                j.attempts = j.attempts + 1
+            where j.id = :id and j.status = :queued
+            """)
+    int claim(@Param("id") Long id,
+            @Param("queued") StudyPlanJob.Status queued,
+            @Param("running") StudyPlanJob.Status running,
+            @Param("now") Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("update StudyPlanJob j set j.heartbeatAt = :now where j.id = :id and j.status = :running")
+    int heartbeat(@Param("id") Long id,
+            @Param("running") StudyPlanJob.Status running,
+            @Param("now") Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("update StudyPlanJob j set j.status = :status, j.finishedAt = :now, j.lastError = :error where j.id = :id")
+    int finish(@Param("id") Long id,
+            @Param("status") StudyPlanJob.Status status,
+            @Param("now") Instant now,
+            @Param("error") String error);
+
+    /** Hands jobs left running by a crashed instance, i.e. without a recent heartbeat, back to the queue. */
+    @Modifying
+    @Transactional
+    @Query("""
+            update StudyPlanJob j set j.status = :queued
+            where j.status = :running and coalesce(j.heartbeatAt, j.startedAt) < :staleBefore and j.attempts < :maxAttempts
+            """)
+    int requeueStale(@Param("running") StudyPlanJob.Status running,
+            @Param("queued") StudyPlanJob.Status queued,
+            @Param("staleBefore") Instant staleBefore,
+            @Param("maxAttempts") int maxAttempts);
+
+    @Modifying
+    @Transactional
+    @Query("""
+            update StudyPlanJob j set j.status = :failed, j.finishedAt = :now, j.lastError = 'Gave up after repeated attempts'
+            where j.status = :running and coalesce(j.heartbeatAt, j.startedAt) < :staleBefore
+            """)
+    int failStale(@Param("running") StudyPlanJob.Status running,
+            @Param("failed") StudyPlanJob.Status failed,
+            @Param("staleBefore") Instant staleBefore,
+            @Param("now") Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("delete from StudyPlanJob j where j.finishedAt < :before")
+    int deleteFinishedBefore(@Param("before") Instant before);
+
+    @Query("select j.priority, count(j) from StudyPlanJob j where j.status = :status group by j.priority")
+    List<Object[]> countByPriority(@Param("status") StudyPlanJob.Status status);
+}
@@ -0,0 +1,286 @@
+package com.practice.aiplatform.studyplan;
+
+import com.practice.aiplatform.event.RecoveryPlanEvent;
+import com.practice.aiplatform.user.StudentRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs study-plan generation jobs from a database-backed queue. The Kafka listener only enqueues,
+ * so a burst of automatic recovery plans no longer sits in front of a user's own plan: jobs run
+ * by priority class (premium, free, recovery), at most one per user at a time, and a job that has
+ * waited longer than the aging threshold runs next regardless of class. Any instance can claim a
+ * job; claiming is a conditional update, so a job runs once.
+ */
+@Slf4j
+@Service
+public class StudyPlanJobScheduler {
+
+    private static final List<StudyPlanJob.Status> PENDING_RECOVERY = List.of(StudyPlanJob.Status.QUEUED);
+    private static final List<StudyPlanJob.Status> PENDING_PLAN =
+            List.of(StudyPlanJob.Status.QUEUED, StudyPlanJob.Status.RUNNING);
+    private static final int MAX_ATTEMPTS = 3;
+    private static final Duration FINISHED_RETENTION = Duration.ofDays(1);
+    private static final Duration HOUSEKEEPING_INTERVAL = Duration.ofMinutes(1);
+
+    private final StudyPlanJobRepository jobRepository;
+    private final StudentRepository studentRepository;
+    private final StudyPlanService studyPlanService;
+    private final MeterRegistry meterRegistry;
+    private final int workers;
+    private final long pollIntervalMs;
+    private final Duration agingThreshold;
+    private final Duration staleAfter;
+
+    private final Map<StudyPlanJobPriority, AtomicLong> queueDepth = new EnumMap<>(StudyPlanJobPriority.class);
+    private final Set<String> claimingUsers = ConcurrentHashMap.newKeySet();
+    private final Object wakeUp = new Object();
+    private final AtomicLong lastHousekeeping = new AtomicLong();
+    private ExecutorService executor;
+    private volatile boolean running;
+
+    public StudyPlanJobScheduler(
+            StudyPlanJobRepository jobRepository,
+            StudentRepository studentRepository,
+            StudyPlanService studyPlanService,
+            MeterRegistry meterRegistry,
+            @Value("${study-plan.jobs.workers:2}") int workers,
+            @Value("${study-plan.jobs.poll-interval-ms:2000}") long pollIntervalMs,
+            @Value("${study-plan.jobs.aging-threshold-ms:600000}") long agingThresholdMs,
+            @Value("${study-plan.jobs.stale-after-ms:900000}") long staleAfterMs) {
+        this.jobRepository = jobRepository;
+        this.studentRepository = studentRepository;
+        this.studyPlanService = studyPlanService;
+        this.meterRegistry = meterRegistry;
+        this.workers = Math.max(1, workers);
+        this.pollIntervalMs = Math.max(100, pollIntervalMs);
+        this.agingThreshold = Duration.ofMillis(agingThresholdMs);
+        this.staleAfter = Duration.ofMillis(staleAfterMs);
+
+        for (StudyPlanJobPriority priority : StudyPlanJobPriority.values()) {
+            AtomicLong depth = new AtomicLong();
+            queueDepth.put(priority, depth);
+            Gauge.builder("study_plan.jobs.queue.depth", depth, AtomicLong::get)
+                    .tag("priority", tag(priority))
+                    .register(meterRegistry);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "study-plan-job-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workers; i++) {
+            executor.submit(this::workLoop);
+        }
+        log.info("Study plan job scheduler started with {} workers", workers);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Queues a generation job for the event. A recovery job identical to one still waiting, or a
+     * second job for a plan that is already queued or running, is dropped.
+     */
+    public void enqueue(RecoveryPlanEvent event) {
+        StudyPlanJobPriority priority = priorityOf(event);
+        String dedupKey = dedupKey(event);
+        List<StudyPlanJob.Status> pending = event.getPlanId() == null ? PENDING_RECOVERY : PENDING_PLAN;
+        if (jobRepository.existsByDedupKeyAndStatusIn(dedupKey, pending)) {
+            meterRegistry.counter("study_plan.jobs.deduplicated", "priority", tag(priority)).increment();
+            log.info("Skipping duplicate study plan job {} for {}", dedupKey, event.getUserEmail());
+            return;
+        }
+
+        StudyPlanJob job = new StudyPlanJob();
+        job.setUserEmail(event.getUserEmail());
+        job.setTopic(event.getTopic());
+        job.setDifficulty(event.getDifficulty());
+        job.setDays(event.getDays());
+        job.setPlanId(event.getPlanId());
+        job.setPriority(priority);
+        job.setPriorityRank(priority.rank());
+        job.setDedupKey(dedupKey);
+        jobRepository.save(job);
+
+        meterRegistry.counter("study_plan.jobs.enqueued", "priority", tag(priority)).increment();
+        queueDepth.get(priority).incrementAndGet();
+        synchronized (wakeUp) {
+            wakeUp.notifyAll();
+        }
+    }
+
+    private void workLoop() {
+        while (running && !Thread.currentThread().isInterrupted()) {
+            try {
+                housekeeping();
+                StudyPlanJob job = claimNext();
+                if (job == null) {
+                    synchronized (wakeUp) {
+                        wakeUp.wait(pollIntervalMs);
+                    }
+                    continue;
+                }
+                try {
+                    run(job);
+                } finally {
+                    claimingUsers.remove(job.getUserEmail());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("Study plan job worker error: {}", e.getMessage());
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private StudyPlanJob claimNext() {
+        Instant now = Instant.now();
+        List<StudyPlanJob> candidates = jobRepository.findClaimable(
+                StudyPlanJob.Status.QUEUED,
+                StudyPlanJob.Status.RUNNING,
+                now.minus(agingThreshold),
+                PageRequest.of(0, workers * 4));
+
+        for (StudyPlanJob candidate : candidates) {
+            // Another worker on this instance may be claiming a job for the same user right now.
+            if (!claimingUsers.add(candidate.getUserEmail())) {
+                continue;
+            }
+            if (jobRepository.claim(candidate.getId(), StudyPlanJob.Status.QUEUED, StudyPlanJob.Status.RUNNING,
+                    now) == 1) {
+                queueDepth.get(candidate.getPriority()).updateAndGet(depth -> Math.max(0, depth - 1));
+                Timer.builder("study_plan.jobs.wait")
+                        .tag("priority", tag(candidate.getPriority()))
+                        .register(meterRegistry)
+                        .record(Duration.between(candidate.getEnqueuedAt(), now));
+                return candidate;
+            }
+            claimingUsers.remove(candidate.getUserEmail());
+        }
+        return null;
+    }
+
+    private void run(StudyPlanJob job) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        StudyPlanJob.Status outcome = StudyPlanJob.Status.DONE;
+        String error = null;
+        try {
+            if (job.getPlanId() != null) {
+                studyPlanService.completeAsyncStudyPlan(
+                        job.getPlanId(),
+                        job.getUserEmail(),
+                        job.getTopic(),
+                        job.getDifficulty(),
+                        job.getDays(),
+                        () -> jobRepository.heartbeat(job.getId(), StudyPlanJob.Status.RUNNING, Instant.now()));
+            } else {
+                studyPlanService.generateStudyPlan(
+                        job.getUserEmail(),
+                        job.getTopic() + " Recovery",
+                        job.getDifficulty(),
+                        job.getDays());
+            }
+            log.info("✅ Finished {} study plan job for {}", tag(job.getPriority()), job.getUserEmail());
+        } catch (Exception e) {
+            outcome = StudyPlanJob.Status.FAILED;
+            error = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            if (error.length() > 500) {
+                error = error.substring(0, 500);
+            }
+            log.error("❌ Study plan job {} failed for {}: {}", job.getId(), job.getUserEmail(), error);
+        }
+        sample.stop(Timer.builder("study_plan.jobs.run")
+                .tag("priority", tag(job.getPriority()))
+                .tag("status", outcome.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry));
+        jobRepository.finish(job.getId(), outcome, Instant.now(), error);
+    }
+
+    private void housekeeping() {
+        long now = System.currentTimeMillis();
+        long last = lastHousekeeping.get();
+        if (now - last < HOUSEKEEPING_INTERVAL.toMillis() || !lastHousekeeping.compareAndSet(last, now)) {
+            return;
+        }
+        Instant staleBefore = Instant.now().minus(staleAfter);
+        int requeued = jobRepository.requeueStale(StudyPlanJob.Status.RUNNING, StudyPlanJob.Status.QUEUED,
+                staleBefore, MAX_ATTEMPTS);
+        int failed = jobRepository.failStale(StudyPlanJob.Status.RUNNING, StudyPlanJob.Status.FAILED, staleBefore,
+                Instant.now());
+        if (requeued > 0 || failed > 0) {
+            log.warn("Recovered stale study plan jobs: {} requeued, {} failed", requeued, failed);
+        }
+        jobRepository.deleteFinishedBefore(Instant.now().minus(FINISHED_RETENTION));
+
+        // Resynchronise the depth gauges with jobs enqueued or claimed by other instances.
+        Map<StudyPlanJobPriority, Long> counts = new EnumMap<>(StudyPlanJobPriority.class);
+        for (Object[] row : jobRepository.countByPriority(StudyPlanJob.Status.QUEUED)) {
+            counts.put((StudyPlanJobPriority) row[0], (Long) row[1]);
+        }
+        queueDepth.forEach((priority, depth) -> depth.set(counts.getOrDefault(priority, 0L)));
+    }
+
+    private StudyPlanJobPriority priorityOf(RecoveryPlanEvent event) {
+        if (event.getPlanId() == null) {
+            return StudyPlanJobPriority.RECOVERY;
+        }
+        return studentRepository.findByEmail(event.getUserEmail())
+                .filter(student -> "PREMIUM".equalsIgnoreCase(student.getSubscriptionStatus()))
+                .map(student -> StudyPlanJobPriority.PREMIUM)
+                .orElse(StudyPlanJobPriority.FREE);
+    }
+
+    private static String dedupKey(RecoveryPlanEvent event) {
+        if (event.getPlanId() != null) {
+            return "plan:" + event.getPlanId();
+        }
+        return "recovery:" + event.getUserEmail() + "|"
+                + String.valueOf(event.getTopic()).trim().toLowerCase(Locale.ROOT) + "|"
+                + String.valueOf(event.getDifficulty()).trim().toLowerCase(Locale.ROOT) + "|"
+                + event.getDays();
+    }
+
+    private static String tag(StudyPlanJobPriority priority) {
+        return priority.name().toLowerCase(Locale.ROOT);
+    }
+}
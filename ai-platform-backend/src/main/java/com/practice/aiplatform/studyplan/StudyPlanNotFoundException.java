@@ -0,0 +1,11 @@
+package com.practice.aiplatform.studyplan;
+
+/** Raised when a study plan does not exist or does not belong to the requesting user. */
+public class StudyPlanNotFoundException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public StudyPlanNotFoundException(String message) {
+        super(message);
+    }
+}
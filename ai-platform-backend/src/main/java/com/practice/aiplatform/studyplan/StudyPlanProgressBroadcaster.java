@@ -0,0 +1,77 @@
+package com.practice.aiplatform.studyplan;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Fans study-plan progress out to SSE subscribers. Plans are generated by whichever instance
+ * consumes the Kafka event, which is rarely the one holding the client's connection, so events are
+ * also relayed over a Redis channel. The Redis subscription is shared and only held while at least
+ * one client on this instance is listening.
+ */
+@Slf4j
+@Component
+public class StudyPlanProgressBroadcaster {
+
+    static final String CHANNEL = "study-plan:progress";
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Sinks.Many<StudyPlanProgressEvent> localEvents = Sinks.many().multicast().directBestEffort();
+    private final Flux<StudyPlanProgressEvent> remoteEvents;
+
+    public StudyPlanProgressBroadcaster(
+            ObjectProvider<ReactiveStringRedisTemplate> redisTemplateProvider,
+            ObjectMapper objectMapper,
+            @Value("${study-plan.progress.redis.enabled:true}") boolean redisEnabled) {
+        this.redisTemplate = redisEnabled ? redisTemplateProvider.getIfAvailable() : null;
+        this.objectMapper = objectMapper;
+        this.remoteEvents = redisTemplate == null ? Flux.empty() : redisTemplate.listenToChannel(CHANNEL)
+                .mapNotNull(message -> read(message.getMessage()))
+                // Our own events were already delivered through the local sink.
+                .filter(event -> !instanceId.equals(event.origin()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .share();
+    }
+
+    public void publish(Long planId, String type, StudyPlanStage stage, Object payload) {
+        StudyPlanProgressEvent event = new StudyPlanProgressEvent(planId, type, stage, payload, instanceId);
+        synchronized (localEvents) {
+            localEvents.tryEmitNext(event);
+        }
+        if (redisTemplate != null) {
+            try {
+                redisTemplate.convertAndSend(CHANNEL, objectMapper.writeValueAsString(event))
+                        .subscribe(receivers -> {
+                        }, ex -> log.warn("Could not relay study plan progress for {}: {}", planId, ex.getMessage()));
+            } catch (Exception e) {
+                log.warn("Could not encode study plan progress for {}: {}", planId, e.getMessage());
+            }
+        }
+    }
+
+    public Flux<StudyPlanProgressEvent> events(Long planId) {
+        return Flux.merge(localEvents.asFlux(), remoteEvents)
+                .filter(event -> planId.equals(event.planId()));
+    }
+
+    private StudyPlanProgressEvent read(String json) {
+        try {
+            return objectMapper.readValue(json, StudyPlanProgressEvent.class);
+        } catch (Exception e) {
+            log.warn("Ignoring malformed study plan progress message: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.practice.aiplatform.studyplan;
+
+/**
+ * One step of an async plan's progress, as pushed to {@code GET /api/study-plans/{id}/events}.
+ * {@code type} is one of {@code stage}, {@code title}, {@code day}, {@code quiz}, {@code finalized}
+ * or {@code failed}; day and quiz events are keyed by day number and item id, so a client can
+ * apply a repeated event idempotently.
+ */
+public record StudyPlanProgressEvent(Long planId, String type, StudyPlanStage stage, Object payload, String origin) {
+
+    public static final String STAGE = "stage";
+    public static final String TITLE = "title";
+    public static final String DAY = "day";
+    public static final String QUIZ = "quiz";
+    public static final String FINALIZED = "finalized";
+    public static final String FAILED = "failed";
+
+    public boolean isTerminal() {
+        return FINALIZED.equals(type) || FAILED.equals(type);
+    }
+}
@@ -3,30 +3,41 @@ package com.practice.aiplatform.studyplan;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.practice.aiplatform.ai.AiJsonContent;
 import com.practice.aiplatform.ai.AiService;
+import com.practice.aiplatform.ai.ExtractedDocument;
+import com.practice.aiplatform.ai.PromptTemplate;
+import com.practice.aiplatform.config.CacheTags;
 import com.practice.aiplatform.event.GamificationEventPublisher;
 import com.practice.aiplatform.event.PracticeCompletedEvent;
 import com.practice.aiplatform.event.RecoveryPlanEvent;
 import com.practice.aiplatform.event.RecoveryPlanEventPublisher;
 import com.practice.aiplatform.user.Student;
 import com.practice.aiplatform.user.StudentRepository;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
-
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Slf4j
 @Service
@@ -35,6 +46,104 @@ public class StudyPlanService {
     private static final int VIDEO_XP = 10;
     private static final int PRACTICE_XP = 50;
     private static final int QUESTIONS_PER_PRACTICE = 5;
+    private static final int LESSON_SEARCH_RESULTS = 15;
+
+    private static final PromptTemplate QUIZ_PROMPT = PromptTemplate.compile("quiz", 1,
+            """
+            Generate exactly {{count}} multiple choice questions for a {{difficulty}} level student on the subject of {{subject}}, specifically on the topic: {{practiceTopic}}.
+
+            Return ONLY valid JSON with this exact structure:
+            {
+              "questions": [
+                {
+                  "question": "The question text",
+                  "optionA": "First option",
+                  "optionB": "Second option",
+                  "optionC": "Third option",
+                  "optionD": "Fourth option",
+                  "correctOption": "A"
+                }
+              ]
+            }
+
+            Rules:
+            - Generate exactly {{count}} questions
+            - Each question must have exactly 4 options (A, B, C, D)
+            - correctOption must be one of: "A", "B", "C", "D"
+            - Questions should test understanding
+            - Do not include Markdown formatting
+            """,
+            "count", "difficulty", "subject", "practiceTopic");
+
+    private static final PromptTemplate VIDEO_LINE_PROMPT = PromptTemplate.compile("plan-video-line", 1,
+            "  {{index}}. videoId=\"{{videoId}}\", title=\"{{title}}\", channel=\"{{channel}}\", duration=\"{{duration}}\"\n",
+            "index", "videoId", "title", "channel", "duration");
+
+    private static final PromptTemplate PLAN_PROMPT = PromptTemplate.compile("plan", 1,
+            """
+            You are an expert curriculum designer. Create a structured study plan for a "{{difficulty}}" level student learning "{{topic}}" over {{durationDays}} days.
+            Strongly prefer longer, in-depth lectures and whiteboard sessions. If the same channel/creator has multiple relevant videos, strongly prefer clustering their videos together to provide a consistent learning experience.
+
+            Here are videos available for this topic:
+            {{{videoList}}}
+
+            Return ONLY valid JSON with this structure:
+            {
+              "title": "Study Plan Title",
+              "description": "Brief description",
+              "days": [
+                {
+                  "dayNumber": 1,
+                  "items": [
+                    {
+                      "type": "VIDEO",
+                      "videoId": "video_id",
+                      "description": "what to focus on",
+                      "practiceTopic": "topic"
+                    },
+                    {
+                      "type": "PRACTICE",
+                      "practiceSubject": "subject",
+                      "practiceTopic": "topic",
+                      "practiceDifficulty": "{{difficulty}}",
+                      "description": "practice description"
+                    }
+                  ]
+                }
+              ]
+            }
+            """,
+            "difficulty", "topic", "durationDays", "videoList");
+
+    private static final PromptTemplate SYLLABUS_PROMPT = PromptTemplate.compile("syllabus-analysis", 1,
+            """
+            Analyze this syllabus and create a {{durationDays}}-day complete study plan.
+            Strongly prefer longer, in-depth lectures and whiteboard sessions. If the same channel/creator has multiple relevant videos, strongly prefer clustering their videos together to provide a consistent learning experience.
+
+            Playlist videos:
+            {{{videoList}}}
+
+            Return ONLY valid JSON:
+            {
+              "title": "{{courseTitle}}",
+              "description": "Description",
+              "difficulty": "Intermediate",
+              "days": [
+                {
+                  "dayNumber": 1,
+                  "lessons": [
+                    {
+                      "title": "Topic",
+                      "videoId": "id_or_null",
+                      "searchQuery": "query_if_needed",
+                      "description": "lesson description"
+                    }
+                  ]
+                }
+              ]
+            }
+            """,
+            "durationDays", "videoList", "courseTitle");
 
     private final AiService aiService;
     private final YouTubeService youTubeService;
@@ -44,9 +153,14 @@ public class StudyPlanService {
     private final StudentRepository studentRepository;
     private final ObjectMapper objectMapper;
     private final CacheManager cacheManager;
+    private final CacheTags cacheTags;
     private final MeterRegistry meterRegistry;
     private final RecoveryPlanEventPublisher recoveryPlanEventPublisher;
     private final GamificationEventPublisher eventPublisher;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final StudyPlanProgressBroadcaster progressBroadcaster;
+    private final int quizConcurrency;
+    private final int videoSearchConcurrency;
     @Lazy
     @Autowired
     private StudyPlanService self;
@@ -60,9 +174,14 @@ public class StudyPlanService {
             StudentRepository studentRepository,
             ObjectMapper objectMapper,
             CacheManager cacheManager,
+            CacheTags cacheTags,
             MeterRegistry meterRegistry,
             RecoveryPlanEventPublisher recoveryPlanEventPublisher,
-            GamificationEventPublisher eventPublisher) {
+            GamificationEventPublisher eventPublisher,
+            BulkheadRegistry bulkheadRegistry,
+            StudyPlanProgressBroadcaster progressBroadcaster,
+            @Value("${study-plan.quiz.concurrency:4}") int quizConcurrency,
+            @Value("${study-plan.video-search.concurrency:4}") int videoSearchConcurrency) {
         this.aiService = aiService;
         this.youTubeService = youTubeService;
         this.studyPlanRepository = studyPlanRepository;
@@ -71,9 +190,14 @@ public class StudyPlanService {
         this.studentRepository = studentRepository;
         this.objectMapper = objectMapper;
         this.cacheManager = cacheManager;
+        this.cacheTags = cacheTags;
         this.meterRegistry = meterRegistry;
         this.recoveryPlanEventPublisher = recoveryPlanEventPublisher;
         this.eventPublisher = eventPublisher;
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.progressBroadcaster = progressBroadcaster;
+        this.quizConcurrency = quizConcurrency;
+        this.videoSearchConcurrency = Math.max(1, videoSearchConcurrency);
     }
 
     public StudyPlan generateStudyPlan(String userEmail, String topic, String difficulty, int durationDays) {
@@ -97,8 +221,8 @@ public class StudyPlanService {
             String aiResponse = aiService.generateStudyPlanContent(prompt);
 
             StudyPlan plan = parseAndSavePlan(aiResponse, student, topic, difficulty, durationDays, videos);
-            generateQuizQuestionsForPlan(plan, topic, difficulty);
-            studyPlanRepository.save(plan); // 👈 Save after attaching questions
+            self.attachQuizQuestions(plan, generateQuizQuestions(practiceItems(plan.getItems()), topic, difficulty),
+                    null);
 
             return plan;
         } catch (RuntimeException ex) {
@@ -110,15 +234,6 @@ public class StudyPlanService {
         }
     }
 
-    @Caching(evict = {
-            @CacheEvict(value = "UserStudyPlansCache", key = "#userEmail"),
-            @CacheEvict(value = "UserStudyPlanSummariesCache", key = "#userEmail"),
-            @CacheEvict(value = "UserStudyPlanStatsCache", key = "#userEmail"),
-            @CacheEvict(value = "UserSuggestedPracticeCache", key = "#userEmail"),
-            @CacheEvict(value = "UserActiveContextCache", key = "#userEmail"),
-            @CacheEvict(value = "UserRecommendationsCache", key = "#userEmail"),
-            @CacheEvict(value = "UserStatisticsRecommendationsCache", key = "#userEmail")
-    })
     public StudyPlan initiateAsyncStudyPlan(String userEmail, String topic, String difficulty, int durationDays) {
         Student student = studentRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new RuntimeException("Student not found"));
@@ -131,6 +246,7 @@ public class StudyPlanService {
         shell.setDurationDays(durationDays);
         shell.setStudent(student);
         shell.setGenerating(true);
+        shell.setGenerationStage(StudyPlanStage.PENDING);
         shell.setTitle("Generating: " + topic + "...");
         shell.setDescription(
                 "We are currently curating your personalized study plan. This usually takes 30-60 seconds.");
@@ -147,49 +263,275 @@ public class StudyPlanService {
                 .planId(saved.getId())
                 .build());
 
+        cacheTags.invalidate(CacheTags.plans(userEmail));
         return saved;
     }
 
-    // --- REFACTOR: Moved generation calls outside of @Transactional to prevent DB
-    // connection starvation ---
+    /**
+     * Runs the remaining generation stages of an async plan. Upstream calls run outside any
+     * transaction; each stage's output is checkpointed on the plan in a short transaction, so a
+     * retry of a failed plan picks up after the last completed stage. {@code heartbeat} runs after
+     * every checkpoint. A failure marks the plan failed and is rethrown to the caller.
+     */
     public void completeAsyncStudyPlan(Long planId, String userEmail, String topic, String difficulty,
-            int durationDays) {
+            int durationDays, Runnable heartbeat) {
         try {
-            int maxVideos = Math.min(durationDays * 3, 25);
-            List<Map<String, String>> videos = youTubeService.searchVideos(topic + " " + difficulty,
-                    maxVideos);
+            StudyPlan plan = studyPlanRepository.findById(planId)
+                    .orElseThrow(() -> new RuntimeException("Study Plan shell not found"));
+            StudyPlanStage stage = plan.getGenerationStage() != null ? plan.getGenerationStage()
+                    : StudyPlanStage.PENDING;
+            GenerationCheckpoint checkpoint = readCheckpoint(plan.getGenerationCheckpoint());
+            if (stage == StudyPlanStage.VIDEOS_FETCHED && checkpoint.videos() == null) {
+                stage = StudyPlanStage.PENDING;
+            }
+            if (stage != StudyPlanStage.PENDING) {
+                meterRegistry.counter("study_plan.stage.resumed", "stage", stage.name()).increment();
+            }
 
-            if (videos.isEmpty()) {
-                throw new RuntimeException("No videos found for the topic: " + topic);
+            if (stage == StudyPlanStage.PENDING) {
+                Timer.Sample sample = Timer.start(meterRegistry);
+                int maxVideos = Math.min(durationDays * 3, 25);
+                List<Map<String, String>> videos = youTubeService.searchVideos(topic + " " + difficulty,
+                        maxVideos);
+
+                if (videos.isEmpty()) {
+                    throw new RuntimeException("No videos found for the topic: " + topic);
+                }
+
+                checkpoint = new GenerationCheckpoint(videos, null);
+                self.saveCheckpoint(planId, StudyPlanStage.VIDEOS_FETCHED, writeCheckpoint(checkpoint));
+                stage = completeStage(sample, StudyPlanStage.VIDEOS_FETCHED);
+                heartbeat.run();
+                progressBroadcaster.publish(planId, StudyPlanProgressEvent.STAGE, stage, null);
             }
 
-            String prompt = createPrompt(topic, difficulty, durationDays, videos);
-            String aiResponse = aiService.generateStudyPlanContent(prompt);
+            if (stage == StudyPlanStage.VIDEOS_FETCHED) {
+                Timer.Sample sample = Timer.start(meterRegistry);
+                List<Map<String, String>> videos = checkpoint.videos();
+                String prompt = createPrompt(topic, difficulty, durationDays, videos);
+                String aiResponse = aiService.generateStudyPlanContent(prompt);
+
+                // The outline is kept so a resumed plan can restore its title after a failure.
+                checkpoint = new GenerationCheckpoint(null, aiResponse);
+                StudyPlan outlined = self.savePlanItems(planId, aiResponse, topic, difficulty, durationDays, videos,
+                        writeCheckpoint(checkpoint));
+                stage = completeStage(sample, StudyPlanStage.OUTLINE_GENERATED);
+                heartbeat.run();
+                for (StudyPlanProgressEvent event : outlineEvents(outlined, stage, Map.of())) {
+                    progressBroadcaster.publish(planId, event.type(), stage, event.payload());
+                }
+            }
 
-            // Persist the results in a short-lived transaction
-            self.saveAndFinalizePlan(planId, aiResponse, topic, difficulty, durationDays, videos);
+            if (stage == StudyPlanStage.OUTLINE_GENERATED) {
+                Timer.Sample sample = Timer.start(meterRegistry);
+                StudyPlan withItems = studyPlanRepository.findWithItemsById(planId);
+                List<StudyPlanItem> pending = practiceItemsWithoutQuiz(withItems.getItems());
+                Map<Long, List<QuizQuestion>> quizzes = generateQuizQuestions(pending, topic, difficulty);
+                // Quizzes that did succeed are kept; the stage only completes once every item has one,
+                // so a resumed run generates just the missing quizzes.
+                boolean complete = quizzes.size() == pending.size();
+                self.attachQuizQuestions(withItems, quizzes, complete ? StudyPlanStage.QUIZZES_GENERATED : null);
+                StudyPlanStage quizStage = complete ? completeStage(sample, StudyPlanStage.QUIZZES_GENERATED) : stage;
+                heartbeat.run();
+                for (Map.Entry<Long, List<QuizQuestion>> quiz : quizzes.entrySet()) {
+                    progressBroadcaster.publish(planId, StudyPlanProgressEvent.QUIZ, quizStage,
+                            Map.of("itemId", quiz.getKey(), "questions", toQuizQuestionDtos(quiz.getValue())));
+                }
+                if (!complete) {
+                    throw new RuntimeException("Quiz generation failed for " + (pending.size() - quizzes.size())
+                            + " of " + pending.size() + " practice items");
+                }
+                stage = quizStage;
+            }
 
-        } catch (Exception e) {
+            if (stage == StudyPlanStage.QUIZZES_GENERATED) {
+                Timer.Sample sample = Timer.start(meterRegistry);
+                StudyPlan finalized = self.finalizePlan(planId, checkpoint.outline(), topic);
+                completeStage(sample, StudyPlanStage.FINALIZED);
+                progressBroadcaster.publish(planId, StudyPlanProgressEvent.TITLE, StudyPlanStage.FINALIZED,
+                        titlePayload(finalized));
+                progressBroadcaster.publish(planId, StudyPlanProgressEvent.FINALIZED, StudyPlanStage.FINALIZED, null);
+            }
+        } catch (RuntimeException e) {
             log.error("Failed async study plan for {}: {}", userEmail, e.getMessage());
             self.markPlanAsFailed(planId, e.getMessage());
+            progressBroadcaster.publish(planId, StudyPlanProgressEvent.FAILED, null,
+                    Map.of("message", String.valueOf(e.getMessage())));
+            throw e;
         } finally {
             // Evict caches after completion (success or failure)
-            evictAllUserCaches(userEmail);
-            evictOwnedStudyPlanByIdCache(userEmail, planId);
+            cacheTags.invalidate(CacheTags.plans(userEmail), CacheTags.plan(planId));
         }
     }
 
+    /**
+     * Restarts generation of a failed async plan from its last checkpoint. Plans that finished, are
+     * still generating, or were generated synchronously cannot be resumed.
+     */
     @Transactional
-    public void saveAndFinalizePlan(Long planId, String aiResponse, String topic, String difficulty,
-            int durationDays, List<Map<String, String>> videos) {
+    public StudyPlan resumeStudyPlan(Long planId, String userEmail) {
+        StudyPlan plan = getOwnedStudyPlan(planId, userEmail);
+        if (plan.isGenerating() || plan.getGenerationStage() == null
+                || plan.getGenerationStage() == StudyPlanStage.FINALIZED) {
+            throw new RuntimeException("This study plan cannot be resumed");
+        }
+
+        plan.setGenerating(true);
+        plan.setTitle("Generating: " + plan.getTopic() + "...");
+        plan.setDescription(
+                "We are resuming your personalized study plan from where it stopped.");
+        StudyPlan saved = studyPlanRepository.save(plan);
+
+        recoveryPlanEventPublisher.publishRecoveryPlanEvent(RecoveryPlanEvent.builder()
+                .userEmail(userEmail)
+                .topic(plan.getTopic())
+                .difficulty(plan.getDifficulty())
+                .days(plan.getDurationDays())
+                .planId(plan.getId())
+                .build());
+
+        cacheTags.invalidate(CacheTags.plans(userEmail), CacheTags.plan(planId));
+        return saved;
+    }
+
+    @Transactional
+    public void saveCheckpoint(Long planId, StudyPlanStage stage, String checkpoint) {
+        StudyPlan plan = studyPlanRepository.findById(planId)
+                .orElseThrow(() -> new RuntimeException("Study Plan shell not found"));
+        plan.setGenerationStage(stage);
+        plan.setGenerationCheckpoint(checkpoint);
+    }
+
+    /** Saves the plan's items; the plan stays in the generating state until it is finalized. */
+    @Transactional
+    public StudyPlan savePlanItems(Long planId, String aiResponse, String topic, String difficulty,
+            int durationDays, List<Map<String, String>> videos, String checkpoint) {
         StudyPlan plan = studyPlanRepository.findById(planId)
                 .orElseThrow(() -> new RuntimeException("Study Plan shell not found"));
 
         updateExistingPlan(plan, aiResponse, topic, difficulty, durationDays, videos);
-        generateQuizQuestionsForPlan(plan, topic, difficulty);
+        plan.setGenerationStage(StudyPlanStage.OUTLINE_GENERATED);
+        plan.setGenerationCheckpoint(checkpoint);
+        return studyPlanRepository.saveAndFlush(plan);
+    }
 
+    /**
+     * Persists generated quizzes in one insert batch. {@code plan} may be detached: its items are
+     * only used for their ids, and get the new questions added to their in-memory lists. A non-null
+     * {@code completedStage} is recorded on the plan in the same transaction.
+     */
+    @Transactional
+    public void attachQuizQuestions(StudyPlan plan, Map<Long, List<QuizQuestion>> questionsByItem,
+            StudyPlanStage completedStage) {
+        List<QuizQuestion> questions = new ArrayList<>();
+        for (StudyPlanItem item : plan.getItems()) {
+            List<QuizQuestion> itemQuestions = questionsByItem.get(item.getId());
+            if (itemQuestions == null) {
+                continue;
+            }
+            for (QuizQuestion question : itemQuestions) {
+                question.setStudyPlanItem(item);
+            }
+            questions.addAll(itemQuestions);
+            item.getQuizQuestions().addAll(itemQuestions);
+        }
+        quizQuestionRepository.saveAll(questions);
+
+        if (completedStage != null) {
+            studyPlanRepository.findById(plan.getId())
+                    .ifPresent(managed -> managed.setGenerationStage(completedStage));
+        }
+    }
+
+    @Transactional
+    public StudyPlan finalizePlan(Long planId, String outline, String topic) {
+        StudyPlan plan = studyPlanRepository.findById(planId)
+                .orElseThrow(() -> new RuntimeException("Study Plan shell not found"));
+        if (outline != null) {
+            // A failure after the outline stage overwrote the title; restore it from the checkpoint.
+            JsonNode root = parseJson(outline);
+            plan.setTitle(root.path("title").asText("Study Plan: " + topic));
+            plan.setDescription(root.path("description").asText(""));
+        }
         plan.setGenerating(false);
-        studyPlanRepository.save(plan);
+        plan.setGenerationStage(StudyPlanStage.FINALIZED);
+        plan.setGenerationCheckpoint(null);
+        return plan;
+    }
+
+    /**
+     * Progress of an async plan as a stream: everything that has already landed is replayed from the
+     * database first, then live events follow until the plan is finalized or fails. Live events are
+     * buffered from before the snapshot is read, so an event can be delivered twice but never lost.
+     */
+    public Flux<StudyPlanProgressEvent> streamProgress(Long planId, String userEmail) {
+        return Flux.defer(() -> {
+            AtomicReference<Disposable> liveConnection = new AtomicReference<>();
+            Flux<StudyPlanProgressEvent> live = progressBroadcaster.events(planId)
+                    .replay()
+                    .autoConnect(0, liveConnection::set);
+
+            return Mono.fromCallable(() -> self.getProgressSnapshot(planId, userEmail))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMapMany(snapshot -> {
+                        Flux<StudyPlanProgressEvent> replayed = Flux.fromIterable(snapshot);
+                        if (!snapshot.isEmpty() && snapshot.get(snapshot.size() - 1).isTerminal()) {
+                            return replayed;
+                        }
+                        return replayed.concatWith(live.takeUntil(StudyPlanProgressEvent::isTerminal));
+                    })
+                    .doFinally(signal -> {
+                        Disposable connection = liveConnection.get();
+                        if (connection != null) {
+                            connection.dispose();
+                        }
+                    });
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public List<StudyPlanProgressEvent> getProgressSnapshot(Long planId, String userEmail) {
+        StudyPlan plan = getOwnedStudyPlanWithItems(planId, userEmail);
+        StudyPlanStage stage = plan.getGenerationStage();
+        List<StudyPlanProgressEvent> events = new ArrayList<>();
+
+        if (plan.isGenerating()) {
+            events.add(new StudyPlanProgressEvent(planId, StudyPlanProgressEvent.STAGE, stage, null, null));
+        }
+        if (!plan.getItems().isEmpty()) {
+            events.addAll(outlineEvents(plan, stage, quizQuestionsByItemId(plan.getItems())));
+        }
+        if (!plan.isGenerating()) {
+            boolean failed = stage != null && stage != StudyPlanStage.FINALIZED;
+            events.add(new StudyPlanProgressEvent(planId,
+                    failed ? StudyPlanProgressEvent.FAILED : StudyPlanProgressEvent.FINALIZED, stage,
+                    failed ? Map.of("message", String.valueOf(plan.getDescription())) : null, null));
+        }
+        return events;
+    }
+
+    private List<StudyPlanProgressEvent> outlineEvents(StudyPlan plan, StudyPlanStage stage,
+            Map<Long, List<QuizQuestion>> questionsByItemId) {
+        List<StudyPlanProgressEvent> events = new ArrayList<>();
+        events.add(new StudyPlanProgressEvent(plan.getId(), StudyPlanProgressEvent.TITLE, stage, titlePayload(plan),
+                null));
+
+        Map<Integer, List<StudyPlanItemDto>> itemsByDay = new TreeMap<>();
+        for (StudyPlanItem item : plan.getItems()) {
+            itemsByDay.computeIfAbsent(item.getDayNumber(), day -> new ArrayList<>())
+                    .add(toItemDto(item, questionsByItemId.getOrDefault(item.getId(), List.of())));
+        }
+        for (Map.Entry<Integer, List<StudyPlanItemDto>> day : itemsByDay.entrySet()) {
+            events.add(new StudyPlanProgressEvent(plan.getId(), StudyPlanProgressEvent.DAY, stage,
+                    Map.of("dayNumber", day.getKey(), "items", day.getValue()), null));
+        }
+        return events;
+    }
+
+    private Map<String, Object> titlePayload(StudyPlan plan) {
+        return Map.of(
+                "title", String.valueOf(plan.getTitle()),
+                "description", plan.getDescription() == null ? "" : plan.getDescription());
     }
 
     @Transactional
@@ -205,8 +547,7 @@ public class StudyPlanService {
     private void updateExistingPlan(StudyPlan plan, String aiResponse, String topic, String difficulty,
             int durationDays, List<Map<String, String>> videos) {
         try {
-            String cleanJson = aiResponse.replace("```json", "").replace("```", "").trim();
-            JsonNode root = objectMapper.readTree(cleanJson);
+            JsonNode root = AiJsonContent.readTree(objectMapper, aiResponse);
 
             Map<String, Map<String, String>> videoMap = new HashMap<>();
             for (Map<String, String> video : videos) {
@@ -269,22 +610,6 @@ public class StudyPlanService {
         }
     }
 
-    private void evictAllUserCaches(String userEmail) {
-        Cache plansCache = cacheManager.getCache("UserStudyPlansCache");
-        Cache summariesCache = cacheManager.getCache("UserStudyPlanSummariesCache");
-        Cache statsCache = cacheManager.getCache("UserStudyPlanStatsCache");
-        Cache activeContextCache = cacheManager.getCache("UserActiveContextCache");
-
-        if (plansCache != null)
-            plansCache.evict(userEmail);
-        if (summariesCache != null)
-            summariesCache.evict(userEmail);
-        if (statsCache != null)
-            statsCache.evict(userEmail);
-        if (activeContextCache != null)
-            activeContextCache.evict(userEmail);
-    }
-
     private void enforceDailyLimitForFreeUsers(Student student) {
         if (!"FREE".equals(student.getSubscriptionStatus())) {
             return;
@@ -299,67 +624,109 @@ public class StudyPlanService {
         }
     }
 
-    private void generateQuizQuestionsForPlan(StudyPlan plan, String topic, String difficulty) {
-        List<StudyPlanItem> items = plan.getItems();
+    /**
+     * Generates a quiz for every PRACTICE item concurrently, outside any transaction, so plan
+     * completion takes about as long as the slowest quiz rather than the sum of all of them. Quizzes
+     * use the aiQuiz bulkhead and the fan-out stays within it; an item whose quiz fails is missing
+     * from the result.
+     */
+    private Map<Long, List<QuizQuestion>> generateQuizQuestions(List<StudyPlanItem> practiceItems, String topic,
+            String difficulty) {
+        if (practiceItems.isEmpty()) {
+            return Map.of();
+        }
 
-        for (StudyPlanItem item : items) {
-            if (!"PRACTICE".equals(item.getItemType())) {
-                continue;
-            }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Map<Long, List<QuizQuestion>> questionsByItem = Flux.fromIterable(practiceItems)
+                .flatMap(item -> {
+                    String subject = item.getPracticeSubject() != null ? item.getPracticeSubject() : topic;
+                    String practiceTopic = item.getPracticeTopic() != null ? item.getPracticeTopic() : topic;
+                    String level = item.getPracticeDifficulty() != null ? item.getPracticeDifficulty() : difficulty;
+
+                    return aiService.generateQuizContentAsync(createQuizPrompt(subject, practiceTopic, level))
+                            .map(quizResponse -> Map.entry(item.getId(), parseQuizQuestions(quizResponse)))
+                            .onErrorResume(e -> {
+                                log.warn("Failed to generate quiz for item {}: {}", item.getId(), e.getMessage());
+                                return Mono.empty();
+                            });
+                }, quizConcurrency())
+                .filter(entry -> !entry.getValue().isEmpty())
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .block();
+
+        sample.stop(meterRegistry.timer("study_plan.quiz.generate.duration"));
+        meterRegistry.counter("study_plan.quiz.generate.count", "status", "success")
+                .increment(questionsByItem.size());
+        meterRegistry.counter("study_plan.quiz.generate.count", "status", "error")
+                .increment(practiceItems.size() - questionsByItem.size());
+        return questionsByItem;
+    }
+
+    private List<StudyPlanItem> practiceItems(List<StudyPlanItem> items) {
+        return items.stream()
+                .filter(item -> "PRACTICE".equals(item.getItemType()))
+                .toList();
+    }
+
+    /** On a resumed run, quizzes that were already saved are not generated again. */
+    private List<StudyPlanItem> practiceItemsWithoutQuiz(List<StudyPlanItem> items) {
+        List<StudyPlanItem> practiceItems = practiceItems(items);
+        if (practiceItems.isEmpty()) {
+            return practiceItems;
+        }
+        Set<Long> withQuiz = new HashSet<>();
+        for (QuizQuestion question : quizQuestionRepository.findByStudyPlanItemIdIn(
+                practiceItems.stream().map(StudyPlanItem::getId).toList())) {
+            withQuiz.add(question.getStudyPlanItem().getId());
+        }
+        return practiceItems.stream()
+                .filter(item -> !withQuiz.contains(item.getId()))
+                .toList();
+    }
 
-            try {
-                String subject = item.getPracticeSubject() != null ? item.getPracticeSubject() : topic;
-                String practiceTopic = item.getPracticeTopic() != null ? item.getPracticeTopic() : topic;
-                String level = item.getPracticeDifficulty() != null ? item.getPracticeDifficulty() : difficulty;
+    private StudyPlanStage completeStage(Timer.Sample sample, StudyPlanStage stage) {
+        sample.stop(meterRegistry.timer("study_plan.stage.duration", "stage", stage.name()));
+        return stage;
+    }
 
-                String quizPrompt = createQuizPrompt(subject, practiceTopic, level);
-                String quizResponse = aiService.generatePracticeContent(quizPrompt);
+    private GenerationCheckpoint readCheckpoint(String json) {
+        if (json == null || json.isBlank()) {
+            return new GenerationCheckpoint(null, null);
+        }
+        try {
+            return objectMapper.readValue(json, GenerationCheckpoint.class);
+        } catch (Exception e) {
+            log.warn("Discarding unreadable study plan checkpoint: {}", e.getMessage());
+            return new GenerationCheckpoint(null, null);
+        }
+    }
 
-                List<QuizQuestion> questions = parseQuizQuestions(quizResponse, item);
-                if (!questions.isEmpty()) {
-                    item.getQuizQuestions().addAll(questions); // 👈 Let JPA cascade save
-                }
-            } catch (Exception e) {
-                System.err.println("Failed to generate quiz for item " + item.getId() + ": " + e.getMessage());
-            }
+    private String writeCheckpoint(GenerationCheckpoint checkpoint) {
+        try {
+            return objectMapper.writeValueAsString(checkpoint);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to write study plan checkpoint: " + e.getMessage(), e);
         }
     }
 
-    private String createQuizPrompt(String subject, String practiceTopic, String difficulty) {
-        return String.format(
-                """
-                        Generate exactly %d multiple choice questions for a %s level student on the subject of %s, specifically on the topic: %s.
-
-                        Return ONLY valid JSON with this exact structure:
-                        {
-                          "questions": [
-                            {
-                              "question": "The question text",
-                              "optionA": "First option",
-                              "optionB": "Second option",
-                              "optionC": "Third option",
-                              "optionD": "Fourth option",
-                              "correctOption": "A"
-                            }
-                          ]
-                        }
+    record GenerationCheckpoint(List<Map<String, String>> videos, String outline) {
+    }
+
+    private int quizConcurrency() {
+        // With a zero max-wait bulkhead, going past its permits would just turn quizzes into rejections.
+        int bulkheadLimit = bulkheadRegistry.bulkhead("aiQuiz").getBulkheadConfig().getMaxConcurrentCalls();
+        return Math.max(1, Math.min(quizConcurrency, bulkheadLimit));
+    }
 
-                        Rules:
-                        - Generate exactly %d questions
-                        - Each question must have exactly 4 options (A, B, C, D)
-                        - correctOption must be one of: "A", "B", "C", "D"
-                        - Questions should test understanding
-                        - Do not include Markdown formatting
-                        """,
-                QUESTIONS_PER_PRACTICE, difficulty, subject, practiceTopic, QUESTIONS_PER_PRACTICE);
+    private String createQuizPrompt(String subject, String practiceTopic, String difficulty) {
+        return QUIZ_PROMPT.render(QUESTIONS_PER_PRACTICE, difficulty, subject, practiceTopic);
     }
 
-    private List<QuizQuestion> parseQuizQuestions(String jsonResponse, StudyPlanItem item) {
+    private List<QuizQuestion> parseQuizQuestions(String jsonResponse) {
         List<QuizQuestion> questions = new ArrayList<>();
 
         try {
-            String cleanJson = jsonResponse.replace("```json", "").replace("```", "").trim();
-            JsonNode root = objectMapper.readTree(cleanJson);
+            JsonNode root = AiJsonContent.readTree(objectMapper, jsonResponse);
             JsonNode questionsNode = root.path("questions");
 
             if (!questionsNode.isArray()) {
@@ -374,7 +741,6 @@ public class StudyPlanService {
                 q.setOptionC(qNode.path("optionC").asText(""));
                 q.setOptionD(qNode.path("optionD").asText(""));
                 q.setCorrectOption(qNode.path("correctOption").asText("A").toUpperCase());
-                q.setStudyPlanItem(item);
                 questions.add(q);
             }
         } catch (Exception e) {
@@ -395,18 +761,6 @@ public class StudyPlanService {
     public record QuestionResult(Long questionId, String correctOption, boolean isCorrect) {
     }
 
-    @Caching(evict = {
-            @CacheEvict(value = "UserStudyPlansCache", key = "#userEmail"),
-            @CacheEvict(value = "UserStudyPlanSummariesCache", key = "#userEmail"),
-            @CacheEvict(value = "UserStudyPlanStatsCache", key = "#userEmail"),
-            @CacheEvict(value = "UserActiveContextCache", key = "#userEmail"),
-            @CacheEvict(value = "UserSuggestedPracticeCache", key = "#userEmail"),
-            @CacheEvict(value = "UserRecommendationsCache", key = "#userEmail"),
-            @CacheEvict(value = "UserStatisticsRecommendationsCache", key = "#userEmail"),
-            @CacheEvict(value = "StudyPlanByIdCache", key = "#userEmail + '-' + #planId"),
-            @CacheEvict(value = "StudyPlanQuizQuestionsCache", key = "#userEmail + '-' + #planId + '-' + #itemId"),
-            @CacheEvict(value = "LeaderboardCache", allEntries = true)
-    })
     public QuizResult submitQuizAnswers(Long planId, Long itemId, Map<Long, String> answers, String userEmail) {
         StudyPlan plan = getOwnedStudyPlan(planId, userEmail);
 
@@ -465,10 +819,11 @@ public class StudyPlanService {
             eventPublisher.publishPracticeCompletedEvent(event);
         }
 
+        cacheTags.invalidate(CacheTags.plans(userEmail), CacheTags.plan(planId), CacheTags.LEADERBOARD);
         return new QuizResult(questions.size(), correctCount, xpEarned, passed, results);
     }
 
-    @Cacheable(value = "StudyPlanQuizQuestionsCache", key = "#userEmail + '-' + #planId + '-' + #itemId", sync = true)
+    @Cacheable(value = "StudyPlanQuizQuestionsCache", key = "#userEmail + '|' + #planId + '|' + #itemId", sync = true)
     public List<QuizQuestion> getQuizQuestions(Long planId, Long itemId, String userEmail) {
         StudyPlan plan = getOwnedStudyPlan(planId, userEmail);
 
@@ -487,17 +842,6 @@ public class StudyPlanService {
         return quizQuestionRepository.findByStudyPlanItemId(itemId);
     }
 
-    @Caching(evict = {
-            @CacheEvict(value = "UserStudyPlansCache", key = "#userEmail"),
-            @CacheEvict(value = "UserStudyPlanSummariesCache", key = "#userEmail"),
-            @CacheEvict(value = "UserStudyPlanStatsCache", key = "#userEmail"),
-            @CacheEvict(value = "UserActiveContextCache", key = "#userEmail"),
-            @CacheEvict(value = "UserSuggestedPracticeCache", key = "#userEmail"),
-            @CacheEvict(value = "UserRecommendationsCache", key = "#userEmail"),
-            @CacheEvict(value = "UserStatisticsRecommendationsCache", key = "#userEmail"),
-            @CacheEvict(value = "StudyPlanByIdCache", key = "#userEmail + '-' + #planId"),
-            @CacheEvict(value = "LeaderboardCache", allEntries = true)
-    })
     public StudyPlanItem markItemComplete(Long planId, Long itemId, String userEmail) {
         StudyPlan plan = getOwnedStudyPlan(planId, userEmail);
 
@@ -532,6 +876,7 @@ public class StudyPlanService {
             studyPlanRepository.save(plan);
         }
 
+        cacheTags.invalidate(CacheTags.plans(userEmail), CacheTags.plan(planId), CacheTags.LEADERBOARD);
         return item;
     }
 
@@ -602,7 +947,7 @@ public class StudyPlanService {
         return studyPlanRepository.findSummariesByStudentId(student.getId(), PageRequest.of(0, 50));
     }
 
-    @Cacheable(value = "StudyPlanByIdCache", key = "#userEmail + '-' + #id", sync = true)
+    @Cacheable(value = "StudyPlanByIdCache", key = "#userEmail + '|' + #id", sync = true)
     @Transactional(readOnly = true)
     public StudyPlanDetailDto getStudyPlan(Long id, String userEmail) {
         StudyPlan plan = getOwnedStudyPlanWithItems(id, userEmail);
@@ -610,50 +955,15 @@ public class StudyPlanService {
     }
 
     private String createPrompt(String topic, String difficulty, int durationDays, List<Map<String, String>> videos) {
-        StringBuilder videoList = new StringBuilder();
+        StringBuilder videoList = new StringBuilder(videos.size() * 96);
 
         for (int i = 0; i < videos.size(); i++) {
             Map<String, String> v = videos.get(i);
-            videoList.append(String.format(
-                    "  %d. videoId=\"%s\", title=\"%s\", channel=\"%s\", duration=\"%s\"\n",
-                    i + 1, v.get("videoId"), v.get("title"), v.get("channelTitle"), v.get("duration")));
-        }
-
-        return String.format(
-                """
-                        You are an expert curriculum designer. Create a structured study plan for a "%s" level student learning "%s" over %d days.
-                        Strongly prefer longer, in-depth lectures and whiteboard sessions. If the same channel/creator has multiple relevant videos, strongly prefer clustering their videos together to provide a consistent learning experience.
-
-                        Here are videos available for this topic:
-                        %s
-
-                        Return ONLY valid JSON with this structure:
-                        {
-                          "title": "Study Plan Title",
-                          "description": "Brief description",
-                          "days": [
-                            {
-                              "dayNumber": 1,
-                              "items": [
-                                {
-                                  "type": "VIDEO",
-                                  "videoId": "video_id",
-                                  "description": "what to focus on",
-                                  "practiceTopic": "topic"
-                                },
-                                {
-                                  "type": "PRACTICE",
-                                  "practiceSubject": "subject",
-                                  "practiceTopic": "topic",
-                                  "practiceDifficulty": "%s",
-                                  "description": "practice description"
-                                }
-                              ]
-                            }
-                          ]
-                        }
-                        """,
-                difficulty, topic, durationDays, videoList.toString(), difficulty);
+            VIDEO_LINE_PROMPT.appendTo(videoList,
+                    i + 1, v.get("videoId"), v.get("title"), v.get("channelTitle"), v.get("duration"));
+        }
+
+        return PLAN_PROMPT.render(difficulty, topic, durationDays, videoList);
     }
 
     private StudyPlan parseAndSavePlan(
@@ -665,8 +975,7 @@ public class StudyPlanService {
             List<Map<String, String>> videos) {
 
         try {
-            String cleanJson = jsonResponse.replace("```json", "").replace("```", "").trim();
-            JsonNode root = objectMapper.readTree(cleanJson);
+            JsonNode root = AiJsonContent.readTree(objectMapper, jsonResponse);
 
             Map<String, Map<String, String>> videoMap = new HashMap<>();
             for (Map<String, String> video : videos) {
@@ -742,20 +1051,10 @@ public class StudyPlanService {
         }
     }
 
-    @Caching(evict = {
-            @CacheEvict(value = "UserStudyPlansCache", key = "#userEmail"),
-            @CacheEvict(value = "UserStudyPlanSummariesCache", key = "#userEmail"),
-            @CacheEvict(value = "UserStudyPlanStatsCache", key = "#userEmail"),
-            @CacheEvict(value = "UserSuggestedPracticeCache", key = "#userEmail"),
-            @CacheEvict(value = "UserActiveContextCache", key = "#userEmail"),
-            @CacheEvict(value = "UserRecommendationsCache", key = "#userEmail"),
-            @CacheEvict(value = "UserStatisticsRecommendationsCache", key = "#userEmail"),
-            @CacheEvict(value = "StudyPlanByIdCache", key = "#userEmail + '-' + #id")
-    })
     public void deleteStudyPlan(Long id, String userEmail) {
         StudyPlan plan = getOwnedStudyPlan(id, userEmail);
-        evictOwnedQuizQuestionCaches(userEmail, plan);
         studyPlanRepository.delete(plan);
+        cacheTags.invalidate(CacheTags.plans(userEmail), CacheTags.plan(id));
     }
 
     @JsonTypeInfo(use = JsonTypeInfo.Id.CLASS, include = JsonTypeInfo.As.PROPERTY, property = "@class")
@@ -782,16 +1081,6 @@ public class StudyPlanService {
                 nextItem.getId());
     }
 
-    @Caching(evict = {
-            @CacheEvict(value = "UserStudyPlansCache", key = "#userEmail"),
-            @CacheEvict(value = "UserStudyPlanSummariesCache", key = "#userEmail"),
-            @CacheEvict(value = "UserStudyPlanStatsCache", key = "#userEmail"),
-            @CacheEvict(value = "UserSuggestedPracticeCache", key = "#userEmail"),
-            @CacheEvict(value = "UserActiveContextCache", key = "#userEmail"),
-            @CacheEvict(value = "UserRecommendationsCache", key = "#userEmail"),
-            @CacheEvict(value = "UserStatisticsRecommendationsCache", key = "#userEmail"),
-            @CacheEvict(value = "LeaderboardCache", allEntries = true)
-    })
     public int markExternalPracticeAsComplete(String userEmail, String topic, String difficulty) {
         Student student = studentRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new RuntimeException("Student not found"));
@@ -815,9 +1104,11 @@ public class StudyPlanService {
         }
 
         studentRepository.save(student);
+        List<String> tags = new ArrayList<>(List.of(CacheTags.plans(userEmail), CacheTags.LEADERBOARD));
         for (Long planId : touchedPlanIds) {
-            evictOwnedStudyPlanByIdCache(userEmail, planId);
+            tags.add(CacheTags.plan(planId));
         }
+        cacheTags.invalidate(tags.toArray(String[]::new));
         return completed;
     }
 
@@ -843,16 +1134,7 @@ public class StudyPlanService {
             String practiceDifficulty) {
     }
 
-    @Caching(evict = {
-            @CacheEvict(value = "UserStudyPlansCache", key = "#userEmail"),
-            @CacheEvict(value = "UserStudyPlanSummariesCache", key = "#userEmail"),
-            @CacheEvict(value = "UserStudyPlanStatsCache", key = "#userEmail"),
-            @CacheEvict(value = "UserSuggestedPracticeCache", key = "#userEmail"),
-            @CacheEvict(value = "UserActiveContextCache", key = "#userEmail"),
-            @CacheEvict(value = "UserRecommendationsCache", key = "#userEmail"),
-            @CacheEvict(value = "UserStatisticsRecommendationsCache", key = "#userEmail")
-    })
-    public StudyPlan generateStudyPlanFromSyllabus(String userEmail, MultipartFile file, int durationDays) {
+    public StudyPlan generateStudyPlanFromSyllabus(String userEmail, ExtractedDocument document, int durationDays) {
         Timer.Sample sample = Timer.start(meterRegistry);
         String status = "success";
         Student student = studentRepository.findByEmail(userEmail)
@@ -861,12 +1143,18 @@ public class StudyPlanService {
         try {
             enforceDailyLimitForFreeUsers(student);
 
-            String mimeType = file.getContentType();
-            byte[] fileData;
-            try {
-                fileData = file.getBytes();
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to read uploaded file.", e);
+            String skeletonKey = syllabusSkeletonKey(document, durationDays);
+            SyllabusPlanSkeleton skeleton = cachedSyllabusSkeleton(skeletonKey);
+            meterRegistry.counter("study_plan.syllabus_skeleton.cache", "result", skeleton != null ? "hit" : "miss")
+                    .increment();
+            if (skeleton != null) {
+                StudyPlan plan = skeleton.newPlan();
+                plan.setStudent(student);
+                plan.setCreatedAt(LocalDateTime.now());
+                StudyPlan savedPlan = studyPlanRepository.save(plan);
+                self.attachQuizQuestions(savedPlan, skeleton.questionsFor(savedPlan.getItems()), null);
+                cacheTags.invalidate(CacheTags.plans(userEmail));
+                return savedPlan;
             }
 
             String preAnalysisPrompt = """
@@ -878,7 +1166,7 @@ public class StudyPlanService {
                     }
                     """;
 
-            String preAnalysisResponse = aiService.generateStudyPlanContent(preAnalysisPrompt, mimeType, fileData);
+            String preAnalysisResponse = aiService.generateStudyPlanContent(preAnalysisPrompt, document);
             JsonNode preNode = parseJson(preAnalysisResponse);
 
             String courseTitle = preNode.path("title").asText("Custom Course");
@@ -886,8 +1174,9 @@ public class StudyPlanService {
 
             List<Map<String, String>> playlistVideos = new ArrayList<>();
             List<Map<String, String>> foundPlaylists = youTubeService.searchPlaylists(playlistQuery, 2);
-            if (!foundPlaylists.isEmpty()) {
-                playlistVideos = youTubeService.getPlaylistItems(foundPlaylists.get(0).get("playlistId"), 50);
+            String playlistId = foundPlaylists.isEmpty() ? null : foundPlaylists.get(0).get("playlistId");
+            if (playlistId != null) {
+                playlistVideos = youTubeService.getPlaylistItems(playlistId, 50);
             }
 
             StringBuilder videoList = new StringBuilder();
@@ -897,37 +1186,9 @@ public class StudyPlanService {
                         .append(v.get("videoId")).append(")\n");
             }
 
-            String analysisPrompt = String.format(
-                    """
-                            Analyze this syllabus and create a %d-day complete study plan.
-                            Strongly prefer longer, in-depth lectures and whiteboard sessions. If the same channel/creator has multiple relevant videos, strongly prefer clustering their videos together to provide a consistent learning experience.
-
-                            Playlist videos:
-                            %s
-
-                            Return ONLY valid JSON:
-                            {
-                              "title": "%s",
-                              "description": "Description",
-                              "difficulty": "Intermediate",
-                              "days": [
-                                {
-                                  "dayNumber": 1,
-                                  "lessons": [
-                                    {
-                                      "title": "Topic",
-                                      "videoId": "id_or_null",
-                                      "searchQuery": "query_if_needed",
-                                      "description": "lesson description"
-                                    }
-                                  ]
-                                }
-                              ]
-                            }
-                            """,
-                    durationDays, videoList.toString(), courseTitle);
+            String analysisPrompt = SYLLABUS_PROMPT.render(durationDays, videoList, courseTitle);
 
-            String analysisResponse = aiService.generateStudyPlanContent(analysisPrompt, mimeType, fileData);
+            String analysisResponse = aiService.generateStudyPlanContent(analysisPrompt, document);
             JsonNode root = parseJson(analysisResponse);
 
             String title = root.path("title").asText(courseTitle);
@@ -944,6 +1205,9 @@ public class StudyPlanService {
                 playlistVideoMap.put(v.get("videoId"), v);
             }
 
+            Map<String, List<Map<String, String>>> prefetchedSearches =
+                    prefetchLessonSearches(daysNode, playlistVideoMap, title, difficulty);
+
             Set<String> usedVideoIds = new HashSet<>();
             List<StudyPlanItem> allItems = new ArrayList<>();
 
@@ -972,17 +1236,10 @@ public class StudyPlanService {
                     }
 
                     if (videoData == null) {
-                        List<String> fallbackQueries = new ArrayList<>();
-                        if (!searchQuery.isEmpty())
-                            fallbackQueries.add(searchQuery);
-                        if (!lessonTitle.isEmpty())
-                            fallbackQueries.add(lessonTitle + " " + title + " tutorial");
-                        if (!lessonTitle.isEmpty())
-                            fallbackQueries.add(lessonTitle + " tutorial for beginners");
-                        fallbackQueries.add(title + " " + difficulty + " tutorial");
-
-                        for (String query : fallbackQueries) {
-                            List<Map<String, String>> results = youTubeService.searchVideos(query, 15);
+                        for (String query : lessonFallbackQueries(lessonTitle, searchQuery, title, difficulty)) {
+                            List<Map<String, String>> results = prefetchedSearches.containsKey(query)
+                                    ? prefetchedSearches.get(query)
+                                    : youTubeService.searchVideos(query, LESSON_SEARCH_RESULTS);
                             for (Map<String, String> r : results) {
                                 String candidateId = r.get("videoId");
                                 if (candidateId != null && !usedVideoIds.contains(candidateId)) {
@@ -1060,8 +1317,16 @@ public class StudyPlanService {
             }
 
             StudyPlan savedPlan = studyPlanRepository.save(plan);
-            generateQuizQuestionsForPlan(savedPlan, title, difficulty);
-
+            List<StudyPlanItem> practiceItems = practiceItems(savedPlan.getItems());
+            Map<Long, List<QuizQuestion>> quizzes = generateQuizQuestions(practiceItems, title, difficulty);
+            self.attachQuizQuestions(savedPlan, quizzes, null);
+
+            // Only complete plans are worth cloning; a missing quiz would be missing for every clone.
+            if (quizzes.size() == practiceItems.size()) {
+                storeSyllabusSkeleton(skeletonKey,
+                        SyllabusPlanSkeleton.of(preAnalysisResponse, playlistId, savedPlan, quizzes));
+            }
+            cacheTags.invalidate(CacheTags.plans(userEmail));
             return savedPlan;
         } catch (RuntimeException ex) {
             status = "error";
@@ -1072,10 +1337,104 @@ public class StudyPlanService {
         }
     }
 
+    private static List<String> lessonFallbackQueries(String lessonTitle, String searchQuery, String title,
+            String difficulty) {
+        List<String> fallbackQueries = new ArrayList<>();
+        if (!searchQuery.isEmpty())
+            fallbackQueries.add(searchQuery);
+        if (!lessonTitle.isEmpty())
+            fallbackQueries.add(lessonTitle + " " + title + " tutorial");
+        if (!lessonTitle.isEmpty())
+            fallbackQueries.add(lessonTitle + " tutorial for beginners");
+        fallbackQueries.add(title + " " + difficulty + " tutorial");
+        return fallbackQueries;
+    }
+
+    /**
+     * Runs the first fallback search of every lesson that has no usable playlist video, deduplicated
+     * and with bounded concurrency, before the plan is assembled. Assembly stays sequential (video
+     * de-duplication depends on lesson order) and only searches live for the rare later fallbacks.
+     */
+    private Map<String, List<Map<String, String>>> prefetchLessonSearches(JsonNode daysNode,
+            Map<String, Map<String, String>> playlistVideoMap, String title, String difficulty) {
+        Set<String> queries = new LinkedHashSet<>();
+        Set<String> claimedPlaylistVideos = new HashSet<>();
+        for (JsonNode day : daysNode) {
+            for (JsonNode lesson : day.path("lessons")) {
+                String videoId = normalizeAiField(lesson.path("videoId").asText(""));
+                if (playlistVideoMap.containsKey(videoId) && claimedPlaylistVideos.add(videoId)) {
+                    continue;
+                }
+                queries.add(lessonFallbackQueries(
+                        normalizeAiField(lesson.path("title").asText("")),
+                        normalizeAiField(lesson.path("searchQuery").asText("")),
+                        title,
+                        difficulty).get(0));
+            }
+        }
+        if (queries.isEmpty()) {
+            return Map.of();
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Map<String, List<Map<String, String>>> results = Flux.fromIterable(queries)
+                .flatMap(query -> Mono.fromCallable(() -> youTubeService.searchVideos(query, LESSON_SEARCH_RESULTS))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .map(videos -> Map.entry(query, videos))
+                        .onErrorResume(e -> {
+                            log.warn("Lesson video search failed for '{}': {}", query, e.getMessage());
+                            return Mono.empty();
+                        }), videoSearchConcurrency)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .block();
+        sample.stop(meterRegistry.timer("study_plan.video_search.prefetch.duration"));
+        meterRegistry.counter("study_plan.video_search.prefetch.count").increment(queries.size());
+        return results == null ? Map.of() : results;
+    }
+
+    /**
+     * Same syllabus text (ignoring whitespace and case) and duration, same plan. The prompt version is
+     * part of the key so rewording the syllabus prompt retires old skeletons.
+     */
+    private static String syllabusSkeletonKey(ExtractedDocument document, int durationDays) {
+        String normalized = document.text().replaceAll("\\s+", " ").strip().toLowerCase(Locale.ROOT);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            String hash = HexFormat.of().formatHex(digest.digest(normalized.getBytes(StandardCharsets.UTF_8)));
+            return SYLLABUS_PROMPT.key() + "|" + hash + "|" + durationDays;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private SyllabusPlanSkeleton cachedSyllabusSkeleton(String key) {
+        Cache cache = cacheManager.getCache("SyllabusPlanSkeletonCache");
+        if (cache == null) {
+            return null;
+        }
+        try {
+            return cache.get(key, SyllabusPlanSkeleton.class);
+        } catch (Exception e) {
+            log.warn("Syllabus skeleton cache read failed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void storeSyllabusSkeleton(String key, SyllabusPlanSkeleton skeleton) {
+        Cache cache = cacheManager.getCache("SyllabusPlanSkeletonCache");
+        if (cache == null) {
+            return;
+        }
+        try {
+            cache.put(key, skeleton);
+        } catch (Exception e) {
+            log.warn("Syllabus skeleton cache write failed: {}", e.getMessage());
+        }
+    }
+
     private JsonNode parseJson(String jsonResponse) {
         try {
-            String cleanJson = jsonResponse.replace("```json", "").replace("```", "").trim();
-            return objectMapper.readTree(cleanJson);
+            return AiJsonContent.readTree(objectMapper, jsonResponse);
         } catch (Exception e) {
             throw new RuntimeException("Failed to parse generated response: " + e.getMessage(), e);
         }
@@ -1146,14 +1505,14 @@ public class StudyPlanService {
 
     private StudyPlan getOwnedStudyPlan(Long planId, String userEmail) {
         StudyPlan plan = studyPlanRepository.findById(planId)
-                .orElseThrow(() -> new RuntimeException("Study plan not found"));
+                .orElseThrow(() -> new StudyPlanNotFoundException("Study plan not found"));
 
         if (plan.getStudent() == null || plan.getStudent().getEmail() == null) {
-            throw new RuntimeException("Study plan owner could not be verified");
+            throw new StudyPlanNotFoundException("Study plan owner could not be verified");
         }
 
         if (!plan.getStudent().getEmail().equalsIgnoreCase(userEmail)) {
-            throw new RuntimeException("You do not have permission to access this study plan");
+            throw new StudyPlanNotFoundException("You do not have permission to access this study plan");
         }
 
         return plan;
@@ -1162,76 +1521,86 @@ public class StudyPlanService {
     private StudyPlan getOwnedStudyPlanWithItems(Long planId, String userEmail) {
         StudyPlan plan = studyPlanRepository.findWithItemsById(planId);
         if (plan == null) {
-            throw new RuntimeException("Study plan not found");
+            throw new StudyPlanNotFoundException("Study plan not found");
         }
 
         if (plan.getStudent() == null || plan.getStudent().getEmail() == null) {
-            throw new RuntimeException("Study plan owner could not be verified");
+            throw new StudyPlanNotFoundException("Study plan owner could not be verified");
         }
 
         if (!plan.getStudent().getEmail().equalsIgnoreCase(userEmail)) {
-            throw new RuntimeException("You do not have permission to access this study plan");
+            throw new StudyPlanNotFoundException("You do not have permission to access this study plan");
         }
 
         return plan;
     }
 
-    private StudyPlanDetailDto toDetailDto(StudyPlan plan) {
+    private Map<Long, List<QuizQuestion>> quizQuestionsByItemId(List<StudyPlanItem> planItems) {
         Map<Long, List<QuizQuestion>> questionsByItemId = new HashMap<>();
-        if (plan.getItems() != null && !plan.getItems().isEmpty()) {
-            List<Long> itemIds = new ArrayList<>();
-            for (StudyPlanItem item : plan.getItems()) {
-                if (item != null && item.getId() != null) {
-                    itemIds.add(item.getId());
-                }
+        List<Long> itemIds = new ArrayList<>();
+        for (StudyPlanItem item : planItems) {
+            if (item != null && item.getId() != null) {
+                itemIds.add(item.getId());
             }
-            if (!itemIds.isEmpty()) {
-                List<QuizQuestion> questions = quizQuestionRepository.findByStudyPlanItemIdIn(itemIds);
-                for (QuizQuestion question : questions) {
-                    Long itemId = question.getStudyPlanItem() != null ? question.getStudyPlanItem().getId() : null;
-                    if (itemId == null) {
-                        continue;
-                    }
-                    questionsByItemId.computeIfAbsent(itemId, k -> new ArrayList<>()).add(question);
-                }
+        }
+        if (itemIds.isEmpty()) {
+            return questionsByItemId;
+        }
+        List<QuizQuestion> questions = quizQuestionRepository.findByStudyPlanItemIdIn(itemIds);
+        for (QuizQuestion question : questions) {
+            Long itemId = question.getStudyPlanItem() != null ? question.getStudyPlanItem().getId() : null;
+            if (itemId == null) {
+                continue;
             }
+            questionsByItemId.computeIfAbsent(itemId, k -> new ArrayList<>()).add(question);
         }
+        return questionsByItemId;
+    }
+
+    private StudyPlanItemDto toItemDto(StudyPlanItem item, List<QuizQuestion> itemQuestions) {
+        return new StudyPlanItemDto(
+                item.getId(),
+                item.getItemType(),
+                item.getTitle(),
+                item.getDescription(),
+                item.getVideoId(),
+                item.getVideoUrl(),
+                item.getThumbnailUrl(),
+                item.getChannelName(),
+                item.getVideoDuration(),
+                item.getPracticeSubject(),
+                item.getPracticeTopic(),
+                item.getPracticeDifficulty(),
+                item.getDayNumber(),
+                item.getOrderIndex(),
+                item.getXpReward(),
+                toQuizQuestionDtos(itemQuestions),
+                item.isCompleted());
+    }
+
+    private List<StudyPlanQuizQuestionDto> toQuizQuestionDtos(List<QuizQuestion> itemQuestions) {
+        List<StudyPlanQuizQuestionDto> questions = new ArrayList<>();
+        for (QuizQuestion q : itemQuestions) {
+            questions.add(new StudyPlanQuizQuestionDto(
+                    q.getId(),
+                    q.getQuestionText(),
+                    q.getOptionA(),
+                    q.getOptionB(),
+                    q.getOptionC(),
+                    q.getOptionD()));
+        }
+        return questions;
+    }
+
+    private StudyPlanDetailDto toDetailDto(StudyPlan plan) {
+        Map<Long, List<QuizQuestion>> questionsByItemId = plan.getItems() == null
+                ? Map.of()
+                : quizQuestionsByItemId(plan.getItems());
 
         List<StudyPlanItemDto> items = new ArrayList<>();
         if (plan.getItems() != null) {
             for (StudyPlanItem item : plan.getItems()) {
-                List<StudyPlanQuizQuestionDto> questions = new ArrayList<>();
-                List<QuizQuestion> itemQuestions = questionsByItemId.get(item.getId());
-                if (itemQuestions != null) {
-                    for (QuizQuestion q : itemQuestions) {
-                        questions.add(new StudyPlanQuizQuestionDto(
-                                q.getId(),
-                                q.getQuestionText(),
-                                q.getOptionA(),
-                                q.getOptionB(),
-                                q.getOptionC(),
-                                q.getOptionD()));
-                    }
-                }
-
-                items.add(new StudyPlanItemDto(
-                        item.getId(),
-                        item.getItemType(),
-                        item.getTitle(),
-                        item.getDescription(),
-                        item.getVideoId(),
-                        item.getVideoUrl(),
-                        item.getThumbnailUrl(),
-                        item.getChannelName(),
-                        item.getVideoDuration(),
-                        item.getPracticeSubject(),
-                        item.getPracticeTopic(),
-                        item.getPracticeDifficulty(),
-                        item.getDayNumber(),
-                        item.getOrderIndex(),
-                        item.getXpReward(),
-                        questions,
-                        item.isCompleted()));
+                items.add(toItemDto(item, questionsByItemId.getOrDefault(item.getId(), List.of())));
             }
         }
 
@@ -1267,24 +1636,4 @@ public class StudyPlanService {
                 plan.isCompleted(),
                 plan.isGenerating());
     }
-
-    private void evictOwnedStudyPlanByIdCache(String userEmail, Long planId) {
-        Cache cache = cacheManager.getCache("StudyPlanByIdCache");
-        if (cache != null && planId != null) {
-            cache.evict(userEmail + "-" + planId);
-        }
-    }
-
-    private void evictOwnedQuizQuestionCaches(String userEmail, StudyPlan plan) {
-        Cache cache = cacheManager.getCache("StudyPlanQuizQuestionsCache");
-        if (cache == null || plan == null || plan.getId() == null || plan.getItems() == null) {
-            return;
-        }
-
-        for (StudyPlanItem item : plan.getItems()) {
-            if (item != null && item.getId() != null) {
-                cache.evict(userEmail + "-" + plan.getId() + "-" + item.getId());
-            }
-        }
-    }
 }
@@ -0,0 +1,13 @@
+package com.practice.aiplatform.studyplan;
+
+/**
+ * Checkpointed steps of asynchronous study-plan generation, in order. A plan records the last
+ * stage it completed, so a retry resumes after it instead of repeating paid upstream calls.
+ */
+public enum StudyPlanStage {
+    PENDING,
+    VIDEOS_FETCHED,
+    OUTLINE_GENERATED,
+    QUIZZES_GENERATED,
+    FINALIZED
+}
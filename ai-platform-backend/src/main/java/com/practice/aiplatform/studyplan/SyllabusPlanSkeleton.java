@@ -0,0 +1,140 @@
+package com.practice.aiplatform.studyplan;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything generated for a syllabus that does not depend on the student: the pre-analysis, the
+ * chosen playlist and the plan with its quizzes. Cached by the hash of the syllabus text, so the
+ * next upload of the same document only has to clone it.
+ */
+public record SyllabusPlanSkeleton(
+        String preAnalysis,
+        String playlistId,
+        String title,
+        String description,
+        String difficulty,
+        int durationDays,
+        List<ItemTemplate> items) {
+
+    public record ItemTemplate(
+            String itemType,
+            int dayNumber,
+            int orderIndex,
+            String title,
+            String description,
+            String videoId,
+            String videoUrl,
+            String thumbnailUrl,
+            String channelName,
+            String videoDuration,
+            String practiceSubject,
+            String practiceTopic,
+            String practiceDifficulty,
+            int xpReward,
+            List<QuestionTemplate> questions) {
+    }
+
+    public record QuestionTemplate(
+            String questionText,
+            String optionA,
+            String optionB,
+            String optionC,
+            String optionD,
+            String correctOption) {
+    }
+
+    static SyllabusPlanSkeleton of(String preAnalysis, String playlistId, StudyPlan plan,
+            Map<Long, List<QuizQuestion>> questionsByItemId) {
+        List<ItemTemplate> items = new ArrayList<>();
+        for (StudyPlanItem item : plan.getItems()) {
+            List<QuestionTemplate> questions = new ArrayList<>();
+            for (QuizQuestion question : questionsByItemId.getOrDefault(item.getId(), List.of())) {
+                questions.add(new QuestionTemplate(
+                        question.getQuestionText(),
+                        question.getOptionA(),
+                        question.getOptionB(),
+                        question.getOptionC(),
+                        question.getOptionD(),
+                        question.getCorrectOption()));
+            }
+            items.add(new ItemTemplate(
+                    item.getItemType(),
+                    item.getDayNumber(),
+                    item.getOrderIndex(),
+                    item.getTitle(),
+                    item.getDescription(),
+                    item.getVideoId(),
+                    item.getVideoUrl(),
+                    item.getThumbnailUrl(),
+                    item.getChannelName(),
+                    item.getVideoDuration(),
+                    item.getPracticeSubject(),
+                    item.getPracticeTopic(),
+                    item.getPracticeDifficulty(),
+                    item.getXpReward(),
+                    questions));
+        }
+        return new SyllabusPlanSkeleton(preAnalysis, playlistId, plan.getTitle(), plan.getDescription(),
+                plan.getDifficulty(), plan.getDurationDays(), items);
+    }
+
+    /** A new, unsaved plan with the skeleton's items; the caller assigns the student. */
+    StudyPlan newPlan() {
+        StudyPlan plan = new StudyPlan();
+        plan.setTitle(title);
+        plan.setDescription(description);
+        plan.setTopic(title);
+        plan.setDifficulty(difficulty);
+        plan.setDurationDays(durationDays);
+
+        List<StudyPlanItem> planItems = new ArrayList<>();
+        for (ItemTemplate template : items) {
+            StudyPlanItem item = new StudyPlanItem();
+            item.setItemType(template.itemType());
+            item.setDayNumber(template.dayNumber());
+            item.setOrderIndex(template.orderIndex());
+            item.setTitle(template.title());
+            item.setDescription(template.description());
+            item.setVideoId(template.videoId());
+            item.setVideoUrl(template.videoUrl());
+            item.setThumbnailUrl(template.thumbnailUrl());
+            item.setChannelName(template.channelName());
+            item.setVideoDuration(template.videoDuration());
+            item.setPracticeSubject(template.practiceSubject());
+            item.setPracticeTopic(template.practiceTopic());
+            item.setPracticeDifficulty(template.practiceDifficulty());
+            item.setXpReward(template.xpReward());
+            item.setStudyPlan(plan);
+            planItems.add(item);
+        }
+        plan.setItems(planItems);
+        return plan;
+    }
+
+    /** Fresh quiz questions for the items of a plan created by {@link #newPlan()} and saved. */
+    Map<Long, List<QuizQuestion>> questionsFor(List<StudyPlanItem> savedItems) {
+        Map<Long, List<QuizQuestion>> questionsByItemId = new HashMap<>();
+        for (int i = 0; i < savedItems.size() && i < items.size(); i++) {
+            List<QuestionTemplate> templates = items.get(i).questions();
+            if (templates == null || templates.isEmpty()) {
+                continue;
+            }
+            List<QuizQuestion> questions = new ArrayList<>();
+            for (QuestionTemplate template : templates) {
+                QuizQuestion question = new QuizQuestion();
+                question.setQuestionText(template.questionText());
+                question.setOptionA(template.optionA());
+                question.setOptionB(template.optionB());
+                question.setOptionC(template.optionC());
+                question.setOptionD(template.optionD());
+                question.setCorrectOption(template.correctOption());
+                questions.add(question);
+            }
+            questionsByItemId.put(savedItems.get(i).getId(), questions);
+        }
+        return questionsByItemId;
+    }
+}
@@ -0,0 +1,76 @@
+package com.practice.aiplatform.studyplan;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Re-fetches details of the catalog's least recently refreshed videos, 50 ids per {@code /videos}
+ * call (one quota unit each), and drops the ones YouTube no longer returns. Runs off the request path.
+ */
+@Slf4j
+@Component
+public class YouTubeCatalogRefresher {
+
+    private final YouTubeVideoRepository videoRepository;
+    private final YouTubeVideoCatalog catalog;
+    private final YouTubeService youTubeService;
+    private final Duration refreshAfter;
+    private final int maxBatches;
+
+    public YouTubeCatalogRefresher(
+            YouTubeVideoRepository videoRepository,
+            YouTubeVideoCatalog catalog,
+            YouTubeService youTubeService,
+            @Value("${youtube.catalog.refresh-after-hours:72}") long refreshAfterHours,
+            @Value("${youtube.catalog.refresh-max-batches:4}") int maxBatches) {
+        this.videoRepository = videoRepository;
+        this.catalog = catalog;
+        this.youTubeService = youTubeService;
+        this.refreshAfter = Duration.ofHours(refreshAfterHours);
+        this.maxBatches = maxBatches;
+    }
+
+    @Scheduled(fixedDelayString = "${youtube.catalog.refresh-interval-ms:600000}",
+            initialDelayString = "${youtube.catalog.refresh-interval-ms:600000}")
+    public void refreshStaleVideos() {
+        for (int batch = 0; batch < maxBatches; batch++) {
+            List<YouTubeVideo> stale = videoRepository.findByLastRefreshedAtBeforeOrderByLastRefreshedAtAsc(
+                    Instant.now().minus(refreshAfter), PageRequest.of(0, YouTubeService.MAX_IDS_PER_VIDEOS_CALL));
+            if (stale.isEmpty()) {
+                return;
+            }
+
+            List<String> ids = stale.stream().map(YouTubeVideo::getVideoId).toList();
+            List<Map<String, String>> refreshed;
+            try {
+                refreshed = youTubeService.fetchVideoDetailsBatch(ids);
+            } catch (Exception e) {
+                // Out of quota or unreachable: keep the stale rows and try again next run.
+                log.warn("YouTube catalog refresh stopped: {}", e.getMessage());
+                return;
+            }
+
+            if (refreshed.isEmpty()) {
+                // An empty answer for a whole batch is more likely an API problem than 50 deletions.
+                log.warn("YouTube catalog refresh returned no videos for {} ids; stopping", ids.size());
+                return;
+            }
+
+            catalog.upsert(refreshed);
+            Set<String> missing = new HashSet<>(ids);
+            refreshed.forEach(video -> missing.remove(video.get("videoId")));
+            catalog.remove(missing);
+            log.info("Refreshed {} catalog videos, removed {}", refreshed.size(), missing.size());
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.practice.aiplatform.studyplan;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
@@ -12,25 +13,41 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
+@Slf4j
 @Service
 public class YouTubeService {
 
+    static final int MAX_IDS_PER_VIDEOS_CALL = 50;
+
     private final WebClient webClient;
     private final String apiKey;
     private final ObjectMapper objectMapper;
+    private final YouTubeVideoCatalog catalog;
 
     public YouTubeService(
             @Qualifier("youtubeWebClient") WebClient webClient,
             @Value("${youtube.api.key}") String apiKey,
-            ObjectMapper objectMapper) {
+            ObjectMapper objectMapper,
+            YouTubeVideoCatalog catalog) {
         this.webClient = webClient;
         this.apiKey = apiKey;
         this.objectMapper = objectMapper;
+        this.catalog = catalog;
     }
 
+    /**
+     * Videos for a topic, from the local catalog while the topic is warm. Cold topics are searched
+     * on YouTube and indexed; if the API fails, a stale index entry is better than nothing.
+     */
     @Cacheable(value = "YtSearchVideosCache", key = "#query + '-' + #maxResults", sync = true)
     public List<Map<String, String>> searchVideos(String query, int maxResults) {
+        Optional<List<Map<String, String>>> indexed = catalog.findByTopic(query, maxResults);
+        if (indexed.isPresent()) {
+            return indexed.get();
+        }
+
         try {
             String responseBody = webClient.get()
                     .uri(uriBuilder -> uriBuilder
@@ -63,10 +80,12 @@ public class YouTubeService {
                 }
             }
 
-            return fetchVideoDetails(videoIds);
+            List<Map<String, String>> videos = fetchVideoDetails(videoIds);
+            indexQuietly(query, maxResults, videos);
+            return videos;
         } catch (Exception e) {
             System.err.println("YouTube searchVideos error: " + e.getMessage());
-            return new ArrayList<>();
+            return catalog.findStaleByTopic(query, maxResults).orElseGet(ArrayList::new);
         }
     }
 
@@ -136,64 +155,88 @@ public class YouTubeService {
                 }
             }
 
-            return fetchVideoDetails(videoIds);
+            List<Map<String, String>> videos = fetchVideoDetails(videoIds);
+            try {
+                catalog.upsert(videos);
+            } catch (Exception e) {
+                log.warn("YouTube catalog upsert failed for {} videos: {}", videos.size(), e.getMessage());
+            }
+            return videos;
         } catch (Exception e) {
             System.err.println("YouTube getPlaylistItems error: " + e.getMessage());
             return new ArrayList<>();
         }
     }
 
+    private void indexQuietly(String query, int maxResults, List<Map<String, String>> videos) {
+        try {
+            catalog.indexTopic(query, maxResults, videos);
+        } catch (Exception e) {
+            log.warn("YouTube catalog index failed for '{}': {}", query, e.getMessage());
+        }
+    }
+
     private List<Map<String, String>> fetchVideoDetails(List<String> videoIds) {
         if (videoIds == null || videoIds.isEmpty()) {
             return new ArrayList<>();
         }
 
         try {
-            String ids = String.join(",", videoIds);
-
-            String responseBody = webClient.get()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/videos")
-                            .queryParam("part", "contentDetails,snippet")
-                            .queryParam("id", ids)
-                            .queryParam("key", apiKey)
-                            .build())
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            JsonNode root = objectMapper.readTree(responseBody);
-            JsonNode items = root.path("items");
-
             List<Map<String, String>> videos = new ArrayList<>();
-            if (!items.isArray()) {
-                return videos;
+            for (int from = 0; from < videoIds.size(); from += MAX_IDS_PER_VIDEOS_CALL) {
+                videos.addAll(fetchVideoDetailsBatch(
+                        videoIds.subList(from, Math.min(videoIds.size(), from + MAX_IDS_PER_VIDEOS_CALL))));
             }
+            return videos;
+        } catch (Exception e) {
+            System.err.println("YouTube fetchVideoDetails error: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
 
-            for (JsonNode video : items) {
-                String videoId = video.path("id").asText("");
-                JsonNode snippet = video.path("snippet");
-                String duration = video.path("contentDetails").path("duration").asText("");
+    /** Details of up to {@value #MAX_IDS_PER_VIDEOS_CALL} videos in one call; errors propagate. */
+    List<Map<String, String>> fetchVideoDetailsBatch(List<String> videoIds) throws Exception {
+        String ids = String.join(",", videoIds);
+
+        String responseBody = webClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/videos")
+                        .queryParam("part", "contentDetails,snippet")
+                        .queryParam("id", ids)
+                        .queryParam("key", apiKey)
+                        .build())
+                .retrieve()
+                .bodyToMono(String.class)
+                .block();
+
+        JsonNode root = objectMapper.readTree(responseBody);
+        JsonNode items = root.path("items");
+
+        List<Map<String, String>> videos = new ArrayList<>();
+        if (!items.isArray()) {
+            return videos;
+        }
 
-                String highThumb = snippet.path("thumbnails").path("high").path("url").asText("");
-                String defaultThumb = snippet.path("thumbnails").path("default").path("url").asText("");
-                String thumbnailUrl = !highThumb.isBlank() ? highThumb : defaultThumb;
+        for (JsonNode video : items) {
+            String videoId = video.path("id").asText("");
+            JsonNode snippet = video.path("snippet");
+            String duration = video.path("contentDetails").path("duration").asText("");
 
-                Map<String, String> videoMap = new HashMap<>();
-                videoMap.put("videoId", videoId);
-                videoMap.put("title", snippet.path("title").asText(""));
-                videoMap.put("channelTitle", snippet.path("channelTitle").asText(""));
-                videoMap.put("thumbnailUrl", thumbnailUrl);
-                videoMap.put("description", snippet.path("description").asText(""));
-                videoMap.put("duration", duration);
+            String highThumb = snippet.path("thumbnails").path("high").path("url").asText("");
+            String defaultThumb = snippet.path("thumbnails").path("default").path("url").asText("");
+            String thumbnailUrl = !highThumb.isBlank() ? highThumb : defaultThumb;
 
-                videos.add(videoMap);
-            }
+            Map<String, String> videoMap = new HashMap<>();
+            videoMap.put("videoId", videoId);
+            videoMap.put("title", snippet.path("title").asText(""));
+            videoMap.put("channelTitle", snippet.path("channelTitle").asText(""));
+            videoMap.put("thumbnailUrl", thumbnailUrl);
+            videoMap.put("description", snippet.path("description").asText(""));
+            videoMap.put("duration", duration);
 
-            return videos;
-        } catch (Exception e) {
-            System.err.println("YouTube fetchVideoDetails error: " + e.getMessage());
-            return new ArrayList<>();
+            videos.add(videoMap);
         }
+
+        return videos;
     }
 }
@@ -0,0 +1,42 @@
+package com.practice.aiplatform.studyplan;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * One search result of a topic, in the order YouTube ranked it.
+ */
+@Entity
+@Table(name = "youtube_topic_videos", indexes = {
+        @Index(name = "idx_youtube_topic_videos_topic_rank", columnList = "topic_key, rank_index"),
+        @Index(name = "idx_youtube_topic_videos_video", columnList = "video_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class YouTubeTopicVideo {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "topic_key", nullable = false)
+    private String topicKey;
+
+    @Column(name = "video_id", nullable = false, length = 32)
+    private String videoId;
+
+    @Column(name = "rank_index", nullable = false)
+    private int rankIndex;
+
+    // maxResults of the search that produced this row; a larger request is a cold lookup.
+    @Column(name = "requested_results", nullable = false)
+    private int requestedResults;
+
+    @Column(name = "indexed_at", nullable = false)
+    private Instant indexedAt;
+}
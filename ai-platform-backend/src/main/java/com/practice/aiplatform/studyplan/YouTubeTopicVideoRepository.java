@@ -0,0 +1,22 @@
+package com.practice.aiplatform.studyplan;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface YouTubeTopicVideoRepository extends JpaRepository<YouTubeTopicVideo, Long> {
+
+    List<YouTubeTopicVideo> findByTopicKeyOrderByRankIndexAsc(String topicKey);
+
+    @Modifying
+    @Query("DELETE FROM YouTubeTopicVideo t WHERE t.topicKey = :topicKey")
+    void deleteByTopicKey(@Param("topicKey") String topicKey);
+
+    @Modifying
+    @Query("DELETE FROM YouTubeTopicVideo t WHERE t.videoId IN :videoIds")
+    void deleteByVideoIdIn(@Param("videoIds") Collection<String> videoIds);
+}
@@ -0,0 +1,40 @@
+package com.practice.aiplatform.studyplan;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "youtube_videos", indexes = {
+        @Index(name = "idx_youtube_videos_last_refreshed", columnList = "last_refreshed_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class YouTubeVideo {
+
+    @Id
+    @Column(name = "video_id", length = 32)
+    private String videoId;
+
+    @Column(length = 500)
+    private String title;
+
+    @Column(name = "channel_title")
+    private String channelTitle;
+
+    @Column(name = "thumbnail_url", length = 500)
+    private String thumbnailUrl;
+
+    @Column(columnDefinition = "TEXT")
+    private String description;
+
+    @Column(length = 32)
+    private String duration; // ISO 8601 duration e.g. "PT15M33S"
+
+    @Column(name = "last_refreshed_at", nullable = false)
+    private Instant lastRefreshedAt;
+}
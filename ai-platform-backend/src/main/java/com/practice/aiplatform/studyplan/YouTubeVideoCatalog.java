@@ -0,0 +1,185 @@
+package com.practice.aiplatform.studyplan;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Local catalog of every video the YouTube API has returned, plus a topic index of search results.
+ * Video lookups for plan generation are answered from here while the topic is warm; only cold
+ * topics pay for a {@code /search} call (100 quota units). Video details are kept fresh by
+ * {@link YouTubeCatalogRefresher}.
+ */
+@Service
+public class YouTubeVideoCatalog {
+
+    private final YouTubeVideoRepository videoRepository;
+    private final YouTubeTopicVideoRepository topicVideoRepository;
+    private final MeterRegistry meterRegistry;
+    private final Duration topicTtl;
+
+    public YouTubeVideoCatalog(
+            YouTubeVideoRepository videoRepository,
+            YouTubeTopicVideoRepository topicVideoRepository,
+            MeterRegistry meterRegistry,
+            @Value("${youtube.catalog.topic-ttl-hours:168}") long topicTtlHours) {
+        this.videoRepository = videoRepository;
+        this.topicVideoRepository = topicVideoRepository;
+        this.meterRegistry = meterRegistry;
+        this.topicTtl = Duration.ofHours(topicTtlHours);
+    }
+
+    /** Indexed results for the query, or empty if the topic is cold or was indexed too long ago. */
+    @Transactional(readOnly = true)
+    public Optional<List<Map<String, String>>> findByTopic(String query, int maxResults) {
+        Optional<List<Map<String, String>>> videos = lookup(query, maxResults, Instant.now().minus(topicTtl));
+        meterRegistry.counter("youtube.catalog.lookup", "result", videos.isPresent() ? "hit" : "cold").increment();
+        return videos;
+    }
+
+    /** Indexed results regardless of age, for when the API is unavailable or out of quota. */
+    @Transactional(readOnly = true)
+    public Optional<List<Map<String, String>>> findStaleByTopic(String query, int maxResults) {
+        Optional<List<Map<String, String>>> videos = lookup(query, maxResults, null);
+        if (videos.isPresent()) {
+            meterRegistry.counter("youtube.catalog.lookup", "result", "stale").increment();
+        }
+        return videos;
+    }
+
+    @Transactional
+    public void indexTopic(String query, int maxResults, List<Map<String, String>> videos) {
+        if (videos.isEmpty()) {
+            return;
+        }
+        upsert(videos);
+
+        String topicKey = topicKey(query);
+        topicVideoRepository.deleteByTopicKey(topicKey);
+        Instant now = Instant.now();
+        List<YouTubeTopicVideo> rows = new ArrayList<>();
+        int rank = 0;
+        for (Map<String, String> video : videos) {
+            YouTubeTopicVideo row = new YouTubeTopicVideo();
+            row.setTopicKey(topicKey);
+            row.setVideoId(video.get("videoId"));
+            row.setRankIndex(rank++);
+            row.setRequestedResults(maxResults);
+            row.setIndexedAt(now);
+            rows.add(row);
+        }
+        topicVideoRepository.saveAll(rows);
+    }
+
+    @Transactional
+    public void upsert(List<Map<String, String>> videos) {
+        Set<String> ids = videos.stream()
+                .map(video -> video.get("videoId"))
+                .filter(id -> id != null && !id.isBlank())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (ids.isEmpty()) {
+            return;
+        }
+        Map<String, YouTubeVideo> existing = videoRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(YouTubeVideo::getVideoId, Function.identity()));
+
+        Instant now = Instant.now();
+        List<YouTubeVideo> toSave = new ArrayList<>();
+        for (Map<String, String> video : videos) {
+            String videoId = video.get("videoId");
+            if (videoId == null || videoId.isBlank()) {
+                continue;
+            }
+            YouTubeVideo entity = existing.computeIfAbsent(videoId, id -> {
+                YouTubeVideo created = new YouTubeVideo();
+                created.setVideoId(id);
+                return created;
+            });
+            entity.setTitle(truncate(video.get("title"), 500));
+            entity.setChannelTitle(truncate(video.get("channelTitle"), 255));
+            entity.setThumbnailUrl(truncate(video.get("thumbnailUrl"), 500));
+            entity.setDescription(video.get("description"));
+            entity.setDuration(truncate(video.get("duration"), 32));
+            entity.setLastRefreshedAt(now);
+            toSave.add(entity);
+        }
+        videoRepository.saveAll(toSave);
+    }
+
+    /** Drops videos YouTube no longer returns (deleted or made private) from the catalog. */
+    @Transactional
+    public void remove(Set<String> videoIds) {
+        if (videoIds.isEmpty()) {
+            return;
+        }
+        topicVideoRepository.deleteByVideoIdIn(videoIds);
+        videoRepository.deleteAllById(videoIds);
+    }
+
+    private Optional<List<Map<String, String>>> lookup(String query, int maxResults, Instant indexedAfter) {
+        List<YouTubeTopicVideo> rows = topicVideoRepository.findByTopicKeyOrderByRankIndexAsc(topicKey(query));
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        YouTubeTopicVideo first = rows.get(0);
+        if (indexedAfter != null && first.getIndexedAt().isBefore(indexedAfter)) {
+            return Optional.empty();
+        }
+        if (first.getRequestedResults() < maxResults && rows.size() < maxResults) {
+            return Optional.empty();
+        }
+
+        List<String> ids = rows.stream().map(YouTubeTopicVideo::getVideoId).toList();
+        Map<String, YouTubeVideo> videos = videoRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(YouTubeVideo::getVideoId, Function.identity()));
+        List<Map<String, String>> result = new ArrayList<>();
+        for (String id : ids) {
+            YouTubeVideo video = videos.get(id);
+            if (video != null && result.size() < maxResults) {
+                result.add(toMap(video));
+            }
+        }
+        return result.isEmpty() ? Optional.empty() : Optional.of(result);
+    }
+
+    static Map<String, String> toMap(YouTubeVideo video) {
+        Map<String, String> videoMap = new HashMap<>();
+        videoMap.put("videoId", video.getVideoId());
+        videoMap.put("title", nullToEmpty(video.getTitle()));
+        videoMap.put("channelTitle", nullToEmpty(video.getChannelTitle()));
+        videoMap.put("thumbnailUrl", nullToEmpty(video.getThumbnailUrl()));
+        videoMap.put("description", nullToEmpty(video.getDescription()));
+        videoMap.put("duration", nullToEmpty(video.getDuration()));
+        return videoMap;
+    }
+
+    static String topicKey(String query) {
+        String normalized = query == null ? "" : query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        return truncate(normalized, 255);
+    }
+
+    private static String truncate(String value, int maxLength) {
+        if (value == null || value.length() <= maxLength) {
+            return value;
+        }
+        return value.substring(0, maxLength);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -0,0 +1,12 @@
+package com.practice.aiplatform.studyplan;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface YouTubeVideoRepository extends JpaRepository<YouTubeVideo, String> {
+
+    List<YouTubeVideo> findByLastRefreshedAtBeforeOrderByLastRefreshedAtAsc(Instant before, Pageable pageable);
+}
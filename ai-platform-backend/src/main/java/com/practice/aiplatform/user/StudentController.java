@@ -1,14 +1,10 @@
 package com.practice.aiplatform.user;
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
-import io.micrometer.core.instrument.MeterRegistry;
+import com.practice.aiplatform.config.CacheTags;
 import com.practice.aiplatform.event.NotificationEvent;
 import com.practice.aiplatform.event.NotificationEventPublisher;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -16,7 +12,6 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 import java.security.Principal;
-import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -43,8 +38,7 @@ public class StudentController {
     private final PasswordEncoder passwordEncoder;
     private final NotificationEventPublisher notificationEventPublisher;
     private final StudentAccountService studentAccountService;
-    private final MeterRegistry meterRegistry;
-    private final Cache<String, StudentResponseDTO> localProfileCache;
+    private final CacheTags cacheTags;
     @Lazy
     @Autowired
     private StudentController self;
@@ -54,17 +48,12 @@ public class StudentController {
             PasswordEncoder passwordEncoder,
             NotificationEventPublisher notificationEventPublisher,
             StudentAccountService studentAccountService,
-            MeterRegistry meterRegistry) {
+            CacheTags cacheTags) {
         this.studentRepository = studentRepository;
         this.passwordEncoder = passwordEncoder;
         this.notificationEventPublisher = notificationEventPublisher;
         this.studentAccountService = studentAccountService;
-        this.meterRegistry = meterRegistry;
-        this.localProfileCache = Caffeine.newBuilder()
-                .recordStats()
-                .expireAfterWrite(Duration.ofSeconds(15))
-                .maximumSize(2000)
-                .build();
+        this.cacheTags = cacheTags;
     }
 
     @GetMapping("/profile")
@@ -73,17 +62,7 @@ public class StudentController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized");
         }
 
-        String email = principal.getName();
-        StudentResponseDTO cached = localProfileCache.getIfPresent(email);
-        if (cached != null) {
-            recordL1("UserProfileLocalCache", "hit");
-            return ResponseEntity.ok(cached);
-        }
-        recordL1("UserProfileLocalCache", "miss");
-
-        StudentResponseDTO value = self.getProfileCached(email);
-        localProfileCache.put(email, value);
-        return ResponseEntity.ok(value);
+        return ResponseEntity.ok(self.getProfileCached(principal.getName()));
     }
 
     @Cacheable(value = "UserProfileCache", key = "#email", sync = true)
@@ -94,10 +73,6 @@ public class StudentController {
     }
 
     @PutMapping("/profile")
-    @Caching(evict = {
-            @CacheEvict(value = "UserProfileCache", key = "#principal.name"),
-            @CacheEvict(value = "LeaderboardCache", allEntries = true)
-    })
     public ResponseEntity<?> updateProfile(@RequestBody ProfileUpdateRequest req, Principal principal) {
         if (principal == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized");
@@ -126,7 +101,7 @@ public class StudentController {
             student.setWebsiteUrl(req.websiteUrl().trim());
 
         studentRepository.save(student);
-        localProfileCache.invalidate(principal.getName());
+        cacheTags.invalidate(CacheTags.account(principal.getName()), CacheTags.LEADERBOARD);
 
         notificationEventPublisher.publishNotificationEvent(
                 NotificationEvent.builder()
@@ -139,10 +114,6 @@ public class StudentController {
     }
 
     @PutMapping("/password")
-    @Caching(evict = {
-            @CacheEvict(value = "UserProfileCache", key = "#principal.name"),
-            @CacheEvict(value = "UserUsageRemainingCache", key = "#principal.name")
-    })
     public ResponseEntity<String> changePassword(@RequestBody ChangePasswordRequest req, Principal principal) {
         if (principal == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized");
@@ -162,24 +133,19 @@ public class StudentController {
 
         student.setPassword(passwordEncoder.encode(req.newPassword()));
         studentRepository.save(student);
-        localProfileCache.invalidate(principal.getName());
+        cacheTags.invalidate(CacheTags.account(principal.getName()));
 
         return ResponseEntity.ok("Password changed successfully.");
     }
 
     @DeleteMapping("/account")
-    @Caching(evict = {
-            @CacheEvict(value = "UserProfileCache", key = "#principal.name"),
-            @CacheEvict(value = "LeaderboardCache", allEntries = true),
-            @CacheEvict(value = "UserUsageRemainingCache", key = "#principal.name")
-    })
     public ResponseEntity<?> deleteAccount(Principal principal) {
         if (principal == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized");
         }
 
         studentAccountService.deleteAccountByEmail(principal.getName());
-        localProfileCache.invalidate(principal.getName());
+        cacheTags.invalidate(CacheTags.user(principal.getName()), CacheTags.LEADERBOARD);
         return ResponseEntity.noContent().build();
     }
 
@@ -199,12 +165,4 @@ public class StudentController {
 
         return dtos;
     }
-
-    private void recordL1(String cacheName, String result) {
-        meterRegistry.counter(
-                "cache_layer_access_total",
-                "cache", cacheName,
-                "layer", "l1",
-                "result", result).increment();
-    }
 }
@@ -0,0 +1,138 @@
+package com.practice.aiplatform.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AiRequestCoalescerTest {
+
+    private static final String LOCK = "ai:coalesce:lock:";
+    private static final String RESULT = "ai:coalesce:result:";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ReactiveStringRedisTemplate redisTemplate = mock(ReactiveStringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ReactiveValueOperations<String, String> values = mock(ReactiveValueOperations.class);
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private AiRequestCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(values.set(anyString(), anyString(), any(Duration.class))).thenReturn(Mono.just(true));
+        doReturn(Flux.just(1L)).when(redisTemplate).execute(any(RedisScript.class), anyList(), anyList());
+        coalescer = new AiRequestCoalescer(redisTemplate, meterRegistry, new ObjectMapper(), true,
+                20000, 30000, 1000, 10, false, 40, 4, 1200);
+    }
+
+    @Test
+    void leaderPublishesItsResultThenReleasesTheLock() {
+        when(values.setIfAbsent(startsWith(LOCK), anyString(), any(Duration.class))).thenReturn(Mono.just(true));
+
+        StepVerifier.create(coalescer.complete("question", "prompt", this::upstream))
+                .expectNext("upstream")
+                .verifyComplete();
+
+        assertEquals(1, upstreamCalls.get());
+        verify(values).set(startsWith(RESULT), eq("upstream"), eq(Duration.ofMillis(30000)));
+        verify(redisTemplate).execute(any(RedisScript.class), anyList(), anyList());
+        assertEquals(1.0, outcome("leader"));
+    }
+
+    @Test
+    void leaderReleasesTheLockWhenTheLoaderCompletesEmpty() {
+        when(values.setIfAbsent(startsWith(LOCK), anyString(), any(Duration.class))).thenReturn(Mono.just(true));
+
+        StepVerifier.create(coalescer.complete("question", "prompt", (prompt, purpose) -> Mono.empty()))
+                .verifyComplete();
+
+        verify(redisTemplate).execute(any(RedisScript.class), anyList(), anyList());
+        verify(values, never()).set(anyString(), anyString(), any(Duration.class));
+    }
+
+    @Test
+    void followerJoinsTheResultOfALeaderOnAnotherInstance() {
+        when(values.setIfAbsent(startsWith(LOCK), anyString(), any(Duration.class))).thenReturn(Mono.just(false));
+        when(values.get(startsWith(RESULT))).thenReturn(Mono.empty(), Mono.just("remote"));
+        when(redisTemplate.hasKey(startsWith(LOCK))).thenReturn(Mono.just(true));
+
+        StepVerifier.create(coalescer.complete("question", "prompt", this::upstream))
+                .expectNext("remote")
+                .verifyComplete();
+
+        assertEquals(0, upstreamCalls.get());
+        assertEquals(1.0, outcome("remote_join"));
+    }
+
+    @Test
+    void followerFallsBackWhenTheLeaderReleasesWithoutAResult() {
+        when(values.setIfAbsent(startsWith(LOCK), anyString(), any(Duration.class))).thenReturn(Mono.just(false));
+        when(values.get(startsWith(RESULT))).thenReturn(Mono.empty());
+        when(redisTemplate.hasKey(startsWith(LOCK))).thenReturn(Mono.just(false));
+
+        StepVerifier.create(coalescer.complete("question", "prompt", this::upstream))
+                .expectNext("upstream")
+                .verifyComplete();
+
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(1.0, outcome("fallback"));
+    }
+
+    @Test
+    void redisFailuresFallBackToAnUncoordinatedCall() {
+        RedisConnectionFailureException down = new RedisConnectionFailureException("connection refused");
+        when(values.setIfAbsent(startsWith(LOCK), anyString(), any(Duration.class))).thenReturn(Mono.error(down));
+        when(values.set(anyString(), anyString(), any(Duration.class))).thenReturn(Mono.error(down));
+        doReturn(Flux.error(down)).when(redisTemplate).execute(any(RedisScript.class), anyList(), anyList());
+
+        StepVerifier.create(coalescer.complete("question", "prompt", this::upstream))
+                .expectNext("upstream")
+                .verifyComplete();
+
+        // A follower whose polls fail gives up waiting and calls upstream itself.
+        when(values.setIfAbsent(startsWith(LOCK), anyString(), any(Duration.class))).thenReturn(Mono.just(false));
+        when(values.get(startsWith(RESULT))).thenReturn(Mono.error(down));
+
+        StepVerifier.create(coalescer.complete("question", "other prompt", this::upstream))
+                .expectNext("upstream")
+                .verifyComplete();
+
+        assertEquals(2, upstreamCalls.get());
+        assertEquals(1.0, outcome("leader"));
+        assertEquals(1.0, outcome("fallback"));
+    }
+
+    private Mono<String> upstream(String prompt, String purpose) {
+        return Mono.fromCallable(() -> {
+            upstreamCalls.incrementAndGet();
+            return "upstream";
+        });
+    }
+
+    private double outcome(String outcome) {
+        return meterRegistry.counter("ai.coalesce.count", "purpose", "question", "outcome", outcome).count();
+    }
+}
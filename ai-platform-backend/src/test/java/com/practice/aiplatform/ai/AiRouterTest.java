@@ -0,0 +1,88 @@
+package com.practice.aiplatform.ai;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AiRouterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void slowPrimaryIsHedgedToTheRunnerUpAndFirstResponseWins() {
+        FixedProvider primary = new FixedProvider("primary", "slow answer", Duration.ofSeconds(2));
+        FixedProvider secondary = new FixedProvider("secondary", "fast answer", Duration.ofMillis(10));
+        AiRouter router = newRouter(List.of(primary, secondary));
+
+        StepVerifier.create(router.complete(AiProvider.Tier.PRACTICE, "prompt", Duration.ofSeconds(5), true)
+                        .map(response -> response.choices().get(0).message().content()))
+                .expectNext("fast answer")
+                .verifyComplete();
+
+        assertEquals(1.0, meterRegistry.counter("ai.router.hedge",
+                "provider", "secondary", "result", "won").count());
+    }
+
+    @Test
+    void singleProviderIsNeverHedged() {
+        FixedProvider only = new FixedProvider("only", "slow answer", Duration.ofMillis(300));
+        AiRouter router = newRouter(List.of(only));
+
+        StepVerifier.create(router.complete(AiProvider.Tier.PRACTICE, "prompt", Duration.ofSeconds(5), true)
+                        .map(response -> response.choices().get(0).message().content()))
+                .expectNext("slow answer")
+                .verifyComplete();
+
+        assertEquals(1, only.calls.get());
+        assertNull(meterRegistry.find("ai.router.hedge").counter());
+    }
+
+    private AiRouter newRouter(List<AiProvider> providers) {
+        return new AiRouter(providers, meterRegistry, true, 100, 50, 0.0, 0.5, 5, 15);
+    }
+
+    private static final class FixedProvider implements AiProvider {
+        private final String name;
+        private final String response;
+        private final Duration latency;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private FixedProvider(String name, String response, Duration latency) {
+            this.name = name;
+            this.response = response;
+            this.latency = latency;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public String modelFor(Tier tier) {
+            return name;
+        }
+
+        @Override
+        public Mono<AiResponse> complete(Tier tier, String prompt) {
+            return Mono.fromCallable(() -> {
+                calls.incrementAndGet();
+                return new AiResponse(List.of(new AiResponse.Choice(new AiResponse.Message(response))));
+            }).delayElement(latency);
+        }
+
+        @Override
+        public Flux<String> stream(Tier tier, String prompt) {
+            return Flux.empty();
+        }
+    }
+}
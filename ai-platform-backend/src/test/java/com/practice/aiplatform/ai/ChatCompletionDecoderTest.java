@@ -0,0 +1,37 @@
+package com.practice.aiplatform.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ChatCompletionDecoderTest {
+
+    @Test
+    void completionDecoderExtractsContentAcrossBufferBoundaries() throws Exception {
+        String body = "{\"id\":\"x\",\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\","
+                + "\"content\":\"```json\\n{\\\"title\\\": \\\"Plan\\\"}\\n```\"}}],"
+                + "\"usage\":{\"total_tokens\":12}}";
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+        List<DataBuffer> chunks = new ArrayList<>();
+        for (int offset = 0; offset < bytes.length; offset += 7) {
+            chunks.add(bufferFactory.wrap(Arrays.copyOfRange(bytes, offset, Math.min(offset + 7, bytes.length))));
+        }
+
+        AiResponse response = new ChatCompletionDecoder(new ObjectMapper().getFactory())
+                .decode(Flux.fromIterable(chunks))
+                .block();
+
+        String content = response.choices().get(0).message().content();
+        assertEquals("Plan", AiJsonContent.readTree(new ObjectMapper(), content).path("title").asText());
+    }
+}
@@ -0,0 +1,65 @@
+package com.practice.aiplatform.ai;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DocumentTextExtractorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void stripsPageRangesInOrderAndCachesByContentHash() throws Exception {
+        ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+        try (PDDocument document = new PDDocument()) {
+            for (int page = 1; page <= 20; page++) {
+                PDPage pdPage = new PDPage();
+                document.addPage(pdPage);
+                try (PDPageContentStream content = new PDPageContentStream(document, pdPage)) {
+                    content.beginText();
+                    content.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 12);
+                    content.newLineAtOffset(72, 700);
+                    content.showText("Lesson " + page);
+                    content.endText();
+                }
+            }
+            document.save(pdf);
+        }
+
+        DocumentTextExtractor extractor = new DocumentTextExtractor(meterRegistry, 1_000_000, 50, 4, 1 << 20,
+                1_000_000, 5);
+        ExtractedDocument first = extractor.extract(
+                new MockMultipartFile("file", "syllabus.pdf", "application/pdf", pdf.toByteArray()));
+        ExtractedDocument second = extractor.extract(
+                new MockMultipartFile("file", "copy.pdf", "application/pdf", pdf.toByteArray()));
+
+        List<String> lessons = Arrays.stream(first.text().split("\\R"))
+                .map(String::trim)
+                .filter(line -> !line.isEmpty())
+                .toList();
+        assertEquals(20, lessons.size());
+        for (int page = 1; page <= 20; page++) {
+            assertEquals("Lesson " + page, lessons.get(page - 1));
+        }
+        assertTrue(first.isPdf());
+        assertSame(first, second);
+        assertEquals(1.0, meterRegistry.counter("ai.document.extract.cache", "result", "hit").count());
+
+        assertThrows(RuntimeException.class, () -> extractor.extract(
+                new MockMultipartFile("file", "slides.pptx", "application/vnd.ms-powerpoint", new byte[] { 1 })));
+    }
+}
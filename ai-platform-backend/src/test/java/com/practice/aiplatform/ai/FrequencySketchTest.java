@@ -0,0 +1,46 @@
+package com.practice.aiplatform.ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrequencySketchTest {
+
+    @Test
+    void ranksHotTuplesAndAgesOldCounts() {
+        FrequencySketch sketch = new FrequencySketch(64);
+        for (int i = 0; i < 40; i++) {
+            sketch.increment("java|medium|oop");
+        }
+        sketch.increment("rust|hard|lifetimes");
+
+        assertTrue(sketch.estimate("java|medium|oop") >= 40);
+        assertTrue(sketch.estimate("java|medium|oop") > sketch.estimate("rust|hard|lifetimes"));
+
+        // 640 more additions cross the sample size and halve every counter.
+        for (int i = 0; i < 640; i++) {
+            sketch.increment("filler-" + i);
+        }
+        assertTrue(sketch.estimate("java|medium|oop") < 40);
+    }
+
+    @Test
+    void keysWithTheSameStringHashAreCountedApart() {
+        // All four share one String.hashCode, which used to put them on the same counter in every row.
+        List<String> colliding = List.of("AaAa", "AaBB", "BBAa", "BBBB");
+        assertEquals(1, colliding.stream().map(String::hashCode).distinct().count());
+
+        FrequencySketch sketch = new FrequencySketch(64);
+        for (int i = 0; i < 20; i++) {
+            sketch.increment("AaAa");
+        }
+
+        assertEquals(20, sketch.estimate("AaAa"));
+        for (String key : colliding.subList(1, colliding.size())) {
+            assertEquals(0, sketch.estimate(key), key);
+        }
+    }
+}
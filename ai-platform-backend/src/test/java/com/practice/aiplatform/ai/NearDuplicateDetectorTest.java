@@ -0,0 +1,97 @@
+package com.practice.aiplatform.ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NearDuplicateDetectorTest {
+
+    private static final long STORED = 0x9E3779B97F4A7C15L;
+
+    @Test
+    void matchesUpToTheConfiguredHammingDistanceAndNoFurther() {
+        NearDuplicateDetector.Index index = new NearDuplicateDetector(6).newIndex();
+        index.add(STORED);
+
+        assertTrue(index.containsNear(STORED));
+        assertTrue(index.containsNear(STORED ^ spreadBits(6)));
+        assertFalse(index.containsNear(STORED ^ spreadBits(7)));
+    }
+
+    @Test
+    void thresholdIsCappedAtWhatBandingCanRecall() {
+        NearDuplicateDetector.Index index = new NearDuplicateDetector(12).newIndex();
+        index.add(STORED);
+
+        assertTrue(index.containsNear(STORED ^ spreadBits(7)));
+        assertFalse(index.containsNear(STORED ^ spreadBits(8)));
+    }
+
+    @Test
+    void bandingFindsEveryFingerprintWithinSevenBits() {
+        NearDuplicateDetector detector = new NearDuplicateDetector(7);
+        Random random = new Random(42);
+        for (int trial = 0; trial < 1000; trial++) {
+            long stored = random.nextLong();
+            long mask = 0L;
+            while (Long.bitCount(mask) < 7) {
+                mask |= 1L << random.nextInt(64);
+            }
+            NearDuplicateDetector.Index index = detector.newIndex();
+            index.add(stored);
+            assertTrue(index.containsNear(stored ^ mask), "missed " + Long.toHexString(stored));
+        }
+    }
+
+    @Test
+    void rewordedQuestionsDifferingInAFewTokensAreDuplicates() {
+        NearDuplicateDetector detector = new NearDuplicateDetector(6);
+        NearDuplicateDetector.Index index = detector.newIndex();
+        index.add(detector.fingerprint(
+                "Describe the difference between an abstract class and an interface in Java, with an example of when to prefer each."));
+        index.add(detector.fingerprint("What is the time complexity of inserting into a binary heap in Java?"));
+
+        assertTrue(index.containsNear(detector.fingerprint(
+                "What is the difference between an abstract class and an interface in Java? Give an example of when to prefer each.")));
+        assertTrue(index.containsNear(detector.fingerprint(
+                "In Java, what is the time complexity of inserting into a binary heap?")));
+    }
+
+    @Test
+    void questionsDifferingInANumberOrANegationAreNotDuplicates() {
+        NearDuplicateDetector detector = new NearDuplicateDetector(6);
+        NearDuplicateDetector.Index index = detector.newIndex();
+        index.add(detector.fingerprint("Write a function that returns the sum of the first 10 prime numbers."));
+        index.add(detector.fingerprint("Explain why a HashMap is thread-safe in Java."));
+
+        assertFalse(index.containsNear(detector.fingerprint(
+                "Write a function that returns the sum of the first 100 prime numbers.")));
+        assertFalse(index.containsNear(detector.fingerprint("Explain why a HashMap is not thread-safe in Java.")));
+    }
+
+    @Test
+    void textWithoutMeaningfulTokensIsAlwaysNear() {
+        NearDuplicateDetector detector = new NearDuplicateDetector(6);
+        NearDuplicateDetector.Index index = detector.newIndex();
+
+        assertEquals(0L, detector.fingerprint("What is the...?"));
+        // An empty index still rejects it, so the caller regenerates rather than storing it.
+        assertTrue(index.containsNear(0L));
+
+        index.add(0L);
+        assertFalse(index.containsNear(STORED));
+    }
+
+    private static long spreadBits(int count) {
+        // One bit in each band in turn, so up to eight flips leave as few bands intact as possible.
+        long mask = 0L;
+        for (int i = 0; i < count; i++) {
+            mask |= 1L << ((i % 8) * 8 + i / 8);
+        }
+        return mask;
+    }
+}
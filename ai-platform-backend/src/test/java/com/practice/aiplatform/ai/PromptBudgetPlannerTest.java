@@ -0,0 +1,46 @@
+package com.practice.aiplatform.ai;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PromptBudgetPlannerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void promptBudgetDropsRepeatedPageFurnitureAndOutlinesOversizedDocuments() {
+        BpeTokenizer tokenizer = new BpeTokenizer(new ClassPathResource("ai/bpe-merges.txt"));
+        assertEquals(1, tokenizer.count(" the"));
+        assertEquals(tokenizer.count("Hello world"), tokenizer.count("Hello") + tokenizer.count(" world"));
+
+        StringBuilder syllabus = new StringBuilder();
+        for (int unit = 1; unit <= 40; unit++) {
+            syllabus.append("CS101 Data Structures - Spring Term\n")
+                    .append("Unit ").append(unit).append(": Topic number ").append(unit).append('\n')
+                    .append("Students will study the ideas, proofs and exercises that belong to unit ").append(unit)
+                    .append(" in depth, with weekly problem sets and a short quiz at the end.\n")
+                    .append("Page ").append(unit).append(" of 40\n");
+        }
+        PromptBudgetPlanner planner = new PromptBudgetPlanner(tokenizer, meterRegistry, true, 400, 700, 1500);
+
+        String compacted = planner.fitAttachment("study_plan_file", "Build a plan.", syllabus.toString());
+
+        assertTrue(tokenizer.count(compacted) <= 700);
+        assertEquals(1, compacted.split("CS101 Data Structures", -1).length - 1);
+        assertFalse(compacted.contains("Page 7 of 40"));
+        assertTrue(compacted.contains("Unit 25: Topic number 25"));
+        assertTrue(compacted.contains("Unit 40: Topic number 40"));
+        assertTrue(meterRegistry.counter("ai.prompt.tokens.trimmed", "purpose", "study_plan_file").count() > 0);
+
+        List<String> blocked = planner.fitItems("question",
+                List.of("What is a stack?", "what is  a STACK?", "Explain a queue."), 12);
+        assertEquals(List.of("What is a stack?", "Explain a queue."), blocked);
+    }
+}
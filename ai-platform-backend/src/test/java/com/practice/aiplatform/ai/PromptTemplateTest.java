@@ -0,0 +1,37 @@
+package com.practice.aiplatform.ai;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PromptTemplateTest {
+
+    @Test
+    void compiledPromptMatchesFormattedPromptAndEscapesQuotedValues() {
+        String formatted = String.format(
+                "Give one concise hint only.\n"
+                        + "Subject: %s, Topic: %s, Difficulty: %s\n"
+                        + "Question:\n<question>\n%s\n</question>",
+                "Java", "OOP", "easy", "What is a class?");
+        assertEquals(formatted, AiPrompts.HINT.render("Java", "OOP", "easy", "What is a class?"));
+        assertEquals("hint@v2", AiPrompts.HINT.key());
+
+        PromptTemplate quoted = PromptTemplate.compile("quoted", 1, "Topic: \"{{topic}}\"", "topic");
+        assertEquals("Topic: \"Is \\\"final\\\" a keyword?\"", quoted.render("Is \"final\" a keyword?\u0007"));
+        assertThrows(IllegalArgumentException.class,
+                () -> PromptTemplate.compile("broken", 1, "Topic: {{topic}}", "subject"));
+    }
+
+    @Test
+    void studentCodeReachesTheGraderByteForByte() {
+        String question = "Split \"a\\nb\" on newlines.";
+        String answer = "String[] lines = text.split(\"\\\\n\");\n\treturn lines;";
+
+        String prompt = AiPrompts.EVALUATE.render("Java", "Strings", "Beginner", question, answer);
+
+        assertTrue(prompt.contains("<question>\n" + question + "\n</question>"), prompt);
+        assertTrue(prompt.contains("<student_answer>\n" + answer + "\n</student_answer>"), prompt);
+    }
+}
@@ -0,0 +1,109 @@
+package com.practice.aiplatform.ai;
+
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.ReactiveListOperations;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QuestionPoolTest {
+
+    private static final String POOL_KEY = "ai:question-pool:java|medium|oop";
+    private static final String LOCK_KEY = "ai:question-pool-lock:java|medium|oop";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ReactiveStringRedisTemplate redisTemplate = mock(ReactiveStringRedisTemplate.class);
+    private final ReactiveValueOperations<String, String> values = mockValues();
+    private final ReactiveListOperations<String, String> lists = mockLists();
+    private final AiService aiService = mock(AiService.class);
+    private QuestionPool pool;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(redisTemplate.opsForList()).thenReturn(lists);
+        when(redisTemplate.expire(anyString(), any(Duration.class))).thenReturn(Mono.just(true));
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList())).thenReturn(Flux.just(1L));
+        when(lists.range(POOL_KEY, 0, -1)).thenReturn(Flux.empty());
+        when(lists.rightPush(eq(POOL_KEY), anyString())).thenReturn(Mono.just(1L));
+        when(aiService.generateQuestion(anyString(), anyString(), anyString(), any(), any(), anyList()))
+                .thenReturn(Mono.just("What is encapsulation?"));
+
+        ObjectProvider<ReactiveStringRedisTemplate> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(redisTemplate);
+        pool = new QuestionPool(provider, aiService, new NearDuplicateDetector(6), BulkheadRegistry.ofDefaults(),
+                meterRegistry, true, 2, 1, 50, 3, 1, 360, 60_000);
+    }
+
+    @Test
+    void tuplesBelowTheDemandFloorAreNotKeptWarm() {
+        request(2);
+
+        pool.refillHotTuples();
+
+        verify(values, never()).setIfAbsent(anyString(), anyString(), any(Duration.class));
+        verify(aiService, never()).generateQuestion(anyString(), anyString(), anyString(), any(), any(), anyList());
+    }
+
+    @Test
+    void refillRunsUnderThePerTupleLockAndReleasesIt() {
+        when(values.setIfAbsent(eq(LOCK_KEY), anyString(), any(Duration.class))).thenReturn(Mono.just(true));
+        request(3);
+
+        pool.refillHotTuples();
+
+        verify(lists, times(2)).rightPush(eq(POOL_KEY), anyString());
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of(LOCK_KEY)), anyList());
+        assertEquals(2.0, meterRegistry.counter("ai.question.pool.refilled").count());
+    }
+
+    @Test
+    void tupleLockedByAnotherInstanceIsSkipped() {
+        when(values.setIfAbsent(eq(LOCK_KEY), anyString(), any(Duration.class))).thenReturn(Mono.just(false));
+        request(3);
+
+        pool.refillHotTuples();
+
+        verify(lists, never()).range(anyString(), anyLong(), anyLong());
+        verify(aiService, never()).generateQuestion(anyString(), anyString(), anyString(), any(), any(), anyList());
+        assertEquals(1.0, meterRegistry.counter("ai.question.pool.refill.skipped", "reason", "locked").count());
+    }
+
+    private void request(int times) {
+        for (int i = 0; i < times; i++) {
+            pool.recordRequest("Java", "Medium", "OOP");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ReactiveValueOperations<String, String> mockValues() {
+        return mock(ReactiveValueOperations.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ReactiveListOperations<String, String> mockLists() {
+        return mock(ReactiveListOperations.class);
+    }
+}
@@ -0,0 +1,110 @@
+package com.practice.aiplatform.ai;
+
+import com.practice.aiplatform.practice.Question;
+import com.practice.aiplatform.practice.QuestionRepository;
+import com.practice.aiplatform.user.Student;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QuestionPrefetcherTest {
+
+    private static final String EMAIL = "learner@example.com";
+    private static final String NEXT = "Which pattern replaces a conditional with polymorphism?";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AiService aiService = mock(AiService.class);
+    private final Student student = new Student();
+    private final Question answered = new Question();
+
+    @BeforeEach
+    void setUp() {
+        when(aiService.generateQuestion(anyString(), anyString(), anyString(), anyString(), anyString(), anyList(),
+                anyList())).thenReturn(Mono.just(NEXT));
+        student.setId(7L);
+        student.setEmail(EMAIL);
+        answered.setId(41L);
+        answered.setSubject("Java");
+        answered.setTopic("OOP");
+        answered.setDifficulty("Medium");
+        answered.setQuestionText("What is polymorphism?");
+    }
+
+    @Test
+    void servesTheAnsweredBranchWithinTheDailyBudget() {
+        QuestionPrefetcher prefetcher = newPrefetcher(null);
+
+        prefetcher.prefetch(student, answered);
+        prefetcher.prefetch(student, answered);
+
+        StepVerifier.create(prefetcher.take(EMAIL, 41L, "CORRECT", "Java", "OOP", "Medium").orElseThrow())
+                .expectNext(NEXT)
+                .verifyComplete();
+        assertTrue(prefetcher.take(EMAIL, 41L, "CORRECT", "Java", "OOP", "Medium").isEmpty());
+        assertEquals(1.0, meterRegistry.counter("ai.question.prefetch", "result", "skipped_budget").count());
+        assertEquals(1.0, meterRegistry.counter("ai.question.prefetch.outcome", "result", "used").count());
+        assertEquals(1.0, meterRegistry.counter("ai.question.prefetch.outcome", "result", "missed").count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void dailyBudgetIsCountedInRedisUnderTodaysKey() {
+        ReactiveStringRedisTemplate redisTemplate = mock(ReactiveStringRedisTemplate.class);
+        ReactiveValueOperations<String, String> values = mock(ReactiveValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        String key = "ai:question-prefetch:spent:" + LocalDate.now(ZoneOffset.UTC) + ":" + EMAIL;
+        // Another instance already spent part of the budget, so only the first prefetch here fits.
+        when(values.increment(key, 2)).thenReturn(Mono.just(2L), Mono.just(4L));
+        when(redisTemplate.expire(eq(key), any(Duration.class))).thenReturn(Mono.just(true));
+        QuestionPrefetcher prefetcher = newPrefetcher(redisTemplate);
+
+        prefetcher.prefetch(student, answered);
+        prefetcher.prefetch(student, answered);
+
+        verify(redisTemplate, times(1)).expire(eq(key), any(Duration.class));
+        assertEquals(1.0, meterRegistry.counter("ai.question.prefetch", "result", "started").count());
+        assertEquals(1.0, meterRegistry.counter("ai.question.prefetch", "result", "skipped_budget").count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void budgetFallsBackToALocalCountWhenRedisFails() {
+        ReactiveStringRedisTemplate redisTemplate = mock(ReactiveStringRedisTemplate.class);
+        ReactiveValueOperations<String, String> values = mock(ReactiveValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(values.increment(anyString(), eq(2L))).thenReturn(Mono.error(new IllegalStateException("down")));
+        QuestionPrefetcher prefetcher = newPrefetcher(redisTemplate);
+
+        prefetcher.prefetch(student, answered);
+        prefetcher.prefetch(student, answered);
+
+        assertEquals(1.0, meterRegistry.counter("ai.question.prefetch", "result", "started").count());
+        assertEquals(1.0, meterRegistry.counter("ai.question.prefetch", "result", "skipped_budget").count());
+    }
+
+    private QuestionPrefetcher newPrefetcher(ReactiveStringRedisTemplate redisTemplate) {
+        return new QuestionPrefetcher(redisTemplate, aiService, mock(QuestionRepository.class),
+                BulkheadRegistry.ofDefaults(), meterRegistry, true, 60, 2, 10, 1);
+    }
+}
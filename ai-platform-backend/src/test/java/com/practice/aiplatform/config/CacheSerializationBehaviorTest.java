@@ -11,16 +11,22 @@ import com.practice.aiplatform.recommendation.RecommendationService;
 import com.practice.aiplatform.statistics.DailyStatDto;
 import com.practice.aiplatform.statistics.StatisticsDto;
 import com.practice.aiplatform.statistics.StatisticsService;
+import com.practice.aiplatform.studyplan.StudyPlanDetailDto;
+import com.practice.aiplatform.studyplan.StudyPlanDetailStudentDto;
+import com.practice.aiplatform.studyplan.StudyPlanItemDto;
 import com.practice.aiplatform.studyplan.StudyPlanService;
+import com.practice.aiplatform.studyplan.SyllabusPlanSkeleton;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+
 class CacheSerializationBehaviorTest {
 
     private record NonAnnotatedRecord(String topic, String difficulty) {
@@ -128,4 +134,70 @@ class CacheSerializationBehaviorTest {
         Object planRestored = serializer.deserialize(planBytes);
         Assertions.assertInstanceOf(StudyPlanService.StudyPlanStats.class, planRestored);
     }
+
+    @Test
+    void everythingTypingRoundTripsSyllabusSkeleton() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.registerModule(new Hibernate6Module());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        mapper.activateDefaultTyping(
+                LaissezFaireSubTypeValidator.instance,
+                ObjectMapper.DefaultTyping.EVERYTHING,
+                JsonTypeInfo.As.PROPERTY
+        );
+
+        GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer(mapper);
+
+        SyllabusPlanSkeleton.QuestionTemplate question = new SyllabusPlanSkeleton.QuestionTemplate(
+                "What is a heap?", "A tree", "A list", "A map", "A set", "A");
+        SyllabusPlanSkeleton skeleton = new SyllabusPlanSkeleton(
+                "{\"title\":\"Data Structures\"}",
+                "PL123",
+                "Data Structures",
+                "Generated from uploaded syllabus",
+                "Intermediate",
+                7,
+                List.of(
+                        new SyllabusPlanSkeleton.ItemTemplate("VIDEO", 1, 1, "Heaps", "Intro", "vid1",
+                                "https://www.youtube.com/watch?v=vid1", null, "Channel", "PT10M", "Data Structures",
+                                "Heaps", "Intermediate", 10, List.of()),
+                        new SyllabusPlanSkeleton.ItemTemplate("PRACTICE", 1, 2, "Day 1 Checkpoint", null, null,
+                                null, null, null, null, "Data Structures", "Heaps", "Intermediate", 50,
+                                List.of(question))));
+
+        Object restored = serializer.deserialize(serializer.serialize(skeleton));
+        Assertions.assertEquals(skeleton, restored);
+    }
+
+    @Test
+    void smileAndCompressionShrinkStudyPlanDetailAndRoundTrip() {
+        List<StudyPlanItemDto> items = new ArrayList<>();
+        for (int i = 1; i <= 30; i++) {
+            items.add(new StudyPlanItemDto((long) i, "VIDEO", "Heaps part " + i, "Intro to heaps", "vid" + i,
+                    "https://www.youtube.com/watch?v=vid" + i, "https://i.ytimg.com/vi/vid" + i + "/hq.jpg",
+                    "Channel", "PT10M", "Data Structures", "Heaps", "Intermediate", (i + 1) / 2, i, 10,
+                    List.of(), false));
+        }
+        StudyPlanDetailDto plan = new StudyPlanDetailDto(1L, "Data Structures", "Heaps", "Intermediate", 15,
+                "Generated from uploaded syllabus", 0,
+                new StudyPlanDetailStudentDto(10L, "Subh", "Ghosh", null, null, null, null, null, null, null,
+                        "FREE", 120, 3, "2026-01-01"),
+                items, LocalDateTime.now(), false, false);
+
+        CacheValueSerializer json = new CacheValueSerializer(CacheValueSerializer.Format.JSON, 0);
+        CacheValueSerializer smile = new CacheValueSerializer(CacheValueSerializer.Format.SMILE, 0);
+        CacheValueSerializer compressed = new CacheValueSerializer(CacheValueSerializer.Format.SMILE, 2048);
+
+        byte[] jsonBytes = json.serialize(plan);
+        byte[] smileBytes = smile.serialize(plan);
+        byte[] compressedBytes = compressed.serialize(plan);
+        Assertions.assertTrue(smileBytes.length < jsonBytes.length, smileBytes.length + " vs " + jsonBytes.length);
+        Assertions.assertTrue(compressedBytes.length < smileBytes.length, compressedBytes.length + " vs " + smileBytes.length);
+
+        Assertions.assertEquals(plan, json.deserialize(jsonBytes));
+        Assertions.assertEquals(plan, smile.deserialize(smileBytes));
+        // Any serializer reads what another wrote, so a cache can switch format without a flush.
+        Assertions.assertEquals(plan, json.deserialize(compressedBytes));
+    }
 }
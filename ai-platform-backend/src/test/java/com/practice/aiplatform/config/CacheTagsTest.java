@@ -0,0 +1,115 @@
+package com.practice.aiplatform.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.cache.CacheKeyPrefix;
+import org.springframework.data.redis.core.ReactiveSetOperations;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CacheTagsTest {
+
+    @Test
+    void practiceTagDropsOnlyThatUsersPracticeEntries() {
+        ConcurrentMapCacheManager redis = new ConcurrentMapCacheManager();
+        TwoLevelCacheManager manager = new TwoLevelCacheManager(redis, CacheConfig.CACHE_TTLS,
+                CacheConfig.DEFAULT_TTL, 100, Duration.ofMinutes(30), true, CacheKeyPrefix.simple(),
+                new SimpleMeterRegistry(), null);
+        Cache history = manager.getCache("UserPracticeHistoryCache");
+        Cache predictions = manager.getCache("PredictSuccessCache");
+        Cache profile = manager.getCache("UserProfileCache");
+
+        history.get("a@b.c", () -> "history");
+        predictions.get("a@b.c|OOP|Beginner", () -> "prediction");
+        predictions.get("x@y.z|OOP|Beginner", () -> "other user");
+        profile.get("a@b.c", () -> "profile");
+
+        new CacheTags(manager).invalidate(CacheTags.practice("a@b.c"));
+
+        assertNull(history.get("a@b.c"));
+        assertNull(predictions.get("a@b.c|OOP|Beginner"));
+        assertEquals("other user", predictions.get("x@y.z|OOP|Beginner", String.class));
+        assertEquals("profile", profile.get("a@b.c", String.class));
+    }
+
+    @Test
+    void tagInvalidationRemovesOnlyTheMembersItRead() {
+        ReactiveStringRedisTemplate redisTemplate = mock(ReactiveStringRedisTemplate.class);
+        @SuppressWarnings("unchecked")
+        ReactiveSetOperations<String, String> sets = mock(ReactiveSetOperations.class);
+        when(redisTemplate.listenToChannel(TwoLevelCacheManager.CHANNEL)).thenReturn(Flux.never());
+        when(redisTemplate.opsForSet()).thenReturn(sets);
+        when(sets.add(anyString(), any(String[].class))).thenReturn(Mono.just(1L));
+        when(redisTemplate.expire(anyString(), any(Duration.class))).thenReturn(Mono.just(true));
+        when(sets.members("tag::practice:a@b.c")).thenReturn(Flux.just("UserPracticeHistoryCache|a@b.c"));
+        when(sets.remove(anyString(), any(Object[].class))).thenReturn(Mono.just(1L));
+        when(redisTemplate.delete(any(String[].class))).thenReturn(Mono.just(1L));
+        when(redisTemplate.convertAndSend(anyString(), anyString())).thenReturn(Mono.just(0L));
+        TwoLevelCacheManager manager = new TwoLevelCacheManager(new ConcurrentMapCacheManager(),
+                CacheConfig.CACHE_TTLS, CacheConfig.DEFAULT_TTL, 100, Duration.ofMinutes(30), true,
+                CacheKeyPrefix.simple(), new SimpleMeterRegistry(), redisTemplate);
+
+        // The tag is written before put returns, not on some later subscription.
+        manager.getCache("UserPracticeHistoryCache").put("a@b.c", "history");
+        verify(sets).add("tag::practice:a@b.c", "UserPracticeHistoryCache|a@b.c");
+
+        StepVerifier.create(manager.invalidateTags(List.of(CacheTags.practice("a@b.c")))).verifyComplete();
+
+        // An entry tagged after SMEMBERS stays in the set; deleting the set would orphan it.
+        verify(sets).remove("tag::practice:a@b.c", "UserPracticeHistoryCache|a@b.c");
+        verify(redisTemplate).delete(new String[]{"UserPracticeHistoryCache::a@b.c"});
+        verify(redisTemplate, never()).delete("tag::practice:a@b.c");
+    }
+
+    @Test
+    void invalidationInsideATransactionWaitsForTheCommit() {
+        TwoLevelCacheManager manager = new TwoLevelCacheManager(new ConcurrentMapCacheManager(),
+                CacheConfig.CACHE_TTLS, CacheConfig.DEFAULT_TTL, 100, Duration.ofMinutes(30), true,
+                CacheKeyPrefix.simple(), new SimpleMeterRegistry(), null);
+        CacheTags cacheTags = new CacheTags(manager);
+        Cache history = manager.getCache("UserPracticeHistoryCache");
+        history.get("a@b.c", () -> "history");
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cacheTags.invalidate(CacheTags.practice("a@b.c"));
+            // A read before the commit would otherwise cache the old state again right away.
+            assertEquals("history", history.get("a@b.c", String.class));
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            assertNull(history.get("a@b.c"));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // A rolled-back transaction changed nothing, so nothing is invalidated.
+        history.get("a@b.c", () -> "history");
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cacheTags.invalidate(CacheTags.practice("a@b.c"));
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals("history", history.get("a@b.c", String.class));
+    }
+}
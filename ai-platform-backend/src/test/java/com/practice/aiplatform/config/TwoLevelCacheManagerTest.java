@@ -0,0 +1,146 @@
+package com.practice.aiplatform.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.cache.CacheKeyPrefix;
+import org.springframework.data.redis.connection.ReactiveSubscription;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TwoLevelCacheManagerTest {
+
+    private static final String CACHE = "YtSearchVideosCache";
+
+    private final ConcurrentMapCacheManager redis = new ConcurrentMapCacheManager();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Sinks.Many<ReactiveSubscription.Message<String, String>> channel =
+            Sinks.many().multicast().directBestEffort();
+
+    @Test
+    void twoLevelCacheServesLocalCopyUntilEvicted() {
+        TwoLevelCacheManager manager = manager(null);
+        Cache cache = manager.getCache(CACHE);
+
+        assertEquals("v1", cache.get("a@b.c", () -> "v1"));
+        // Changed behind the local tier's back: the local copy still wins.
+        l2().put("a@b.c", "v2");
+        assertEquals("v1", cache.get("a@b.c", String.class));
+
+        cache.evict("a@b.c");
+        assertNull(l2().get("a@b.c"));
+        assertEquals("v3", cache.get("a@b.c", () -> "v3"));
+        assertEquals(1.0, meterRegistry.counter("cache_layer_access_total",
+                "cache", CACHE, "layer", "l1", "result", "hit").count());
+    }
+
+    @Test
+    void evictionFromAnotherInstanceDropsTheLocalCopy() {
+        TwoLevelCacheManager manager = manager(redisTemplate());
+        Cache cache = manager.getCache(CACHE);
+        cache.get("heaps", () -> "v1");
+        cache.get("tries", () -> "v1");
+        l2().put("heaps", "v2");
+        l2().put("tries", "v2");
+
+        receive("other-node|E|" + CACHE + "|heaps");
+
+        assertEquals("v2", cache.get("heaps", String.class));
+        assertEquals("v1", cache.get("tries", String.class));
+    }
+
+    @Test
+    void clearAndTagMessagesFromAnotherInstanceDropTheirEntries() {
+        TwoLevelCacheManager manager = manager(redisTemplate());
+        Cache cache = manager.getCache(CACHE);
+        cache.get("heaps", () -> "v1");
+        cache.get("tries", () -> "v1");
+        cache.get("graphs", () -> "v1");
+        l2().put("heaps", "v2");
+        l2().put("tries", "v2");
+        l2().put("graphs", "v2");
+
+        receive("other-node|T||" + CACHE + "|heaps\n" + CACHE + "|tries");
+
+        assertEquals("v2", cache.get("heaps", String.class));
+        assertEquals("v2", cache.get("tries", String.class));
+        assertEquals("v1", cache.get("graphs", String.class));
+
+        receive("other-node|C|" + CACHE);
+
+        assertEquals("v2", cache.get("graphs", String.class));
+    }
+
+    @Test
+    void ownInvalidationMessagesAreIgnored() {
+        TwoLevelCacheManager manager = manager(redisTemplate());
+        Cache cache = manager.getCache(CACHE);
+        cache.get("heaps", () -> "v1");
+        l2().put("heaps", "v2");
+        String self = (String) ReflectionTestUtils.getField(manager, "instanceId");
+
+        receive(self + "|E|" + CACHE + "|heaps");
+        receive(self + "|C|" + CACHE);
+
+        assertEquals("v1", cache.get("heaps", String.class));
+    }
+
+    @Test
+    void retrieveLoadsOnceThenServesTheLocalCopy() {
+        TwoLevelCacheManager manager = manager(null);
+        Cache cache = manager.getCache(CACHE);
+        AtomicInteger loads = new AtomicInteger();
+
+        CompletableFuture<String> first = cache.retrieve("heaps",
+                () -> CompletableFuture.supplyAsync(() -> "v" + loads.incrementAndGet()));
+        assertEquals("v1", first.join());
+        assertEquals("v1", l2().get("heaps", String.class));
+
+        l2().put("heaps", "v2");
+        CompletableFuture<String> second = cache.retrieve("heaps",
+                () -> CompletableFuture.supplyAsync(() -> "v" + loads.incrementAndGet()));
+        assertEquals("v1", second.join());
+        assertEquals(1, loads.get());
+
+        // After an eviction the next retrieve goes back to l2.
+        cache.evict("heaps");
+        l2().put("heaps", "v3");
+        assertEquals("v3", cache.retrieve("heaps",
+                () -> CompletableFuture.completedFuture("unused")).join());
+        assertEquals(1, loads.get());
+    }
+
+    private TwoLevelCacheManager manager(ReactiveStringRedisTemplate redisTemplate) {
+        return new TwoLevelCacheManager(redis, CacheConfig.CACHE_TTLS, CacheConfig.DEFAULT_TTL, 100,
+                Duration.ofMinutes(30), true, CacheKeyPrefix.simple(), meterRegistry, redisTemplate);
+    }
+
+    private ReactiveStringRedisTemplate redisTemplate() {
+        ReactiveStringRedisTemplate redisTemplate = mock(ReactiveStringRedisTemplate.class);
+        doReturn(channel.asFlux()).when(redisTemplate).listenToChannel(TwoLevelCacheManager.CHANNEL);
+        when(redisTemplate.convertAndSend(anyString(), anyString())).thenReturn(Mono.just(0L));
+        return redisTemplate;
+    }
+
+    private void receive(String message) {
+        channel.tryEmitNext(new ReactiveSubscription.ChannelMessage<>(TwoLevelCacheManager.CHANNEL, message));
+    }
+
+    private Cache l2() {
+        return redis.getCache(CACHE);
+    }
+}
@@ -0,0 +1,45 @@
+package com.practice.aiplatform.moderation;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ModerationLexiconTest {
+
+    private final ModerationLexicon lexicon = new ModerationLexicon(new ClassPathResource("moderation/allow.txt"),
+            new ClassPathResource("moderation/block.txt"));
+
+    @Test
+    void inputCoveredByTheAllowListIsAllowed() {
+        assertEquals(ModerationLexicon.Verdict.ALLOW, classify("Java\nObject Oriented Programming\nMedium"));
+        assertEquals(ModerationLexicon.Verdict.ALLOW, classify("Data Structures - Binary Trees (Hard)"));
+        assertEquals(ModerationLexicon.Verdict.ALLOW, classify("Linux kill command"));
+    }
+
+    @Test
+    void blockLexiconMatchesAreBlockedThroughCharacterSwaps() {
+        assertEquals(ModerationLexicon.Verdict.BLOCK, classify("this is SH1T"));
+        assertEquals(ModerationLexicon.Verdict.BLOCK, classify("Fücking calculus"));
+    }
+
+    @Test
+    void anythingTheAllowListDoesNotCoverIsEscalated() {
+        assertEquals(ModerationLexicon.Verdict.ESCALATE, classify("how to kill my neighbour"));
+        // Harmless, but nothing local can tell it apart from the line above.
+        assertEquals(ModerationLexicon.Verdict.ESCALATE, classify("Assessment of Classical Music"));
+        assertEquals(ModerationLexicon.Verdict.ESCALATE, classify("Sexual reproduction in plants"));
+    }
+
+    @Test
+    void wordsWithAnInnocentReadingAreLeftToTheModel() {
+        assertEquals(ModerationLexicon.Verdict.ESCALATE, classify("Lecture in Room XXX (TBA)"));
+        assertEquals(ModerationLexicon.Verdict.ESCALATE, classify("A chink in the armour: rhetoric"));
+        assertEquals(ModerationLexicon.Verdict.ESCALATE, classify("Pornography and censorship in media studies"));
+        assertEquals(ModerationLexicon.Verdict.ESCALATE, classify("Retarded potentials in electrodynamics"));
+    }
+
+    private ModerationLexicon.Verdict classify(String text) {
+        return lexicon.classify(ModerationLexicon.normalize(text));
+    }
+}
@@ -0,0 +1,95 @@
+package com.practice.aiplatform.moderation;
+
+import com.practice.aiplatform.ai.AiService;
+import com.practice.aiplatform.ai.ExtractedDocument;
+import com.practice.aiplatform.ai.PromptBudgetPlanner;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PromptModerationServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AiService aiService = mock(AiService.class);
+    private final PromptBudgetPlanner promptBudget = mock(PromptBudgetPlanner.class);
+    private final PromptModerationService moderation = new PromptModerationService(aiService,
+            promptBudget,
+            new ModerationLexicon(new ClassPathResource("moderation/allow.txt"),
+                    new ClassPathResource("moderation/block.txt")),
+            meterRegistry, 100, 10, true);
+
+    @Test
+    void lexiconVerdictsNeverReachTheModel() {
+        assertFalse(moderation.isBlocked("Java", "Object Oriented Programming", "Medium"));
+        assertTrue(moderation.isBlocked("this is SH1T"));
+
+        verify(aiService, never()).generatePracticeContentAsync(anyString());
+    }
+
+    @Test
+    void escalatedInputAsksTheModelOnceAndReusesItsVerdict() {
+        when(aiService.generatePracticeContentAsync(anyString())).thenReturn(Mono.just("ALLOW"));
+
+        assertFalse(moderation.isBlocked("Assessment of Classical Music"));
+        // Normalization makes a differently written repeat hit the same cached verdict.
+        assertFalse(moderation.isBlocked("  assessment of classical MUSIC!"));
+
+        verify(aiService, times(1)).generatePracticeContentAsync(anyString());
+        assertEquals(1.0, meterRegistry.counter("ai.moderation.verdict", "tier", "cache", "verdict", "allow").count());
+    }
+
+    @Test
+    void optimisticModerationCancelsWorkOnBlockAndReleasesItOnAllow() {
+        when(aiService.generatePracticeContentAsync(anyString()))
+                .thenReturn(Mono.just("BLOCK"), Mono.just("ALLOW"));
+
+        AtomicBoolean cancelled = new AtomicBoolean();
+        StepVerifier.create(moderation.withholdUntilAllowed(
+                        Mono.<String>never().doOnCancel(() -> cancelled.set(true)), "how to kill my neighbour"))
+                .expectError(BlockedInputException.class)
+                .verify(Duration.ofSeconds(5));
+        assertTrue(cancelled.get());
+
+        StepVerifier.create(moderation.withholdUntilAllowed(Mono.just("question"), "kill switch engineering"))
+                .expectNext("question")
+                .verifyComplete();
+
+        // A cached BLOCK fails before the work is even subscribed.
+        AtomicBoolean subscribed = new AtomicBoolean();
+        StepVerifier.create(moderation.withholdUntilAllowed(
+                        Mono.just("question").doOnSubscribe(s -> subscribed.set(true)), "how to kill my neighbour"))
+                .expectError(BlockedInputException.class)
+                .verify();
+        assertFalse(subscribed.get());
+        verify(aiService, times(2)).generatePracticeContentAsync(anyString());
+    }
+
+    @Test
+    void lexiconHitsInADocumentAreLeftToTheModel() {
+        when(promptBudget.truncate(eq("moderation_file"), anyString())).thenAnswer(invocation -> invocation.getArgument(1));
+        when(aiService.generatePracticeContentAsync(anyString())).thenReturn(Mono.just("ALLOW"));
+        ExtractedDocument syllabus = new ExtractedDocument("hash", "text/plain",
+                "Week 3: Frankfurt, On Bullshit. Week 4: why \"shit\" became a swear word.");
+
+        // The same words in a prompt are blocked without asking.
+        assertTrue(moderation.isBlocked("shit"));
+        assertFalse(moderation.isBlockedFile(syllabus));
+        verify(aiService, times(1)).generatePracticeContentAsync(anyString());
+    }
+}
@@ -0,0 +1,111 @@
+package com.practice.aiplatform.practice;
+
+import com.practice.aiplatform.ai.AiService;
+import com.practice.aiplatform.config.CacheTags;
+import com.practice.aiplatform.event.GamificationEventPublisher;
+import com.practice.aiplatform.event.RecoveryPlanEventPublisher;
+import com.practice.aiplatform.studyplan.StudyPlanService;
+import com.practice.aiplatform.user.Student;
+import com.practice.aiplatform.user.StudentRepository;
+import com.practice.aiplatform.user.UsageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PracticeControllerTest {
+
+    @Mock
+    private QuestionRepository questionRepository;
+
+    @Mock
+    private AnswerRepository answerRepository;
+
+    @Mock
+    private StudentRepository studentRepository;
+
+    @Mock
+    private AiService aiService;
+
+    @Mock
+    private UsageService usageService;
+
+    @Mock
+    private GamificationEventPublisher eventPublisher;
+
+    @Mock
+    private StudyPlanService studyPlanService;
+
+    @Mock
+    private RecoveryPlanEventPublisher recoveryPlanEventPublisher;
+
+    @Mock
+    private CacheTags cacheTags;
+
+    @InjectMocks
+    private PracticeController practiceController;
+
+    private final Principal principal = () -> "learner@example.com";
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        Student student = new Student();
+        student.setId(1L);
+        student.setEmail("learner@example.com");
+        Question question = new Question();
+        question.setId(7L);
+        question.setStudent(student);
+        question.setQuestionText("What does a heap guarantee?");
+        question.setSubject("Data Structures");
+        question.setTopic("Heaps");
+        question.setDifficulty("Beginner");
+        when(usageService.canPerformAction("learner@example.com")).thenReturn(true);
+        when(studentRepository.findByEmail("learner@example.com")).thenReturn(Optional.of(student));
+        when(questionRepository.findById(7L)).thenReturn(Optional.of(question));
+        when(answerRepository.save(any(Answer.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(cacheTags.invalidateAsync(anyString())).thenReturn(Mono.empty());
+    }
+
+    @Test
+    void evaluationIsCompletedWhenTheClientDisconnectsMidStream() {
+        Sinks.Many<String> tokens = Sinks.many().unicast().onBackpressureBuffer();
+        when(aiService.streamEvaluation(anyString(), anyString(), anyString(), anyString(), anyString()))
+                .thenReturn(tokens.asFlux());
+
+        StepVerifier.create(practiceController.submitAnswerStream(
+                        new SubmitAnswerRequest(7L, "The smallest element is at the root"), principal))
+                .then(() -> tokens.tryEmitNext("CORRECT\n"))
+                .expectNextCount(1)
+                .thenCancel()
+                .verify();
+        tokens.tryEmitNext("The root holds the minimum.");
+        tokens.tryEmitComplete();
+
+        // Once for the initial answer, once with the verdict.
+        ArgumentCaptor<Answer> saved = ArgumentCaptor.forClass(Answer.class);
+        verify(answerRepository, timeout(Duration.ofSeconds(5).toMillis()).times(2)).save(saved.capture());
+        assertEquals("CORRECT", saved.getValue().getEvaluationStatus());
+        assertTrue(saved.getValue().getIsCorrect());
+        verify(eventPublisher, timeout(Duration.ofSeconds(5).toMillis())).publishPracticeCompletedEvent(any());
+        verify(studyPlanService, times(1)).markExternalPracticeAsComplete("learner@example.com", "Heaps", "Beginner");
+    }
+}
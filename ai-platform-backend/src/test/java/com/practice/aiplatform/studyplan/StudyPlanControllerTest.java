@@ -0,0 +1,64 @@
+package com.practice.aiplatform.studyplan;
+
+import com.practice.aiplatform.ai.DocumentTextExtractor;
+import com.practice.aiplatform.moderation.PromptModerationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.security.Principal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StudyPlanControllerTest {
+
+    private final StudyPlanService studyPlanService = mock(StudyPlanService.class);
+    private final PromptModerationService promptModerationService = mock(PromptModerationService.class);
+    private final StudyPlanController controller = new StudyPlanController(studyPlanService,
+            promptModerationService, mock(DocumentTextExtractor.class));
+    private final Principal principal = () -> "learner@example.com";
+
+    @Test
+    void progressStreamReportsMissingPlansAsNotFoundAndOtherFailuresAsServerErrors() {
+        when(studyPlanService.streamProgress(1L, "learner@example.com"))
+                .thenReturn(Flux.error(new StudyPlanNotFoundException("Study plan not found")));
+        when(studyPlanService.streamProgress(2L, "learner@example.com"))
+                .thenReturn(Flux.error(new DataAccessResourceFailureException("connection refused")));
+
+        StepVerifier.create(controller.streamStudyPlanProgress(1L, principal))
+                .assertNext(event -> assertErrorStatus(event, 404))
+                .verifyComplete();
+        StepVerifier.create(controller.streamStudyPlanProgress(2L, principal))
+                .assertNext(event -> assertErrorStatus(event, 500))
+                .verifyComplete();
+    }
+
+    @Test
+    void blockedTopicNeverQueuesAGenerationJob() {
+        when(promptModerationService.isOptimistic()).thenReturn(true);
+        when(promptModerationService.isBlocked("how to kill my neighbour", "Hard")).thenReturn(true);
+        when(promptModerationService.warningMessage()).thenReturn("Input contains unsafe language.");
+
+        ResponseEntity<?> response = controller.generateStudyPlan(
+                new StudyPlanController.GenerateStudyPlanRequest("how to kill my neighbour", "Hard", 7), principal);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(studyPlanService, never()).initiateAsyncStudyPlan(anyString(), anyString(), anyString(), anyInt());
+    }
+
+    private static void assertErrorStatus(ServerSentEvent<Object> event, int status) {
+        assertEquals("error", event.event());
+        assertEquals(status, ((Map<?, ?>) event.data()).get("status"));
+    }
+}
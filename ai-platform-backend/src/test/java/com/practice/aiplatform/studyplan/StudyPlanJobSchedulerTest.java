@@ -0,0 +1,138 @@
+package com.practice.aiplatform.studyplan;
+
+import com.practice.aiplatform.event.RecoveryPlanEvent;
+import com.practice.aiplatform.user.StudentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+@DataJpaTest
+class StudyPlanJobSchedulerTest {
+
+    private static final Duration AGING = Duration.ofMinutes(10);
+
+    @Autowired
+    private StudyPlanJobRepository jobRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private final Instant now = Instant.now();
+    private StudyPlanJobScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new StudyPlanJobScheduler(jobRepository, mock(StudentRepository.class),
+                mock(StudyPlanService.class), new SimpleMeterRegistry(), 2, 2000, AGING.toMillis(), 900_000);
+    }
+
+    @Test
+    void jobsRunByPriorityClassThenOldestFirst() {
+        StudyPlanJob recovery = job("a@example.com", StudyPlanJobPriority.RECOVERY, now.minusSeconds(300));
+        StudyPlanJob free = job("b@example.com", StudyPlanJobPriority.FREE, now.minusSeconds(200));
+        StudyPlanJob laterPremium = job("c@example.com", StudyPlanJobPriority.PREMIUM, now.minusSeconds(10));
+        StudyPlanJob premium = job("d@example.com", StudyPlanJobPriority.PREMIUM, now.minusSeconds(100));
+
+        assertEquals(List.of(premium.getId(), laterPremium.getId(), free.getId(), recovery.getId()), claimable());
+    }
+
+    @Test
+    void aJobWaitingPastTheAgingThresholdRunsBeforeEveryClass() {
+        StudyPlanJob premium = job("a@example.com", StudyPlanJobPriority.PREMIUM, now.minusSeconds(5));
+        StudyPlanJob agedRecovery = job("b@example.com", StudyPlanJobPriority.RECOVERY,
+                now.minus(AGING).minusSeconds(60));
+
+        assertEquals(List.of(agedRecovery.getId(), premium.getId()), claimable());
+    }
+
+    @Test
+    void usersWithARunningJobAreSkippedUntilItFinishes() {
+        StudyPlanJob running = job("a@example.com", StudyPlanJobPriority.PREMIUM, now.minusSeconds(60));
+        StudyPlanJob second = job("a@example.com", StudyPlanJobPriority.PREMIUM, now.minusSeconds(50));
+        StudyPlanJob other = job("b@example.com", StudyPlanJobPriority.RECOVERY, now.minusSeconds(40));
+        claim(running);
+
+        assertEquals(List.of(other.getId()), claimable());
+
+        jobRepository.finish(running.getId(), StudyPlanJob.Status.DONE, now, null);
+        entityManager.clear();
+
+        assertEquals(List.of(second.getId(), other.getId()), claimable());
+    }
+
+    @Test
+    void duplicateJobsAreDroppedWhileTheFirstIsPending() {
+        RecoveryPlanEvent recovery = new RecoveryPlanEvent("a@example.com", " Graphs ", "Hard", 3, null);
+        RecoveryPlanEvent sameRecovery = new RecoveryPlanEvent("a@example.com", "graphs", "hard", 3, null);
+        RecoveryPlanEvent plan = new RecoveryPlanEvent("a@example.com", "Graphs", "Hard", 3, 7L);
+
+        scheduler.enqueue(recovery);
+        scheduler.enqueue(sameRecovery);
+        scheduler.enqueue(plan);
+        scheduler.enqueue(plan);
+        assertEquals(2, jobRepository.count());
+
+        // A running plan job still blocks a second one; a running recovery job does not.
+        jobRepository.findAll().forEach(this::claim);
+        scheduler.enqueue(sameRecovery);
+        scheduler.enqueue(plan);
+        assertEquals(3, jobRepository.count());
+    }
+
+    @Test
+    void onlyJobsWithoutARecentHeartbeatAreRequeued() {
+        StudyPlanJob alive = job("a@example.com", StudyPlanJobPriority.FREE, now.minus(Duration.ofHours(1)));
+        StudyPlanJob crashed = job("b@example.com", StudyPlanJobPriority.FREE, now.minus(Duration.ofHours(1)));
+        jobRepository.claim(alive.getId(), StudyPlanJob.Status.QUEUED, StudyPlanJob.Status.RUNNING,
+                now.minus(Duration.ofMinutes(40)));
+        jobRepository.claim(crashed.getId(), StudyPlanJob.Status.QUEUED, StudyPlanJob.Status.RUNNING,
+                now.minus(Duration.ofMinutes(40)));
+        // A long generation keeps its job alive by checkpointing.
+        jobRepository.heartbeat(alive.getId(), StudyPlanJob.Status.RUNNING, now.minus(Duration.ofMinutes(1)));
+
+        int requeued = jobRepository.requeueStale(StudyPlanJob.Status.RUNNING, StudyPlanJob.Status.QUEUED,
+                now.minus(Duration.ofMinutes(15)), 3);
+        entityManager.clear();
+
+        assertEquals(1, requeued);
+        assertEquals(StudyPlanJob.Status.RUNNING, jobRepository.findById(alive.getId()).orElseThrow().getStatus());
+        assertEquals(StudyPlanJob.Status.QUEUED, jobRepository.findById(crashed.getId()).orElseThrow().getStatus());
+    }
+
+    private StudyPlanJob job(String email, StudyPlanJobPriority priority, Instant enqueuedAt) {
+        StudyPlanJob job = new StudyPlanJob();
+        job.setUserEmail(email);
+        job.setTopic("Graphs");
+        job.setDifficulty("Hard");
+        job.setDays(3);
+        job.setPriority(priority);
+        job.setPriorityRank(priority.rank());
+        job.setDedupKey("test:" + email + "|" + enqueuedAt);
+        job.setEnqueuedAt(enqueuedAt);
+        return jobRepository.saveAndFlush(job);
+    }
+
+    private void claim(StudyPlanJob job) {
+        jobRepository.claim(job.getId(), StudyPlanJob.Status.QUEUED, StudyPlanJob.Status.RUNNING, now);
+        entityManager.clear();
+    }
+
+    private List<Long> claimable() {
+        return jobRepository.findClaimable(StudyPlanJob.Status.QUEUED, StudyPlanJob.Status.RUNNING,
+                        now.minus(AGING), PageRequest.of(0, 10))
+                .stream()
+                .map(StudyPlanJob::getId)
+                .toList();
+    }
+}
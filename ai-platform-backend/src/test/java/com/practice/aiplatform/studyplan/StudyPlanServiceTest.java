@@ -1,11 +1,346 @@
 package com.practice.aiplatform.studyplan;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.practice.aiplatform.ai.AiService;
+import com.practice.aiplatform.ai.ExtractedDocument;
+import com.practice.aiplatform.config.CacheTags;
+import com.practice.aiplatform.event.GamificationEventPublisher;
+import com.practice.aiplatform.event.RecoveryPlanEventPublisher;
+import com.practice.aiplatform.user.Student;
+import com.practice.aiplatform.user.StudentRepository;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class StudyPlanServiceTest {
 
+    private static final String EMAIL = "learner@example.com";
+    private static final String OUTLINE = "{\"title\": \"Heaps in a week\", \"description\": \"Priority queues\","
+            + " \"days\": [{\"dayNumber\": 1, \"items\": [{\"type\": \"VIDEO\", \"videoId\": \"v1\"},"
+            + " {\"type\": \"PRACTICE\", \"practiceTopic\": \"Heaps\"}]}]}";
+    private static final Map<String, String> VIDEO = Map.of("videoId", "v1", "title", "Heaps explained",
+            "channelTitle", "CS Channel", "duration", "PT20M", "thumbnailUrl", "https://img/v1.jpg");
+    private static final String QUIZ = "{\"questions\": [{\"question\": \"Q\", \"optionA\": \"a\", \"optionB\": \"b\","
+            + " \"optionC\": \"c\", \"optionD\": \"d\", \"correctOption\": \"B\"}]}";
+
+    private final AiService aiService = mock(AiService.class);
+    private final YouTubeService youTubeService = mock(YouTubeService.class);
+    private final StudyPlanRepository studyPlanRepository = mock(StudyPlanRepository.class);
+    private final QuizQuestionRepository quizQuestionRepository = mock(QuizQuestionRepository.class);
+    private final StudentRepository studentRepository = mock(StudentRepository.class);
+    private final ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
+    private final StudyPlanProgressBroadcaster progressBroadcaster =
+            new StudyPlanProgressBroadcaster(mock(ObjectProvider.class), new ObjectMapper(), false);
+    private StudyPlanService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new StudyPlanService(aiService, youTubeService, studyPlanRepository,
+                mock(StudyPlanItemRepository.class), quizQuestionRepository, studentRepository,
+                new ObjectMapper(), cacheManager, mock(CacheTags.class), new SimpleMeterRegistry(),
+                mock(RecoveryPlanEventPublisher.class), mock(GamificationEventPublisher.class),
+                BulkheadRegistry.ofDefaults(), progressBroadcaster, 4, 4);
+        // No Spring proxy in a unit test, so the self-reference points at the plain instance.
+        ReflectionTestUtils.setField(service, "self", service);
+    }
+
     @Test
-    void test() {
-        // Placeholder
+    void quizStageCompletesOnlyOnceEveryPracticeItemHasAQuiz() {
+        StudyPlanItem heaps = practiceItem(11L, "Heaps");
+        StudyPlanItem tries = practiceItem(12L, "Tries");
+        StudyPlan plan = plan(1L, StudyPlanStage.OUTLINE_GENERATED, heaps, tries);
+        when(quizQuestionRepository.findByStudyPlanItemIdIn(anyList())).thenReturn(List.of());
+        when(aiService.generateQuizContentAsync(contains("Heaps"))).thenReturn(Mono.just(QUIZ));
+        when(aiService.generateQuizContentAsync(contains("Tries")))
+                .thenReturn(Mono.error(new RuntimeException("AI_PRACTICE_UNAVAILABLE")));
+
+        // The failure reaches the job scheduler, which records it as the job's last error.
+        RuntimeException failure = assertThrows(RuntimeException.class,
+                () -> service.completeAsyncStudyPlan(1L, EMAIL, "Data Structures", "Medium", 3, () -> {}));
+        assertEquals("Quiz generation failed for 1 of 2 practice items", failure.getMessage());
+
+        assertEquals(StudyPlanStage.OUTLINE_GENERATED, plan.getGenerationStage());
+        ArgumentCaptor<List<QuizQuestion>> saved = quizCaptor();
+        verify(quizQuestionRepository).saveAll(saved.capture());
+        assertEquals(List.of(heaps), saved.getValue().stream().map(QuizQuestion::getStudyPlanItem).toList());
+
+        // The resumed run only asks for the quiz that is still missing.
+        when(quizQuestionRepository.findByStudyPlanItemIdIn(anyList())).thenReturn(saved.getValue());
+        when(aiService.generateQuizContentAsync(contains("Tries"))).thenReturn(Mono.just(QUIZ));
+        plan.setGenerating(true);
+
+        service.completeAsyncStudyPlan(1L, EMAIL, "Data Structures", "Medium", 3, () -> {});
+
+        assertEquals(StudyPlanStage.FINALIZED, plan.getGenerationStage());
+        verify(aiService, times(1)).generateQuizContentAsync(contains("Heaps"));
+        verify(aiService, times(2)).generateQuizContentAsync(contains("Tries"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = StudyPlanStage.class, names = "FINALIZED", mode = EnumSource.Mode.EXCLUDE)
+    void resumeSkipsEveryStageBeforeTheCheckpoint(StudyPlanStage checkpoint) throws Exception {
+        StudyPlan plan = checkpoint.compareTo(StudyPlanStage.OUTLINE_GENERATED) >= 0
+                ? plan(1L, checkpoint, practiceItem(11L, "Heaps"))
+                : plan(1L, checkpoint);
+        // A failed run leaves the placeholder title behind; finalizing restores it from the outline.
+        plan.setTitle("Generation Failed");
+        plan.setGenerationCheckpoint(switch (checkpoint) {
+            case PENDING -> null;
+            case VIDEOS_FETCHED -> new ObjectMapper().writeValueAsString(
+                    new StudyPlanService.GenerationCheckpoint(List.of(VIDEO), null));
+            default -> new ObjectMapper().writeValueAsString(new StudyPlanService.GenerationCheckpoint(null, OUTLINE));
+        });
+        when(youTubeService.searchVideos(anyString(), anyInt())).thenReturn(List.of(VIDEO));
+        when(aiService.generateStudyPlanContent(anyString())).thenReturn(OUTLINE);
+        when(aiService.generateQuizContentAsync(anyString())).thenReturn(Mono.just(QUIZ));
+        when(quizQuestionRepository.findByStudyPlanItemIdIn(anyList())).thenReturn(List.of());
+        AtomicInteger heartbeats = new AtomicInteger();
+
+        service.completeAsyncStudyPlan(1L, EMAIL, "Data Structures", "Medium", 3, heartbeats::incrementAndGet);
+
+        verify(youTubeService, times(checkpoint == StudyPlanStage.PENDING ? 1 : 0)).searchVideos(anyString(), anyInt());
+        verify(aiService, times(checkpoint.compareTo(StudyPlanStage.VIDEOS_FETCHED) <= 0 ? 1 : 0))
+                .generateStudyPlanContent(anyString());
+        verify(aiService, times(checkpoint.compareTo(StudyPlanStage.OUTLINE_GENERATED) <= 0 ? 1 : 0))
+                .generateQuizContentAsync(anyString());
+        assertEquals(StudyPlanStage.FINALIZED, plan.getGenerationStage());
+        // One heartbeat per checkpoint written by this run.
+        assertEquals(StudyPlanStage.QUIZZES_GENERATED.ordinal() - checkpoint.ordinal(), heartbeats.get());
+        assertEquals("Heaps in a week", plan.getTitle());
+        assertFalse(plan.isGenerating());
+        assertNull(plan.getGenerationCheckpoint());
+    }
+
+    @Test
+    void progressStreamReplaysTheSnapshotThenFollowsLiveEventsUntilFinalized() {
+        StudyPlan plan = plan(1L, StudyPlanStage.OUTLINE_GENERATED, practiceItem(11L, "Heaps"));
+        plan.setTitle("Heaps in a week");
+        plan.setStudent(student(EMAIL));
+        when(quizQuestionRepository.findByStudyPlanItemIdIn(anyList())).thenReturn(List.of());
+
+        StepVerifier.create(service.streamProgress(1L, EMAIL).map(StudyPlanProgressEvent::type))
+                .expectNext(StudyPlanProgressEvent.STAGE, StudyPlanProgressEvent.TITLE, StudyPlanProgressEvent.DAY)
+                .then(() -> {
+                    progressBroadcaster.publish(1L, StudyPlanProgressEvent.QUIZ, StudyPlanStage.QUIZZES_GENERATED,
+                            Map.of("itemId", 11L));
+                    progressBroadcaster.publish(1L, StudyPlanProgressEvent.FINALIZED, StudyPlanStage.FINALIZED, null);
+                })
+                .expectNext(StudyPlanProgressEvent.QUIZ, StudyPlanProgressEvent.FINALIZED)
+                .verifyComplete();
+
+        // A finished plan is replayed from the database alone and the stream ends with it.
+        plan.setGenerating(false);
+        plan.setGenerationStage(StudyPlanStage.FINALIZED);
+        StepVerifier.create(service.streamProgress(1L, EMAIL).map(StudyPlanProgressEvent::type))
+                .expectNext(StudyPlanProgressEvent.TITLE, StudyPlanProgressEvent.DAY, StudyPlanProgressEvent.FINALIZED)
+                .verifyComplete();
+
+        StepVerifier.create(service.streamProgress(1L, "someone-else@example.com"))
+                .expectError(StudyPlanNotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    void syllabusLessonSearchesRunOnceEachAndConcurrently() {
+        when(studentRepository.findByEmail(EMAIL)).thenReturn(Optional.of(student(EMAIL)));
+        when(aiService.generateStudyPlanContent(anyString(), any(ExtractedDocument.class))).thenReturn(
+                "{\"title\": \"Trees\", \"playlistQuery\": \"trees playlist\"}",
+                "{\"title\": \"Trees\", \"difficulty\": \"Medium\", \"days\": ["
+                        + "{\"dayNumber\": 1, \"lessons\": [{\"title\": \"Heaps\", \"searchQuery\": \"heaps\"},"
+                        + " {\"title\": \"Heapsort\", \"searchQuery\": \"heaps\"}]},"
+                        + " {\"dayNumber\": 2, \"lessons\": [{\"title\": \"Tries\", \"searchQuery\": \"tries\"}]}]}");
+        when(aiService.generateQuizContentAsync(anyString())).thenReturn(Mono.error(new RuntimeException("skip")));
+        when(studyPlanRepository.save(any(StudyPlan.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Each search waits for the other, so a sequential fan-out would fall through the latch timeout.
+        CountDownLatch bothInFlight = new CountDownLatch(2);
+        AtomicInteger overlapping = new AtomicInteger();
+        Map<String, List<Map<String, String>>> results = Map.of(
+                "heaps", List.of(video("h1"), video("h2")),
+                "tries", List.of(video("t1")));
+        when(youTubeService.searchVideos(anyString(), anyInt())).thenAnswer(invocation -> {
+            bothInFlight.countDown();
+            if (bothInFlight.await(5, TimeUnit.SECONDS)) {
+                overlapping.incrementAndGet();
+            }
+            return results.getOrDefault(invocation.<String>getArgument(0), List.of());
+        });
+
+        StudyPlan plan = service.generateStudyPlanFromSyllabus(EMAIL,
+                new ExtractedDocument("hash", "text/plain", "Heaps, heapsort and tries"), 2);
+
+        verify(youTubeService, times(1)).searchVideos(eq("heaps"), anyInt());
+        verify(youTubeService, times(1)).searchVideos(eq("tries"), anyInt());
+        assertEquals(2, overlapping.get());
+        // Lessons sharing a query still get distinct videos from its results.
+        assertEquals(List.of("h1", "h2", "t1"), plan.getItems().stream()
+                .filter(item -> "VIDEO".equals(item.getItemType()))
+                .map(StudyPlanItem::getVideoId)
+                .toList());
+    }
+
+    @Test
+    void secondUploadOfTheSameSyllabusClonesThePlanWithoutCallingAiOrYouTube() {
+        stubSyllabusGeneration();
+        StudyPlan first = service.generateStudyPlanFromSyllabus(EMAIL,
+                new ExtractedDocument("hash", "text/plain", "Heaps and\n tries"), 2);
+
+        StudyPlan second = service.generateStudyPlanFromSyllabus(EMAIL,
+                new ExtractedDocument("other", "text/plain", "  HEAPS AND TRIES "), 2);
+
+        verify(aiService, times(2)).generateStudyPlanContent(anyString(), any(ExtractedDocument.class));
+        verify(aiService, times(2)).generateQuizContentAsync(anyString());
+        verify(youTubeService, times(2)).searchVideos(anyString(), anyInt());
+        verify(youTubeService, times(1)).searchPlaylists(anyString(), anyInt());
+        assertEquals(first.getTitle(), second.getTitle());
+        assertEquals(first.getItems().stream().map(StudyPlanItem::getVideoId).toList(),
+                second.getItems().stream().map(StudyPlanItem::getVideoId).toList());
+        assertTrue(Collections.disjoint(itemIds(first), itemIds(second)));
+
+        // Each cloned quiz belongs to the matching item of the new plan.
+        ArgumentCaptor<List<QuizQuestion>> saved = quizCaptor();
+        verify(quizQuestionRepository, times(2)).saveAll(saved.capture());
+        Map<String, String> questionByTopic = saved.getAllValues().get(1).stream()
+                .collect(Collectors.toMap(question -> question.getStudyPlanItem().getPracticeTopic(),
+                        QuizQuestion::getQuestionText));
+        assertEquals(Map.of("Heaps", "Heaps Q", "Tries", "Tries Q"), questionByTopic);
+        assertTrue(saved.getAllValues().get(1).stream()
+                .allMatch(question -> second.getItems().contains(question.getStudyPlanItem())));
+    }
+
+    @Test
+    void differentDurationMissesTheSyllabusCache() {
+        stubSyllabusGeneration();
+        ExtractedDocument syllabus = new ExtractedDocument("hash", "text/plain", "Heaps and tries");
+
+        service.generateStudyPlanFromSyllabus(EMAIL, syllabus, 2);
+        service.generateStudyPlanFromSyllabus(EMAIL, syllabus, 3);
+
+        verify(aiService, times(4)).generateStudyPlanContent(anyString(), any(ExtractedDocument.class));
+    }
+
+    @Test
+    void planWithAMissingQuizIsNeverCached() {
+        stubSyllabusGeneration();
+        when(aiService.generateQuizContentAsync(contains("Tries")))
+                .thenReturn(Mono.error(new RuntimeException("AI_PRACTICE_UNAVAILABLE")));
+        ExtractedDocument syllabus = new ExtractedDocument("hash", "text/plain", "Heaps and tries");
+
+        service.generateStudyPlanFromSyllabus(EMAIL, syllabus, 2);
+
+        assertTrue(((Map<?, ?>) cacheManager.getCache("SyllabusPlanSkeletonCache").getNativeCache()).isEmpty());
+        service.generateStudyPlanFromSyllabus(EMAIL, syllabus, 2);
+        verify(aiService, times(4)).generateStudyPlanContent(anyString(), any(ExtractedDocument.class));
+    }
+
+    private void stubSyllabusGeneration() {
+        when(studentRepository.findByEmail(EMAIL)).thenReturn(Optional.of(student(EMAIL)));
+        when(aiService.generateStudyPlanContent(contains("playlistQuery"), any(ExtractedDocument.class)))
+                .thenReturn("{\"title\": \"Trees\", \"playlistQuery\": \"trees playlist\"}");
+        when(aiService.generateStudyPlanContent(contains("-day complete study plan"), any(ExtractedDocument.class)))
+                .thenReturn("{\"title\": \"Trees\", \"difficulty\": \"Medium\", \"days\": ["
+                        + "{\"dayNumber\": 1, \"lessons\": [{\"title\": \"Heaps\", \"searchQuery\": \"heaps\"}]},"
+                        + " {\"dayNumber\": 2, \"lessons\": [{\"title\": \"Tries\", \"searchQuery\": \"tries\"}]}]}");
+        when(youTubeService.searchVideos(eq("heaps"), anyInt())).thenReturn(List.of(video("h1")));
+        when(youTubeService.searchVideos(eq("tries"), anyInt())).thenReturn(List.of(video("t1")));
+        when(aiService.generateQuizContentAsync(contains("Heaps"))).thenReturn(Mono.just(QUIZ.replace("\"Q\"", "\"Heaps Q\"")));
+        when(aiService.generateQuizContentAsync(contains("Tries"))).thenReturn(Mono.just(QUIZ.replace("\"Q\"", "\"Tries Q\"")));
+        AtomicLong ids = new AtomicLong(1);
+        when(studyPlanRepository.save(any(StudyPlan.class))).thenAnswer(invocation -> {
+            StudyPlan saved = invocation.getArgument(0);
+            saved.setId(ids.getAndIncrement());
+            saved.getItems().forEach(item -> item.setId(ids.getAndIncrement()));
+            return saved;
+        });
+    }
+
+    private static List<Long> itemIds(StudyPlan plan) {
+        return plan.getItems().stream().map(StudyPlanItem::getId).toList();
+    }
+
+    private StudyPlan plan(Long id, StudyPlanStage stage, StudyPlanItem... items) {
+        StudyPlan plan = new StudyPlan();
+        plan.setId(id);
+        plan.setTopic("Data Structures");
+        plan.setGenerating(true);
+        plan.setGenerationStage(stage);
+        for (StudyPlanItem item : items) {
+            plan.addItem(item);
+        }
+        when(studyPlanRepository.findById(id)).thenReturn(Optional.of(plan));
+        when(studyPlanRepository.findWithItemsById(id)).thenReturn(plan);
+        when(studyPlanRepository.save(any(StudyPlan.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(studyPlanRepository.saveAndFlush(any(StudyPlan.class))).thenAnswer(invocation -> {
+            StudyPlan saved = invocation.getArgument(0);
+            long nextId = 100;
+            for (StudyPlanItem item : saved.getItems()) {
+                if (item.getId() == null) {
+                    item.setId(nextId++);
+                }
+            }
+            return saved;
+        });
+        return plan;
+    }
+
+    private static StudyPlanItem practiceItem(Long id, String topic) {
+        StudyPlanItem item = new StudyPlanItem();
+        item.setId(id);
+        item.setItemType("PRACTICE");
+        item.setPracticeSubject("Data Structures");
+        item.setPracticeTopic(topic);
+        item.setPracticeDifficulty("Medium");
+        return item;
+    }
+
+    private static Map<String, String> video(String id) {
+        return Map.of("videoId", id, "title", "Video " + id, "channelTitle", "CS Channel", "duration", "PT10M",
+                "thumbnailUrl", "https://img/" + id + ".jpg");
+    }
+
+    private static Student student(String email) {
+        Student student = new Student();
+        student.setEmail(email);
+        return student;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<QuizQuestion>> quizCaptor() {
+        return ArgumentCaptor.forClass(List.class);
     }
 }
@@ -0,0 +1,79 @@
+package com.practice.aiplatform.studyplan;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+class YouTubeVideoCatalogTest {
+
+    @Autowired
+    private YouTubeVideoRepository videoRepository;
+
+    @Autowired
+    private YouTubeTopicVideoRepository topicVideoRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private YouTubeVideoCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new YouTubeVideoCatalog(videoRepository, topicVideoRepository, meterRegistry, 24);
+    }
+
+    @Test
+    void warmTopicIsServedInSearchOrderWhateverTheQuerySpacing() {
+        catalog.indexTopic("Binary Trees  Medium", 3, List.of(video("v2"), video("v1"), video("v3")));
+
+        Optional<List<Map<String, String>>> videos = catalog.findByTopic(" binary trees medium", 2);
+
+        assertEquals(List.of("v2", "v1"), videos.orElseThrow().stream().map(video -> video.get("videoId")).toList());
+        assertEquals("Title v2", videos.get().get(0).get("title"));
+        assertEquals(1.0, lookups("hit"));
+    }
+
+    @Test
+    void topicIsColdUntilIndexedWithEnoughResults() {
+        assertTrue(catalog.findByTopic("graphs", 5).isEmpty());
+
+        catalog.indexTopic("graphs", 2, List.of(video("g1"), video("g2")));
+
+        // A search that asked for fewer videos cannot answer a larger request.
+        assertTrue(catalog.findByTopic("graphs", 5).isEmpty());
+        assertEquals(2, catalog.findByTopic("graphs", 2).orElseThrow().size());
+        assertEquals(2.0, lookups("cold"));
+    }
+
+    @Test
+    void topicOlderThanTheTtlIsOnlyServedAsAStaleFallback() {
+        catalog.indexTopic("graphs", 2, List.of(video("g1"), video("g2")));
+        topicVideoRepository.findAll().forEach(row -> row.setIndexedAt(Instant.now().minus(Duration.ofHours(25))));
+        topicVideoRepository.flush();
+
+        assertTrue(catalog.findByTopic("graphs", 2).isEmpty());
+        assertEquals(List.of("g1", "g2"), catalog.findStaleByTopic("graphs", 2).orElseThrow().stream()
+                .map(video -> video.get("videoId"))
+                .toList());
+        assertEquals(1.0, lookups("stale"));
+    }
+
+    private double lookups(String result) {
+        return meterRegistry.counter("youtube.catalog.lookup", "result", result).count();
+    }
+
+    private static Map<String, String> video(String id) {
+        return Map.of("videoId", id, "title", "Title " + id, "channelTitle", "CS Channel",
+                "thumbnailUrl", "https://img/" + id + ".jpg", "description", "", "duration", "PT10M");
+    }
+}